@@ -71,6 +71,11 @@ public class AndroidSQLCipherSQLite extends SQLDatabase {
         }
     }
 
+    @Override
+    public boolean enableWriteAheadLogging() {
+        return this.database.enableWriteAheadLogging();
+    }
+
     @Override
     public void open() {
         // database should be already opened
@@ -104,6 +109,27 @@ public class AndroidSQLCipherSQLite extends SQLDatabase {
         this.database.setTransactionSuccessful();
     }
 
+    // encrypted databases have no read-only connections, so a read transaction is begun on the
+    // writable connection, where it needn't avoid taking the write lock
+    @Override
+    public void beginReadTransaction() throws java.sql.SQLException {
+        try {
+            this.database.beginTransaction();
+        } catch (SQLException e) {
+            throw new java.sql.SQLException(e);
+        }
+    }
+
+    @Override
+    public void endReadTransaction() throws java.sql.SQLException {
+        try {
+            this.database.setTransactionSuccessful();
+            this.database.endTransaction();
+        } catch (SQLException e) {
+            throw new java.sql.SQLException(e);
+        }
+    }
+
     @Override
     public void execSQL(String sql) throws java.sql.SQLException {
         Misc.checkNotNullOrEmpty(sql.trim(), "Input SQL");
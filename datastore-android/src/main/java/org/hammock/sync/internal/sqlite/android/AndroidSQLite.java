@@ -39,6 +39,18 @@ public class AndroidSQLite extends SQLDatabase {
         return new AndroidSQLite(db);
     }
 
+    /**
+     * Opens a read-only connection to an existing database file.
+     *
+     * @param path the database file, which must already exist
+     * @return a read-only {@code AndroidSQLite}
+     */
+    public static AndroidSQLite openReadOnly(File path) {
+        Misc.checkNotNull(path, "path");
+        return new AndroidSQLite(SQLiteDatabase.openDatabase(path.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY));
+    }
+
     public AndroidSQLite(final android.database.sqlite.SQLiteDatabase database) {
         this.database = database;
 
@@ -54,6 +66,11 @@ public class AndroidSQLite extends SQLDatabase {
         }
     }
 
+    @Override
+    public boolean enableWriteAheadLogging() {
+        return this.database.enableWriteAheadLogging();
+    }
+
     @Override
     public void open() {
         // database should be already opened
@@ -82,6 +99,26 @@ public class AndroidSQLite extends SQLDatabase {
         this.database.endTransaction();
     }
 
+    // only used where SQLDatabaseFactory.supportsReadTransactions(), from API level 35
+    @Override
+    public void beginReadTransaction() throws java.sql.SQLException {
+        try {
+            this.database.beginTransactionReadOnly();
+        } catch (android.database.SQLException e) {
+            throw new java.sql.SQLException(e);
+        }
+    }
+
+    @Override
+    public void endReadTransaction() throws java.sql.SQLException {
+        try {
+            this.database.setTransactionSuccessful();
+            this.database.endTransaction();
+        } catch (android.database.SQLException e) {
+            throw new java.sql.SQLException(e);
+        }
+    }
+
     @Override
     public void setTransactionSuccessful() {
         this.database.setTransactionSuccessful();
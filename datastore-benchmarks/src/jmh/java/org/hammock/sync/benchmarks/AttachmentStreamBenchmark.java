@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.Attachment;
+import org.hammock.sync.documentstore.encryption.KeyProvider;
+import org.hammock.sync.documentstore.encryption.NullKeyProvider;
+import org.hammock.sync.documentstore.encryption.SimpleKeyProvider;
+import org.hammock.sync.internal.documentstore.AttachmentStreamFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading attachment files through {@link AttachmentStreamFactory}, with and
+ * without encryption and gzip encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AttachmentStreamBenchmark {
+
+    @Param({"false", "true"})
+    public boolean encrypted;
+
+    @Param({"Plain", "Gzip"})
+    public Attachment.Encoding encoding;
+
+    @Param({"1048576"})
+    public int attachmentSize;
+
+    private File dir;
+    private File readFile;
+    private File writeFile;
+    private AttachmentStreamFactory factory;
+    private byte[] data;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkUtils.createTempDirectory();
+        readFile = new File(dir, "read");
+        writeFile = new File(dir, "write");
+
+        KeyProvider keyProvider;
+        if (encrypted) {
+            byte[] key = new byte[32];
+            new Random(42).nextBytes(key);
+            keyProvider = new SimpleKeyProvider(key);
+        } else {
+            keyProvider = new NullKeyProvider();
+        }
+        factory = new AttachmentStreamFactory(keyProvider);
+
+        // half random and half repeated bytes, so gzip has something but not everything
+        // to compress
+        data = new byte[attachmentSize];
+        new Random(42).nextBytes(data);
+        for (int i = attachmentSize / 2; i < attachmentSize; i++) {
+            data[i] = (byte) (i % 16);
+        }
+        buffer = new byte[8192];
+        write(readFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Benchmark
+    public void write() throws Exception {
+        write(writeFile);
+    }
+
+    @Benchmark
+    public long read() throws Exception {
+        long total = 0;
+        InputStream is = factory.getInputStream(readFile, encoding);
+        try {
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                total += n;
+            }
+        } finally {
+            is.close();
+        }
+        return total;
+    }
+
+    private void write(File file) throws Exception {
+        OutputStream os = factory.getOutputStream(file, encoding);
+        try {
+            os.write(data);
+        } finally {
+            os.close();
+        }
+    }
+}
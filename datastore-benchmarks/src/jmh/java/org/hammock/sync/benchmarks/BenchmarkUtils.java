@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.DocumentBody;
+import org.hammock.sync.documentstore.DocumentBodyFactory;
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.DocumentStore;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers shared by the benchmarks for creating document stores and documents.
+ */
+public final class BenchmarkUtils {
+
+    public static final String[] NAMES = {"mike", "fred", "john", "anna", "lucy", "paul", "rose", "tom"};
+    public static final String[] PETS = {"cat", "dog", "fish", "parrot", "rabbit"};
+
+    private BenchmarkUtils() {
+    }
+
+    public static File createTempDirectory() throws IOException {
+        return Files.createTempDirectory("hammock-sync-benchmark").toFile();
+    }
+
+    public static void deleteQuietly(DocumentStore store, File dir) {
+        if (store != null) {
+            store.close();
+        }
+        FileUtils.deleteQuietly(dir);
+    }
+
+    /**
+     * Returns the body of the i-th document of a benchmark data set. The bodies have a few
+     * fields to query on and a text field which pads them to roughly {@code size} bytes.
+     */
+    public static Map<String, Object> bodyMap(int i, int size) {
+        Map<String, Object> body = new HashMap<String, Object>();
+        body.put("name", NAMES[i % NAMES.length]);
+        body.put("age", 18 + i % 60);
+        body.put("pet", PETS[i % PETS.length]);
+        body.put("index", i);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < size) {
+            text.append("lorem ipsum dolor sit amet ");
+        }
+        body.put("text", text.toString());
+        return body;
+    }
+
+    public static DocumentBody body(int i, int size) {
+        return DocumentBodyFactory.create(bodyMap(i, size));
+    }
+
+    public static String docId(int i) {
+        return String.format("doc-%08d", i);
+    }
+
+    /**
+     * Creates {@code count} documents with IDs {@link #docId(int)} in the store.
+     *
+     * @return the created revisions
+     */
+    public static List<DocumentRevision> createDocuments(DocumentStore store, int count, int size)
+            throws Exception {
+        List<DocumentRevision> created = new ArrayList<DocumentRevision>(count);
+        for (int i = 0; i < count; i++) {
+            DocumentRevision rev = new DocumentRevision(docId(i));
+            rev.setBody(body(i, size));
+            created.add(store.database().create(rev));
+        }
+        return created;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.Changes;
+import org.hammock.sync.documentstore.Database;
+import org.hammock.sync.documentstore.DocumentStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the whole changes feed a page at a time with {@link Database#changes(long, int)}, as
+ * push replication and index updates do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChangesBenchmark {
+
+    @Param({"5000"})
+    public int documents;
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private File dir;
+    private DocumentStore store;
+    private Database database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkUtils.createTempDirectory();
+        store = DocumentStore.getInstance(dir);
+        database = store.database();
+        BenchmarkUtils.createDocuments(store, documents, 500);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUtils.deleteQuietly(store, dir);
+    }
+
+    @Benchmark
+    public int readAllChanges() throws Exception {
+        int count = 0;
+        long since = 0;
+        Changes changes;
+        do {
+            changes = database.changes(since, pageSize);
+            count += changes.getResults().size();
+            since = changes.getLastSequence();
+        } while (!changes.getResults().isEmpty());
+        if (count != documents) {
+            throw new IllegalStateException("Expected " + documents + " changes, read " + count);
+        }
+        return count;
+    }
+}
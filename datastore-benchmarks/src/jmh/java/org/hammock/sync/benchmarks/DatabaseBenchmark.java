@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.Database;
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.DocumentStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single document create, update and read through {@link Database}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DatabaseBenchmark {
+
+    @Param({"1000"})
+    public int documents;
+
+    @Param({"200", "10000"})
+    public int bodySize;
+
+    private File dir;
+    private DocumentStore store;
+    private Database database;
+    private DocumentRevision[] revisions;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkUtils.createTempDirectory();
+        store = DocumentStore.getInstance(dir);
+        database = store.database();
+        List<DocumentRevision> created = BenchmarkUtils.createDocuments(store, documents,
+                bodySize);
+        revisions = created.toArray(new DocumentRevision[created.size()]);
+        next = documents;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUtils.deleteQuietly(store, dir);
+    }
+
+    @Benchmark
+    public DocumentRevision create() throws Exception {
+        DocumentRevision rev = new DocumentRevision(BenchmarkUtils.docId(next++));
+        rev.setBody(BenchmarkUtils.body(next, bodySize));
+        return database.create(rev);
+    }
+
+    @Benchmark
+    public DocumentRevision update() throws Exception {
+        int i = next++ % revisions.length;
+        DocumentRevision rev = revisions[i];
+        rev.setBody(BenchmarkUtils.body(next, bodySize));
+        revisions[i] = database.update(rev);
+        return revisions[i];
+    }
+
+    @Benchmark
+    public DocumentRevision read() throws Exception {
+        return database.read(revisions[next++ % revisions.length].getId());
+    }
+
+    @Benchmark
+    public DocumentRevision readRevision() throws Exception {
+        DocumentRevision rev = revisions[next++ % revisions.length];
+        return database.read(rev.getId(), rev.getRevision());
+    }
+}
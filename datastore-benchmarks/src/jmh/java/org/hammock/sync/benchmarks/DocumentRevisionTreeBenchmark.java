@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.DocumentBodyFactory;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
+import org.hammock.sync.internal.documentstore.DocumentRevisionTree;
+import org.hammock.sync.internal.documentstore.InternalDocumentRevision;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a {@link DocumentRevisionTree} from a document's revisions and picking the winner,
+ * as every update, delete and replicated insert does. The tree is one long branch with a
+ * conflicting branch off every tenth revision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DocumentRevisionTreeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int depth;
+
+    private List<InternalDocumentRevision> revisions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // revisions are in sequence order, so every parent comes before its children
+        revisions = new ArrayList<InternalDocumentRevision>();
+        long sequence = 0;
+        long parent = 0;
+        for (int generation = 1; generation <= depth; generation++) {
+            long current = ++sequence;
+            revisions.add(revision(String.format("%d-a", generation), current, parent,
+                    generation == depth));
+            if (generation % 10 == 0 && generation < depth) {
+                revisions.add(revision(String.format("%d-b", generation + 1), ++sequence,
+                        current, true));
+            }
+            parent = current;
+        }
+    }
+
+    @Benchmark
+    public DocumentRevisionTree build() {
+        DocumentRevisionTree tree = new DocumentRevisionTree(revisions.get(0));
+        for (int i = 1; i < revisions.size(); i++) {
+            tree.add(revisions.get(i));
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public InternalDocumentRevision buildAndGetCurrentRevision() {
+        return build().getCurrentRevision();
+    }
+
+    private static InternalDocumentRevision revision(String revId, long sequence, long parent,
+                                                     boolean current) {
+        return new DocumentRevisionBuilder()
+                .setDocId("doc")
+                .setRevId(revId)
+                .setBody(DocumentBodyFactory.EMPTY)
+                .setInternalId(1)
+                .setSequence(sequence)
+                .setParent(parent)
+                .setCurrent(current)
+                .build();
+    }
+}
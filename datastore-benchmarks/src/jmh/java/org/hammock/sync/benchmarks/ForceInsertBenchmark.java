@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.DocumentStore;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
+import org.hammock.sync.internal.documentstore.ForceInsertItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting batches of replicated revisions with {@link DatabaseImpl#forceInsert(List)}, as
+ * pull replication does. Half of each batch are new documents and half are new revisions of
+ * documents inserted by an earlier batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ForceInsertBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int batchSize;
+
+    @Param({"1000"})
+    public int bodySize;
+
+    private File dir;
+    private DocumentStore store;
+    private DatabaseImpl database;
+    private int nextDoc;
+    private int generation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkUtils.createTempDirectory();
+        store = DocumentStore.getInstance(dir);
+        database = (DatabaseImpl) store.database();
+        // documents for the first batch to add revisions to
+        database.forceInsert(batch(0, batchSize, 1));
+        nextDoc = batchSize;
+        generation = 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUtils.deleteQuietly(store, dir);
+    }
+
+    @Benchmark
+    public void forceInsert() throws Exception {
+        int half = Math.max(1, batchSize / 2);
+        List<ForceInsertItem> items = batch(nextDoc, half, 1);
+        // the same documents are updated by every batch, one generation at a time
+        generation++;
+        items.addAll(batch(0, batchSize - half, generation));
+        nextDoc += half;
+        database.forceInsert(items);
+    }
+
+    private List<ForceInsertItem> batch(int firstDoc, int count, int generation) {
+        List<ForceInsertItem> items = new ArrayList<ForceInsertItem>(count);
+        for (int i = firstDoc; i < firstDoc + count; i++) {
+            // only the parent is sent with each new revision, as the revisions before it are
+            // already in the database, so the cost of a batch doesn't grow with the generation
+            List<String> history = new ArrayList<String>(2);
+            for (int g = Math.max(1, generation - 1); g <= generation; g++) {
+                history.add(String.format("%d-%032x", g, g));
+            }
+            items.add(new ForceInsertItem(new DocumentRevisionBuilder()
+                    .setDocId(BenchmarkUtils.docId(i))
+                    .setRevId(history.get(history.size() - 1))
+                    .setBody(BenchmarkUtils.body(i, bodySize))
+                    .build(), history, null, null, false));
+        }
+        return items;
+    }
+}
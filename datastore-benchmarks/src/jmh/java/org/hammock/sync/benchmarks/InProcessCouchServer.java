@@ -0,0 +1,346 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>A minimal in-memory stand-in for a CouchDB database, served over HTTP on the loopback
+ * interface, so replication can be benchmarked without the cost and noise of a real server.</p>
+ *
+ * <p>It implements only the endpoints pull and push replication use: database info,
+ * {@code _changes}, {@code _bulk_get}, {@code _revs_diff}, {@code _bulk_docs} with
+ * {@code new_edits=false} and {@code _local} checkpoint documents. Documents keep only their
+ * latest revision, and attachments, filters and conflicts aren't supported.</p>
+ */
+final class InProcessCouchServer {
+
+    private static final String DB_NAME = "benchmark";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // all guarded by this
+    private final Map<String, StoredDocument> documents = new HashMap<String, StoredDocument>();
+    private final TreeMap<Long, String> bySequence = new TreeMap<Long, String>();
+    private final Map<String, Object> localDocuments = new HashMap<String, Object>();
+    private long updateSeq = 0;
+
+    private static class StoredDocument {
+        final Map<String, Object> json;
+        final String rev;
+        final long seq;
+
+        StoredDocument(Map<String, Object> json, String rev, long seq) {
+            this.json = json;
+            this.rev = rev;
+            this.seq = seq;
+        }
+    }
+
+    InProcessCouchServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.createContext("/" + DB_NAME, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    InProcessCouchServer.this.handle(exchange);
+                } catch (RuntimeException e) {
+                    send(exchange, 500, error("internal_server_error", String.valueOf(e)));
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    URI getDatabaseUri() {
+        return URI.create(String.format("http://127.0.0.1:%d/%s", server.getAddress().getPort(),
+                DB_NAME));
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Removes all documents and checkpoints.
+     */
+    synchronized void clear() {
+        documents.clear();
+        bySequence.clear();
+        localDocuments.clear();
+        updateSeq = 0;
+    }
+
+    synchronized int getDocumentCount() {
+        return documents.size();
+    }
+
+    /**
+     * Adds {@code count} documents with bodies from {@link BenchmarkUtils#bodyMap(int, int)}.
+     */
+    synchronized void addDocuments(int count, int size) {
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> json = new LinkedHashMap<String, Object>();
+            json.put("_id", BenchmarkUtils.docId(i));
+            json.put("_rev", String.format("1-%032x", i));
+            json.putAll(BenchmarkUtils.bodyMap(i, size));
+            store(json);
+        }
+    }
+
+    // must hold the lock
+    private void store(Map<String, Object> json) {
+        String id = (String) json.get("_id");
+        String rev = (String) json.get("_rev");
+        StoredDocument previous = documents.get(id);
+        if (previous != null) {
+            bySequence.remove(previous.seq);
+        }
+        long seq = ++updateSeq;
+        documents.put(id, new StoredDocument(json, rev, seq));
+        bySequence.put(seq, id);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        // the decoded path, in which "_local/" IDs keep their slash
+        String path = exchange.getRequestURI().getPath().substring(DB_NAME.length() + 1);
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if (path.isEmpty() && "GET".equals(method)) {
+            send(exchange, 200, databaseInfo());
+        } else if ("_changes".equals(path)) {
+            send(exchange, 200, changes(query));
+        } else if ("_bulk_get".equals(path)) {
+            if ("POST".equals(method)) {
+                send(exchange, 200, bulkGet(readBody(exchange)));
+            } else {
+                send(exchange, 405, error("method_not_allowed", "Only POST allowed"));
+            }
+        } else if ("_revs_diff".equals(path) && "POST".equals(method)) {
+            send(exchange, 200, revsDiff(readBody(exchange)));
+        } else if ("_bulk_docs".equals(path) && "POST".equals(method)) {
+            send(exchange, 201, bulkDocs(readBody(exchange)));
+        } else if (path.startsWith("_local/")) {
+            if ("PUT".equals(method)) {
+                send(exchange, 201, putLocal(path, readBody(exchange)));
+            } else {
+                Object local = getLocal(path);
+                if (local == null) {
+                    send(exchange, 404, error("not_found", "missing"));
+                } else {
+                    send(exchange, 200, local);
+                }
+            }
+        } else {
+            send(exchange, 404, error("not_found", "missing"));
+        }
+    }
+
+    private synchronized Map<String, Object> databaseInfo() {
+        Map<String, Object> info = new LinkedHashMap<String, Object>();
+        info.put("db_name", DB_NAME);
+        info.put("doc_count", documents.size());
+        info.put("update_seq", updateSeq);
+        info.put("instance_start_time", 0);
+        return info;
+    }
+
+    private synchronized Map<String, Object> changes(Map<String, String> query) {
+        long since = parseSequence(query.get("since"));
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) :
+                Integer.MAX_VALUE;
+        List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+        long lastSeq = since;
+        for (Map.Entry<Long, String> entry : bySequence.tailMap(since, false).entrySet()) {
+            if (results.size() >= limit) {
+                break;
+            }
+            Map<String, Object> row = new LinkedHashMap<String, Object>();
+            row.put("seq", entry.getKey());
+            row.put("id", entry.getValue());
+            row.put("changes", Collections.singletonList(Collections.singletonMap("rev",
+                    documents.get(entry.getValue()).rev)));
+            results.add(row);
+            lastSeq = entry.getKey();
+        }
+        Map<String, Object> changes = new LinkedHashMap<String, Object>();
+        changes.put("results", results);
+        changes.put("last_seq", lastSeq);
+        return changes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized Map<String, Object> bulkGet(Map<String, Object> request) {
+        List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+        for (Map<String, Object> docRequest : (List<Map<String, Object>>) request.get("docs")) {
+            String id = (String) docRequest.get("id");
+            StoredDocument stored = documents.get(id);
+            Map<String, Object> doc;
+            if (stored != null) {
+                Map<String, Object> ok = new LinkedHashMap<String, Object>(stored.json);
+                String[] rev = stored.rev.split("-", 2);
+                Map<String, Object> revisions = new LinkedHashMap<String, Object>();
+                revisions.put("start", Integer.parseInt(rev[0]));
+                revisions.put("ids", Collections.singletonList(rev[1]));
+                ok.put("_revisions", revisions);
+                doc = Collections.<String, Object>singletonMap("ok", ok);
+            } else {
+                Map<String, Object> notFound = error("not_found", "missing");
+                notFound.put("id", id);
+                notFound.put("rev", docRequest.get("rev"));
+                doc = Collections.<String, Object>singletonMap("error", notFound);
+            }
+            Map<String, Object> result = new LinkedHashMap<String, Object>();
+            result.put("id", id);
+            result.put("docs", Collections.singletonList(doc));
+            results.add(result);
+        }
+        return Collections.<String, Object>singletonMap("results", results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized Map<String, Object> revsDiff(Map<String, Object> request) {
+        Map<String, Object> diff = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Object> entry : request.entrySet()) {
+            StoredDocument stored = documents.get(entry.getKey());
+            List<String> missing = new ArrayList<String>();
+            for (String rev : (List<String>) entry.getValue()) {
+                if (stored == null || !stored.rev.equals(rev)) {
+                    missing.add(rev);
+                }
+            }
+            if (!missing.isEmpty()) {
+                diff.put(entry.getKey(), Collections.singletonMap("missing", missing));
+            }
+        }
+        return diff;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized List<Object> bulkDocs(Map<String, Object> request) {
+        for (Map<String, Object> doc : (List<Map<String, Object>>) request.get("docs")) {
+            doc.remove("_revisions");
+            store(doc);
+        }
+        // with new_edits=false CouchDB only reports failures
+        return Collections.emptyList();
+    }
+
+    private synchronized Object getLocal(String id) {
+        return localDocuments.get(id);
+    }
+
+    private synchronized Map<String, Object> putLocal(String id, Map<String, Object> doc) {
+        doc.put("_id", id);
+        doc.put("_rev", "0-1");
+        localDocuments.put(id, doc);
+        Map<String, Object> response = new LinkedHashMap<String, Object>();
+        response.put("ok", true);
+        response.put("id", id);
+        response.put("rev", "0-1");
+        return response;
+    }
+
+    // since is JSON encoded by the client, and may be a number or a string
+    private static long parseSequence(String since) {
+        if (since == null) {
+            return 0;
+        }
+        String s = since.replace("\"", "");
+        int dash = s.indexOf('-');
+        if (dash > 0) {
+            s = s.substring(0, dash);
+        }
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        Map<String, String> query = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String term : rawQuery.split("&")) {
+            int equals = term.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(term.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(term.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static Map<String, Object> error(String error, String reason) {
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        json.put("error", error);
+        json.put("reason", reason);
+        return json;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        InputStream is = exchange.getRequestBody();
+        try {
+            return mapper.readValue(is, Map.class);
+        } finally {
+            is.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, Object json) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(json);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        try {
+            os.write(bytes);
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.DocumentStore;
+import org.hammock.sync.query.FieldSort;
+import org.hammock.sync.query.Query;
+import org.hammock.sync.query.QueryResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries through {@link Query#find}, answered by indexes alone and by matching the documents
+ * themselves when a field isn't indexed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QueryBenchmark {
+
+    @Param({"5000"})
+    public int documents;
+
+    private File dir;
+    private DocumentStore store;
+    private Query query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkUtils.createTempDirectory();
+        store = DocumentStore.getInstance(dir);
+        BenchmarkUtils.createDocuments(store, documents, 500);
+        query = store.query();
+        // "pet" is deliberately left unindexed
+        query.createJsonIndex(Arrays.asList(new FieldSort("name"), new FieldSort("age")),
+                "name_age");
+        query.refreshAllIndexes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUtils.deleteQuietly(store, dir);
+    }
+
+    @Benchmark
+    public void indexedEquality(Blackhole bh) throws Exception {
+        consume(bh, query.find(selector("name", "mike")));
+    }
+
+    @Benchmark
+    public void indexedRangeSorted(Blackhole bh) throws Exception {
+        Map<String, Object> range = new HashMap<String, Object>();
+        range.put("$gt", 30);
+        range.put("$lte", 40);
+        List<FieldSort> sort = Collections.singletonList(new FieldSort("age"));
+        consume(bh, query.find(selector("age", range), 0, 50, null, sort));
+    }
+
+    @Benchmark
+    public void indexedProjection(Blackhole bh) throws Exception {
+        consume(bh, query.find(selector("name", "mike"), 0, 0, Arrays.asList("name", "age"),
+                null));
+    }
+
+    @Benchmark
+    public int indexedCount() throws Exception {
+        return query.find(selector("name", "mike")).size();
+    }
+
+    @Benchmark
+    public void unindexed(Blackhole bh) throws Exception {
+        Map<String, Object> selector = selector("name", "mike");
+        selector.put("pet", "cat");
+        consume(bh, query.find(selector));
+    }
+
+    private static Map<String, Object> selector(String field, Object value) {
+        Map<String, Object> selector = new HashMap<String, Object>();
+        selector.put(field, value);
+        return selector;
+    }
+
+    private static void consume(Blackhole bh, QueryResult result) {
+        for (DocumentRevision rev : result) {
+            bh.consume(rev.getBody().asMap());
+        }
+    }
+}
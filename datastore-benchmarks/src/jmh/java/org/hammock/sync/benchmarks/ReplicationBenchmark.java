@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.benchmarks;
+
+import org.hammock.sync.documentstore.DocumentStore;
+import org.hammock.sync.http.HttpConnectionRequestInterceptor;
+import org.hammock.sync.http.HttpConnectionResponseInterceptor;
+import org.hammock.sync.internal.replication.PullStrategy;
+import org.hammock.sync.internal.replication.PushStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Complete pull and push replications of a set of documents against an
+ * {@link InProcessCouchServer}. Every invocation starts from an empty target, so all the
+ * documents are transferred each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplicationBenchmark {
+
+    private static final List<HttpConnectionRequestInterceptor> NO_REQUEST_INTERCEPTORS =
+            Collections.emptyList();
+    private static final List<HttpConnectionResponseInterceptor> NO_RESPONSE_INTERCEPTORS =
+            Collections.emptyList();
+
+    @Param({"1000"})
+    public int documents;
+
+    @Param({"500"})
+    public int bodySize;
+
+    InProcessCouchServer server;
+
+    // the store pushed from, which keeps its documents for the whole trial
+    private File sourceDir;
+    private DocumentStore source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new InProcessCouchServer();
+        sourceDir = BenchmarkUtils.createTempDirectory();
+        source = DocumentStore.getInstance(sourceDir);
+        BenchmarkUtils.createDocuments(source, documents, bodySize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop();
+        BenchmarkUtils.deleteQuietly(source, sourceDir);
+    }
+
+    /**
+     * A server holding the documents to pull and an empty store to pull them into.
+     */
+    @State(Scope.Benchmark)
+    public static class PullTarget {
+
+        private File dir;
+        private DocumentStore store;
+
+        @Setup(Level.Invocation)
+        public void setUp(ReplicationBenchmark benchmark) throws Exception {
+            benchmark.server.clear();
+            benchmark.server.addDocuments(benchmark.documents, benchmark.bodySize);
+            dir = BenchmarkUtils.createTempDirectory();
+            store = DocumentStore.getInstance(dir);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            BenchmarkUtils.deleteQuietly(store, dir);
+        }
+    }
+
+    /**
+     * An empty server to push to.
+     */
+    @State(Scope.Benchmark)
+    public static class PushTarget {
+
+        @Setup(Level.Invocation)
+        public void setUp(ReplicationBenchmark benchmark) {
+            benchmark.server.clear();
+        }
+    }
+
+    @Benchmark
+    public int pull(PullTarget target) throws Exception {
+        PullStrategy pull = new PullStrategy(server.getDatabaseUri(), target.store.database(),
+                null, null, null, NO_REQUEST_INTERCEPTORS, NO_RESPONSE_INTERCEPTORS);
+        pull.run();
+        if (pull.getDocumentCounter() != documents) {
+            throw new IllegalStateException("Expected " + documents + " documents pulled, got "
+                    + pull.getDocumentCounter());
+        }
+        return pull.getDocumentCounter();
+    }
+
+    @Benchmark
+    public int push(PushTarget target) throws Exception {
+        PushStrategy push = new PushStrategy(source.database(), server.getDatabaseUri(),
+                NO_REQUEST_INTERCEPTORS, NO_RESPONSE_INTERCEPTORS);
+        push.run();
+        if (server.getDocumentCount() != documents) {
+            throw new IllegalStateException("Expected " + documents + " documents pushed, got "
+                    + server.getDocumentCount());
+        }
+        return push.getDocumentCounter();
+    }
+}
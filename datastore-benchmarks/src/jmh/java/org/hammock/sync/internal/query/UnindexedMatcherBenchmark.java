@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.query;
+
+import org.hammock.sync.benchmarks.BenchmarkUtils;
+import org.hammock.sync.documentstore.DocumentRevision;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching documents in memory with {@link UnindexedMatcher}, as queries on fields without an
+ * index do for every candidate document. It's in the matcher's package as selectors have to be
+ * normalised by {@link QueryValidator} first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UnindexedMatcherBenchmark {
+
+    private static final int DOCUMENTS = 1000;
+
+    private List<DocumentRevision> revisions;
+    private UnindexedMatcher equality;
+    private UnindexedMatcher compound;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        revisions = new ArrayList<DocumentRevision>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            DocumentRevision rev = new DocumentRevision(BenchmarkUtils.docId(i), "1-a");
+            rev.setBody(BenchmarkUtils.body(i, 200));
+            revisions.add(rev);
+        }
+
+        Map<String, Object> selector = new HashMap<String, Object>();
+        selector.put("pet", "cat");
+        equality = matcher(selector);
+
+        // { "$or": [ { "name": "mike", "age": { "$gt": 30 } }, { "pet": { "$in": [...] } } ] }
+        Map<String, Object> age = new HashMap<String, Object>();
+        age.put("$gt", 30);
+        Map<String, Object> first = new HashMap<String, Object>();
+        first.put("name", "mike");
+        first.put("age", age);
+        Map<String, Object> in = new HashMap<String, Object>();
+        in.put("$in", Arrays.asList("fish", "parrot"));
+        Map<String, Object> second = new HashMap<String, Object>();
+        second.put("pet", in);
+        Map<String, Object> or = new HashMap<String, Object>();
+        or.put("$or", Arrays.asList(first, second));
+        compound = matcher(or);
+    }
+
+    @Benchmark
+    public int matchEquality() {
+        return count(equality);
+    }
+
+    @Benchmark
+    public int matchCompound() {
+        return count(compound);
+    }
+
+    private int count(UnindexedMatcher matcher) {
+        int matches = 0;
+        for (DocumentRevision rev : revisions) {
+            if (matcher.matches(rev)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static UnindexedMatcher matcher(Map<String, Object> selector) throws Exception {
+        return UnindexedMatcher.matcherWithSelector(QueryValidator.normaliseAndValidateQuery(
+                selector));
+    }
+}
@@ -375,6 +375,24 @@ public interface Database {
      */
     void compact() throws DocumentStoreException;
 
+    /**
+     * <p>Compacts the SQL database and disk storage like {@link #compact()}, but a slice of
+     * revisions at a time, so that other operations on this {@code Database} can run between
+     * the slices rather than waiting for the whole compaction to finish.</p>
+     *
+     * <p>Free space is returned to the file system incrementally as well, rather than by
+     * rebuilding the whole database file. This requires the database to be in incremental
+     * vacuum mode, which databases created by this version of the library are, and older
+     * databases are after their next {@link #compact()}.</p>
+     *
+     * <p>A {@link org.hammock.sync.event.notifications.CompactionProgress} event is posted to
+     * the {@link #getEventBus() EventBus} after each slice, and when the compaction is
+     * complete. Revisions added after the compaction starts are not compacted.</p>
+     *
+     * @throws DocumentStoreException if there was an error reading from or writing to the database
+     */
+    void compactIncrementally() throws DocumentStoreException;
+
     /**
      * <p>Returns the EventBus which this DocumentStore posts
      * {@link DocumentModified Document Notification Events} to.</p>
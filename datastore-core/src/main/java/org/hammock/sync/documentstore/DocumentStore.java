@@ -24,6 +24,7 @@ import org.hammock.sync.event.notifications.DocumentStoreModified;
 import org.hammock.sync.event.notifications.DocumentStoreOpened;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
 import org.hammock.sync.internal.query.QueryImpl;
+import org.hammock.sync.internal.util.Misc;
 import org.hammock.sync.query.Query;
 
 import org.apache.commons.io.FileUtils;
@@ -82,13 +83,15 @@ public class DocumentStore {
 
     private static final Logger logger = Logger.getLogger(DocumentStore.class.getCanonicalName());
 
-    private DocumentStore(File location, KeyProvider keyProvider) throws DocumentStoreException, IOException, SQLException {
+    private DocumentStore(File location, KeyProvider keyProvider, int readerConnections) throws DocumentStoreException, IOException, SQLException {
         try {
             this.location = location;
             this.extensionsLocation = new File(location, EXTENSIONS_LOCATION_NAME);
             this.databaseName = location.toString();
-            this.database = new DatabaseImpl(location, extensionsLocation, keyProvider);
-            this.query = new QueryImpl(database, extensionsLocation, keyProvider);
+            this.database = new DatabaseImpl(location, extensionsLocation, keyProvider,
+                    readerConnections);
+            this.query = new QueryImpl(database, database, extensionsLocation, keyProvider,
+                    readerConnections);
         } catch (DocumentStoreException e) {
             closeQuietlyOnException();
             throw e;
@@ -139,6 +142,40 @@ public class DocumentStore {
      *                                     opened (if it already exists) or created.
      */
     public static DocumentStore getInstance(File location, KeyProvider provider) throws DocumentStoreNotOpenedException {
+        return getInstance(location, provider, 0);
+    }
+
+    /**
+     * <p>
+     * Get an instance of an existing or newly created store, which reads documents and indexes
+     * from up to {@code readerConnections} read-only connections concurrently with writes.
+     * </p>
+     * <p>
+     * Reader connections need the database and index files to use SQLite's write-ahead logging,
+     * so a store opened with them is switched to it permanently, adding {@code -wal} and
+     * {@code -shm} files alongside its database files. Each reader connection has its own
+     * thread, which closes it after a minute without reads. Encrypted stores always read and
+     * write on a single connection.
+     * </p>
+     * <p>
+     * If the store is already open, the existing instance is returned whatever its number of
+     * reader connections.
+     * </p>
+     * @param location The location on the file system where the underlying files should be stored.
+     *                 Must be a directory.
+     * @param provider KeyProvider object. Use a {@link NullKeyProvider} if the database shouldn't
+     *                 be encrypted.
+     * @param readerConnections The maximum number of read-only connections for each of the
+     *                          store's database and indexes, or 0 to read and write on a single
+     *                          connection as {@link #getInstance(File, KeyProvider)} does.
+     * @return An existing or newly created store.
+     * @throws DocumentStoreNotOpenedException if the database located at {@code location} cannot be
+     *                                     opened (if it already exists) or created.
+     */
+    public static DocumentStore getInstance(File location, KeyProvider provider,
+                                            int readerConnections)
+            throws DocumentStoreNotOpenedException {
+        Misc.checkArgument(readerConnections >= 0, "readerConnections must be >= 0");
         try {
             synchronized (documentStores) {
                 DocumentStore ds = documentStores.get(location);
@@ -147,7 +184,7 @@ public class DocumentStore {
                 // required.
                 boolean created = !location.exists();
                 if (ds == null) {
-                    ds = new DocumentStore(location, provider);
+                    ds = new DocumentStore(location, provider, readerConnections);
                     documentStores.put(location, ds);
                     if (created) {
                         eventBus.post(new DocumentStoreCreated(ds.databaseName));
@@ -1,5 +1,7 @@
 package org.hammock.sync.documentstore.advanced;
 
+import org.hammock.sync.documentstore.Attachment;
+import org.hammock.sync.documentstore.AttachmentException;
 import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.documentstore.DocumentRevision;
 
@@ -135,4 +137,89 @@ public interface Database {
      */
     void createWithHistory(DocumentRevision documentRevision, int revisionsStart, List<String>
             revisionsIDs) throws DocumentException;
+
+    /**
+     * <P>
+     * ⚠ Returns the attachments of the current revisions of the documents, reading them
+     * together rather than a document at a time.
+     * </P>
+     * <P>
+     * This is used by queries which project fields from an index without loading the documents.
+     * </P>
+     *
+     * @param docIds IDs of the documents
+     * @return map of document ID to the attachments of its current revision, with an entry only
+     * for the documents with attachments
+     * @throws AttachmentException if there was an error reading the attachment metadata from the
+     * database
+     */
+    Map<String, Map<String, ? extends Attachment>> attachmentsForDocuments(List<String> docIds)
+            throws AttachmentException;
+
+    /**
+     * <P>
+     * ⚠ Sets the maximum size of the cache of document revisions read by
+     * {@link org.hammock.sync.documentstore.Database#read(String)} and
+     * {@link org.hammock.sync.documentstore.Database#read(String, String)}.
+     * </P>
+     * <P>
+     * The cache is disabled by default. When enabled, repeated reads of a revision are answered
+     * without querying the database or parsing the JSON body again, which suits workloads that
+     * read a small set of documents very often. Cached revisions are removed when their document
+     * is changed through this database, and all of them are removed by compaction. The least
+     * recently read documents are removed when the cache reaches its maximum size, which is
+     * measured by the size of the revisions' JSON bodies.
+     * </P>
+     * <P>
+     * Each read returns a new revision object with its own
+     * {@link org.hammock.sync.documentstore.DocumentBody}, built from the cached JSON, so
+     * modifying a revision read from the cache, including values nested in its body, doesn't
+     * affect later reads.
+     * </P>
+     *
+     * @param maxSizeBytes maximum size of the cache in bytes, 0 to disable the cache
+     * @throws IllegalArgumentException if {@code maxSizeBytes} is negative
+     */
+    void setReadCacheSize(long maxSizeBytes);
+
+    /**
+     * Returns the hit, miss and size statistics of the read cache.
+     *
+     * @return a snapshot of the read cache statistics
+     * @see #setReadCacheSize(long)
+     */
+    ReadCacheStats getReadCacheStats();
+
+    /**
+     * <P>
+     * ⚠ Sets the maximum number of revisions of history kept for each leaf revision of a
+     * document, like CouchDB's {@code _revs_limit}.
+     * </P>
+     * <P>
+     * There is no limit by default. When a limit is set, the revision tree of a document is
+     * pruned when it is updated or has revisions inserted by pull replication, and the trees of
+     * all documents are pruned by compaction. Leaf revisions are never pruned, so neither the
+     * winning revision nor any conflicts are lost, but the revisions further from every leaf
+     * than the limit are deleted. Replication still works with pruned trees, since only the
+     * recent history is needed to find the revisions the source and target have in common,
+     * but a remote revision whose only common ancestor with this database has been pruned will
+     * be inserted as a conflict.
+     * </P>
+     * <P>
+     * The limit is not persisted, so it needs to be set each time the database is opened.
+     * </P>
+     *
+     * @param revsLimit the number of revisions to keep for each leaf, counting the leaf
+     *                  itself, or 0 for no limit
+     * @throws IllegalArgumentException if {@code revsLimit} is negative
+     */
+    void setRevsLimit(int revsLimit);
+
+    /**
+     * Returns the maximum number of revisions of history kept for each leaf revision.
+     *
+     * @return the revs limit, or 0 if there is no limit
+     * @see #setRevsLimit(int)
+     */
+    int getRevsLimit();
 }
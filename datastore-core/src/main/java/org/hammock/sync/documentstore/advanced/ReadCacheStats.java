@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.documentstore.advanced;
+
+import java.util.Locale;
+
+/**
+ * A snapshot of the statistics of the document read cache.
+ *
+ * @see Database#setReadCacheSize(long)
+ */
+public final class ReadCacheStats {
+
+    /**
+     * Number of reads answered from the cache.
+     */
+    public final long hits;
+
+    /**
+     * Number of reads which had to go to the database while the cache was enabled.
+     */
+    public final long misses;
+
+    /**
+     * Number of revisions removed from the cache to keep it within its maximum size.
+     */
+    public final long evictions;
+
+    /**
+     * Number of revisions in the cache.
+     */
+    public final int revisions;
+
+    /**
+     * Estimated size of the revisions in the cache, in bytes.
+     */
+    public final long sizeBytes;
+
+    /**
+     * Maximum size of the cache in bytes, 0 if the cache is disabled.
+     */
+    public final long maxSizeBytes;
+
+    public ReadCacheStats(long hits, long misses, long evictions, int revisions, long sizeBytes,
+                          long maxSizeBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.revisions = revisions;
+        this.sizeBytes = sizeBytes;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "ReadCacheStats{hits=%d, misses=%d, evictions=%d, " +
+                "revisions=%d, sizeBytes=%d, maxSizeBytes=%d}", hits, misses, evictions,
+                revisions, sizeBytes, maxSizeBytes);
+    }
+}
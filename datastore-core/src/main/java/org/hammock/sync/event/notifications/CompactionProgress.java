@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.event.notifications;
+
+import org.hammock.sync.documentstore.Database;
+
+/**
+ * <p>Event posted by {@link Database#compactIncrementally()} after each slice of revisions
+ * has been compacted, and once more when the compaction has finished.</p>
+ */
+public class CompactionProgress implements Notification {
+
+    public CompactionProgress(long sequence, long lastSequence, int revisionsCompacted,
+                              boolean complete) {
+        this.sequence = sequence;
+        this.lastSequence = lastSequence;
+        this.revisionsCompacted = revisionsCompacted;
+        this.complete = complete;
+    }
+
+    /**
+     * The sequence number up to which revisions have been compacted so far
+     */
+    public final long sequence;
+
+    /**
+     * The sequence number up to which revisions will be compacted, which was the last sequence
+     * number of the database when the compaction started
+     */
+    public final long lastSequence;
+
+    /**
+     * The number of revisions whose bodies have been deleted so far
+     */
+    public final int revisionsCompacted;
+
+    /**
+     * Whether the compaction has finished, including deleting unreferenced attachments and
+     * returning free space to the file system
+     */
+    public final boolean complete;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        CompactionProgress that = (CompactionProgress) o;
+
+        if (sequence != that.sequence) {
+            return false;
+        }
+        if (lastSequence != that.lastSequence) {
+            return false;
+        }
+        if (revisionsCompacted != that.revisionsCompacted) {
+            return false;
+        }
+        return complete == that.complete;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (sequence ^ (sequence >>> 32));
+        result = 31 * result + (int) (lastSequence ^ (lastSequence >>> 32));
+        result = 31 * result + revisionsCompacted;
+        result = 31 * result + (complete ? 1 : 0);
+        return result;
+    }
+}
@@ -18,6 +18,7 @@ import org.hammock.sync.http.internal.interceptors.HttpConnectionInterceptorExce
 import org.apache.commons.io.IOUtils;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -33,6 +34,8 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -101,6 +104,9 @@ public class HttpConnection {
     private int numberOfRetries = 10;
     private boolean requestIsLoggable = true;
 
+    private boolean gzipRequestBody = false;
+    private boolean acceptGzip = false;
+
     public HttpConnection(String requestMethod,
                           URL url,
                           String contentType) {
@@ -147,6 +153,43 @@ public class HttpConnection {
         return this.numberOfRetries;
     }
 
+    /**
+     * <p>
+     * Sets whether the request body is gzip compressed before it is sent to the server, with a
+     * {@code Content-Encoding: gzip} header. The body is compressed once, when the request is
+     * first executed, and the compressed body is reused for any retries.
+     * </p>
+     * <p>
+     * The server must accept compressed request bodies, so this is off by default.
+     * </p>
+     *
+     * @param gzipRequestBody whether to gzip compress the request body
+     * @return an {@link HttpConnection} for method chaining
+     */
+    public HttpConnection setGzipRequestBody(boolean gzipRequestBody) {
+        this.gzipRequestBody = gzipRequestBody;
+        return this;
+    }
+
+    /**
+     * <p>
+     * Sets whether to send an {@code Accept-Encoding: gzip} header. When set, a response the
+     * server has gzip compressed is decompressed transparently by
+     * {@link #responseAsInputStream()} and {@link #errorAsInputStream()}.
+     * </p>
+     * <p>
+     * Callers which want to handle compressed responses themselves should instead set the
+     * header in {@link #requestProperties}.
+     * </p>
+     *
+     * @param acceptGzip whether to accept gzip compressed responses
+     * @return an {@link HttpConnection} for method chaining
+     */
+    public HttpConnection setAcceptGzip(boolean acceptGzip) {
+        this.acceptGzip = acceptGzip;
+        return this;
+    }
+
     /**
      * Set the String of request body data to be sent to the server.
      *
@@ -250,6 +293,13 @@ public class HttpConnection {
     public HttpConnection execute() throws IOException {
         boolean retry = true;
 
+        if (gzipRequestBody && input != null) {
+            compressRequestBody();
+        }
+        if (acceptGzip) {
+            requestProperties.put("Accept-Encoding", "gzip");
+        }
+
         while (retry && numberOfRetries-- > 0) {
             connection = connectionFactory.openConnection(url);
 
@@ -366,6 +416,27 @@ public class HttpConnection {
         return this;
     }
 
+    /**
+     * Replaces the request body with its gzip compressed form, so the compressed length is
+     * known up front and retries don't compress the body again.
+     */
+    private void compressRequestBody() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream is = input.getInputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        try {
+            IOUtils.copyLarge(is, gzip, new byte[16 * 1024]);
+            gzip.finish();
+        } finally {
+            Utils.close(is);
+            Utils.close(gzip);
+        }
+        setRequestBody(bytes.toByteArray());
+        requestProperties.put("Content-Encoding", "gzip");
+        // the body is now compressed, so don't compress it again if execute() is called again
+        gzipRequestBody = false;
+    }
+
     private HttpConnectionInterceptorException convertAndThrowInterceptorException(HttpConnectionInterceptorException e) throws IOException {
         // Sadly the current interceptor API doesn't allow an IOException to be thrown
         // so to avoid swallowing them the interceptors need to wrap them in the runtime
@@ -434,6 +505,35 @@ public class HttpConnection {
                     "()");
         }
         InputStream is = connection.getInputStream();
+        return decodeIfCompressed(is);
+    }
+
+    /**
+     * <p>
+     * Return the error response body data from the server as an InputStream, decompressed if
+     * {@link #setAcceptGzip(boolean)} is set and the server compressed it.
+     * </p>
+     * <p>
+     * <b>Important:</b> you must call <code>execute()</code> before calling this method.
+     * </p>
+     *
+     * @return InputStream of error response body data from server, or {@code null} if there is
+     * none
+     * @throws IOException if there was a problem reading data from the server
+     */
+    public InputStream errorAsInputStream() throws IOException {
+        if (connection == null) {
+            throw new IOException("Attempted to read response from server before calling execute" +
+                    "()");
+        }
+        return decodeIfCompressed(connection.getErrorStream());
+    }
+
+    private InputStream decodeIfCompressed(InputStream is) throws IOException {
+        if (is != null && acceptGzip && "gzip".equalsIgnoreCase(connection
+                .getContentEncoding())) {
+            return new GZIPInputStream(is);
+        }
         return is;
     }
 
@@ -24,6 +24,7 @@ import org.hammock.sync.internal.android.ContentValues;
 import org.hammock.sync.internal.common.CouchUtils;
 import org.hammock.sync.internal.sqlite.Cursor;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.CollectionUtils;
 import org.hammock.sync.internal.util.DatabaseUtils;
 
 import org.apache.commons.codec.binary.Hex;
@@ -37,11 +38,14 @@ import java.nio.charset.Charset;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * An AttachmentManager handles attachment related tasks: adding, removing and retrieving
@@ -78,6 +82,25 @@ public class AttachmentManager {
             "FROM attachments " +
             "WHERE sequence = ?";
 
+    /**
+     * SQL statement to select the attachments of a number of sequences together with the names
+     * of their files, the sequence placeholders to be filled in with String.format. Keys are
+     * mapped to file names by their lower case hex representation.
+     */
+    private static final String SQL_ATTACHMENTS_SELECT_FOR_SEQUENCES = "SELECT " +
+            "attachments.sequence, " +
+            "attachments.filename, " +
+            "attachments.key, " +
+            "attachments.type, " +
+            "attachments.encoding, " +
+            "attachments.length, " +
+            "attachments.encoded_length, " +
+            "attachments.revpos, " +
+            "attachments_key_filename.filename AS blob_filename " +
+            "FROM attachments LEFT JOIN attachments_key_filename " +
+            "ON attachments_key_filename.key = lower(hex(attachments.key)) " +
+            "WHERE attachments.sequence IN (%s)";
+
     private static final String SQL_ATTACHMENTS_SELECT_ALL_KEYS = "SELECT key " +
             "FROM attachments";
 
@@ -95,6 +118,24 @@ public class AttachmentManager {
      */
     private static final String SQL_ATTACHMENTS_SELECT_KEYS_FILENAMES = String.format(
             "SELECT key,filename FROM %1$s", ATTACHMENTS_KEY_FILENAME);
+    /**
+     * SQL statement to return a page of key,filename mappings in key order, for a limit to be
+     * formatted in.
+     */
+    private static final String SQL_ATTACHMENTS_SELECT_KEYS_FILENAMES_AFTER_KEY = String.format(
+            "SELECT key,filename FROM %1$s WHERE key > ? ORDER BY key LIMIT %%d",
+            ATTACHMENTS_KEY_FILENAME);
+    /**
+     * SQL statement to return which of a set of keys are referenced by attachments, for
+     * blob literals of the keys to be formatted in. The key column is compared directly, rather
+     * than its hex representation, so the attachments_by_key index can be used.
+     */
+    private static final String SQL_ATTACHMENTS_SELECT_REFERENCED_KEYS = "SELECT DISTINCT " +
+            "lower(hex(key)) FROM attachments WHERE key IN (%s)";
+    /**
+     * Pattern matching the hex representation of a key, as used in the key to filename table.
+     */
+    private static final Pattern HEX_KEY_PATTERN = Pattern.compile("([0-9a-f]{2})+");
     /**
      * Random number generator used to generate filenames.
      */
@@ -348,6 +389,63 @@ public class AttachmentManager {
         }
     }
 
+    /**
+     * Returns the attachments of many revisions, reading the attachment rows and their file
+     * names for up to {@code placeholdersLimit} sequences at a time.
+     *
+     * @return map of sequence to the revision's attachments, with an entry only for the
+     * sequences with attachments
+     */
+    public static Map<Long, Map<String, SavedAttachment>> attachmentsForRevisions(
+            SQLDatabase db, String attachmentsDir,
+            AttachmentStreamFactory attachmentStreamFactory, List<Long> sequences,
+            int placeholdersLimit)
+            throws AttachmentException {
+        Map<Long, Map<String, SavedAttachment>> result = new HashMap<Long, Map<String,
+                SavedAttachment>>();
+        for (List<Long> batch : CollectionUtils.partition(sequences, placeholdersLimit)) {
+            String[] args = new String[batch.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = String.valueOf(batch.get(i));
+            }
+            Cursor c = null;
+            try {
+                c = db.rawQuery(String.format(SQL_ATTACHMENTS_SELECT_FOR_SEQUENCES,
+                        DatabaseUtils.makePlaceholders(batch.size())), args);
+                while (c.moveToNext()) {
+                    long sequence = c.getLong(c.getColumnIndex("sequence"));
+                    String filename = c.getString(c.getColumnIndex("filename"));
+                    byte[] key = c.getBlob(c.getColumnIndex("key"));
+                    String type = c.getString(c.getColumnIndex("type"));
+                    int encoding = c.getInt(c.getColumnIndex("encoding"));
+                    long length = c.getInt(c.getColumnIndex("length"));
+                    long encodedLength = c.getInt(c.getColumnIndex("encoded_length"));
+                    int revpos = c.getInt(c.getColumnIndex("revpos"));
+                    String blobFilename = c.getString(c.getColumnIndex("blob_filename"));
+                    // the join only misses if the key isn't stored as we expect, in which case
+                    // the lookup by key reports the problem
+                    File file = blobFilename != null ? new File(attachmentsDir, blobFilename) :
+                            fileFromKey(db, key, attachmentsDir, false);
+
+                    Map<String, SavedAttachment> atts = result.get(sequence);
+                    if (atts == null) {
+                        atts = new HashMap<String, SavedAttachment>();
+                        result.put(sequence, atts);
+                    }
+                    atts.put(filename, new SavedAttachment(sequence, filename, key, type,
+                            Attachment.Encoding.values()[encoding], length, encodedLength,
+                            revpos, file, attachmentStreamFactory));
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Failed to get attachments", e);
+                throw new AttachmentException(e);
+            } finally {
+                DatabaseUtils.closeCursorQuietly(c);
+            }
+        }
+        return result;
+    }
+
     private static void copyCursorValuesToNewSequence(SQLDatabase db, Cursor c, long newSequence) {
         while (c.moveToNext()) {
             String filename = c.getString(1);
@@ -470,6 +568,87 @@ public class AttachmentManager {
         }
     }
 
+    /**
+     * <p>Deletes the files, and key to filename mappings, of the attachments which are no
+     * longer referenced by any revision, for a page of at most {@code limit} keys in key
+     * order.</p>
+     *
+     * <p>Unlike {@link #purgeAttachments(SQLDatabase, String)} this doesn't remove the
+     * attachments of compacted revisions from the attachments table first, and it only reads
+     * the keys of the page, so the purge can be done a page at a time.</p>
+     *
+     * @param db database to use.
+     * @param attachmentsDir Root directory for attachment blobs.
+     * @param afterKey the key after which the page starts, or an empty string for the first page.
+     * @param limit the maximum number of keys in the page, which is also the number of keys
+     *              looked up in the attachments table at once.
+     * @return the last key in the page, or {@code null} if the page was empty.
+     * @throws SQLException if there was an error reading or updating the tables.
+     */
+    public static String purgeAttachments(SQLDatabase db, String attachmentsDir,
+                                          String afterKey, int limit) throws SQLException {
+        Map<String, String> filenames = new LinkedHashMap<String, String>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery(String.format(SQL_ATTACHMENTS_SELECT_KEYS_FILENAMES_AFTER_KEY, limit),
+                    new String[]{afterKey});
+            while (c.moveToNext()) {
+                filenames.put(c.getString(0), c.getString(1));
+            }
+        } finally {
+            DatabaseUtils.closeCursorQuietly(c);
+        }
+        if (filenames.isEmpty()) {
+            return null;
+        }
+        String lastKey = null;
+        for (String key : filenames.keySet()) {
+            lastKey = key;
+        }
+
+        Set<String> unreferencedKeys = new HashSet<String>(filenames.keySet());
+        // the keys are bound as text by rawQuery, which never equals a blob, so they are
+        // written as blob literals instead; a key which isn't valid hex can't be referenced
+        StringBuilder keyLiterals = new StringBuilder();
+        for (String key : filenames.keySet()) {
+            if (HEX_KEY_PATTERN.matcher(key).matches()) {
+                if (keyLiterals.length() > 0) {
+                    keyLiterals.append(',');
+                }
+                keyLiterals.append("X'").append(key).append('\'');
+            }
+        }
+        if (keyLiterals.length() > 0) {
+            try {
+                c = db.rawQuery(String.format(SQL_ATTACHMENTS_SELECT_REFERENCED_KEYS,
+                        keyLiterals), new String[]{});
+                while (c.moveToNext()) {
+                    unreferencedKeys.remove(c.getString(0));
+                }
+            } finally {
+                DatabaseUtils.closeCursorQuietly(c);
+            }
+        }
+
+        File attachments = new File(attachmentsDir);
+        for (String key : unreferencedKeys) {
+            File f = new File(attachments, filenames.get(key));
+            try {
+                if (f.delete()) {
+                    db.delete(ATTACHMENTS_KEY_FILENAME, "key = ?", new String[]{key});
+                } else {
+                    logger.warning("Could not delete file from BLOB store: " +
+                            f.getAbsolutePath());
+                }
+            } catch (SecurityException e) {
+                String msg = String.format("SecurityException deleting %s from blob store",
+                        f.getAbsolutePath());
+                logger.log(Level.WARNING, msg, e);
+            }
+        }
+        return lastKey;
+    }
+
     private static String keyToString(byte[] key) {
         return new String(new Hex().encode(key), Charset.forName("UTF-8"));
     }
@@ -32,20 +32,25 @@ import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.documentstore.InvalidDocumentException;
 import org.hammock.sync.documentstore.LocalDocument;
+import org.hammock.sync.documentstore.advanced.ReadCacheStats;
 import org.hammock.sync.documentstore.encryption.KeyProvider;
 import org.hammock.sync.event.EventBus;
+import org.hammock.sync.event.notifications.CompactionProgress;
 import org.hammock.sync.event.notifications.DocumentCreated;
 import org.hammock.sync.event.notifications.DocumentDeleted;
 import org.hammock.sync.event.notifications.DocumentModified;
 import org.hammock.sync.event.notifications.DocumentUpdated;
 import org.hammock.sync.internal.common.CouchConstants;
 import org.hammock.sync.internal.common.CouchUtils;
-import org.hammock.sync.internal.common.ValueListMap;
+import org.hammock.sync.internal.documentstore.callables.AttachmentsForDocumentsCallable;
 import org.hammock.sync.internal.documentstore.callables.ChangesCallable;
 import org.hammock.sync.internal.documentstore.callables.CompactCallable;
+import org.hammock.sync.internal.documentstore.callables.CompactRevisionsCallable;
+import org.hammock.sync.internal.documentstore.callables.CreateAttachmentsKeyIndexCallable;
 import org.hammock.sync.internal.documentstore.callables.DeleteAllRevisionsCallable;
 import org.hammock.sync.internal.documentstore.callables.DeleteDocumentCallable;
 import org.hammock.sync.internal.documentstore.callables.DeleteLocalDocumentCallable;
+import org.hammock.sync.internal.documentstore.callables.EnableIncrementalVacuumCallable;
 import org.hammock.sync.internal.documentstore.callables.ForceInsertCallable;
 import org.hammock.sync.internal.documentstore.callables.GetAllDocumentIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetAllDocumentsCallable;
@@ -53,17 +58,21 @@ import org.hammock.sync.internal.documentstore.callables.GetAllRevisionsOfDocume
 import org.hammock.sync.internal.documentstore.callables.GetConflictedDocumentIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetDocumentCallable;
 import org.hammock.sync.internal.documentstore.callables.GetDocumentCountCallable;
+import org.hammock.sync.internal.documentstore.callables.GetDocumentsToPruneCallable;
 import org.hammock.sync.internal.documentstore.callables.GetDocumentsWithIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetLastSequenceCallable;
 import org.hammock.sync.internal.documentstore.callables.GetLocalDocumentCallable;
 import org.hammock.sync.internal.documentstore.callables.GetPossibleAncestorRevisionIdsCallable;
 import org.hammock.sync.internal.documentstore.callables.GetPublicIdentifierCallable;
 import org.hammock.sync.internal.documentstore.callables.GetSequenceCallable;
+import org.hammock.sync.internal.documentstore.callables.IncrementalVacuumCallable;
 import org.hammock.sync.internal.documentstore.callables.InsertDocumentIDCallable;
 import org.hammock.sync.internal.documentstore.callables.InsertLocalDocumentCallable;
 import org.hammock.sync.internal.documentstore.callables.InsertRevisionCallable;
+import org.hammock.sync.internal.documentstore.callables.PruneRevisionsCallable;
+import org.hammock.sync.internal.documentstore.callables.PurgeAttachmentsCallable;
 import org.hammock.sync.internal.documentstore.callables.ResolveConflictsForDocumentCallable;
-import org.hammock.sync.internal.documentstore.callables.RevsDiffBatchCallable;
+import org.hammock.sync.internal.documentstore.callables.RevsDiffCallable;
 import org.hammock.sync.internal.documentstore.callables.SetCurrentCallable;
 import org.hammock.sync.internal.documentstore.callables.UpdateDocumentFromRevisionCallable;
 import org.hammock.sync.internal.documentstore.migrations.MigrateDatabase100To200;
@@ -98,6 +107,15 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     // http://www.sqlite.org/limits.html
     public static final int SQLITE_QUERY_PLACEHOLDERS_LIMIT = 500;
 
+    // Number of sequences compacted by each task of an incremental compaction.
+    private static final int COMPACTION_SLICE_SEQUENCES = 1000;
+
+    // Number of free pages returned to the file system by each incremental vacuum task.
+    private static final int COMPACTION_VACUUM_PAGES = 1000;
+
+    // Number of documents pruned by each task of an incremental compaction.
+    private static final int COMPACTION_SLICE_DOCUMENTS = 100;
+
     private final EventBus eventBus;
 
     final File datastoreDir;
@@ -127,6 +145,16 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
      */
     private final AttachmentStreamFactory attachmentStreamFactory;
 
+    /**
+     * Cache of the revisions read by {@link #read(String, String)}, disabled until a size is set.
+     */
+    private final DocumentRevisionCache readCache = new DocumentRevisionCache();
+
+    /**
+     * Number of revisions of history kept for each leaf revision, 0 for no limit.
+     */
+    private volatile int revsLimit = 0;
+
     /**
      * Constructor for single thread SQLCipher-based DocumentStore.
      * @param location The location where the DocumentStore will be opened/created
@@ -137,6 +165,23 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
      */
     public DatabaseImpl(File location, File extensionsLocation, KeyProvider provider) throws SQLException,
             IOException, DocumentStoreException {
+        this(location, extensionsLocation, provider, 0);
+    }
+
+    /**
+     * Constructor for a DocumentStore which can also read from a pool of read-only connections.
+     * @param location The location where the DocumentStore will be opened/created
+     * @param extensionsLocation The location where the DocumentStore's extensions are stored
+     * @param provider The key provider object that contains the user-defined SQLCipher key
+     * @param readerConnections The maximum number of read-only connections, which switches the
+     *                          database to write-ahead logging, or 0 to read and write on a
+     *                          single connection
+     * @throws SQLException
+     * @throws IOException
+     */
+    public DatabaseImpl(File location, File extensionsLocation, KeyProvider provider,
+                        int readerConnections) throws SQLException, IOException,
+            DocumentStoreException {
         Misc.checkNotNull(location, "location");
         Misc.checkNotNull(extensionsLocation, "extensionsLocation");
         Misc.checkNotNull(provider, "Key provider");
@@ -146,7 +191,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         this.attachmentsDir = new File(extensionsLocation, ATTACHMENTS_EXTENSION_NAME).getAbsolutePath();
 
         final File dbFile = new File(this.datastoreDir, DB_FILE_NAME);
-        queue = new SQLDatabaseQueue(dbFile, provider);
+        queue = new SQLDatabaseQueue(dbFile, provider, readerConnections);
 
         int dbVersion = queue.getVersion();
         // Increment the hundreds position if a schema change means that older
@@ -157,6 +202,15 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
                     "version supported by this library, current version %d , highest supported " +
                     "version %d", dbVersion, highestSupportedVersionExclusive - 1));
         }
+        if (dbVersion == 0) {
+            // incremental vacuuming can only be enabled straight away before any table exists,
+            // existing databases switch to it at their next full compaction
+            try {
+                get(queue.submit(new EnableIncrementalVacuumCallable()));
+            } catch (ExecutionException e) {
+                logger.log(Level.WARNING, "Failed to enable incremental vacuum", e);
+            }
+        }
         queue.updateSchema(new SchemaOnlyMigration(DatastoreConstants.getSchemaVersion3()), 3);
         queue.updateSchema(new SchemaOnlyMigration(DatastoreConstants.getSchemaVersion4()), 4);
         queue.updateSchema(new SchemaOnlyMigration(DatastoreConstants.getSchemaVersion5()), 5);
@@ -164,6 +218,11 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         queue.updateSchema(new MigrateDatabase6To100(), 100);
         queue.updateSchema(new MigrateDatabase100To200(DatastoreConstants.getSchemaVersion200()),
                 200);
+        try {
+            get(queue.submit(new CreateAttachmentsKeyIndexCallable()));
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Failed to create attachments key index", e);
+        }
         this.eventBus = new EventBus();
 
         this.attachmentStreamFactory = new AttachmentStreamFactory(this.getKeyProvider());
@@ -183,7 +242,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         Misc.checkState(this.isOpen(), "Database is closed");
 
         try {
-            return get(queue.submit(new GetLastSequenceCallable()));
+            return get(queue.submitRead(new GetLastSequenceCallable()));
         } catch (ExecutionException e) {
             throwCauseAs(e, IllegalStateException.class);
             String message = "Failed to get last Sequence";
@@ -196,7 +255,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public int getDocumentCount() throws DocumentStoreException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetDocumentCountCallable()));
+            return get(queue.submitRead(new GetDocumentCountCallable()));
         } catch (ExecutionException e) {
             String message = "Failed to get document count";
             logger.log(Level.SEVERE, message, e);
@@ -243,11 +302,18 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             if (id.startsWith(CouchConstants._local_prefix)) {
                 Misc.checkArgument(rev == null, "Local documents must have a null revision ID");
                 String localId = id.substring(CouchConstants._local_prefix.length());
-                LocalDocument ld = get(queue.submit(new GetLocalDocumentCallable(localId)));
+                LocalDocument ld = get(queue.submitRead(new GetLocalDocumentCallable(localId)));
                 // convert to DocumentRevision, adding back "_local/" prefix which was stripped off when document was written
                 return new DocumentRevisionBuilder().setDocId(CouchConstants._local_prefix + ld.docId).setBody(ld.body).build();
             } else {
-                return get(queue.submit(new GetDocumentCallable(id, rev, this.attachmentsDir, this.attachmentStreamFactory)));
+                InternalDocumentRevision cached = readCache.get(id, rev);
+                if (cached != null) {
+                    return cached;
+                }
+                long generation = readCache.generation();
+                InternalDocumentRevision read = get(queue.submitRead(new GetDocumentCallable(id, rev, this.attachmentsDir, this.attachmentStreamFactory)));
+                readCache.put(read, rev == null, generation);
+                return read;
             }
         } catch (ExecutionException e) {
             throwCauseAs(e, DocumentNotFoundException.class);
@@ -269,7 +335,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public DocumentRevisionTree getAllRevisionsOfDocument(final String docId) {
 
         try {
-            return get(queue.submit(new GetAllRevisionsOfDocumentCallable(docId, this.attachmentsDir, this.attachmentStreamFactory)));
+            return get(queue.submitRead(new GetAllRevisionsOfDocumentCallable(docId, this.attachmentsDir, this.attachmentStreamFactory)));
         } catch (ExecutionException e) {
             logger.log(Level.SEVERE, "Failed to get all revisions of document", e);
         }
@@ -283,7 +349,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         final long verifiedSince = since >= 0 ? since : 0;
 
         try {
-            return get(queue.submit(new ChangesCallable(verifiedSince, limit, attachmentsDir, attachmentStreamFactory)));
+            return get(queue.submitRead(new ChangesCallable(verifiedSince, limit, attachmentsDir, attachmentStreamFactory)));
         } catch (ExecutionException e) {
             String message = "Failed to get changes";
             logger.log(Level.SEVERE, message, e);
@@ -302,7 +368,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             throw new IllegalArgumentException("limit must be >= 0");
         }
         try {
-            return get(queue.submit(new GetAllDocumentsCallable(offset, limit, descending, this.attachmentsDir, this.attachmentStreamFactory)));
+            return get(queue.submitRead(new GetAllDocumentsCallable(offset, limit, descending, this.attachmentsDir, this.attachmentStreamFactory)));
         } catch (ExecutionException e) {
             String message = "Failed to get all documents";
             logger.log(Level.SEVERE, message, e);
@@ -314,7 +380,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public List<String> getIds() throws DocumentStoreException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetAllDocumentIdsCallable()));
+            return get(queue.submitRead(new GetAllDocumentIdsCallable()));
         } catch (ExecutionException e) {
             String message = "Failed to get all document ids";
             logger.log(Level.SEVERE, message, e);
@@ -329,7 +395,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         Misc.checkNotNull(docIds, "Input document id list");
         Misc.checkArgument(!docIds.isEmpty(), "Input document id list must contain document ids");
         try {
-            return get (queue.submit(new GetDocumentsWithIdsCallable(docIds, attachmentsDir, attachmentStreamFactory)));
+            return get (queue.submitRead(new GetDocumentsWithIdsCallable(docIds, attachmentsDir, attachmentStreamFactory)));
         } catch (ExecutionException e) {
             String message = "Failed to get documents with ids";
             logger.log(Level.SEVERE, message, e);
@@ -341,7 +407,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
                                                        final String revId,
                                                        final int limit) throws DocumentStoreException {
         try {
-            return get(queue.submit(new GetPossibleAncestorRevisionIdsCallable(docId, revId, limit)));
+            return get(queue.submitRead(new GetPossibleAncestorRevisionIdsCallable(docId, revId, limit)));
         } catch (ExecutionException e) {
             throw new DocumentStoreException(e);
         }
@@ -357,7 +423,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public LocalDocument getLocalDocument(final String docId) throws DocumentNotFoundException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetLocalDocumentCallable(docId)));
+            return get(queue.submitRead(new GetLocalDocumentCallable(docId)));
         } catch (ExecutionException e) {
             throw new DocumentNotFoundException(e);
         }
@@ -491,7 +557,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public String getPublicIdentifier() throws DocumentStoreException {
         Misc.checkState(this.isOpen(), "Database is closed");
         try {
-            return get(queue.submit(new GetPublicIdentifierCallable()));
+            return get(queue.submitRead(new GetPublicIdentifierCallable()));
         } catch (ExecutionException e) {
             logger.log(Level.SEVERE, "Failed to get public ID", e);
             throw new DocumentStoreException("Failed to get public ID", e);
@@ -553,7 +619,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
 
         try {
             // for raising events after completing database transaction
-            List<DocumentModified> events = queue.submitTransaction(new ForceInsertCallable(items, attachmentsDir, attachmentStreamFactory)).get();
+            List<DocumentModified> events = queue.submitTransaction(new ForceInsertCallable(items, attachmentsDir, attachmentStreamFactory, revsLimit)).get();
 
             // if we got here, everything got written to the database successfully
             // now raise any events we stored up
@@ -565,6 +631,10 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             throw new RuntimeException(e);
         } catch (ExecutionException e) {
             throw new DocumentException(e);
+        } finally {
+            for (ForceInsertItem item : items) {
+                readCache.invalidate(item.rev.getId());
+            }
         }
 
     }
@@ -613,7 +683,68 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     @Override
     public void compact() throws DocumentStoreException {
         try {
-            get(queue.submit(new CompactCallable(this.attachmentsDir)));
+            get(queue.submit(new CompactCallable(this.attachmentsDir, revsLimit)));
+        } catch (ExecutionException e) {
+            String message = "Failed to compact database";
+            logger.log(Level.SEVERE, message, e);
+            throw new DocumentStoreException(message, e.getCause());
+        } finally {
+            // the bodies of non-leaf revisions have been removed
+            readCache.clear();
+        }
+    }
+
+    @Override
+    public void compactIncrementally() throws DocumentStoreException {
+        Misc.checkState(this.isOpen(), "Database is closed");
+        try {
+            int limit = revsLimit;
+            if (limit > 0) {
+                List<Long> docNumericIds = get(queue.submitRead(
+                        new GetDocumentsToPruneCallable(limit)));
+                for (List<Long> batch : CollectionUtils.partition(docNumericIds,
+                        COMPACTION_SLICE_DOCUMENTS)) {
+                    try {
+                        get(queue.submitTransaction(new PruneRevisionsCallable(batch, limit)));
+                    } finally {
+                        readCache.clear();
+                    }
+                }
+            }
+
+            long lastSequence = get(queue.submitRead(new GetLastSequenceCallable()));
+            int revisionsCompacted = 0;
+            // each slice is a separate task, so that other tasks can run in between
+            for (long from = 0; from < lastSequence; from += COMPACTION_SLICE_SEQUENCES) {
+                long to = Math.min(from + COMPACTION_SLICE_SEQUENCES, lastSequence);
+                try {
+                    revisionsCompacted += get(queue.submitTransaction(
+                            new CompactRevisionsCallable(from, to)));
+                } finally {
+                    // the bodies of non-leaf revisions in the slice have been removed
+                    readCache.clear();
+                }
+                get(queue.submit(new IncrementalVacuumCallable(COMPACTION_VACUUM_PAGES)));
+                eventBus.post(new CompactionProgress(to, lastSequence, revisionsCompacted,
+                        false));
+            }
+
+            logger.finer("Deleting old attachments...");
+            String key = "";
+            while (key != null) {
+                key = get(queue.submit(new PurgeAttachmentsCallable(this.attachmentsDir, key,
+                        SQLITE_QUERY_PLACEHOLDERS_LIMIT)));
+            }
+
+            // stop if a task didn't reduce the free pages, as they are being reused by writes
+            long freePages = Long.MAX_VALUE;
+            long remaining;
+            while ((remaining = get(queue.submit(new IncrementalVacuumCallable(
+                    COMPACTION_VACUUM_PAGES)))) > 0 && remaining < freePages) {
+                freePages = remaining;
+            }
+            eventBus.post(new CompactionProgress(lastSequence, lastSequence, revisionsCompacted,
+                    true));
         } catch (ExecutionException e) {
             String message = "Failed to compact database";
             logger.log(Level.SEVERE, message, e);
@@ -661,24 +792,10 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         Misc.checkArgument(!revisions.isEmpty(), "revisions cannot be empty");
 
         try {
-
-            ValueListMap<String, String> missingRevs = new ValueListMap<String, String>();
-
-            // Break down by docId first to avoid potential rev ID clashes between doc IDs
-            for (Map.Entry<String, List<String>> entry : revisions.entrySet()) {
-                String docId = entry.getKey();
-                List<String> revs = entry.getValue();
-                // Partition into batches to avoid exceeding placeholder limit
-                // The doc ID will use one placeholder, so use limit - 1 for the number of
-                // revs for the remaining placeholders.
-                List<List<String>> batches = CollectionUtils.partition(revs,
-                        SQLITE_QUERY_PLACEHOLDERS_LIMIT - 1);
-
-                for (List<String> revsBatch : batches) {
-                    missingRevs.addValuesToKey(docId, get(queue.submit(new RevsDiffBatchCallable(docId, revsBatch))));
-                }
-            }
-            return missingRevs;
+            // All the documents are checked in one queue task, a query per chunk of
+            // placeholders rather than per document
+            return get(queue.submitRead(new RevsDiffCallable(revisions,
+                    SQLITE_QUERY_PLACEHOLDERS_LIMIT)));
         } catch (ExecutionException e) {
             String message = "Failed to calculate difference in revisions";
             logger.log(Level.SEVERE, message, e);
@@ -689,7 +806,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     @Override
     public Iterable<String> getConflictedIds() throws DocumentStoreException {
         try {
-            return get(queue.submit(new GetConflictedDocumentIdsCallable()));
+            return get(queue.submitRead(new GetConflictedDocumentIdsCallable()));
         } catch (ExecutionException e) {
             String message = "Failed to get conflicted document ids";
             logger.log(Level.SEVERE, message, e);
@@ -782,6 +899,8 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
                     throw (IllegalArgumentException) cause;
                 }
             }
+        } finally {
+            readCache.invalidate(docId);
         }
 
     }
@@ -823,7 +942,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public Attachment getAttachment(final String id, final String rev, final String
             attachmentName) {
         try {
-            return get(queue.submit(new SQLCallable<Attachment>() {
+            return get(queue.submitRead(new SQLCallable<Attachment>() {
                 @Override
                 public Attachment call(SQLDatabase db) throws Exception {
                     long sequence = new GetSequenceCallable(id, rev).call(db);
@@ -851,7 +970,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
     public Map<String, ? extends Attachment> attachmentsForRevision(final InternalDocumentRevision rev) throws
             AttachmentException {
         try {
-            return get(queue.submit(new SQLCallable<Map<String, ? extends Attachment>>() {
+            return get(queue.submitRead(new SQLCallable<Map<String, ? extends Attachment>>() {
 
                 @Override
                 public Map<String, ? extends Attachment> call(SQLDatabase db) throws Exception {
@@ -866,6 +985,20 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
 
     }
 
+    @Override
+    public Map<String, Map<String, ? extends Attachment>> attachmentsForDocuments(
+            List<String> docIds) throws AttachmentException {
+        Misc.checkState(this.isOpen(), "Database is closed");
+        Misc.checkNotNull(docIds, "Input document id list");
+        try {
+            return get(queue.submitRead(new AttachmentsForDocumentsCallable(docIds,
+                    attachmentsDir, attachmentStreamFactory)));
+        } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, "Failed to get attachments for documents", e);
+            throw new AttachmentException(e);
+        }
+    }
+
 
     @Override
     public EventBus getEventBus() {
@@ -945,6 +1078,7 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             logger.log(Level.SEVERE, message, e);
             throw new DocumentStoreException(message, e.getCause());
         } finally {
+            readCache.invalidate(docId);
             if (created != null) {
                 eventBus.post(new DocumentCreated(created));
             }
@@ -984,7 +1118,8 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
 
         try {
             InternalDocumentRevision revision = get(queue.submitTransaction(new UpdateDocumentFromRevisionCallable(
-                            rev, preparedNewAttachments, existingAttachments, this.attachmentsDir, this.attachmentStreamFactory)));
+                            rev, preparedNewAttachments, existingAttachments, this.attachmentsDir, this.attachmentStreamFactory,
+                            revsLimit)));
 
             if (revision != null) {
                 try {
@@ -1008,6 +1143,8 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             String message = "Failed to update document";
             logger.log(Level.SEVERE, message, e);
             throw new DocumentStoreException(message, e.getCause());
+        } finally {
+            readCache.invalidate(rev.getId());
         }
 
     }
@@ -1043,6 +1180,8 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             String message = "Failed to delete document";
             logger.log(Level.SEVERE, message, e);
             throw new DocumentStoreException(message, e.getCause());
+        } finally {
+            readCache.invalidate(rev.getId());
         }
     }
 
@@ -1067,6 +1206,8 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
             String message = "Failed to delete document";
             logger.log(Level.SEVERE, message, e);
             throw new DocumentStoreException(message, e.getCause());
+        } finally {
+            readCache.invalidate(id);
         }
     }
 
@@ -1130,4 +1271,29 @@ public class DatabaseImpl implements Database, org.hammock.sync.documentstore.ad
         forceInsert(Collections.singletonList(new ForceInsertItem(internalRev,
                 revIDs, null, preparedAttachments, false)));
     }
+
+    @Override
+    public void setReadCacheSize(long maxSizeBytes) {
+        Misc.checkArgument(maxSizeBytes >= 0, "Read cache size must be >= 0");
+        readCache.setMaxSizeBytes(maxSizeBytes);
+        if (maxSizeBytes == 0) {
+            readCache.clear();
+        }
+    }
+
+    @Override
+    public ReadCacheStats getReadCacheStats() {
+        return readCache.stats();
+    }
+
+    @Override
+    public void setRevsLimit(int revsLimit) {
+        Misc.checkArgument(revsLimit >= 0, "Revs limit must be >= 0");
+        this.revsLimit = revsLimit;
+    }
+
+    @Override
+    public int getRevsLimit() {
+        return revsLimit;
+    }
 }
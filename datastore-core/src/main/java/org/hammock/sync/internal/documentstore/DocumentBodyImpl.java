@@ -24,6 +24,7 @@ import org.hammock.sync.internal.util.JSONUtils;
 import org.hammock.sync.internal.util.Misc;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,6 +45,9 @@ public final class DocumentBodyImpl implements DocumentBody {
         }
     }
 
+    private DocumentBodyImpl() {
+    }
+
     public DocumentBodyImpl(Map map) {
         // Note uses checkArgument not checkNotNull to keep IllegalArgumentException not NPE
         Misc.checkArgument(map != null, "Document body map must not be null.");
@@ -62,6 +66,16 @@ public final class DocumentBodyImpl implements DocumentBody {
         return new DocumentBodyImpl(map);
     }
 
+    /**
+     * Returns a body for JSON bytes which are already known to be valid, such as those returned
+     * by {@link #asBytes()}, without parsing them again. The body takes ownership of the array.
+     */
+    static DocumentBodyImpl bodyWithValidBytes(byte[] bytes) {
+        DocumentBodyImpl body = new DocumentBodyImpl();
+        body.bytes = bytes;
+        return body;
+    }
+
     @Override
     public byte[] asBytes() {
         byte[] jsonCopy = getJsonBytes();
@@ -74,6 +88,24 @@ public final class DocumentBodyImpl implements DocumentBody {
         return (Map<String,Object>) getMapObject();
     }
 
+    /**
+     * Returns the top-level fields named in {@code fieldNames}. Unless the body has already been
+     * deserialised, only those fields are read from the JSON, so the rest of the body isn't
+     * built into objects.
+     */
+    public Map<String, Object> asMap(Collection<String> fieldNames) {
+        if (map == null) {
+            return JSONUtils.deserializeFields(bytes, fieldNames);
+        }
+        Map<String, Object> fields = new HashMap<String, Object>();
+        for (String fieldName : fieldNames) {
+            if (map.containsKey(fieldName)) {
+                fields.put(fieldName, map.get(fieldName));
+            }
+        }
+        return fields;
+    }
+
     @Override
     public String toString() {
         if(bytes != null) {
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore;
+
+import org.hammock.sync.documentstore.DocumentBody;
+import org.hammock.sync.documentstore.advanced.ReadCacheStats;
+import org.hammock.sync.internal.util.Misc;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Least recently used cache of the revisions read from a {@link DatabaseImpl}, bounded by the
+ * size of the revisions' JSON bodies.
+ * </p>
+ * <p>
+ * Revisions are cached by document ID and revision ID. The revision ID of the winning revision
+ * of each document is cached too, so reads of the winning revision can also be answered from the
+ * cache. Only the JSON bytes of each body are kept, and every revision returned is a copy with
+ * its own {@code DocumentBody} built from them, so callers are free to modify it, including
+ * nested values in its body, without affecting other readers.
+ * </p>
+ * <p>
+ * Writers must call {@link #invalidate(String)} once a change to a document has been committed.
+ * A revision read from the database is only added if there was no invalidation since the
+ * {@link #generation()} taken before reading it, so a read which raced with a write can't put
+ * a stale winning revision back into the cache.
+ * </p>
+ */
+class DocumentRevisionCache {
+
+    // rough per-revision overhead of the objects held for it, in addition to the body
+    private static final int REVISION_OVERHEAD_BYTES = 256;
+
+    // documents in least recently used order
+    private final LinkedHashMap<String, CachedDocument> documents =
+            new LinkedHashMap<String, CachedDocument>(16, 0.75f, true);
+
+    private long maxSizeBytes = 0;
+    private long sizeBytes = 0;
+    private int revisions = 0;
+    private long generation = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Sets the maximum size of the cache, evicting revisions if it's now over that size.
+     *
+     * @param maxSizeBytes maximum total size of the cached revisions, 0 to disable the cache
+     */
+    synchronized void setMaxSizeBytes(long maxSizeBytes) {
+        Misc.checkArgument(maxSizeBytes >= 0, "maxSizeBytes must be >= 0");
+        this.maxSizeBytes = maxSizeBytes;
+        evict();
+    }
+
+    synchronized boolean isEnabled() {
+        return maxSizeBytes > 0;
+    }
+
+    /**
+     * @return the current generation, to pass to {@link #put(InternalDocumentRevision, boolean,
+     * long)} for a revision read after calling this method
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param docId the document ID
+     * @param revId the revision ID, or null for the winning revision
+     * @return a copy of the cached revision, or null if it isn't cached
+     */
+    synchronized InternalDocumentRevision get(String docId, String revId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        CachedDocument document = documents.get(docId);
+        InternalDocumentRevision cached = null;
+        if (document != null) {
+            cached = document.revisions.get(revId != null ? revId : document.winner);
+        }
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(cached);
+    }
+
+    /**
+     * Caches a copy of a revision read from the database.
+     *
+     * @param rev the revision read
+     * @param winner whether the revision was read as the winning revision of its document
+     * @param generation the {@link #generation()} before the revision was read
+     */
+    synchronized void put(InternalDocumentRevision rev, boolean winner, long generation) {
+        if (!isEnabled() || generation != this.generation) {
+            return;
+        }
+        long size = sizeOf(rev);
+        if (size > maxSizeBytes) {
+            return;
+        }
+        CachedDocument document = documents.get(rev.getId());
+        if (document == null) {
+            document = new CachedDocument();
+            documents.put(rev.getId(), document);
+        }
+        if (document.revisions.put(rev.getRevision(), copy(rev)) == null) {
+            document.sizeBytes += size;
+            sizeBytes += size;
+            revisions++;
+        }
+        if (winner) {
+            document.winner = rev.getRevision();
+        }
+        evict();
+    }
+
+    /**
+     * Removes every revision of a document, after a change to it has been committed.
+     *
+     * @param docId the document ID
+     */
+    synchronized void invalidate(String docId) {
+        generation++;
+        remove(documents.remove(docId));
+    }
+
+    /**
+     * Removes every revision, after changes to any number of documents have been committed.
+     */
+    synchronized void clear() {
+        generation++;
+        documents.clear();
+        sizeBytes = 0;
+        revisions = 0;
+    }
+
+    synchronized ReadCacheStats stats() {
+        return new ReadCacheStats(hits, misses, evictions, revisions, sizeBytes, maxSizeBytes);
+    }
+
+    // remove least recently used documents until we're within the maximum size
+    private void evict() {
+        Iterator<CachedDocument> it = documents.values().iterator();
+        while (sizeBytes > maxSizeBytes && it.hasNext()) {
+            CachedDocument document = it.next();
+            it.remove();
+            evictions += document.revisions.size();
+            remove(document);
+        }
+    }
+
+    private void remove(CachedDocument document) {
+        if (document != null) {
+            sizeBytes -= document.sizeBytes;
+            revisions -= document.revisions.size();
+        }
+    }
+
+    private static long sizeOf(InternalDocumentRevision rev) {
+        long size = REVISION_OVERHEAD_BYTES + 2 * (rev.getId().length() + rev.getRevision()
+                .length());
+        byte[] body = rev.asBytes();
+        return body != null ? size + body.length : size;
+    }
+
+    private static InternalDocumentRevision copy(InternalDocumentRevision rev) {
+        return new DocumentRevisionBuilder()
+                .setDocId(rev.getId())
+                .setRevId(rev.getRevision())
+                .setBody(copy(rev.getBody()))
+                .setDeleted(rev.isDeleted())
+                .setCurrent(rev.isCurrent())
+                .setSequence(rev.getSequence())
+                .setInternalId(rev.getInternalNumericId())
+                .setParent(rev.getParent())
+                .setAttachments(rev.getAttachments())
+                .build();
+    }
+
+    private static DocumentBody copy(DocumentBody body) {
+        return body != null ? DocumentBodyImpl.bodyWithValidBytes(body.asBytes()) : null;
+    }
+
+    private static class CachedDocument {
+        private final Map<String, InternalDocumentRevision> revisions =
+                new HashMap<String, InternalDocumentRevision>();
+        private String winner;
+        private long sizeBytes;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.Attachment;
+import org.hammock.sync.internal.documentstore.AttachmentManager;
+import org.hammock.sync.internal.documentstore.AttachmentStreamFactory;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.documentstore.SavedAttachment;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.CollectionUtils;
+import org.hammock.sync.internal.util.DatabaseUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Get the Attachments of the current revisions of many documents, for callers which have the
+ * revisions' other fields but not their attachments
+ */
+public class AttachmentsForDocumentsCallable implements SQLCallable<Map<String, Map<String, ?
+        extends Attachment>>> {
+
+    // only the revisions with attachments are of interest
+    private static final String SQL_SEQUENCES_WITH_ATTACHMENTS = "SELECT docs.docid, " +
+            "revs.sequence FROM revs, docs WHERE docs.docid IN ( %1$s ) AND revs.current = 1 " +
+            "AND docs.doc_id = revs.doc_id AND EXISTS (SELECT 1 FROM attachments WHERE " +
+            "attachments.sequence = revs.sequence)";
+
+    private final List<String> docIds;
+    private final String attachmentsDir;
+    private final AttachmentStreamFactory attachmentStreamFactory;
+
+    /**
+     * @param docIds                  IDs of the documents
+     * @param attachmentsDir          Location of attachments
+     * @param attachmentStreamFactory Factory to manage access to attachment streams
+     */
+    public AttachmentsForDocumentsCallable(List<String> docIds, String attachmentsDir,
+                                           AttachmentStreamFactory attachmentStreamFactory) {
+        this.docIds = docIds;
+        this.attachmentsDir = attachmentsDir;
+        this.attachmentStreamFactory = attachmentStreamFactory;
+    }
+
+    /**
+     * @return map of document ID to the attachments of its current revision, with an entry only
+     * for the documents with attachments
+     */
+    @Override
+    public Map<String, Map<String, ? extends Attachment>> call(SQLDatabase db) throws Exception {
+        Map<Long, String> docIdsBySequence = new HashMap<Long, String>();
+        for (List<String> batch : CollectionUtils.partition(docIds,
+                DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT)) {
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery(String.format(SQL_SEQUENCES_WITH_ATTACHMENTS,
+                        DatabaseUtils.makePlaceholders(batch.size())),
+                        batch.toArray(new String[batch.size()]));
+                while (cursor.moveToNext()) {
+                    docIdsBySequence.put(cursor.getLong(1), cursor.getString(0));
+                }
+            } finally {
+                DatabaseUtils.closeCursorQuietly(cursor);
+            }
+        }
+
+        Map<String, Map<String, ? extends Attachment>> result = new HashMap<String, Map<String,
+                ? extends Attachment>>();
+        if (docIdsBySequence.isEmpty()) {
+            return result;
+        }
+        Map<Long, Map<String, SavedAttachment>> attachments = AttachmentManager
+                .attachmentsForRevisions(db, attachmentsDir, attachmentStreamFactory,
+                        new ArrayList<Long>(docIdsBySequence.keySet()),
+                        DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT);
+        for (Map.Entry<Long, Map<String, SavedAttachment>> entry : attachments.entrySet()) {
+            result.put(docIdsBySequence.get(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+}
@@ -19,6 +19,7 @@ import org.hammock.sync.internal.documentstore.AttachmentManager;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
 import org.hammock.sync.internal.sqlite.SQLCallable;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.Misc;
 
 import java.util.logging.Logger;
 
@@ -31,13 +32,32 @@ public class CompactCallable implements SQLCallable<Void> {
     private static final Logger logger = Logger.getLogger(DatabaseImpl.class.getCanonicalName());
 
     private String attachmentsDir;
+    private int revsLimit;
 
     public CompactCallable(String attachmentsDir) {
+        this(attachmentsDir, 0);
+    }
+
+    /**
+     * @param revsLimit the number of revisions of history to keep for each leaf, or 0 to keep
+     *                  all of it
+     * @see PruneRevisionsCallable
+     */
+    public CompactCallable(String attachmentsDir, int revsLimit) {
+        Misc.checkArgument(revsLimit >= 0, "revsLimit must be >= 0");
         this.attachmentsDir = attachmentsDir;
+        this.revsLimit = revsLimit;
     }
 
     @Override
     public Void call(SQLDatabase db) throws Exception {
+        if (revsLimit > 0) {
+            logger.finer("Pruning revision history...");
+            int revsPruned = new PruneRevisionsCallable(new GetDocumentsToPruneCallable
+                    (revsLimit).call(db), revsLimit).call(db);
+            logger.finer(String.format("Pruned %d revisions", revsPruned));
+        }
+
         logger.finer("Deleting JSON of old revisions...");
 
         // set json = null for non-leaf nodes
@@ -54,8 +74,10 @@ public class CompactCallable implements SQLCallable<Void> {
         // delete attachments not referenced by leaf nodes
         AttachmentManager.purgeAttachments(db, attachmentsDir);
 
-        // issue SQL vacuum
+        // issue SQL vacuum, which also switches older databases to incremental vacuum mode so
+        // that they can be compacted incrementally afterwards
         logger.finer("Vacuuming SQLite database...");
+        new EnableIncrementalVacuumCallable().call(db);
         db.compactDatabase();
         return null;
 
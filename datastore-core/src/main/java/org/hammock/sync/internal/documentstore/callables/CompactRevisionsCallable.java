@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.internal.android.ContentValues;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.Misc;
+
+import java.util.logging.Logger;
+
+/**
+ * <p>Compacts the revisions in a range of sequence numbers by deleting the JSON of the
+ * non-leaf revisions, and removing their rows from the attachments table.</p>
+ *
+ * <p>The attachment files themselves are left in place, to be deleted by
+ * {@link PurgeAttachmentsCallable} once no revision refers to them.</p>
+ *
+ * @see CompactCallable
+ */
+public class CompactRevisionsCallable implements SQLCallable<Integer> {
+
+    private static final Logger logger = Logger.getLogger(DatabaseImpl.class.getCanonicalName());
+
+    private final long fromSequence;
+    private final long toSequence;
+
+    /**
+     * @param fromSequence the sequence number after which to start, exclusive
+     * @param toSequence the sequence number at which to stop, inclusive
+     */
+    public CompactRevisionsCallable(long fromSequence, long toSequence) {
+        Misc.checkArgument(fromSequence <= toSequence,
+                "fromSequence must not be greater than toSequence.");
+        this.fromSequence = fromSequence;
+        this.toSequence = toSequence;
+    }
+
+    /**
+     * @return the number of revisions compacted
+     */
+    @Override
+    public Integer call(SQLDatabase db) throws Exception {
+        String[] range = new String[]{String.valueOf(fromSequence), String.valueOf(toSequence)};
+
+        // set json = null for the non-leaf nodes in the range, which are found through the
+        // parents of the revisions whose parent is in the range
+        ContentValues args = new ContentValues();
+        args.put("json", (String) null);
+        int revsCompacted = db.update("revs", args, "sequence > ? AND sequence <= ? AND " +
+                "json IS NOT NULL AND sequence IN " +
+                "(SELECT parent FROM revs WHERE parent > ? AND parent <= ?)",
+                new String[]{range[0], range[1], range[0], range[1]});
+        if (revsCompacted < 0) {
+            throw new IllegalStateException("Error running compact SQL update");
+        }
+
+        db.delete("attachments", "sequence IN " +
+                "(SELECT sequence FROM revs WHERE json IS NULL AND sequence > ? AND sequence <= ?)",
+                range);
+
+        logger.finer(String.format("Compacted %d revisions in sequences %d to %d",
+                revsCompacted, fromSequence + 1, toSequence));
+        return revsCompacted;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+
+/**
+ * <p>Creates an index on the {@code key} column of the attachments table if it doesn't exist,
+ * so purging attachments can look up which of a page of keys are still referenced without
+ * scanning the table.</p>
+ *
+ * <p>The index doesn't change what older versions of the library can read, so it is created
+ * when the database is opened rather than by a schema migration.</p>
+ */
+public class CreateAttachmentsKeyIndexCallable implements SQLCallable<Void> {
+
+    @Override
+    public Void call(SQLDatabase db) throws Exception {
+        db.execSQL("CREATE INDEX IF NOT EXISTS attachments_by_key ON attachments(key);");
+        return null;
+    }
+}
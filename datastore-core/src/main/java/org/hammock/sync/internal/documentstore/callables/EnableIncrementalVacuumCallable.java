@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+
+/**
+ * <p>Sets the database's {@code auto_vacuum} mode to {@code INCREMENTAL}, so that free pages
+ * can be returned to the file system a few at a time by {@link IncrementalVacuumCallable}.</p>
+ *
+ * <p>The mode only takes effect immediately for a database with no tables yet. For an
+ * existing database it takes effect at the next {@code VACUUM}.</p>
+ */
+public class EnableIncrementalVacuumCallable implements SQLCallable<Void> {
+
+    @Override
+    public Void call(SQLDatabase db) throws Exception {
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL;");
+        return null;
+    }
+}
@@ -14,46 +14,100 @@
 
 package org.hammock.sync.internal.documentstore.callables;
 
+import org.hammock.sync.documentstore.DocumentBodyFactory;
+import org.hammock.sync.documentstore.DocumentNotFoundException;
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.documentstore.UnsavedStreamAttachment;
+import org.hammock.sync.event.notifications.DocumentCreated;
+import org.hammock.sync.event.notifications.DocumentModified;
+import org.hammock.sync.event.notifications.DocumentUpdated;
 import org.hammock.sync.internal.android.Base64InputStreamFactory;
 import org.hammock.sync.internal.documentstore.AttachmentManager;
 import org.hammock.sync.internal.documentstore.AttachmentStreamFactory;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
-import org.hammock.sync.documentstore.DocumentNotFoundException;
-import org.hammock.sync.internal.documentstore.InternalDocumentRevision;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
 import org.hammock.sync.internal.documentstore.ForceInsertItem;
+import org.hammock.sync.internal.documentstore.InternalDocumentRevision;
 import org.hammock.sync.internal.documentstore.PreparedAttachment;
-import org.hammock.sync.documentstore.UnsavedStreamAttachment;
-import org.hammock.sync.event.notifications.DocumentCreated;
-import org.hammock.sync.event.notifications.DocumentModified;
-import org.hammock.sync.event.notifications.DocumentUpdated;
+import org.hammock.sync.internal.documentstore.helpers.InsertStubRevisionAdaptor;
+import org.hammock.sync.internal.sqlite.Cursor;
 import org.hammock.sync.internal.sqlite.SQLCallable;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.CollectionUtils;
+import org.hammock.sync.internal.util.DatabaseUtils;
+import org.hammock.sync.internal.util.Misc;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Force insert a list of items (Revisions) obtained by pull Replication into the local database
+ * <p>Force insert a list of items (Revisions) obtained by pull Replication into the local
+ * database.</p>
+ *
+ * <p>The batch is inserted as a set rather than item by item: the numeric IDs and existing
+ * revisions of all the documents in the batch are read up front, with a query per chunk of
+ * document IDs, and kept up to date as revisions are inserted, so finding where each revision
+ * goes in its tree needs no further queries. Winning revisions are picked once for each
+ * existing document touched by the batch, after all its revisions have been inserted.</p>
  */
 public class ForceInsertCallable implements SQLCallable<List<DocumentModified>> {
 
     private static final Logger logger = Logger.getLogger(DatabaseImpl.class.getCanonicalName());
 
+    private static final String SQL_DOCUMENT_REVISIONS = "SELECT docs.docid, docs.doc_id, " +
+            "revs.revid, revs.sequence, revs.current FROM docs, revs " +
+            "WHERE docs.doc_id = revs.doc_id AND docs.docid IN (%s)";
+
     private List<ForceInsertItem> items;
 
     private String attachmentsDir;
     private AttachmentStreamFactory attachmentStreamFactory;
+    private int revsLimit;
+
+    /**
+     * The revisions of a document in the batch, as far as they're needed to insert more.
+     */
+    private static class DocumentState {
+        final String docId;
+        final long numericId;
+        // revision ID to sequence, of all revisions in the tree
+        final Map<String, Long> sequences = new HashMap<String, Long>();
+        // sequence of the current revision, only valid when winnerPicked
+        long currentSequence = -1;
+        boolean winnerPicked = true;
+
+        DocumentState(String docId, long numericId) {
+            this.docId = docId;
+            this.numericId = numericId;
+        }
+    }
 
     public ForceInsertCallable(List<ForceInsertItem> items, String attachmentsDir,
                                AttachmentStreamFactory attachmentStreamFactory) {
+        this(items, attachmentsDir, attachmentStreamFactory, 0);
+    }
+
+    /**
+     * @param revsLimit the number of revisions of history to keep for each leaf of the
+     *                  documents inserted into, or 0 to keep all of it
+     * @see PruneRevisionsCallable
+     */
+    public ForceInsertCallable(List<ForceInsertItem> items, String attachmentsDir,
+                               AttachmentStreamFactory attachmentStreamFactory, int revsLimit) {
+        Misc.checkArgument(revsLimit >= 0, "revsLimit must be >= 0");
         this.items = items;
         this.attachmentsDir = attachmentsDir;
         this.attachmentStreamFactory = attachmentStreamFactory;
+        this.revsLimit = revsLimit;
     }
 
     @Override
@@ -61,30 +115,29 @@ public class ForceInsertCallable implements SQLCallable<List<DocumentModified>>
 
         List<DocumentModified> events = new ArrayList<DocumentModified>();
 
+        Map<String, DocumentState> documents = getDocumentStates(db);
+        Set<DocumentState> touched = new LinkedHashSet<DocumentState>();
+
         for (ForceInsertItem item : items) {
 
             logger.finer("forceInsert(): " + item.rev.toString());
 
-            DocumentCreated documentCreated = null;
-            DocumentUpdated documentUpdated = null;
-
-            boolean ok = true;
+            DocumentModified event;
+            long seq;
 
-            long docNumericId = new GetNumericIdCallable(item.rev.getId()).call(db);
-            long seq = 0;
-
-            if (docNumericId != -1) {
-                seq = new DoForceInsertExistingDocumentWithHistoryCallable(item.rev,
-                        docNumericId, item.revisionHistory,
-                        item.attachments, attachmentsDir, attachmentStreamFactory).call(db);
+            DocumentState document = documents.get(item.rev.getId());
+            if (document != null) {
+                seq = insertIntoExistingDocument(db, document, item);
+                touched.add(document);
                 item.rev.initialiseSequence(seq);
                 // TODO fetch the parent doc?
-                documentUpdated = new DocumentUpdated(null, item.rev);
+                event = new DocumentUpdated(null, item.rev);
             } else {
-                seq = new DoForceInsertNewDocumentWithHistoryCallable(item.rev, item
-                        .revisionHistory).call(db);
+                document = insertNewDocument(db, item);
+                documents.put(document.docId, document);
+                seq = document.currentSequence;
                 item.rev.initialiseSequence(seq);
-                documentCreated = new DocumentCreated(item.rev);
+                event = new DocumentCreated(item.rev);
             }
 
             // now deal with any attachments
@@ -95,9 +148,8 @@ public class ForceInsertCallable implements SQLCallable<List<DocumentModified>>
                         Boolean stub = (Boolean) attachmentMetadata.get("stub");
 
                         if (stub != null && stub) {
-                            // stubs get copied forward at the end of
-                            // insertDocumentHistoryIntoExistingTree - nothing to do
-                            // here
+                            // stubs get copied forward when the revision is inserted into an
+                            // existing tree - nothing to do here
                             continue;
                         }
                         String data = (String) attachmentMetadata.get("data");
@@ -130,7 +182,8 @@ public class ForceInsertCallable implements SQLCallable<List<DocumentModified>>
                             String id = key[0];
                             String rev = key[1];
                             try {
-                                InternalDocumentRevision doc = new GetDocumentCallable(id, rev, attachmentsDir, attachmentStreamFactory).call(db);
+                                InternalDocumentRevision doc = revisionForAttachments(db,
+                                        documents.get(id), id, rev);
                                     AttachmentManager.addAttachmentsToRevision(db,
                                             attachmentsDir, doc, item
                                                     .preparedAttachments.get(key));
@@ -153,15 +206,267 @@ public class ForceInsertCallable implements SQLCallable<List<DocumentModified>>
 
 
             }
-            if (ok) {
-                logger.log(Level.FINER, "Inserted revision: %s", item.rev);
-                if (documentCreated != null) {
-                    events.add(documentCreated);
-                } else if (documentUpdated != null) {
-                    events.add(documentUpdated);
-                }
+            logger.log(Level.FINER, "Inserted revision: %s", item.rev);
+            events.add(event);
+        }
+
+        for (DocumentState document : touched) {
+            pickWinner(db, document);
+        }
+        if (revsLimit > 0 && !touched.isEmpty()) {
+            // new documents were created with no more history than the limit
+            List<Long> docNumericIds = new ArrayList<Long>();
+            for (DocumentState document : touched) {
+                docNumericIds.add(document.numericId);
             }
+            new PruneRevisionsCallable(docNumericIds, revsLimit).call(db);
         }
         return events;
     }
+
+    /**
+     * Reads the numeric IDs and revisions of the documents in the batch which are already in
+     * the database.
+     */
+    private Map<String, DocumentState> getDocumentStates(SQLDatabase db)
+            throws DocumentStoreException {
+        Set<String> docIds = new LinkedHashSet<String>();
+        for (ForceInsertItem item : items) {
+            docIds.add(item.rev.getId());
+        }
+
+        Map<String, DocumentState> documents = new HashMap<String, DocumentState>();
+        for (List<String> batch : CollectionUtils.partition(new ArrayList<String>(docIds),
+                DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT)) {
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery(String.format(SQL_DOCUMENT_REVISIONS,
+                        DatabaseUtils.makePlaceholders(batch.size())),
+                        batch.toArray(new String[batch.size()]));
+                while (cursor.moveToNext()) {
+                    String docId = cursor.getString(0);
+                    DocumentState document = documents.get(docId);
+                    if (document == null) {
+                        document = new DocumentState(docId, cursor.getLong(1));
+                        documents.put(docId, document);
+                    }
+                    long sequence = cursor.getLong(3);
+                    document.sequences.put(cursor.getString(2), sequence);
+                    if (cursor.getInt(4) > 0) {
+                        document.currentSequence = sequence;
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DocumentStoreException("Failed to read revisions of documents to " +
+                        "insert", e);
+            } finally {
+                DatabaseUtils.closeCursorQuietly(cursor);
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Inserts a revision of a document which isn't in the database. Since there is no revision
+     * tree yet, the initial tree is built by inserting stub revisions for the history, with the
+     * revision as the current leaf of this linear tree.
+     */
+    private DocumentState insertNewDocument(SQLDatabase db, ForceInsertItem item)
+            throws DocumentStoreException {
+        InternalDocumentRevision rev = item.rev;
+        List<String> revHistory = limitHistory(item.revisionHistory);
+
+        DocumentState document = new DocumentState(rev.getId(),
+                new InsertDocumentIDCallable(rev.getId()).call(db));
+        long parentSequence = 0L;
+        for (int i = 0; i < revHistory.size() - 1; i++) {
+            // Insert stub node
+            parentSequence = InsertStubRevisionAdaptor.insert(document.numericId,
+                    revHistory.get(i), parentSequence).call(db);
+            document.sequences.put(revHistory.get(i), parentSequence);
+        }
+        // Insert the leaf node (don't copy attachments)
+        InsertRevisionCallable callable = new InsertRevisionCallable();
+        callable.docNumericId = document.numericId;
+        callable.revId = revHistory.get(revHistory.size() - 1);
+        callable.parentSequence = parentSequence;
+        callable.deleted = rev.isDeleted();
+        callable.current = true;
+        // If the body is null treat it as empty
+        callable.data = rev.getBody() == null ? DocumentBodyFactory.EMPTY.asBytes() : rev.getBody
+                ().asBytes();
+        callable.available = true;
+        document.currentSequence = callable.call(db);
+        document.sequences.put(callable.revId, document.currentSequence);
+        return document;
+    }
+
+    /**
+     * Inserts a revision of a document which is already in the database, together with any
+     * stub revisions of its history which are missing. The winning revision isn't picked, the
+     * caller has to call {@link #pickWinner(SQLDatabase, DocumentState)} once it has inserted
+     * the document's revisions.
+     */
+    private long insertIntoExistingDocument(SQLDatabase db, DocumentState document,
+                                            ForceInsertItem item)
+            throws DocumentStoreException {
+        InternalDocumentRevision newRevision = item.rev;
+        List<String> revisions = item.revisionHistory;
+        Misc.checkArgument(revisions.size() > 0, "Revision history should have at least " +
+                "one revision.");
+
+        // The most recent revision of the history which is already in the tree. Looking for it
+        // from the newest end means a tree which has been pruned, and so has lost the oldest
+        // revisions of the history, is still found to be the same tree.
+        int commonAncestor = -1;
+        for (int i = revisions.size() - 2; i >= 0 && commonAncestor < 0; i--) {
+            if (document.sequences.containsKey(revisions.get(i))) {
+                commonAncestor = i;
+            }
+        }
+
+        long newLeafSeq;
+        if (commonAncestor < 0) {
+            // No common ancestor, so add a new tree, making a "forest" of trees
+            logger.finer("Inserting a brand new tree for an existing document.");
+            List<String> history = limitHistory(revisions);
+            long parentSequence = 0L;
+            for (int i = 0; i < history.size() - 1; i++) {
+                parentSequence = InsertStubRevisionAdaptor.insert(document.numericId,
+                        history.get(i), parentSequence).call(db);
+                document.sequences.put(history.get(i), parentSequence);
+            }
+            // don't copy attachments
+            InsertRevisionCallable callable = new InsertRevisionCallable();
+            callable.docNumericId = document.numericId;
+            callable.revId = newRevision.getRevision();
+            callable.parentSequence = parentSequence;
+            callable.deleted = newRevision.isDeleted();
+            callable.current = false; // pickWinner sets this if it needs it
+            callable.data = newRevision.asBytes();
+            callable.available = !newRevision.isDeleted();
+            newLeafSeq = callable.call(db);
+            document.sequences.put(callable.revId, newLeafSeq);
+            document.winnerPicked = false;
+            return newLeafSeq;
+        }
+
+        // stubbed attachments are copied forward from the winning revision before this one
+        boolean copyStubs = hasStubs(item.attachments);
+        long previousLeafSeq = copyStubs ? currentSequence(db, document) : -1;
+
+        // Insert the new stub revisions, going down the tree from the common ancestor
+        // at the end of the loop, parentSeq will be the parent of our doc to insert
+        long parentSeq = document.sequences.get(revisions.get(commonAncestor));
+        for (int i = commonAncestor + 1; i < revisions.size() - 1; i++) {
+            String revId = revisions.get(i);
+            long seq = InsertStubRevisionAdaptor.insert(document.numericId, revId, parentSeq)
+                    .call(db);
+            new SetCurrentCallable(parentSeq, false).call(db);
+            document.sequences.put(revId, seq);
+            parentSeq = seq;
+        }
+
+        // Insert the new leaf revision
+        String newLeafRev = revisions.get(revisions.size() - 1);
+        logger.finer("Inserting new revision, id: " + document.numericId + ", rev: " +
+                newLeafRev);
+        new SetCurrentCallable(parentSeq, false).call(db);
+        // don't copy over attachments
+        InsertRevisionCallable callable = new InsertRevisionCallable();
+        callable.docNumericId = document.numericId;
+        callable.revId = newLeafRev;
+        callable.parentSequence = parentSeq;
+        callable.deleted = newRevision.isDeleted();
+        callable.current = false; // pickWinner sets this if it needs it
+        callable.data = newRevision.asBytes();
+        callable.available = true;
+        newLeafSeq = callable.call(db);
+        document.sequences.put(newLeafRev, newLeafSeq);
+        document.winnerPicked = false;
+
+        if (copyStubs) {
+            for (Map.Entry<String, Object> att : item.attachments.entrySet()) {
+                Boolean stub = ((Map<String, Boolean>) att.getValue()).get("stub");
+                if (stub != null && stub.booleanValue()) {
+                    try {
+                        AttachmentManager.copyAttachment(db, previousLeafSeq, newLeafSeq, att
+                                .getKey());
+                    } catch (SQLException sqe) {
+                        logger.log(Level.SEVERE, "Error copying stubbed attachments", sqe);
+                        throw new DocumentStoreException("Error copying stubbed attachments", sqe);
+                    }
+                }
+            }
+        }
+        return newLeafSeq;
+    }
+
+    /**
+     * Returns the most recent revisions of a history which are kept under the revs limit.
+     */
+    private List<String> limitHistory(List<String> revisionHistory) {
+        if (revsLimit > 0 && revisionHistory.size() > revsLimit) {
+            return revisionHistory.subList(revisionHistory.size() - revsLimit,
+                    revisionHistory.size());
+        }
+        return revisionHistory;
+    }
+
+    private static boolean hasStubs(Map<String, Object> attachments) {
+        if (attachments != null) {
+            for (Object att : attachments.values()) {
+                Boolean stub = ((Map<String, Boolean>) att).get("stub");
+                if (stub != null && stub.booleanValue()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the sequence of the document's current revision, first picking the winner if
+     * revisions have been inserted since it was last picked.
+     */
+    private static long currentSequence(SQLDatabase db, DocumentState document)
+            throws DocumentStoreException {
+        if (!document.winnerPicked) {
+            pickWinner(db, document);
+            document.currentSequence = new GetSequenceCallable(document.docId, null).call(db);
+        }
+        Misc.checkArgument(document.currentSequence > 0, "Parent revision must exist");
+        return document.currentSequence;
+    }
+
+    private static void pickWinner(SQLDatabase db, DocumentState document)
+            throws DocumentStoreException {
+        if (!document.winnerPicked) {
+            new PickWinningRevisionCallable(document.numericId).call(db);
+            document.winnerPicked = true;
+        }
+    }
+
+    /**
+     * Returns the revision prepared attachments are added to. Revisions of documents in the
+     * batch are found without a query, as only their sequence and revision ID are needed.
+     */
+    private InternalDocumentRevision revisionForAttachments(SQLDatabase db,
+                                                            DocumentState document,
+                                                            String id, String rev)
+            throws Exception {
+        if (document != null) {
+            Long sequence = document.sequences.get(rev);
+            if (sequence == null) {
+                throw new DocumentNotFoundException(id, rev);
+            }
+            return new DocumentRevisionBuilder()
+                    .setDocId(id)
+                    .setRevId(rev)
+                    .setInternalId(document.numericId)
+                    .setSequence(sequence)
+                    .build();
+        }
+        return new GetDocumentCallable(id, rev, attachmentsDir, attachmentStreamFactory).call(db);
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+import org.hammock.sync.internal.util.Misc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Returns the numeric IDs of the documents with more revisions than a revs limit, which are
+ * the only ones {@link PruneRevisionsCallable} may need to prune.
+ */
+public class GetDocumentsToPruneCallable implements SQLCallable<List<Long>> {
+
+    private final int revsLimit;
+
+    public GetDocumentsToPruneCallable(int revsLimit) {
+        Misc.checkArgument(revsLimit > 0, "revsLimit must be greater than 0.");
+        this.revsLimit = revsLimit;
+    }
+
+    @Override
+    public List<Long> call(SQLDatabase db) throws Exception {
+        List<Long> docNumericIds = new ArrayList<Long>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(String.format("SELECT doc_id FROM revs GROUP BY doc_id " +
+                    "HAVING count(*) > %d", revsLimit), null);
+            while (cursor.moveToNext()) {
+                docNumericIds.add(cursor.getLong(0));
+            }
+        } catch (SQLException e) {
+            throw new DocumentStoreException("Failed to find documents to prune", e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+        return docNumericIds;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+import org.hammock.sync.internal.util.Misc;
+
+import java.util.logging.Logger;
+
+/**
+ * <p>Returns up to a number of free pages of the database file to the file system.</p>
+ *
+ * <p>This only has an effect when the database's {@code auto_vacuum} mode is
+ * {@code INCREMENTAL}, which is the case for databases created by this version of the
+ * library, and for older databases once they've been through a full
+ * {@link CompactCallable compaction}.</p>
+ */
+public class IncrementalVacuumCallable implements SQLCallable<Long> {
+
+    private static final Logger logger = Logger.getLogger(DatabaseImpl.class.getCanonicalName());
+
+    /**
+     * The value of the {@code auto_vacuum} pragma for incremental vacuuming.
+     */
+    private static final long AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final int pages;
+
+    /**
+     * @param pages the maximum number of pages to free
+     */
+    public IncrementalVacuumCallable(int pages) {
+        Misc.checkArgument(pages > 0, "pages must be greater than 0.");
+        this.pages = pages;
+    }
+
+    /**
+     * @return the number of free pages remaining which could be returned by another call,
+     * which is always 0 when the database isn't in incremental vacuum mode
+     */
+    @Override
+    public Long call(SQLDatabase db) throws Exception {
+        if (pragma(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            logger.fine("Database is not in incremental auto_vacuum mode, not vacuuming");
+            return 0L;
+        }
+        // incremental_vacuum frees a page each time it is stepped, so run it as a query and
+        // read through all its rows
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(String.format("PRAGMA incremental_vacuum(%d)", pages), null);
+            while (cursor.moveToNext()) {
+            }
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+        return pragma(db, "PRAGMA freelist_count");
+    }
+
+    private static long pragma(SQLDatabase db, String sql) throws Exception {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+}
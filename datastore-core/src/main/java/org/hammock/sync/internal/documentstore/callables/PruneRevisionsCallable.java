@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+import org.hammock.sync.internal.util.Misc;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.logging.Logger;
+
+/**
+ * <p>Prunes the revision trees of documents so that each leaf revision keeps at most
+ * {@code revsLimit} revisions of history, counting the leaf itself.</p>
+ *
+ * <p>Revisions which are more than {@code revsLimit} revisions away from every leaf descended
+ * from them are deleted. The revisions whose parents are deleted become roots of the stemmed
+ * tree, and their attachment rows go with them. Leaf revisions are never deleted, so the
+ * winning revision and any conflicts are kept.</p>
+ */
+public class PruneRevisionsCallable implements SQLCallable<Integer> {
+
+    private static final Logger logger = Logger.getLogger(DatabaseImpl.class.getCanonicalName());
+
+    // The leaves of the document, and the ancestors of each up to the limit. As this is a
+    // subquery of the DELETE, the document's ID is bound twice.
+    private static final String SQL_NOT_KEPT = "doc_id = ? AND sequence NOT IN (" +
+            "WITH RECURSIVE kept(sequence, parent, depth) AS (" +
+            "SELECT sequence, parent, 1 FROM revs WHERE doc_id = ? AND NOT EXISTS " +
+            "(SELECT 1 FROM revs AS children WHERE children.parent = revs.sequence) " +
+            "UNION " +
+            "SELECT revs.sequence, revs.parent, kept.depth + 1 FROM revs, kept " +
+            "WHERE revs.sequence = kept.parent AND kept.depth < %d) " +
+            "SELECT sequence FROM kept)";
+
+    private final Collection<Long> docNumericIds;
+    private final int revsLimit;
+
+    /**
+     * @param docNumericIds the numeric IDs of the documents to prune
+     * @param revsLimit the number of revisions to keep for each leaf
+     */
+    public PruneRevisionsCallable(Collection<Long> docNumericIds, int revsLimit) {
+        Misc.checkNotNull(docNumericIds, "docNumericIds");
+        Misc.checkArgument(revsLimit > 0, "revsLimit must be greater than 0.");
+        this.docNumericIds = docNumericIds;
+        this.revsLimit = revsLimit;
+    }
+
+    /**
+     * @return the number of revisions deleted
+     */
+    @Override
+    public Integer call(SQLDatabase db) throws Exception {
+        String where = String.format(SQL_NOT_KEPT, revsLimit);
+        int pruned = 0;
+        for (Long docNumericId : docNumericIds) {
+            String id = String.valueOf(docNumericId);
+            // no branch can be longer than the number of revisions, so most documents can
+            // be skipped without walking their trees
+            if (revisionCount(db, id) <= revsLimit) {
+                continue;
+            }
+            int deleted = db.delete("revs", where, new String[]{id, id});
+            logger.finer(String.format("Pruned %d revisions of document %s", deleted, id));
+            pruned += deleted;
+        }
+        return pruned;
+    }
+
+    private static long revisionCount(SQLDatabase db, String docNumericId)
+            throws DocumentStoreException {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT count(*) FROM revs WHERE doc_id = ?",
+                    new String[]{docNumericId});
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } catch (SQLException e) {
+            throw new DocumentStoreException("Failed to count revisions of document", e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.internal.documentstore.AttachmentManager;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.Misc;
+
+/**
+ * Deletes the files of the attachments no longer referred to by any revision, for one page
+ * of the attachment keys.
+ *
+ * @see AttachmentManager#purgeAttachments(SQLDatabase, String, String, int)
+ */
+public class PurgeAttachmentsCallable implements SQLCallable<String> {
+
+    private final String attachmentsDir;
+    private final String afterKey;
+    private final int limit;
+
+    /**
+     * @param attachmentsDir the directory the attachment files are stored in
+     * @param afterKey the key after which to start, or an empty string to start at the first
+     * @param limit the maximum number of keys to check
+     */
+    public PurgeAttachmentsCallable(String attachmentsDir, String afterKey, int limit) {
+        Misc.checkNotNull(afterKey, "afterKey");
+        Misc.checkArgument(limit > 0, "limit must be greater than 0.");
+        this.attachmentsDir = attachmentsDir;
+        this.afterKey = afterKey;
+        this.limit = limit;
+    }
+
+    /**
+     * @return the last key checked, to start the next page after, or {@code null} if there
+     * are no more keys
+     */
+    @Override
+    public String call(SQLDatabase db) throws Exception {
+        return AttachmentManager.purgeAttachments(db, attachmentsDir, afterKey, limit);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore.callables;
+
+import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.common.ValueListMap;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.CollectionUtils;
+import org.hammock.sync.internal.util.DatabaseUtils;
+import org.hammock.sync.internal.util.Misc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Checks the supplied revisions of many documents and returns those which are missing
+ * from the database.</p>
+ *
+ * <p>The document ID/revision ID pairs are looked up in chunks, each chunk with a single
+ * query selecting the stored revisions among the chunk's document IDs and revision IDs. As a
+ * chunk's documents and revisions are matched separately, rows are only taken as present when
+ * the pair was asked for.</p>
+ */
+public class RevsDiffCallable implements SQLCallable<Map<String, List<String>>> {
+
+    private final Map<String, Set<String>> missingRevs;
+    private final int placeholdersLimit;
+
+    /**
+     * @param revisions map of document ID to the revision IDs to check
+     * @param placeholdersLimit maximum number of placeholders to use in each query
+     */
+    public RevsDiffCallable(Map<String, List<String>> revisions, int placeholdersLimit) {
+        Misc.checkArgument(placeholdersLimit > 1, "placeholdersLimit must be greater than 1.");
+        this.placeholdersLimit = placeholdersLimit;
+        // Consider all missing to start
+        this.missingRevs = new LinkedHashMap<String, Set<String>>();
+        for (Map.Entry<String, List<String>> entry : revisions.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                missingRevs.put(entry.getKey(), new LinkedHashSet<String>(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * @return map of document ID to the revision IDs not present in the database, containing
+     * only the documents with missing revisions
+     */
+    @Override
+    public Map<String, List<String>> call(SQLDatabase db) throws Exception {
+        List<String> chunkDocIds = new ArrayList<String>();
+        Set<String> chunkRevIds = new LinkedHashSet<String>();
+        for (Map.Entry<String, Set<String>> entry : missingRevs.entrySet()) {
+            // The doc ID will use one placeholder, so use limit - 1 for the number of revs
+            for (List<String> revs : CollectionUtils.partition(new ArrayList<String>(entry
+                    .getValue()), placeholdersLimit - 1)) {
+                if (chunkDocIds.size() + chunkRevIds.size() + 1 + revs.size() >
+                        placeholdersLimit) {
+                    removeStoredRevisions(db, chunkDocIds, chunkRevIds);
+                    chunkDocIds.clear();
+                    chunkRevIds.clear();
+                }
+                if (chunkDocIds.isEmpty() || !chunkDocIds.get(chunkDocIds.size() - 1).equals
+                        (entry.getKey())) {
+                    chunkDocIds.add(entry.getKey());
+                }
+                chunkRevIds.addAll(revs);
+            }
+        }
+        if (!chunkDocIds.isEmpty()) {
+            removeStoredRevisions(db, chunkDocIds, chunkRevIds);
+        }
+
+        ValueListMap<String, String> result = new ValueListMap<String, String>();
+        for (Map.Entry<String, Set<String>> entry : missingRevs.entrySet()) {
+            result.addValuesToKey(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private void removeStoredRevisions(SQLDatabase db, List<String> docIds, Set<String> revIds)
+            throws DocumentStoreException {
+        final String sql = String.format(
+                "SELECT docs.docid, revs.revid FROM docs, revs " +
+                        "WHERE docs.doc_id = revs.doc_id AND docs.docid IN (%s) " +
+                        "AND revs.revid IN (%s)",
+                DatabaseUtils.makePlaceholders(docIds.size()),
+                DatabaseUtils.makePlaceholders(revIds.size()));
+
+        String[] args = new String[docIds.size() + revIds.size()];
+        int i = 0;
+        for (String docId : docIds) {
+            args[i++] = docId;
+        }
+        for (String revId : revIds) {
+            args[i++] = revId;
+        }
+
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, args);
+            while (cursor.moveToNext()) {
+                Set<String> missing = missingRevs.get(cursor.getString(0));
+                if (missing != null) {
+                    missing.remove(cursor.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DocumentStoreException(e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.hammock.sync.internal.sqlite.SQLCallable;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
 import org.hammock.sync.internal.util.Misc;
 
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -38,15 +39,30 @@ public class UpdateDocumentFromRevisionCallable implements SQLCallable<InternalD
 
     private String attachmentsDir;
     private AttachmentStreamFactory attachmentStreamFactory;
+    private int revsLimit;
 
     public UpdateDocumentFromRevisionCallable(DocumentRevision rev, Map<String, PreparedAttachment>
             preparedNewAttachments, Map<String, SavedAttachment> existingAttachments, String
             attachmentsDir, AttachmentStreamFactory attachmentStreamFactory) {
+        this(rev, preparedNewAttachments, existingAttachments, attachmentsDir,
+                attachmentStreamFactory, 0);
+    }
+
+    /**
+     * @param revsLimit the number of revisions of history to keep for each leaf of the
+     *                  document, or 0 to keep all of it
+     * @see PruneRevisionsCallable
+     */
+    public UpdateDocumentFromRevisionCallable(DocumentRevision rev, Map<String, PreparedAttachment>
+            preparedNewAttachments, Map<String, SavedAttachment> existingAttachments, String
+            attachmentsDir, AttachmentStreamFactory attachmentStreamFactory, int revsLimit) {
+        Misc.checkArgument(revsLimit >= 0, "revsLimit must be >= 0");
         this.rev = rev;
         this.preparedNewAttachments = preparedNewAttachments;
         this.existingAttachments = existingAttachments;
         this.attachmentsDir = attachmentsDir;
         this.attachmentStreamFactory = attachmentStreamFactory;
+        this.revsLimit = revsLimit;
     }
 
     @Override
@@ -60,6 +76,11 @@ public class UpdateDocumentFromRevisionCallable implements SQLCallable<InternalD
 
         AttachmentManager.copyAttachmentsToRevision(db, existingAttachments, updated);
 
+        if (revsLimit > 0) {
+            new PruneRevisionsCallable(Collections.singletonList(updated
+                    .getInternalNumericId()), revsLimit).call(db);
+        }
+
         // now re-fetch the revision with updated attachments
         InternalDocumentRevision updatedWithAttachments = new GetDocumentCallable(updated.getId(),
                 updated.getRevision(), this.attachmentsDir, this.attachmentStreamFactory).call(db);
@@ -19,14 +19,19 @@ import org.hammock.sync.documentstore.DocumentException;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.internal.documentstore.AttachmentManager;
 import org.hammock.sync.internal.documentstore.AttachmentStreamFactory;
+import org.hammock.sync.internal.documentstore.DatabaseImpl;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
 import org.hammock.sync.internal.documentstore.InternalDocumentRevision;
+import org.hammock.sync.internal.documentstore.SavedAttachment;
 import org.hammock.sync.internal.sqlite.Cursor;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
 import org.hammock.sync.internal.util.DatabaseUtils;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 
 /**
@@ -34,28 +39,70 @@ import java.util.Map;
  */
 
 public class GetRevisionsFromRawQuery {
+
+    /**
+     * Returns the revisions selected by a query of {@link
+     * org.hammock.sync.internal.documentstore.callables.CallableSQLConstants#FULL_DOCUMENT_COLS}
+     * with their attachments. The attachments of all the revisions are read together once the
+     * query's rows have been read, rather than with a query per revision.
+     */
     public static List<InternalDocumentRevision> get(
             SQLDatabase db, String sql, String[] args, String attachmentsDir,
             AttachmentStreamFactory attachmentStreamFactory)
             throws DocumentException, DocumentStoreException {
 
         List<InternalDocumentRevision> result = new ArrayList<InternalDocumentRevision>();
+        List<Long> sequences = new ArrayList<Long>();
         Cursor cursor = null;
 
         try {
             cursor = db.rawQuery(sql, args);
             while (cursor.moveToNext()) {
-                long sequence = cursor.getLong(3);
-                Map<String, ? extends Attachment> atts = AttachmentManager.attachmentsForRevision(
-                        db, attachmentsDir, attachmentStreamFactory, sequence);
-                InternalDocumentRevision row = GetFullRevisionFromCurrentCursor.get(cursor, atts);
+                InternalDocumentRevision row = GetFullRevisionFromCurrentCursor.get(cursor,
+                        Collections.<String, Attachment>emptyMap());
                 result.add(row);
+                sequences.add(row.getSequence());
             }
         } catch (SQLException e) {
             throw new DocumentStoreException(e);
         } finally {
             DatabaseUtils.closeCursorQuietly(cursor);
         }
+
+        if (sequences.isEmpty()) {
+            return result;
+        }
+        Map<Long, Map<String, SavedAttachment>> attachments =
+                AttachmentManager.attachmentsForRevisions(db, attachmentsDir,
+                        attachmentStreamFactory, sequences,
+                        DatabaseImpl.SQLITE_QUERY_PLACEHOLDERS_LIMIT);
+        if (!attachments.isEmpty()) {
+            for (ListIterator<InternalDocumentRevision> it = result.listIterator(); it.hasNext(); ) {
+                InternalDocumentRevision rev = it.next();
+                Map<String, SavedAttachment> atts = attachments.get(rev.getSequence());
+                if (atts != null) {
+                    it.set(withAttachments(rev, atts));
+                }
+            }
+        }
         return result;
     }
+
+    // revisions are built before their attachments are known, so ones with attachments are
+    // rebuilt rather than modified, which would mark their attachments as changed
+    private static InternalDocumentRevision withAttachments(InternalDocumentRevision rev,
+                                                            Map<String, ? extends Attachment>
+                                                                    attachments) {
+        return new DocumentRevisionBuilder()
+                .setDocId(rev.getId())
+                .setRevId(rev.getRevision())
+                .setBody(rev.getBody())
+                .setDeleted(rev.isDeleted())
+                .setSequence(rev.getSequence())
+                .setInternalId(rev.getInternalNumericId())
+                .setCurrent(rev.isCurrent())
+                .setParent(rev.getParent())
+                .setAttachments(attachments)
+                .build();
+    }
 }
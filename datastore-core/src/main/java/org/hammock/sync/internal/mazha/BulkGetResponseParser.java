@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.mazha;
+
+import org.hammock.sync.internal.documentstore.DocumentRevsList;
+import org.hammock.sync.internal.util.JSONUtils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Reads the response of the {@code _bulk_get} endpoint one document at a time, rather than
+ * deserialising the whole response into memory:
+ * </p>
+ *
+ * <pre>
+ * {
+ *   "results": [
+ *     { "id": "a", "docs": [ { "ok": { "_id": "a", "_rev": "2-x", ... } } ] },
+ *     { "id": "a", "docs": [ { "ok": { "_id": "a", "_rev": "2-y", ... } } ] },
+ *     { "id": "b", "docs": [ { "error": { "id": "b", "rev": "1-z", ... } } ] }
+ *   ]
+ * }
+ * </pre>
+ *
+ * <p>
+ * The {@code ok} revisions of consecutive results with the same document ID are grouped into
+ * one {@link DocumentRevsList}. A group is only returned once a result for a different ID or the
+ * end of the results has been read, so every group returned is complete even if the stream fails
+ * part way through.
+ * </p>
+ */
+class BulkGetResponseParser implements Closeable {
+
+    private final JsonParser parser;
+
+    private List<DocumentRevs> pending = new ArrayList<DocumentRevs>();
+    private String pendingId = null;
+    private boolean inResults = false;
+    private boolean finished = false;
+
+    BulkGetResponseParser(InputStream stream) throws IOException {
+        this.parser = JSONUtils.createParser(stream);
+    }
+
+    /**
+     * @return the next group of revisions, or {@code null} when the end of the results has been
+     * reached
+     * @throws IOException if the response couldn't be read or isn't a {@code _bulk_get} response
+     */
+    DocumentRevsList next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (!inResults) {
+            seekResults();
+            inResults = true;
+        }
+        JsonToken token;
+        while ((token = nextToken()) == JsonToken.START_OBJECT) {
+            List<DocumentRevs> result = readResult();
+            if (result.isEmpty()) {
+                continue;
+            }
+            String id = result.get(0).getId();
+            if (pendingId != null && !pendingId.equals(id)) {
+                DocumentRevsList complete = new DocumentRevsList(pending);
+                pending = result;
+                pendingId = id;
+                return complete;
+            }
+            pendingId = id;
+            pending.addAll(result);
+        }
+        if (token != JsonToken.END_ARRAY) {
+            throw new IOException("Unexpected token in _bulk_get results: " + token);
+        }
+        finished = true;
+        return pending.isEmpty() ? null : new DocumentRevsList(pending);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    // move the parser to just inside the top level "results" array
+    private void seekResults() throws IOException {
+        if (nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object in _bulk_get response");
+        }
+        JsonToken token;
+        while ((token = nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = nextToken();
+            if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new IOException("No results array in _bulk_get response");
+    }
+
+    // read one element of the results array, returning the revisions in its "ok" entries
+    private List<DocumentRevs> readResult() throws IOException {
+        List<DocumentRevs> revs = new ArrayList<DocumentRevs>();
+        while (nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = nextToken();
+            if ("docs".equals(field) && token == JsonToken.START_ARRAY) {
+                while (nextToken() == JsonToken.START_OBJECT) {
+                    while (nextToken() == JsonToken.FIELD_NAME) {
+                        String docField = parser.getCurrentName();
+                        if (nextToken() == JsonToken.START_OBJECT && "ok".equals(docField)) {
+                            revs.add(parser.readValueAs(DocumentRevs.class));
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return revs;
+    }
+
+    private JsonToken nextToken() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new IOException("Unexpected end of _bulk_get response");
+        }
+        return token;
+    }
+}
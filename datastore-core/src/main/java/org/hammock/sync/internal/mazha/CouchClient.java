@@ -37,6 +37,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 
 import org.apache.commons.io.IOUtils;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -52,10 +53,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -81,6 +86,16 @@ public class CouchClient {
     private CouchURIHelper uriHelper;
     private List<HttpConnectionRequestInterceptor> requestInterceptors;
     private List<HttpConnectionResponseInterceptor> responseInterceptors;
+    private boolean gzipRequests = false;
+    private boolean acceptGzip = false;
+    // when set, a permit is held from sending each request until its response arrives
+    private Semaphore requestPermits = null;
+
+    // the longpoll _changes request in flight, and whether it has been aborted; an abort which
+    // finds no request in flight applies to the next one
+    private final Object changesLongpollLock = new Object();
+    private HttpConnection changesLongpoll = null;
+    private boolean changesLongpollAborted = false;
     private final static Logger logger = Logger.getLogger(RetriableTask.class.getCanonicalName());
 
     public CouchClient(URI rootUri,
@@ -216,6 +231,39 @@ public class CouchClient {
         }
     }
 
+    /**
+     * Sets whether the bodies of {@code _bulk_docs}, {@code _bulk_get} and {@code _revs_diff}
+     * requests are gzip compressed. The server must accept compressed request bodies.
+     *
+     * @param gzipRequests whether to gzip compress large request bodies
+     */
+    public void setGzipRequests(boolean gzipRequests) {
+        this.gzipRequests = gzipRequests;
+    }
+
+    /**
+     * Sets whether the server may gzip compress JSON responses, which are then decompressed as
+     * they are read.
+     *
+     * @param acceptGzip whether to accept gzip compressed JSON responses
+     */
+    public void setAcceptGzip(boolean acceptGzip) {
+        this.acceptGzip = acceptGzip;
+    }
+
+    /**
+     * Sets the permits shared with other clients which limit the number of requests waiting
+     * for a response at once. A permit is held from sending a request until its response
+     * status arrives, so the time spent reading response bodies isn't limited. Longpoll
+     * {@code _changes} requests, which mostly wait for changes, don't take a permit.
+     *
+     * @param requestPermits the permits to acquire for each request, or {@code null} for no
+     *                       limit
+     */
+    public void setRequestPermits(Semaphore requestPermits) {
+        this.requestPermits = requestPermits;
+    }
+
     public URI getRootUri() {
         return this.uriHelper.getRootUri();
     }
@@ -297,6 +345,24 @@ public class CouchClient {
     // it needs to catch eg FileNotFoundException and rethrow to emulate the previous exception
     // handling behaviour
     private ExecuteResult execute(HttpConnection connection) {
+        return execute(connection, true);
+    }
+
+    private ExecuteResult execute(HttpConnection connection, boolean limited) {
+        final Semaphore permits = limited ? requestPermits : null;
+        if (permits != null) {
+            permits.acquireUninterruptibly();
+        }
+        try {
+            return executeUnlimited(connection);
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private ExecuteResult executeUnlimited(HttpConnection connection) {
 
         InputStream inputStream = null; // input stream - response from server on success
         InputStream errorStream = null; // error stream - response from server for a 500 etc
@@ -323,7 +389,12 @@ public class CouchClient {
         }
 
         // error stream will be present or null if not applicable
-        errorStream = connection.getConnection().getErrorStream();
+        try {
+            errorStream = connection.errorAsInputStream();
+        } catch (IOException ioe) {
+            // e.g. an empty or corrupt compressed body, treat as no error details
+            errorStream = null;
+        }
 
         try {
             ExecuteResult executeResult = new ExecuteResult(inputStream,
@@ -380,8 +451,35 @@ public class CouchClient {
         throw lastException;
     }
 
+    // execute HTTP request with retries:
+    // return the response stream for the caller to process and close, or throw an exception
+    private InputStream executeToStreamWithRetry(final HttpConnection connection) throws
+            CouchException {
+        // all CouchClient requests want to receive application/json responses
+        connection.requestProperties.put("Accept", "application/json");
+        connection.setAcceptGzip(acceptGzip);
+        connection.responseInterceptors.addAll(responseInterceptors);
+        connection.requestInterceptors.addAll(requestInterceptors);
+        int attempts = 10;
+        CouchException lastException = null;
+        while (attempts-- > 0) {
+            ExecuteResult result = execute(connection);
+            if (result.stream != null) {
+                return result.stream;
+            }
+            lastException = result.exception;
+            if (result.fatal) {
+                // fatal exception - don't attempt any more retries
+                throw result.exception;
+            }
+        }
+        throw lastException;
+    }
+
     private <T> T executeToJsonObjectWithRetry(final HttpConnection connection, final
     TypeReference<T> type) throws CouchException {
+        // the JSON is parsed from the decompressed stream, so it may be compressed in transit
+        connection.setAcceptGzip(acceptGzip);
         return executeWithRetry(connection, new TypeInputStreamProcessor<T>(type));
     }
 
@@ -486,6 +584,114 @@ public class CouchClient {
         return changesRequestWithPost(docsIdsDoc, options);
     }
 
+    /**
+     * <p>
+     * Reads changes with a {@code longpoll} request, which the server holds open until there is
+     * at least one change to return. The filter, selector and document IDs are as for the
+     * other {@code changes} methods, and at most one of them may be given.
+     * </p>
+     * <p>
+     * With a {@code heartbeat} the server waits indefinitely, sending a newline every
+     * {@code heartbeat} milliseconds to keep the idle connection alive; the newlines are
+     * skipped when the response is parsed. Otherwise the server waits up to {@code timeout}
+     * milliseconds and then returns no changes.
+     * </p>
+     * <p>
+     * The request can be ended early from another thread with
+     * {@link #abortChangesLongpoll()}.
+     * </p>
+     *
+     * @param heartbeat interval between heartbeats in milliseconds, or 0 for none
+     * @param timeout   time to wait for a change in milliseconds, used when there are no
+     *                  heartbeats
+     * @return the changes, or {@code null} if the request was aborted
+     */
+    public ChangesResult changesLongpoll(PullFilter filter, String selector, List<String> docIds,
+                                         Object since, Integer limit, long heartbeat,
+                                         long timeout) {
+        Map<String, Object> options = getParametrizedChangeFeedOptions(since, limit);
+        options.put("feed", "longpoll");
+        if (heartbeat > 0) {
+            options.put("heartbeat", heartbeat);
+        } else {
+            options.put("timeout", timeout);
+        }
+        String body = null;
+        if (selector != null) {
+            options.put("filter", "_selector");
+            body = selector;
+        } else if (docIds != null && !docIds.isEmpty()) {
+            options.put("filter", "_doc_ids");
+            body = JSONUtils.serializeAsString(Collections.singletonMap("doc_ids", docIds));
+        } else if (filter != null && filter.getName() != null) {
+            options.put("filter", filter.getName());
+            if (filter.getParameters() != null) {
+                options.putAll(filter.getParameters());
+            }
+        }
+        URI changesFeedUri = uriHelper.changesUri(options);
+        final HttpConnection connection;
+        if (body != null) {
+            connection = Http.POST(changesFeedUri, "application/json");
+            connection.setRequestBody(body);
+        } else {
+            connection = Http.GET(changesFeedUri);
+        }
+
+        synchronized (changesLongpollLock) {
+            if (changesLongpollAborted) {
+                changesLongpollAborted = false;
+                return null;
+            }
+            changesLongpoll = connection;
+        }
+        connection.requestProperties.put("Accept", "application/json");
+        connection.setAcceptGzip(acceptGzip);
+        connection.responseInterceptors.addAll(responseInterceptors);
+        connection.requestInterceptors.addAll(requestInterceptors);
+        try {
+            return executeWithRetry(new Callable<ExecuteResult>() {
+                @Override
+                public ExecuteResult call() throws Exception {
+                    // don't retry a request which failed because it was aborted
+                    synchronized (changesLongpollLock) {
+                        if (changesLongpollAborted) {
+                            throw new IOException("Longpoll _changes request aborted");
+                        }
+                    }
+                    return execute(connection, false);
+                }
+            }, new TypeInputStreamProcessor<ChangesResult>(new
+                    CouchClientTypeReference<ChangesResult>(ChangesResult.class)));
+        } catch (CouchException e) {
+            synchronized (changesLongpollLock) {
+                if (changesLongpollAborted) {
+                    return null;
+                }
+            }
+            throw e;
+        } finally {
+            synchronized (changesLongpollLock) {
+                changesLongpoll = null;
+                changesLongpollAborted = false;
+            }
+        }
+    }
+
+    /**
+     * Ends the {@link #changesLongpoll(PullFilter, String, List, Object, Integer, long, long)}
+     * request in flight, which then returns {@code null}. If there isn't one, the next request
+     * returns {@code null} without being made.
+     */
+    public void abortChangesLongpoll() {
+        synchronized (changesLongpollLock) {
+            changesLongpollAborted = true;
+            if (changesLongpoll != null && changesLongpoll.getConnection() != null) {
+                changesLongpoll.disconnect();
+            }
+        }
+    }
+
     private ChangesResult changesRequestWithGet(final Map<String, Object> options) {
         URI changesFeedUri = uriHelper.changesUri(options);
         HttpConnection connection = Http.GET(changesFeedUri);
@@ -622,8 +828,8 @@ public class CouchClient {
      * @param pullAttachmentsInline If true, retrieve attachments as inline base64
      * @return An iterator representing the result of calling the _bulk_docs endpoint.
      */
-    public Iterable<DocumentRevsList> bulkReadDocsWithOpenRevisions(List<BulkGetRequest> request,
-                                                                    boolean pullAttachmentsInline) {
+    public Iterable<DocumentRevsList> bulkReadDocsWithOpenRevisions(
+            final List<BulkGetRequest> request, boolean pullAttachmentsInline) {
         Map<String, Object> options = new HashMap<String, Object>();
         options.put("revs", true);
         options.put("latest", true);
@@ -634,38 +840,16 @@ public class CouchClient {
             options.put("attachments", false);
             options.put("att_encoding_info", true);
         }
-        URI bulkGet = this.uriHelper.documentUri("_bulk_get", options);
-        HttpConnection connection = Http.POST(bulkGet, "application/json");
-        Map<String, List<BulkGetRequest>> jsonRequest = new HashMap<String, List<BulkGetRequest>>();
-        jsonRequest.put("docs", request);
-        // build request
-        connection.setRequestBody(JSONUtils.toJson(jsonRequest));
-        // deserialise response
-        BulkGetResponse response = executeToJsonObjectWithRetry(connection, BulkGetResponse.class);
-
-        Map<String, ArrayList<DocumentRevs>> revsMap = new HashMap<String,
-                ArrayList<DocumentRevs>>();
-
-        // merge results back in, so there is one list of DocumentRevs per ID
-        for (BulkGetResponse.Result result : response.results) {
-            for (BulkGetResponse.Doc doc : result.docs) {
-                if (doc.ok != null) {
-                    String id = doc.ok.getId();
-                    if (!revsMap.containsKey(id)) {
-                        revsMap.put(id, new ArrayList<DocumentRevs>());
-                    }
-                    revsMap.get(id).add(doc.ok);
-                }
+        final URI bulkGet = this.uriHelper.documentUri("_bulk_get", options);
+        // the request is made when iteration starts, and the response is parsed as the caller
+        // iterates, so only the revisions not yet returned are held in memory; the iterator is
+        // Closeable so callers which stop early can release the response
+        return new Iterable<DocumentRevsList>() {
+            @Override
+            public Iterator<DocumentRevsList> iterator() {
+                return new BulkGetIterator(bulkGet, request);
             }
-        }
-
-        List<DocumentRevsList> allRevs = new ArrayList<DocumentRevsList>();
-
-        // flatten out revsMap hash so that there is one entry in our return array for each ID
-        for (ArrayList<DocumentRevs> value : revsMap.values()) {
-            allRevs.add(new DocumentRevsList(value));
-        }
-        return allRevs;
+        };
     }
 
     public Map<String, Object> getDocument(String id) {
@@ -794,6 +978,7 @@ public class CouchClient {
         URI uri = this.uriHelper.bulkDocsUri();
         HttpConnection connection = Http.POST(uri, "application/json");
         connection.setRequestBody(payload);
+        connection.setGzipRequestBody(gzipRequests);
         return executeToJsonObjectWithRetry(connection, new
                 CouchClientTypeReference<List<Response>>());
     }
@@ -869,6 +1054,7 @@ public class CouchClient {
 
         HttpConnection connection = Http.POST(uri, "application/json");
         connection.setRequestBody(payload);
+        connection.setGzipRequestBody(gzipRequests);
         return executeToJsonObjectWithRetry(connection, JSONUtils.STRING_MISSING_REVS_MAP_TYPE_DEF);
     }
 
@@ -912,6 +1098,109 @@ public class CouchClient {
         public Set<String> missing;
     }
 
+    /**
+     * Iterates over the documents in a {@code _bulk_get} response as it is read. If reading the
+     * response fails part way through, the request is retried for only the documents which have
+     * not been returned yet. Callers which stop iterating early should close the iterator to
+     * release the response.
+     */
+    private class BulkGetIterator implements Iterator<DocumentRevsList>, Closeable {
+
+        private final URI bulkGet;
+        // requests for documents which have not been returned yet, in request order
+        private final List<BulkGetRequest> remaining;
+        private int attempts = 10;
+        private BulkGetResponseParser parser = null;
+        private DocumentRevsList next = null;
+
+        BulkGetIterator(URI bulkGet, List<BulkGetRequest> requests) {
+            this.bulkGet = bulkGet;
+            this.remaining = new LinkedList<BulkGetRequest>(requests);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public DocumentRevsList next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DocumentRevsList revsList = next;
+            next = null;
+            return revsList;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public void close() {
+            remaining.clear();
+            next = null;
+            closeParser();
+        }
+
+        private DocumentRevsList advance() {
+            while (!remaining.isEmpty()) {
+                try {
+                    if (parser == null) {
+                        HttpConnection connection = Http.POST(bulkGet, "application/json");
+                        Map<String, List<BulkGetRequest>> jsonRequest = new HashMap<String,
+                                List<BulkGetRequest>>();
+                        jsonRequest.put("docs", remaining);
+                        connection.setRequestBody(JSONUtils.toJson(jsonRequest));
+                        connection.setGzipRequestBody(gzipRequests);
+                        parser = new BulkGetResponseParser(executeToStreamWithRetry(connection));
+                    }
+                    DocumentRevsList revsList = parser.next();
+                    if (revsList == null) {
+                        closeParser();
+                        remaining.clear();
+                        return null;
+                    }
+                    String id = revsList.get(0).getId();
+                    for (Iterator<BulkGetRequest> it = remaining.iterator(); it.hasNext(); ) {
+                        if (id.equals(it.next().id)) {
+                            it.remove();
+                        }
+                    }
+                    return revsList;
+                } catch (IOException e) {
+                    closeParser();
+                    if (--attempts > 0) {
+                        logger.log(Level.WARNING, "Received an exception during _bulk_get " +
+                                "response stream processing. A retry will be attempted for " +
+                                "the remaining documents.", e);
+                    } else {
+                        logger.log(Level.SEVERE, "_bulk_get response stream processing " +
+                                "failed, no retries remaining.", e);
+                        throw new CouchException("Unexpected exception", e, -1);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void closeParser() {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Failed to close _bulk_get response", e);
+                }
+                parser = null;
+            }
+        }
+    }
+
     public interface InputStreamProcessor<T> {
 
         T processStream(InputStream stream) throws Exception;
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.query;
+
+import org.hammock.sync.event.Subscribe;
+import org.hammock.sync.event.notifications.DocumentModified;
+import org.hammock.sync.query.QueryException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Keeps the indexes of a {@link QueryImpl} up to date in the background.
+ * </p>
+ * <p>
+ * Each {@link DocumentModified} event, which covers creates, updates and deletes as well as the
+ * revisions inserted by each pull replication batch, schedules an index update a short time
+ * later. Events arriving before that update runs are indexed by it too, so writes are indexed
+ * in micro-batches rather than one at a time.
+ * </p>
+ * <p>
+ * This class is not intended as API, it is public for EventBus access only.
+ * </p>
+ */
+public class BackgroundIndexer {
+
+    private static final Logger logger = Logger.getLogger(BackgroundIndexer.class.getName());
+
+    /**
+     * How long to wait after a write before indexing, to collect further writes into the batch.
+     */
+    static final long BATCH_DELAY_MS = 100;
+
+    private final QueryImpl query;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private final Runnable update = new Runnable() {
+        @Override
+        public void run() {
+            // clear the flag first so a write made while we're indexing schedules another update
+            scheduled.set(false);
+            try {
+                query.refreshAllIndexes();
+            } catch (QueryException e) {
+                logger.log(Level.WARNING, "Background index update failed, indexes will be " +
+                        "updated by the next write or query", e);
+            }
+        }
+    };
+
+    BackgroundIndexer(QueryImpl query, final String name) {
+        this.query = query;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "BackgroundIndexer - " + name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Subscribe
+    public void onDocumentModified(DocumentModified event) {
+        schedule();
+    }
+
+    /**
+     * Schedules an index update, unless one is already waiting to run.
+     */
+    void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(update, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // an event posted while we were being shut down, the next query will index it
+                logger.log(Level.FINE, "Background indexing has stopped", e);
+            }
+        }
+    }
+
+    /**
+     * Stops indexing in the background. An update already in progress is allowed to finish.
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            logger.log(Level.WARNING, "Interrupted waiting for background indexing to stop", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.query;
+
+import java.util.Locale;
+
+/**
+ *  Statistics gathered by SQLite's {@code ANALYZE} about the table of a JSON index, used to
+ *  estimate the cost of answering a query from the index.
+ *
+ *  The SQLite index on an index table leads with the {@code _id} column, so queries on other
+ *  fields read the whole table. The cost of using an index is therefore estimated from the
+ *  size of its table rather than from the selectivity of the query.
+ */
+public class IndexStatistics {
+
+    /**
+     *  Number of rows in the index table, which is more than the number of documents when
+     *  documents have array values indexed.
+     */
+    public final long rowCount;
+
+    /**
+     *  Average number of rows for each document.
+     */
+    public final long rowsPerDocument;
+
+    IndexStatistics(long rowCount, long rowsPerDocument) {
+        this.rowCount = rowCount;
+        this.rowsPerDocument = rowsPerDocument;
+    }
+
+    /**
+     *  Parses the {@code stat} column of the {@code sqlite_stat1} row for the SQLite index on an
+     *  index table, which lists the number of rows followed by the average number of rows for
+     *  each distinct value of the leading {@code _id} column, then of {@code _id} and
+     *  {@code _rev} and so on.
+     *
+     *  @return the statistics, or null if {@code stat} can't be parsed
+     */
+    public static IndexStatistics fromSqliteStat(String stat) {
+        if (stat == null) {
+            return null;
+        }
+        String[] values = stat.trim().split(" ");
+        try {
+            long rowCount = Long.parseLong(values[0]);
+            long rowsPerDocument = values.length > 1 ? Long.parseLong(values[1]) : 1;
+            return new IndexStatistics(rowCount, Math.max(1, rowsPerDocument));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     *  @return the estimated number of documents in the index
+     */
+    public long getDocumentCount() {
+        return rowCount / rowsPerDocument;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "IndexStatistics{rowCount=%d, rowsPerDocument=%d}",
+                rowCount, rowsPerDocument);
+    }
+}
@@ -17,17 +17,23 @@ package org.hammock.sync.internal.query;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.documentstore.Changes;
 import org.hammock.sync.documentstore.Database;
+import org.hammock.sync.internal.query.callables.AnalyzeIndexesCallable;
+import org.hammock.sync.internal.query.callables.ListIndexStatisticsCallable;
 import org.hammock.sync.internal.query.callables.SequenceNumberForIndexCallable;
 import org.hammock.sync.internal.query.callables.UpdateIndexCallable;
-import org.hammock.sync.internal.query.callables.UpdateMetadataForIndexCallable;
 import org.hammock.sync.query.FieldSort;
 import org.hammock.sync.query.Index;
+import org.hammock.sync.query.IndexType;
 import org.hammock.sync.query.QueryException;
 import org.hammock.sync.internal.sqlite.SQLDatabaseQueue;
 import org.hammock.sync.internal.util.Misc;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
@@ -44,6 +50,10 @@ class IndexUpdater {
 
     private static final Logger logger = Logger.getLogger(IndexUpdater.class.getName());
 
+    // An index is analyzed again once the changes indexed since it was last analyzed amount to
+    // a tenth of its documents
+    private static final int ANALYZE_CHANGES_DIVISOR = 10;
+
     /**
      *  Constructs a new IndexUpdater.
      *  @param database the {@link Database} containing the documents to query.
@@ -72,6 +82,29 @@ class IndexUpdater {
         updater.updateAllIndexes(indexes);
     }
 
+    /**
+     *  Update all indexes in a set, then refresh the statistics used to choose between them
+     *  for those which have changed significantly since they were last analyzed.
+     *
+     *  These indexes are assumed to already exist.
+     *
+     *  @param indexes Map of indexes and their definitions.
+     *  @param database The local {@link Database}
+     *  @param queue The executor service queue
+     *  @param analyzedSequences The sequence each index was last analyzed at, which is
+     *                           updated as indexes are analyzed
+     */
+    public static void updateAllIndexes(List<Index> indexes,
+                                        Database database,
+                                        SQLDatabaseQueue queue,
+                                        Map<String, Long> analyzedSequences)
+            throws QueryException {
+        IndexUpdater updater = new IndexUpdater(database, queue);
+
+        Map<String, Long> sequences = updater.updateAllIndexes(indexes);
+        updater.refreshStatistics(indexes, sequences, analyzedSequences);
+    }
+
     /**
      *  Update a single index.
      *
@@ -92,57 +125,114 @@ class IndexUpdater {
         updater.updateIndex(indexName, fieldNames);
     }
 
-    private void updateAllIndexes(List<Index> indexes) throws QueryException {
+    private void updateIndex(String indexName, List<FieldSort> fieldNames) throws QueryException {
 
-        for (Index index : indexes) {
-            updateIndex(index.indexName, index.fieldNames);
-        }
+        Misc.checkNotNullOrEmpty(indexName, "indexName");
+
+        updateAllIndexes(Collections.singletonList(new Index(fieldNames, indexName)));
     }
 
-    private void updateIndex(String indexName, List<FieldSort> fieldNames) throws QueryException {
+    // returns the sequence each index is up to date with
+    private Map<String, Long> updateAllIndexes(List<Index> indexes) throws QueryException {
 
-        Misc.checkNotNullOrEmpty(indexName, "indexName");
+        // Read each page of changes once for all of the indexes, starting from the least
+        // up to date one. Indexes which are already past the end of a page are left out of it.
+        Map<String, Long> sequences = new HashMap<String, Long>();
+        long lastSequence = Long.MAX_VALUE;
+        for (Index index : indexes) {
+            long sequence = sequenceNumberForIndex(index.indexName);
+            sequences.put(index.indexName, sequence);
+            lastSequence = Math.min(lastSequence, sequence);
+        }
+        if (indexes.isEmpty()) {
+            return sequences;
+        }
 
         Changes changes;
-        long lastSequence = sequenceNumberForIndex(indexName);
         try {
-            do {
+            while (true) {
                 changes = database.changes(lastSequence, 10000);
-                updateIndex(indexName, fieldNames, changes, lastSequence);
+                if (changes.getResults().isEmpty()) {
+                    break;
+                }
+                List<Index> indexesToUpdate = new ArrayList<Index>();
+                for (Index index : indexes) {
+                    if (sequences.get(index.indexName) < changes.getLastSequence()) {
+                        indexesToUpdate.add(index);
+                    }
+                }
+                updateIndexes(indexesToUpdate, changes);
+                for (Index index : indexesToUpdate) {
+                    sequences.put(index.indexName, changes.getLastSequence());
+                }
                 lastSequence = changes.getLastSequence();
-            } while (changes.getResults().size() > 0);
+            }
         } catch (DocumentStoreException e) {
             String message = String.format(Locale.ENGLISH, "Failed to get changes feed from %d", lastSequence);
             logger.log(Level.SEVERE, message, e);
             throw new QueryException(message, e.getCause());
         }
+        return sequences;
     }
 
-    private void updateIndex(final String indexName,
-                                final List<FieldSort> fieldNames,
-                                final Changes changes,
-                                long lastSequence) throws QueryException {
+    private void refreshStatistics(List<Index> indexes,
+                                   Map<String, Long> sequences,
+                                   Map<String, Long> analyzedSequences) {
+        // statistics only guide the choice of index, so failing to refresh them isn't fatal
+        try {
+            Map<String, IndexStatistics> statistics = queue.submitRead(new
+                    ListIndexStatisticsCallable()).get();
+            List<String> indexNames = new ArrayList<String>();
+            for (Index index : indexes) {
+                if (index.indexType != IndexType.JSON) {
+                    continue;
+                }
+                long sequence = sequences.get(index.indexName);
+                IndexStatistics indexStatistics = statistics.get(index.indexName);
+                Long analyzedSequence = analyzedSequences.get(index.indexName);
+                if (analyzedSequence == null && indexStatistics != null) {
+                    // analyzed before we were opened, so count changes from now on
+                    analyzedSequences.put(index.indexName, sequence);
+                } else if (analyzedSequence == null || (indexStatistics == null ?
+                        sequence > analyzedSequence :
+                        (sequence - analyzedSequence) * ANALYZE_CHANGES_DIVISOR >
+                                indexStatistics.getDocumentCount())) {
+                    indexNames.add(index.indexName);
+                }
+            }
+            if (indexNames.isEmpty()) {
+                return;
+            }
+            queue.submit(new AnalyzeIndexesCallable(indexNames)).get();
+            for (String indexName : indexNames) {
+                analyzedSequences.put(indexName, sequences.get(indexName));
+            }
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Failed to refresh index statistics", e);
+        } catch (InterruptedException e) {
+            logger.log(Level.WARNING, "Interrupted refreshing index statistics", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void updateIndexes(final List<Index> indexes,
+                               final Changes changes) throws QueryException {
 
-        Future<Void> result = queue.submitTransaction(new UpdateIndexCallable(changes, indexName,
-                fieldNames));
+        // the index rows and the new sequence of every index are written in one transaction, so
+        // if there is a problem we roll back and no index records the page as indexed
+        Future<Void> result = queue.submitTransaction(new UpdateIndexCallable(changes, indexes));
 
         try {
             result.get();
         } catch (ExecutionException e) {
-            String message = String.format("Execution error encountered whilst updating index %s", indexName);
+            String message = String.format("Execution error encountered whilst updating indexes %s", indexNames(indexes));
             logger.log(Level.SEVERE, message, e);
             throw new QueryException(message, e);
         } catch (InterruptedException e) {
-            String message = String.format("Execution interrupted error encountered whilst updating index %s", indexName);
+            String message = String.format("Execution interrupted error encountered whilst updating indexes %s", indexNames(indexes));
             logger.log(Level.SEVERE, message, e);
             throw new QueryException(message, e);
         }
-
-        // if there was a problem, we rolled back, and threw an exception, so the sequence won't be
-        // updated. otherwise if we got here we can update the sequence.
-        updateMetadataForIndex(indexName, lastSequence);
-
-
     }
 
     private long sequenceNumberForIndex(final String indexName) throws QueryException {
@@ -160,21 +250,12 @@ class IndexUpdater {
         return lastSequenceNumber;
     }
 
-    private void updateMetadataForIndex(final String indexName, final long lastSequence) throws QueryException {
-        Future<Void> result = queue.submit(new UpdateMetadataForIndexCallable(lastSequence,
-                indexName));
-
-        try {
-            result.get();
-        } catch (ExecutionException e) {
-            String message = String.format("Execution error encountered whilst updating index metadata for index %s", indexName);
-            logger.log(Level.SEVERE, message, e);
-            throw new QueryException(message, e);
-        } catch (InterruptedException e) {
-            String message = String.format("Execution interrupted error encountered whilst updating index metadata for index %s", indexName);
-            logger.log(Level.SEVERE, message, e);
-            throw new QueryException(message, e);
+    private static String indexNames(List<Index> indexes) {
+        List<String> names = new ArrayList<String>();
+        for (Index index : indexes) {
+            names.add(index.indexName);
         }
+        return Misc.join(", ", names);
     }
 
 }
@@ -18,9 +18,12 @@ package org.hammock.sync.internal.query;
 
 import org.hammock.sync.documentstore.Database;
 import org.hammock.sync.documentstore.DocumentStoreException;
+import org.hammock.sync.internal.query.callables.ListIndexStatisticsCallable;
 import org.hammock.sync.query.FieldSort;
 import org.hammock.sync.query.Index;
+import org.hammock.sync.query.IndexType;
 import org.hammock.sync.query.QueryException;
+import org.hammock.sync.query.QueryPlan;
 import org.hammock.sync.query.QueryResult;
 import org.hammock.sync.internal.sqlite.Cursor;
 import org.hammock.sync.internal.sqlite.SQLCallable;
@@ -31,7 +34,9 @@ import org.hammock.sync.internal.util.Misc;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -49,6 +54,16 @@ class QueryExecutor {
     private final Database database;
     private final SQLDatabaseQueue queue;
 
+    // used to read the attachments of revisions projected from an index, null to always
+    // project fields from the document bodies
+    private final org.hammock.sync.documentstore.advanced.Database advancedDatabase;
+
+    // plans of earlier queries, null to translate every query
+    private final QueryPlanCache planCache;
+
+    // statistics of the indexes being queried, by index name, used to choose between them
+    private Map<String, IndexStatistics> statistics = Collections.emptyMap();
+
     private static final Logger logger = Logger.getLogger(QueryExecutor.class.getName());
 
     private static final int SMALL_RESULT_SET_SIZE_THRESHOLD = 500;
@@ -59,8 +74,32 @@ class QueryExecutor {
      *  @param queue the {@link SQLDatabaseQueue} queue used for accessing the indexes database.
      */
     QueryExecutor(Database database, SQLDatabaseQueue queue) {
+        this(database, queue, null);
+    }
+
+    /**
+     *  As {@link #QueryExecutor(Database, SQLDatabaseQueue)}, reusing the plans of earlier
+     *  queries of the same shape.
+     *  @param planCache the cache of plans, which must be cleared when the indexes change.
+     */
+    QueryExecutor(Database database, SQLDatabaseQueue queue, QueryPlanCache planCache) {
+        this(database, null, queue, planCache);
+    }
+
+    /**
+     *  As {@link #QueryExecutor(Database, SQLDatabaseQueue, QueryPlanCache)}, also projecting
+     *  fields from the rows of an index where possible.
+     *  @param advancedDatabase the advanced API of {@code database}, used to read the
+     *                          attachments of the projected revisions.
+     */
+    QueryExecutor(Database database,
+                  org.hammock.sync.documentstore.advanced.Database advancedDatabase,
+                  SQLDatabaseQueue queue,
+                  QueryPlanCache planCache) {
         this.database = database;
+        this.advancedDatabase = advancedDatabase;
         this.queue = queue;
+        this.planCache = planCache;
     }
 
     /**
@@ -100,22 +139,40 @@ class QueryExecutor {
         // Execute the query
         //
 
+        loadStatistics();
+
         Boolean[] indexesCoverQuery = new Boolean[]{ false };
-        final ChildrenQueryNode root = translateQuery(query, indexes, indexesCoverQuery);
+        final ChildrenQueryNode root = planQuery(query, indexes, indexesCoverQuery);
 
+        UnindexedMatcher matcher = matcherForIndexCoverage(indexesCoverQuery, query);
 
+        // Without a matcher every ID the indexes return is a result, so skip and limit can be
+        // applied to the IDs here rather than to the loaded documents by the QueryResult.
+        final long idSkip = matcher == null ? skip : 0;
+        final long idLimit = matcher == null ? limit : 0;
 
-        Future<List<String>> result = queue.submit(new SQLCallable<List<String>>() {
+        Future<List<String>> result = queue.submitRead(new SQLCallable<List<String>>() {
             @Override
             public List<String> call(SQLDatabase database) throws Exception {
-                Set<String> docIdSet = executeQueryTree(root, database);
                 List<String> docIdList;
 
                 // sorting
                 if (sortDocument != null && !sortDocument.isEmpty()) {
-                    docIdList = sortIds(docIdSet, sortDocument, indexes, database);
+                    // Where the tree is a single statement, SQLite sorts the candidates
+                    // itself, so only the IDs of the requested page are loaded.
+                    SqlParts candidates = QuerySqlTranslator.compoundSelectForTree(root);
+                    if (candidates != null && candidates.sqlWithPlaceHolders != null) {
+                        docIdList = sortIds(candidates, sortDocument, indexes, database, idSkip,
+                                idLimit);
+                    } else {
+                        Set<String> docIdSet = executeQueryTree(root, database);
+                        docIdList = sortIds(docIdSet, sortDocument, indexes, database, idSkip,
+                                idLimit);
+                    }
                 } else {
-                    docIdList = docIdSet != null ? new ArrayList<String>(docIdSet) : null;
+                    Set<String> docIdSet = executeQueryTree(root, database);
+                    docIdList = docIdSet != null ? applySkipAndLimit(new ArrayList<String>
+                            (docIdSet), idSkip, idLimit) : null;
                 }
 
                 return docIdList;
@@ -139,8 +196,6 @@ class QueryExecutor {
             return null;
         }
 
-        UnindexedMatcher matcher = matcherForIndexCoverage(indexesCoverQuery, query);
-
         if (matcher != null) {
             String msg = "query could not be executed using indexes alone; falling back to ";
             msg += "filtering documents themselves. This will be VERY SLOW as each candidate ";
@@ -148,7 +203,156 @@ class QueryExecutor {
             logger.log(Level.WARNING, msg);
         }
 
-        return new QueryResult(docIds, database, fields, skip, limit, matcher);
+        // When the query doesn't need the document bodies to match, fields can be projected
+        // from an index with a column for each of them rather than from the bodies.
+        String coveringIndexName = matcher == null && advancedDatabase != null ?
+                coveringIndexForFields(fields, indexes) : null;
+
+        return new QueryResult(docIds, database, fields, skip - idSkip, limit - idLimit, matcher,
+                queue, coveringIndexName, advancedDatabase);
+    }
+
+    /**
+     *  Finds the JSON index with the fewest columns which has a column for each of the
+     *  projected fields.
+     *
+     *  @return the name of the index, or null if there are no fields or no index covers them
+     */
+    static String coveringIndexForFields(List<String> fields, List<Index> indexes) {
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+        Index covering = null;
+        for (Index index : indexes) {
+            if (index.indexType != IndexType.JSON) {
+                continue;
+            }
+            Set<String> columns = new HashSet<String>();
+            columns.add("_id");
+            columns.add("_rev");
+            for (FieldSort fieldName : index.fieldNames) {
+                columns.add(fieldName.field);
+            }
+            if (columns.containsAll(fields) && (covering == null ||
+                    index.fieldNames.size() < covering.fieldNames.size())) {
+                covering = index;
+            }
+        }
+        return covering != null ? covering.indexName : null;
+    }
+
+    private static List<String> applySkipAndLimit(List<String> docIds, long skip, long limit) {
+        // skip and limit of 0 mean disabled
+        int from = (int) Math.min(skip, docIds.size());
+        int to = limit > 0 ? (int) Math.min(limit, docIds.size() - from) + from : docIds.size();
+        if (from == 0 && to == docIds.size()) {
+            return docIds;
+        }
+        return new ArrayList<String>(docIds.subList(from, to));
+    }
+
+    /**
+     *  Describes how the query would be executed using the indexes provided, without
+     *  executing it.
+     *
+     *  @param query query to explain.
+     *  @param indexes indexes to use (this method will select the most appropriate).
+     *  @return the plan of the query
+     */
+    public QueryPlan explain(Map<String, Object> query, List<Index> indexes)
+            throws QueryException {
+        query = QueryValidator.normaliseAndValidateQuery(query);
+
+        loadStatistics();
+
+        Boolean[] indexesCoverQuery = new Boolean[]{ false };
+        ChildrenQueryNode root = planQuery(query, indexes, indexesCoverQuery);
+        boolean matcherRequired = matcherForIndexCoverage(indexesCoverQuery, query) != null;
+
+        Set<String> indexNames = new LinkedHashSet<String>();
+        List<String> sql = new ArrayList<String>();
+        collectPlan(root, indexNames, sql);
+        // as executeQueryTree, which runs the tree as one statement where it can
+        SqlParts compound = QuerySqlTranslator.compoundSelectForTree(root);
+        if (compound != null) {
+            sql.clear();
+            if (compound.sqlWithPlaceHolders != null) {
+                sql.add(compound.sqlWithPlaceHolders);
+            }
+        }
+
+        return new QueryPlan(new ArrayList<String>(indexNames), sql, matcherRequired);
+    }
+
+    private static void collectPlan(QueryNode node, Set<String> indexNames, List<String> sql) {
+        if (node instanceof ChildrenQueryNode) {
+            for (QueryNode child : ((ChildrenQueryNode) node).children) {
+                collectPlan(child, indexNames, sql);
+            }
+        } else if (node instanceof SqlQueryNode) {
+            SqlQueryNode sqlNode = (SqlQueryNode) node;
+            if (sqlNode.sql != null) {
+                indexNames.add(sqlNode.indexName);
+                sql.add(sqlNode.sql.sqlWithPlaceHolders);
+            }
+        }
+    }
+
+    /**
+     *  Loads the statistics used to choose between indexes, from the plan cache if it has
+     *  them.
+     */
+    private void loadStatistics() throws QueryException {
+        Map<String, IndexStatistics> cached = planCache != null ? planCache.getStatistics() :
+                null;
+        if (cached != null) {
+            statistics = cached;
+            return;
+        }
+        try {
+            statistics = queue.submitRead(new ListIndexStatisticsCallable()).get();
+            if (planCache != null) {
+                planCache.setStatistics(statistics);
+            }
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Failed to get index statistics, choosing indexes " +
+                    "without them", e);
+        } catch (InterruptedException e) {
+            String message = "Execution interrupted error encountered";
+            logger.log(Level.SEVERE, message, e);
+            throw new QueryException(message, e);
+        }
+    }
+
+    /**
+     *  Translates the normalised query, or binds its values to the cached plan of an earlier
+     *  query of the same shape.
+     */
+    private ChildrenQueryNode planQuery(Map<String, Object> query,
+                                        List<Index> indexes,
+                                        Boolean[] indexesCoverQuery) {
+        List<Object> operands = new ArrayList<Object>();
+        Map<String, Object> template = planCache != null ?
+                QueryPlanCache.template(query, operands) : null;
+        if (template == null) {
+            return translateQuery(query, indexes, indexesCoverQuery);
+        }
+
+        List<Object> key = QueryPlanCache.keyFor(template, indexes);
+        QueryPlanCache.Plan plan = planCache.get(key);
+        if (plan == null) {
+            ChildrenQueryNode root;
+            try {
+                root = translateQuery(template, indexes, indexesCoverQuery);
+            } catch (IllegalStateException e) {
+                // translate the query itself, so any error shows its values
+                return translateQuery(query, indexes, indexesCoverQuery);
+            }
+            plan = new QueryPlanCache.Plan(root, indexesCoverQuery[0]);
+            planCache.put(key, plan);
+        }
+        indexesCoverQuery[0] = plan.indexesCoverQuery;
+        return plan.bind(operands);
     }
 
     protected ChildrenQueryNode translateQuery(Map<String, Object> query,
@@ -156,6 +360,7 @@ class QueryExecutor {
                                                Boolean[] indexesCoverQuery) {
         return (ChildrenQueryNode) QuerySqlTranslator.translateQuery(query,
                                                                      indexes,
+                                                                     statistics,
                                                                      indexesCoverQuery);
     }
 
@@ -197,8 +402,17 @@ class QueryExecutor {
     }
 
     protected Set<String> executeQueryTree(QueryNode node, SQLDatabase db) throws QueryException {
+        if (node instanceof ChildrenQueryNode) {
+            // Have SQLite intersect and union the IDs where it can, so only the results are
+            // loaded rather than the IDs matching each node. Otherwise the children are
+            // executed separately, and combined below.
+            SqlParts compound = QuerySqlTranslator.compoundSelectForTree(node);
+            if (compound != null) {
+                return compound.sqlWithPlaceHolders != null ? idsForSql(compound, db) : null;
+            }
+        }
         if (node instanceof AndQueryNode) {
-            Set<String> accumulator = null;
+            SortedDocIdSet accumulator = null;
 
             AndQueryNode andNode = (AndQueryNode) node;
             for (QueryNode qNode: andNode.children) {
@@ -207,16 +421,16 @@ class QueryExecutor {
                     continue;
                 }
                 if (accumulator == null) {
-                    accumulator = new HashSet<String>(childIds);
+                    accumulator = SortedDocIdSet.of(childIds);
                 } else {
-                    accumulator.retainAll(childIds);
+                    accumulator = accumulator.intersect(SortedDocIdSet.of(childIds));
                 }
             }
 
             return accumulator;
         }
         if (node instanceof OrQueryNode) {
-            Set<String> accumulator = null;
+            SortedDocIdSet accumulator = null;
 
             OrQueryNode orNode = (OrQueryNode) node;
             for (QueryNode qNode: orNode.children) {
@@ -225,9 +439,9 @@ class QueryExecutor {
                     continue;
                 }
                 if (accumulator == null) {
-                    accumulator = new HashSet<String>(childIds);
+                    accumulator = SortedDocIdSet.of(childIds);
                 } else {
-                    accumulator.addAll(childIds);
+                    accumulator = accumulator.union(SortedDocIdSet.of(childIds));
                 }
             }
 
@@ -236,33 +450,13 @@ class QueryExecutor {
             SqlQueryNode sqlNode = (SqlQueryNode) node;
 
             try {
-                List<String> docIds = null;
-
                 if (sqlNode.sql != null) {
-                    docIds = new ArrayList<String>();
-                    SqlParts sqlParts = sqlNode.sql;
-                    Cursor cursor = null;
-                    try {
-                        cursor = db.rawQuery(sqlParts.sqlWithPlaceHolders, sqlParts.placeHolderValues);
-
-                        while (cursor.moveToNext()) {
-                            String docId = cursor.getString(0);
-                            docIds.add(docId);
-                        }
-                    } catch (SQLException e) {
-                        String message = "Failed to get a list of doc ids.";
-                        logger.log(Level.SEVERE, message, e);
-                        throw new QueryException(message, e);
-                    } finally {
-                        DatabaseUtils.closeCursorQuietly(cursor);
-                    }
+                    return idsForSql(sqlNode.sql, db);
                 } else {
                     // No SQL exists so we are now forced to go directly to the
                     // document DocumentStore to retrieve the list of document IDs.
-                    docIds = database.getIds();
+                    return SortedDocIdSet.of(database.getIds());
                 }
-
-                return new HashSet<String>(docIds);
             } catch (DocumentStoreException dse) {
                 String message = "Failed to get a list of doc ids.";
                 logger.log(Level.SEVERE, message, dse);
@@ -273,6 +467,27 @@ class QueryExecutor {
         }
     }
 
+    private static Set<String> idsForSql(SqlParts sqlParts, SQLDatabase db)
+            throws QueryException {
+        List<String> docIds = new ArrayList<String>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sqlParts.sqlWithPlaceHolders, sqlParts.placeHolderValues);
+
+            while (cursor.moveToNext()) {
+                String docId = cursor.getString(0);
+                docIds.add(docId);
+            }
+        } catch (SQLException e) {
+            String message = "Failed to get a list of doc ids.";
+            logger.log(Level.SEVERE, message, e);
+            throw new QueryException(message, e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+        return SortedDocIdSet.of(docIds);
+    }
+
     /**
      *  Return ordered list of document IDs using provided indexes.
      *
@@ -283,16 +498,25 @@ class QueryExecutor {
      *                      '[ {"fieldName": "asc"}, {"fieldName2", "desc"} ]'
      *  @param indexes dictionary of indexes
      *  @param db database containing 'indexes' to use when sorting documents
-     *  @return an ordered list of document IDs using provided indexes.
+     *  @param skip number of sorted IDs to omit from the start, 0 for none
+     *  @param limit maximum number of sorted IDs to return, 0 for no limit
+     *  @return an ordered list of document IDs using provided indexes, empty if there are
+     *  none, or {@code null} if the IDs couldn't be read from the index
      */
     private List<String> sortIds(Set<String> docIdSet,
                                  List<FieldSort> sortDocument,
                                  List<Index> indexes,
-                                 SQLDatabase db) throws QueryException {
+                                 SQLDatabase db,
+                                 long skip,
+                                 long limit) throws QueryException {
         boolean smallResultSet = (docIdSet.size() < SMALL_RESULT_SET_SIZE_THRESHOLD);
-        SqlParts orderBy = sqlToSortIds(docIdSet, sortDocument, indexes);
+        // for small result sets every row is a result, so SQLite can skip and limit for us
+        SqlParts orderBy = smallResultSet ?
+                sqlToSortIds(docIdSet, sortDocument, indexes, statistics, skip, limit) :
+                sqlToSortIds(docIdSet, sortDocument, indexes, statistics, 0, 0);
+        long nSkipped = smallResultSet ? skip : 0;
 
-        List<String> sortedIds = null;
+        List<String> sortedIds = new ArrayList<String>();
         // The query will iterate through a sorted list of docIds.
         // This means that if we create a new array and add entries
         // to that array as we iterate through the result set which
@@ -302,17 +526,21 @@ class QueryExecutor {
         try {
             cursor = db.rawQuery(orderBy.sqlWithPlaceHolders, orderBy.placeHolderValues);
             while (cursor.moveToNext()) {
-                if (sortedIds == null) {
-                    sortedIds = new ArrayList<String>();
-                }
-
                 String candidateId = cursor.getString(0);
 
                 if (smallResultSet) {
                     sortedIds.add(candidateId);
                 } else {
                     if (docIdSet.contains(candidateId)) {
+                        if (nSkipped < skip) {
+                            nSkipped++;
+                            continue;
+                        }
                         sortedIds.add(candidateId);
+                        if (limit > 0 && sortedIds.size() >= limit) {
+                            // no need to read the rest of the index
+                            break;
+                        }
                     }
                 }
             }
@@ -322,7 +550,35 @@ class QueryExecutor {
         } finally {
             DatabaseUtils.closeCursorQuietly(cursor);
         }
+        return sortedIds;
+    }
+
+    /**
+     *  As {@link #sortIds(Set, List, List, SQLDatabase, long, long)}, for the candidate IDs
+     *  selected by {@code candidates} rather than loaded into a set.
+     */
+    private List<String> sortIds(SqlParts candidates,
+                                 List<FieldSort> sortDocument,
+                                 List<Index> indexes,
+                                 SQLDatabase db,
+                                 long skip,
+                                 long limit) throws QueryException {
+        SqlParts orderBy = sqlToSortIds(candidates, sortDocument, indexes, statistics, skip,
+                limit);
 
+        List<String> sortedIds = new ArrayList<String>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(orderBy.sqlWithPlaceHolders, orderBy.placeHolderValues);
+            while (cursor.moveToNext()) {
+                sortedIds.add(cursor.getString(0));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to sort doc ids.", e);
+            return null;
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
         return sortedIds;
     }
 
@@ -340,29 +596,42 @@ class QueryExecutor {
     protected static SqlParts sqlToSortIds(Set<String> docIdSet,
                                   List<FieldSort> sortDocument,
                                   List<Index> indexes) throws QueryException {
-        String chosenIndex = chooseIndexForSort(sortDocument, indexes);
-        if (chosenIndex == null) {
-            String msg = String.format(Locale.ENGLISH, "No single index can satisfy order %s", sortDocument);
-            logger.log(Level.SEVERE, msg);
-            throw new QueryException(msg);
-        }
+        return sqlToSortIds(docIdSet, sortDocument, indexes, 0, 0);
+    }
 
-        String indexTable = QueryImpl.tableNameForIndex(chosenIndex);
+    /**
+     *  As {@link #sqlToSortIds(Set, List, List)}, with an {@code OFFSET} and {@code LIMIT}
+     *  clause added when {@code skip} or {@code limit} are greater than 0.
+     *
+     *  This is only correct where every row the SQL returns is a result, that is where
+     *  {@code docIdSet} is small enough to be included in the SQL.
+     */
+    protected static SqlParts sqlToSortIds(Set<String> docIdSet,
+                                  List<FieldSort> sortDocument,
+                                  List<Index> indexes,
+                                  long skip,
+                                  long limit) throws QueryException {
+        return sqlToSortIds(docIdSet, sortDocument, indexes, Collections.<String,
+                IndexStatistics>emptyMap(), skip, limit);
+    }
+
+    /**
+     *  As {@link #sqlToSortIds(Set, List, List, long, long)}, choosing between the indexes
+     *  able to sort the IDs using their statistics.
+     */
+    protected static SqlParts sqlToSortIds(Set<String> docIdSet,
+                                  List<FieldSort> sortDocument,
+                                  List<Index> indexes,
+                                  Map<String, IndexStatistics> statistics,
+                                  long skip,
+                                  long limit) throws QueryException {
+        String indexTable = tableForSort(sortDocument, indexes, statistics);
 
         // for small result sets:
         // SELECT _id FROM idx WHERE _id IN (?, ?) ORDER BY fieldName ASC, fieldName2 DESC
         // for large result sets:
         // SELECT _id FROM idx ORDER BY fieldName ASC, fieldName2 DESC
 
-        List<String> orderClauses = new ArrayList<String>();
-        for (FieldSort clause : sortDocument) {
-            String fieldName = clause.field;
-            String direction = clause.sort == FieldSort.Direction.ASCENDING ? "asc" : "desc";
-
-            String orderClause = String.format("\"%s\" %s", fieldName, direction.toUpperCase(Locale.ENGLISH));
-            orderClauses.add(orderClause);
-        }
-
         // If we have few results, it's more efficient to reduce the search space
         // for SQLite. 500 placeholders should be a safe value.
         List<String> parameterList = new ArrayList<String>();
@@ -378,17 +647,73 @@ class QueryExecutor {
             whereClause = String.format("WHERE _id IN (%s)", Misc.join(", ", placeholders));
         }
 
-        String orderBy = Misc.join(", ", orderClauses);
+        String orderBy = orderByForSort(sortDocument);
         String sql = String.format("SELECT DISTINCT _id FROM %s %s ORDER BY %s", indexTable,
                                                                                  whereClause,
                                                                                  orderBy);
         String[] parameters = new String[parameterList.size()];
-        return SqlParts.partsForSql(sql, parameterList.toArray(parameters));
+        return SqlParts.partsForSql(withSkipAndLimit(sql, skip, limit),
+                parameterList.toArray(parameters));
+    }
+
+    /**
+     *  As {@link #sqlToSortIds(Set, List, List, Map, long, long)}, for the candidate IDs
+     *  selected by {@code candidates}, which becomes a sub-SELECT so that every row the SQL
+     *  returns is a result.
+     */
+    protected static SqlParts sqlToSortIds(SqlParts candidates,
+                                  List<FieldSort> sortDocument,
+                                  List<Index> indexes,
+                                  Map<String, IndexStatistics> statistics,
+                                  long skip,
+                                  long limit) throws QueryException {
+        String indexTable = tableForSort(sortDocument, indexes, statistics);
+
+        // SELECT DISTINCT _id FROM idx WHERE _id IN (candidates) ORDER BY fieldName ASC
+        String sql = String.format("SELECT DISTINCT _id FROM %s WHERE _id IN (%s) ORDER BY %s",
+                indexTable, candidates.sqlWithPlaceHolders, orderByForSort(sortDocument));
+        return SqlParts.partsForSql(withSkipAndLimit(sql, skip, limit),
+                candidates.placeHolderValues);
+    }
+
+    private static String tableForSort(List<FieldSort> sortDocument,
+                                       List<Index> indexes,
+                                       Map<String, IndexStatistics> statistics)
+            throws QueryException {
+        String chosenIndex = chooseIndexForSort(sortDocument, indexes, statistics);
+        if (chosenIndex == null) {
+            String msg = String.format(Locale.ENGLISH, "No single index can satisfy order %s", sortDocument);
+            logger.log(Level.SEVERE, msg);
+            throw new QueryException(msg);
+        }
+        return QueryImpl.tableNameForIndex(chosenIndex);
+    }
+
+    private static String orderByForSort(List<FieldSort> sortDocument) {
+        List<String> orderClauses = new ArrayList<String>();
+        for (FieldSort clause : sortDocument) {
+            String fieldName = clause.field;
+            String direction = clause.sort == FieldSort.Direction.ASCENDING ? "asc" : "desc";
+
+            String orderClause = String.format("\"%s\" %s", fieldName, direction.toUpperCase(Locale.ENGLISH));
+            orderClauses.add(orderClause);
+        }
+        return Misc.join(", ", orderClauses);
+    }
+
+    private static String withSkipAndLimit(String sql, long skip, long limit) {
+        if (skip > 0 || limit > 0) {
+            // SQLite requires a LIMIT for an OFFSET, with -1 meaning no limit
+            sql = String.format(Locale.ENGLISH, "%s LIMIT %d OFFSET %d", sql,
+                    limit > 0 ? limit : -1, skip);
+        }
+        return sql;
     }
 
     @SuppressWarnings("unchecked")
     private static String chooseIndexForSort(List<FieldSort> sortDocument,
-                                      List<Index> indexes) {
+                                      List<Index> indexes,
+                                      Map<String, IndexStatistics> statistics) {
         if (indexes == null || indexes.isEmpty()) {
             return null;  // Can't choose an index if one does not exist.
         }
@@ -403,19 +728,18 @@ class QueryExecutor {
             return null;  // no point in querying empty set of fields
         }
 
-        String chosenIndex = null;
+        List<Index> candidates = new ArrayList<Index>();
         for (Index index : indexes) {
             Set<String> providedFields = new HashSet<String>();
             for (FieldSort field : index.fieldNames) {
                 providedFields.add(field.field);
             }
             if (providedFields.containsAll(neededFields)) {
-                chosenIndex = index.indexName;
-                break;
+                candidates.add(index);
             }
         }
 
-        return chosenIndex;
+        return QuerySqlTranslator.cheapestIndex(candidates, statistics);
     }
 
 }
@@ -15,11 +15,13 @@
 package org.hammock.sync.internal.query;
 
 import org.hammock.sync.documentstore.Database;
+import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.documentstore.encryption.KeyProvider;
 import org.hammock.sync.internal.documentstore.DatabaseImpl;
 import org.hammock.sync.internal.documentstore.migrations.SchemaOnlyMigration;
 import org.hammock.sync.internal.query.callables.DeleteIndexCallable;
 import org.hammock.sync.internal.query.callables.ListIndexesCallable;
+import org.hammock.sync.internal.query.callables.SequenceNumberForIndexCallable;
 import org.hammock.sync.internal.sqlite.SQLDatabaseFactory;
 import org.hammock.sync.internal.sqlite.SQLDatabaseQueue;
 import org.hammock.sync.internal.util.Misc;
@@ -28,12 +30,14 @@ import org.hammock.sync.query.Index;
 import org.hammock.sync.query.IndexType;
 import org.hammock.sync.query.Query;
 import org.hammock.sync.query.QueryException;
+import org.hammock.sync.query.QueryPlan;
 import org.hammock.sync.query.QueryResult;
 import org.hammock.sync.query.Tokenizer;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -81,22 +85,53 @@ public class QueryImpl implements Query {
     private static final Logger logger = Logger.getLogger(QueryImpl.class.getName());
 
     private final Database database;
+    private final org.hammock.sync.documentstore.advanced.Database advancedDatabase;
     private final Pattern validFieldName;
 
     private final SQLDatabaseQueue dbQueue;
 
+    // held while updating all indexes, so background and query-time updates don't overlap
+    private final Object refreshLock = new Object();
+
+    // the sequence each index was last analyzed at by this instance, guarded by refreshLock
+    private final Map<String, Long> analyzedSequences = new HashMap<String, Long>();
+
+    // plans of earlier queries, cleared when indexes are created or deleted or analyzed
+    private final QueryPlanCache planCache = new QueryPlanCache(QueryPlanCache.DEFAULT_CAPACITY);
+
+    // non-null when background indexing is enabled, guarded by synchronized(this)
+    private BackgroundIndexer backgroundIndexer = null;
+
     /**
      *  Constructs a new IndexManager which indexes documents in the DocumentStore.
      *  @param database The {@link Database} to index
      */
     public QueryImpl(Database database, File extensionsLocation, KeyProvider keyProvider) throws IOException, SQLException {
+        this(database, null, extensionsLocation, keyProvider, 0);
+    }
+
+    /**
+     *  Constructs a new IndexManager which can also read the indexes from a pool of read-only
+     *  connections, and project fields from the indexes rather than the document bodies.
+     *  @param database The {@link Database} to index
+     *  @param advancedDatabase The advanced API of {@code database}, used to read the
+     *                          attachments of revisions projected from an index, or null to
+     *                          always project fields from the document bodies
+     *  @param readerConnections The maximum number of read-only connections to the indexes
+     *                           database, or 0 to read and write on a single connection
+     */
+    public QueryImpl(Database database,
+                     org.hammock.sync.documentstore.advanced.Database advancedDatabase,
+                     File extensionsLocation, KeyProvider keyProvider,
+                     int readerConnections) throws IOException, SQLException {
         this.database = database;
+        this.advancedDatabase = advancedDatabase;
         validFieldName = Pattern.compile(QueryConstants.INDEX_FIELD_NAME_PATTERN);
 
         File indexesLocation = new File(extensionsLocation, QueryConstants.EXTENSION_NAME);
         File indexesDatabaseFile = new File(indexesLocation, QueryConstants.DB_FILE_NAME);
 
-        dbQueue = new SQLDatabaseQueue(indexesDatabaseFile, keyProvider);
+        dbQueue = new SQLDatabaseQueue(indexesDatabaseFile, keyProvider, readerConnections);
         dbQueue.updateSchema(new SchemaOnlyMigration(QueryConstants.getSchemaVersion1()), 1);
         dbQueue.updateSchema(new SchemaOnlyMigration(QueryConstants.getSchemaVersion2()), 2);
 
@@ -106,6 +141,7 @@ public class QueryImpl implements Query {
 
     public void close() {
         this.database.getEventBus().unregister(this);
+        setBackgroundIndexing(false);
         dbQueue.shutdown();
     }
 
@@ -124,7 +160,7 @@ public class QueryImpl implements Query {
     @Override
     public List<Index> listIndexes() throws QueryException {
         try {
-            return DatabaseImpl.get(dbQueue.submit(new ListIndexesCallable()));
+            return DatabaseImpl.get(dbQueue.submitRead(new ListIndexesCallable()));
         }  catch (ExecutionException e) {
             String msg = "Failed to list indexes";
             logger.log(Level.SEVERE, msg, e);
@@ -162,12 +198,16 @@ public class QueryImpl implements Query {
         // synchronized to prevent race conditions in IndexCreator when looking for existing indexes
         // which have the same name or definition
         synchronized (this) {
-            return IndexCreator.ensureIndexed(new Index(fieldNames,
-                            indexName,
-                            indexType,
-                            tokenizer),
-                    database,
-                    dbQueue);
+            try {
+                return IndexCreator.ensureIndexed(new Index(fieldNames,
+                                indexName,
+                                indexType,
+                                tokenizer),
+                        database,
+                        dbQueue);
+            } finally {
+                planCache.clear();
+            }
         }
     }
 
@@ -192,6 +232,8 @@ public class QueryImpl implements Query {
             String message = "Execution interrupted error during index deletion";
             logger.log(Level.SEVERE, message, e);
             throw new QueryException(message, e);
+        } finally {
+            planCache.clear();
         }
 
     }
@@ -202,9 +244,65 @@ public class QueryImpl implements Query {
      */
     @Override
     public void refreshAllIndexes() throws QueryException {
-        List<Index> indexes = listIndexes();
+        synchronized (refreshLock) {
+            List<Index> indexes = listIndexes();
+
+            Map<String, Long> previouslyAnalyzed = new HashMap<String, Long>(analyzedSequences);
+            try {
+                IndexUpdater.updateAllIndexes(indexes, database, dbQueue, analyzedSequences);
+            } finally {
+                // plans may have been chosen with statistics which are now out of date
+                if (!analyzedSequences.equals(previouslyAnalyzed)) {
+                    planCache.clear();
+                }
+            }
+        }
+    }
 
-        IndexUpdater.updateAllIndexes(indexes, database, dbQueue);
+    @Override
+    public void setBackgroundIndexing(boolean enabled) {
+        BackgroundIndexer stopped = null;
+        synchronized (this) {
+            if (enabled && backgroundIndexer == null) {
+                backgroundIndexer = new BackgroundIndexer(this, database.getPath().getName());
+                database.getEventBus().register(backgroundIndexer);
+                // catch up with anything written before we were enabled
+                backgroundIndexer.schedule();
+            } else if (!enabled && backgroundIndexer != null) {
+                database.getEventBus().unregister(backgroundIndexer);
+                stopped = backgroundIndexer;
+                backgroundIndexer = null;
+            }
+        }
+        // outside the lock, so we don't wait on an update which is waiting on us
+        if (stopped != null) {
+            stopped.shutdown();
+        }
+    }
+
+    @Override
+    public Map<String, Long> getIndexLag() throws QueryException {
+        long lastSequence;
+        try {
+            lastSequence = database.getLastSequence();
+        } catch (DocumentStoreException e) {
+            String msg = "Failed to get last sequence of database";
+            logger.log(Level.SEVERE, msg, e);
+            throw new QueryException(msg, e);
+        }
+        Map<String, Long> lag = new HashMap<String, Long>();
+        for (Index index : listIndexes()) {
+            try {
+                long indexSequence = DatabaseImpl.get(dbQueue.submitRead(new
+                        SequenceNumberForIndexCallable(index.indexName)));
+                lag.put(index.indexName, Math.max(0, lastSequence - indexSequence));
+            } catch (ExecutionException e) {
+                String msg = "Failed to get last sequence of index " + index.indexName;
+                logger.log(Level.SEVERE, msg, e);
+                throw new QueryException(msg, e);
+            }
+        }
+        return lag;
     }
 
     @Override
@@ -222,12 +320,23 @@ public class QueryImpl implements Query {
 
         refreshAllIndexes();
 
-        QueryExecutor queryExecutor = new QueryExecutor(database, dbQueue);
+        QueryExecutor queryExecutor = new QueryExecutor(database, advancedDatabase, dbQueue,
+                planCache);
         List<Index> indexes = listIndexes();
 
         return queryExecutor.find(query, indexes, skip, limit, fields, sortSpecification);
     }
 
+    @Override
+    public QueryPlan explain(Map<String, Object> query) throws QueryException {
+        Misc.checkNotNull(query, "query");
+
+        QueryExecutor queryExecutor = new QueryExecutor(database, dbQueue, planCache);
+        List<Index> indexes = listIndexes();
+
+        return queryExecutor.explain(query, indexes);
+    }
+
     public static String tableNameForIndex(String indexName) {
         return QueryConstants.INDEX_TABLE_PREFIX.concat(indexName);
     }
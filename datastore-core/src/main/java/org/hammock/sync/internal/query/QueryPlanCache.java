@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.query;
+
+import static org.hammock.sync.internal.query.QueryConstants.EQ;
+import static org.hammock.sync.internal.query.QueryConstants.GT;
+import static org.hammock.sync.internal.query.QueryConstants.GTE;
+import static org.hammock.sync.internal.query.QueryConstants.IN;
+import static org.hammock.sync.internal.query.QueryConstants.LT;
+import static org.hammock.sync.internal.query.QueryConstants.LTE;
+
+import org.hammock.sync.internal.util.Misc;
+import org.hammock.sync.query.Index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Least recently used cache of translated queries, so queries of the same shape don't have
+ * to choose indexes and generate SQL again.</p>
+ *
+ * <p>Plans are keyed by the indexes queried and a template of the normalised selector, in which
+ * the operands bound to SQL placeholders are replaced by markers. These are the string and
+ * number operands of {@code $eq}, {@code $gt}, {@code $gte}, {@code $lt}, {@code $lte} and
+ * {@code $in}, including those the validator rewrote from {@code $ne} and {@code $nin}. Other
+ * operands, such as booleans and those of {@code $exists}, {@code $mod} and {@code $text},
+ * stay in the template, as they change the SQL or aren't bound as they are. A plan is
+ * translated from the template, and {@link Plan#bind(List)} replaces the markers in its SQL
+ * parameters with a query's own operands.</p>
+ *
+ * <p>The cache also holds the index statistics the plans were chosen with, and must be cleared
+ * whenever indexes are created or deleted or their statistics change.</p>
+ */
+final class QueryPlanCache {
+
+    static final int DEFAULT_CAPACITY = 100;
+
+    // a marker is this prefix followed by the operand's position
+    private static final String MARKER_PREFIX = "?";
+
+    private static final List<String> BOUND_OPERATORS = Arrays.asList(EQ, GT, GTE, LT, LTE);
+
+    // returned while templating to show the query can't be cached
+    private static final Object UNCACHEABLE = new Object();
+
+    private final Map<List<Object>, Plan> plans;
+
+    // all guarded by this
+    private Map<String, IndexStatistics> statistics = null;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * A translated query tree whose SQL parameters may contain markers.
+     */
+    static final class Plan {
+
+        private final ChildrenQueryNode root;
+        final boolean indexesCoverQuery;
+
+        Plan(ChildrenQueryNode root, boolean indexesCoverQuery) {
+            this.root = root;
+            this.indexesCoverQuery = indexesCoverQuery;
+        }
+
+        /**
+         * @param operands the operands taken from the query by
+         *                 {@link QueryPlanCache#template(Map, List)}
+         * @return a copy of the plan's tree with the markers replaced by the operands
+         */
+        ChildrenQueryNode bind(List<Object> operands) {
+            return (ChildrenQueryNode) bind(root, operands);
+        }
+
+        private static QueryNode bind(QueryNode node, List<Object> operands) {
+            if (node instanceof ChildrenQueryNode) {
+                ChildrenQueryNode bound = node instanceof OrQueryNode ? new OrQueryNode() :
+                        new AndQueryNode();
+                for (QueryNode child : ((ChildrenQueryNode) node).children) {
+                    bound.children.add(bind(child, operands));
+                }
+                return bound;
+            }
+            SqlQueryNode sqlNode = (SqlQueryNode) node;
+            SqlQueryNode bound = new SqlQueryNode();
+            bound.indexName = sqlNode.indexName;
+            if (sqlNode.sql != null) {
+                String[] values = sqlNode.sql.placeHolderValues.clone();
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i].startsWith(MARKER_PREFIX)) {
+                        int position = Integer.parseInt(values[i].substring(MARKER_PREFIX
+                                .length()));
+                        values[i] = String.valueOf(operands.get(position));
+                    }
+                }
+                bound.sql = SqlParts.partsForSql(sqlNode.sql.sqlWithPlaceHolders, values);
+            }
+            return bound;
+        }
+    }
+
+    /**
+     * @param capacity maximum number of plans to keep
+     */
+    QueryPlanCache(final int capacity) {
+        Misc.checkArgument(capacity > 0, "capacity must be greater than 0.");
+        this.plans = new LinkedHashMap<List<Object>, Plan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Plan> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the key of the plan for a query over {@code indexes}.
+     *
+     * @param template the query's template, from {@link #template(Map, List)}
+     * @param indexes the indexes the query is translated against
+     */
+    static List<Object> keyFor(Map<String, Object> template, List<Index> indexes) {
+        return Arrays.<Object>asList(template, new ArrayList<Index>(indexes));
+    }
+
+    /**
+     * Returns a copy of a normalised query with its bound operands replaced by markers.
+     *
+     * @param query the normalised query
+     * @param operands list the bound operands are added to, in marker order
+     * @return the template, or {@code null} if the query can't be cached because an operand
+     * left in the template could be mistaken for a marker
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> template(Map<String, Object> query, List<Object> operands) {
+        Object template = template(query, null, operands);
+        return template == UNCACHEABLE ? null : (Map<String, Object>) template;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object template(Object value, String operator, List<Object> operands) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new HashMap<String, Object>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                Object templated = template(entry.getValue(), entry.getKey(), operands);
+                if (templated == UNCACHEABLE) {
+                    return UNCACHEABLE;
+                }
+                copy.put(entry.getKey(), templated);
+            }
+            return copy;
+        } else if (value instanceof List) {
+            // the translator expects ArrayLists
+            List<Object> copy = new ArrayList<Object>();
+            for (Object element : (List<Object>) value) {
+                Object templated = IN.equals(operator) ? operand(element, operands) :
+                        template(element, null, operands);
+                if (templated == UNCACHEABLE) {
+                    return UNCACHEABLE;
+                }
+                copy.add(templated);
+            }
+            return copy;
+        } else if (BOUND_OPERATORS.contains(operator)) {
+            return operand(value, operands);
+        } else if (value instanceof String && ((String) value).startsWith(MARKER_PREFIX)) {
+            return UNCACHEABLE;
+        }
+        return value;
+    }
+
+    private static Object operand(Object value, List<Object> operands) {
+        // the translator binds strings and numbers with String.valueOf, as bind does, but
+        // converts booleans, so those stay in the template
+        if (value instanceof String || value instanceof Number) {
+            operands.add(value);
+            return MARKER_PREFIX + (operands.size() - 1);
+        }
+        return value;
+    }
+
+    synchronized Plan get(List<Object> key) {
+        Plan plan = plans.get(key);
+        if (plan == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return plan;
+    }
+
+    synchronized void put(List<Object> key, Plan plan) {
+        plans.put(key, plan);
+    }
+
+    /**
+     * @return the cached index statistics, or {@code null} if they need to be loaded
+     */
+    synchronized Map<String, IndexStatistics> getStatistics() {
+        return statistics;
+    }
+
+    synchronized void setStatistics(Map<String, IndexStatistics> statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Removes all the plans and the index statistics.
+     */
+    synchronized void clear() {
+        plans.clear();
+        statistics = null;
+    }
+
+    synchronized int size() {
+        return plans.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -63,6 +63,11 @@ import java.util.logging.Logger;
  *  performing several queries over indexes and then using set operations works out
  *  more flexible and likely more efficient.
  *
+ *  Where it can, the executor has the tree combined into a single compound SELECT by
+ *  {@link #compoundSelectForTree(QueryNode)}, so SQLite performs the AND and OR operations
+ *  with INTERSECT and UNION. Each SELECT in the compound still uses its own index, and only
+ *  the final document IDs are loaded.
+ *
  *  The SQL must be executed separately so we can do it in a transaction so we're doing
  *  it over a consistent view of the index.
  *
@@ -120,10 +125,28 @@ class QuerySqlTranslator {
 
     private static final Logger logger = Logger.getLogger(QuerySqlTranslator.class.getName());
 
+    // SQLite's default limits on the placeholders in a statement, before 3.32, and on the
+    // SELECTs in a compound SELECT
+    private static final int COMPOUND_PLACEHOLDERS_LIMIT = 999;
+    private static final int COMPOUND_SELECTS_LIMIT = 500;
+
+    public static QueryNode translateQuery(Map<String, Object> query,
+                                           List<Index> indexes,
+                                           Boolean[] indexesCoverQuery) {
+        return translateQuery(query, indexes, Collections.<String, IndexStatistics>emptyMap(),
+                indexesCoverQuery);
+    }
+
+    /**
+     *  As {@link #translateQuery(Map, List, Boolean[])}, choosing between the indexes able to
+     *  answer each part of the query using their statistics.
+     */
     public static QueryNode translateQuery(Map<String, Object> query,
                                            List<Index> indexes,
+                                           Map<String, IndexStatistics> statistics,
                                            Boolean[] indexesCoverQuery) {
         TranslatorState state = new TranslatorState();
+        state.statistics = statistics;
         QueryNode node = translateQuery(query, indexes, state);
 
         Misc.checkState(!state.textIndexMissing, "No text index defined, cannot execute query containing a text search.");
@@ -139,12 +162,13 @@ class QuerySqlTranslator {
             // run over every document to manually carry out the query.
             SqlQueryNode sqlNode = new SqlQueryNode();
             Set<String> neededFields = new HashSet<String>(Collections.singletonList("_id"));
-            String allDocsIndex = chooseIndexForFields(neededFields, indexes);
+            String allDocsIndex = chooseIndexForFields(neededFields, indexes, state.statistics);
 
             if (allDocsIndex != null && !allDocsIndex.isEmpty()) {
                 String tableName = QueryImpl.tableNameForIndex(allDocsIndex);
                 String sql = String.format(Locale.ENGLISH, "SELECT _id FROM \"%s\"", tableName);
                 sqlNode.sql = SqlParts.partsForSql(sql, new String[]{});
+                sqlNode.indexName = allDocsIndex;
             }
 
             AndQueryNode root = new AndQueryNode();
@@ -205,7 +229,8 @@ class QuerySqlTranslator {
                 // For an AND query, we require a single compound index and we generate a
                 // single SQL statement to use that index to satisfy the clauses.
 
-                String chosenIndex = chooseIndexForAndClause(basicClauses, indexes);
+                String chosenIndex = chooseIndexForAndClause(basicClauses, indexes,
+                        state.statistics);
                 if (chosenIndex == null || chosenIndex.isEmpty()) {
                     state.atLeastOneIndexMissing = true;
                     String msg = String.format("No single index contains all of %s; %s",
@@ -220,6 +245,7 @@ class QuerySqlTranslator {
 
                     SqlQueryNode sqlNode = new SqlQueryNode();
                     sqlNode.sql = select;
+                    sqlNode.indexName = chosenIndex;
 
                     if (root != null) {
                         root.children.add(sqlNode);
@@ -238,7 +264,8 @@ class QuerySqlTranslator {
 
                 for (Object basicClause : basicClauses) {
                     List<Object> wrappedClause = Arrays.asList(basicClause);
-                    String chosenIndex = chooseIndexForAndClause(wrappedClause, indexes);
+                    String chosenIndex = chooseIndexForAndClause(wrappedClause, indexes,
+                            state.statistics);
                     if (chosenIndex == null || chosenIndex.isEmpty()) {
                         state.atLeastOneIndexMissing = true;
                         state.atLeastOneORIndexMissing = true;
@@ -254,6 +281,7 @@ class QuerySqlTranslator {
 
                         SqlQueryNode sqlNode = new SqlQueryNode();
                         sqlNode.sql = select;
+                        sqlNode.indexName = chosenIndex;
 
                         if (root != null) {
                             root.children.add(sqlNode);
@@ -276,6 +304,7 @@ class QuerySqlTranslator {
 
                 SqlQueryNode sqlNode = new SqlQueryNode();
                 sqlNode.sql = select;
+                sqlNode.indexName = textIndex;
 
                 if (root != null) {
                     root.children.add(sqlNode);
@@ -316,6 +345,68 @@ class QuerySqlTranslator {
         return root;
     }
 
+    /**
+     *  Combines the SQL of an AND/OR tree into a single compound SELECT of document IDs,
+     *  joining the SELECTs of an AND node with INTERSECT and those of an OR node with UNION.
+     *  Child AND and OR nodes become sub-SELECTs, so they keep their own operator.
+     *
+     *  AND and OR nodes without any SQL beneath them are left out, as the executor ignores
+     *  them.
+     *
+     *  @param node root of the tree to combine
+     *  @return the compound SELECT, {@code SqlParts} with {@code null} SQL if the tree has no
+     *  SQL, or {@code null} if the tree can't be combined because a node has to read the
+     *  document IDs from the database or the statement would exceed SQLite's limits
+     */
+    static SqlParts compoundSelectForTree(QueryNode node) {
+        SqlParts compound = compoundSelect(node);
+        if (compound == null || compound.placeHolderValues.length > COMPOUND_PLACEHOLDERS_LIMIT) {
+            return null;
+        }
+        return compound;
+    }
+
+    private static SqlParts compoundSelect(QueryNode node) {
+        if (node instanceof SqlQueryNode) {
+            // null when the IDs come from the database rather than an index
+            return ((SqlQueryNode) node).sql;
+        }
+        String operator;
+        if (node instanceof AndQueryNode) {
+            operator = " INTERSECT ";
+        } else if (node instanceof OrQueryNode) {
+            operator = " UNION ";
+        } else {
+            return null;
+        }
+
+        List<String> selects = new ArrayList<String>();
+        List<String> placeHolderValues = new ArrayList<String>();
+        for (QueryNode child : ((ChildrenQueryNode) node).children) {
+            SqlParts childSelect = compoundSelect(child);
+            if (childSelect == null) {
+                return null;
+            }
+            if (childSelect.sqlWithPlaceHolders == null) {
+                continue;
+            }
+            if (child instanceof ChildrenQueryNode) {
+                selects.add(String.format(Locale.ENGLISH, "SELECT _id FROM (%s)",
+                        childSelect.sqlWithPlaceHolders));
+            } else {
+                selects.add(childSelect.sqlWithPlaceHolders);
+            }
+            placeHolderValues.addAll(Arrays.asList(childSelect.placeHolderValues));
+        }
+        if (selects.size() > COMPOUND_SELECTS_LIMIT) {
+            return null;
+        }
+
+        String sql = selects.isEmpty() ? null : Misc.join(operator, selects);
+        return SqlParts.partsForSql(sql, placeHolderValues.toArray(new String[placeHolderValues
+                .size()]));
+    }
+
     private static List<String> fieldsForAndClause(List<Object> clause) {
         Misc.checkNotNull(clause, "clause");
 
@@ -371,6 +462,13 @@ class QuerySqlTranslator {
 
     protected static String chooseIndexForAndClause(List<Object> clause,
                                                     List<Index>indexes) {
+        return chooseIndexForAndClause(clause, indexes, Collections.<String,
+                IndexStatistics>emptyMap());
+    }
+
+    protected static String chooseIndexForAndClause(List<Object> clause,
+                                                    List<Index> indexes,
+                                                    Map<String, IndexStatistics> statistics) {
 
         if (clause == null || clause.isEmpty()) {
             return null;
@@ -393,12 +491,19 @@ class QuerySqlTranslator {
 
         Misc.checkState(!neededFields.isEmpty(), String.format("Invalid clauses in $and clause %s.", clause.toString()));
 
-        return chooseIndexForFields(neededFields, indexes);
+        return chooseIndexForFields(neededFields, indexes, statistics);
     }
 
     protected static String chooseIndexForFields(Set<String> neededFields,
                                                  List<Index> indexes) {
-        String chosenIndex = null;
+        return chooseIndexForFields(neededFields, indexes, Collections.<String,
+                IndexStatistics>emptyMap());
+    }
+
+    protected static String chooseIndexForFields(Set<String> neededFields,
+                                                 List<Index> indexes,
+                                                 Map<String, IndexStatistics> statistics) {
+        List<Index> candidates = new ArrayList<Index>();
         for (Index index : indexes) {
 
             // Don't choose a text index for a non-text query clause
@@ -413,11 +518,50 @@ class QuerySqlTranslator {
             }
 
             if (providedFields.containsAll(neededFields)) {
-                chosenIndex = index.indexName;
-                break;
+                candidates.add(index);
             }
         }
 
+        return cheapestIndex(candidates, statistics);
+    }
+
+    /**
+     *  Chooses the cheapest of the indexes able to answer a query. Queries read the whole
+     *  table of an index, so the cost is estimated as its number of rows times its number of
+     *  columns. Indexes which haven't been analyzed are taken to have as many rows as the
+     *  largest analyzed one, so without any statistics the index with the fewest columns is
+     *  chosen. Ties go to the earliest index.
+     *
+     *  @param candidates indexes with all the fields the query needs
+     *  @param statistics statistics of the indexes, by index name
+     *  @return the name of the cheapest index, or null if there are no candidates
+     */
+    static String cheapestIndex(List<Index> candidates,
+                                Map<String, IndexStatistics> statistics) {
+        long unknownRowCount = 1;
+        for (Index index : candidates) {
+            IndexStatistics indexStatistics = statistics.get(index.indexName);
+            if (indexStatistics != null) {
+                unknownRowCount = Math.max(unknownRowCount, indexStatistics.rowCount);
+            }
+        }
+
+        String chosenIndex = null;
+        double lowestCost = Double.MAX_VALUE;
+        for (Index index : candidates) {
+            IndexStatistics indexStatistics = statistics.get(index.indexName);
+            long rowCount = indexStatistics != null ? indexStatistics.rowCount : unknownRowCount;
+            // double, so large tables with many columns can't overflow
+            double cost = (double) Math.max(1, rowCount) * index.fieldNames.size();
+            if (cost < lowestCost) {
+                chosenIndex = index.indexName;
+                lowestCost = cost;
+            }
+        }
+        if (chosenIndex != null && candidates.size() > 1) {
+            logger.fine(String.format("Chose index %s from %d candidates", chosenIndex,
+                    candidates.size()));
+        }
         return chosenIndex;
     }
 
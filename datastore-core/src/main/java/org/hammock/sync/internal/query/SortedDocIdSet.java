@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.query;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * <p>Immutable set of document IDs held as a sorted array, used for the intermediate results of
+ * queries.</p>
+ *
+ * <p>Unlike a {@link java.util.HashSet} it needs no object per entry, so large sets of
+ * candidate IDs take a fraction of the memory. Membership is tested with a binary search, and
+ * sets are intersected and united by merging their arrays.</p>
+ */
+final class SortedDocIdSet extends AbstractSet<String> {
+
+    private static final SortedDocIdSet EMPTY = new SortedDocIdSet(new String[0], 0);
+
+    // sorted and distinct in the first size elements
+    private final String[] ids;
+    private final int size;
+
+    private SortedDocIdSet(String[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * @return a set of the IDs, which is {@code ids} itself if it is already a
+     * {@code SortedDocIdSet}
+     */
+    static SortedDocIdSet of(Collection<String> ids) {
+        if (ids instanceof SortedDocIdSet) {
+            return (SortedDocIdSet) ids;
+        }
+        if (ids.isEmpty()) {
+            return EMPTY;
+        }
+        String[] sorted = ids.toArray(new String[ids.size()]);
+        Arrays.sort(sorted);
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (!sorted[i].equals(sorted[size - 1])) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return new SortedDocIdSet(sorted, size);
+    }
+
+    /**
+     * @return the IDs in both this set and {@code other}
+     */
+    SortedDocIdSet intersect(SortedDocIdSet other) {
+        String[] result = new String[Math.min(size, other.size)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            int comparison = ids[i].compareTo(other.ids[j]);
+            if (comparison < 0) {
+                i++;
+            } else if (comparison > 0) {
+                j++;
+            } else {
+                result[n++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+        return n == 0 ? EMPTY : new SortedDocIdSet(result, n);
+    }
+
+    /**
+     * @return the IDs in either this set or {@code other}
+     */
+    SortedDocIdSet union(SortedDocIdSet other) {
+        String[] result = new String[size + other.size];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            int comparison = i == size ? 1 : j == other.size ? -1 :
+                    ids[i].compareTo(other.ids[j]);
+            if (comparison < 0) {
+                result[n++] = ids[i++];
+            } else if (comparison > 0) {
+                result[n++] = other.ids[j++];
+            } else {
+                result[n++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+        return n == 0 ? EMPTY : new SortedDocIdSet(result, n);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && Arrays.binarySearch(ids, 0, size, o) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        // read only, as the list's iterator doesn't support removal
+        return Arrays.asList(ids).subList(0, size).iterator();
+    }
+}
@@ -26,4 +26,7 @@ class SqlQueryNode implements QueryNode {
 
     public SqlParts sql;
 
+    // the index the SQL queries, null when there is no SQL
+    public String indexName;
+
 }
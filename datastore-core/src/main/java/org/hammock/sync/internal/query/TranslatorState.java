@@ -16,6 +16,9 @@
 
 package org.hammock.sync.internal.query;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  *  The purpose of a TranslatorState object is to track the state of a query translation operation
  *  performed by method calls in the {@link QuerySqlTranslator}.  Since
@@ -28,6 +31,8 @@ package org.hammock.sync.internal.query;
  */
 class TranslatorState {
 
+    public Map<String, IndexStatistics> statistics;
+
     public boolean atLeastOneIndexUsed;
     public boolean atLeastOneIndexMissing;
     public boolean atLeastOneORIndexMissing;
@@ -35,6 +40,7 @@ class TranslatorState {
     public boolean textIndexMissing;
 
     TranslatorState() {
+        statistics = Collections.emptyMap();
         atLeastOneIndexUsed = false;
         atLeastOneIndexMissing = false;
         atLeastOneORIndexMissing = false;
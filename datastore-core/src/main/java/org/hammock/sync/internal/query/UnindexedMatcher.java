@@ -16,13 +16,17 @@
 
 package org.hammock.sync.internal.query;
 
+import org.hammock.sync.documentstore.DocumentBody;
 import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.internal.documentstore.DocumentBodyImpl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -82,11 +86,17 @@ import java.util.logging.Logger;
  *  { x: X }  { y: Y }
  *
  *  These basic patterns can be composed into more complicate structures.
+ *
+ *  Only the top-level fields of a document's body which the selector refers to are read from
+ *  its JSON, and a matcher may be used from several threads at once.
  */
 public class UnindexedMatcher {
 
     private ChildrenQueryNode root;
 
+    // the top-level body fields the selector refers to
+    private Set<String> bodyFields;
+
     private static final Logger logger = Logger.getLogger(UnindexedMatcher.class.getName());
 
     /**
@@ -104,6 +114,8 @@ public class UnindexedMatcher {
 
         UnindexedMatcher matcher = new UnindexedMatcher();
         matcher.root = root;
+        matcher.bodyFields = new HashSet<String>();
+        addBodyFields(root, matcher.bodyFields);
 
         return matcher;
     }
@@ -181,6 +193,19 @@ public class UnindexedMatcher {
         return root;
     }
 
+    private static void addBodyFields(QueryNode node, Set<String> bodyFields) {
+        if (node instanceof ChildrenQueryNode) {
+            for (QueryNode child : ((ChildrenQueryNode) node).children) {
+                addBodyFields(child, bodyFields);
+            }
+        } else if (node instanceof OperatorExpressionNode) {
+            String fieldName = (String) ((OperatorExpressionNode) node).expression.keySet()
+                    .toArray()[0];
+            int dot = fieldName.indexOf('.');
+            bodyFields.add(dot < 0 ? fieldName : fieldName.substring(0, dot));
+        }
+    }
+
     /**
      * Returns true is a document matches this matcher's selector.
      *
@@ -188,18 +213,26 @@ public class UnindexedMatcher {
      * @return document and matcher's selector matching status.
      */
     public boolean matches(DocumentRevision rev) {
-        return executeSelectorTree(root, rev);
+        DocumentBody body = rev.getBody();
+        Map<String, Object> fields;
+        if (body instanceof DocumentBodyImpl) {
+            fields = ((DocumentBodyImpl) body).asMap(bodyFields);
+        } else {
+            fields = body.asMap();
+        }
+        return executeSelectorTree(root, rev, fields);
     }
 
     @SuppressWarnings("unchecked")
-    private boolean executeSelectorTree(QueryNode node, DocumentRevision rev) {
+    private boolean executeSelectorTree(QueryNode node, DocumentRevision rev,
+                                        Map<String, Object> body) {
         if (node instanceof AndQueryNode) {
             boolean passed = true;
 
             AndQueryNode andNode = (AndQueryNode) node;
 
             for (QueryNode child: andNode.children) {
-                passed = passed && executeSelectorTree(child, rev);
+                passed = passed && executeSelectorTree(child, rev, body);
             }
 
             return passed;
@@ -210,7 +243,7 @@ public class UnindexedMatcher {
             OrQueryNode orNode = (OrQueryNode) node;
 
             for (QueryNode child: orNode.children) {
-                passed = passed || executeSelectorTree(child, rev);
+                passed = passed || executeSelectorTree(child, rev, body);
             }
 
             return passed;
@@ -237,7 +270,7 @@ public class UnindexedMatcher {
             }
 
             Object expected = operatorExpression.get(operator);
-            Object actual = ValueExtractor.extractValueForFieldName(fieldName, rev);
+            Object actual = ValueExtractor.extractValueForFieldName(fieldName, rev, body);
 
             boolean passed = false;
             List<String> specialCaseOperators = Arrays.asList(QueryConstants.MOD, QueryConstants.SIZE);
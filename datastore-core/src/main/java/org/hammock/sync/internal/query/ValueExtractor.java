@@ -43,8 +43,34 @@ public class ValueExtractor {
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * As {@link #extractValueForFieldName(String, DocumentRevision)}, extracting fields other
+     * than {@code _id} and {@code _rev} from {@code body}, which holds at least the top-level
+     * field of {@code possiblyDottedField} from the revision's body.
+     */
+    public static Object extractValueForFieldName(String possiblyDottedField,
+                                                  DocumentRevision rev,
+                                                  Map<String, Object> body) {
+        if (possiblyDottedField.equals("_id")) {
+            return rev.getId();
+        } else if (possiblyDottedField.equals("_rev")) {
+            return rev.getRevision();
+        } else {
+            return extractValueForFieldName(possiblyDottedField, body);
+        }
+    }
+
     public static Object extractValueForFieldName(String possiblyDottedField, DocumentBody body) {
+        return extractValueForFieldName(possiblyDottedField, body.asMap());
+    }
+
+    /**
+     * As {@link #extractValueForFieldName(String, DocumentBody)}, for callers extracting several
+     * fields which already have the body as a map.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object extractValueForFieldName(String possiblyDottedField,
+                                                  Map<String, Object> body) {
         // The algorithm here is to split the fields into a "path" and a "lastSegment".
         // The path leads us to the final sub-document. We know that if we have either
         // nil or a non-dictionary object while traversing path that the body doesn't
@@ -58,7 +84,7 @@ public class ValueExtractor {
         List<String> path = new ArrayList<String>(Arrays.asList(fields));
         String lastSegment = path.remove(path.size() - 1);
 
-        Map<String, Object> currentLevel = body.asMap();
+        Map<String, Object> currentLevel = body;
         for (String field: path) {
             Object map = currentLevel.get(field);
             if (map != null && map instanceof Map) {
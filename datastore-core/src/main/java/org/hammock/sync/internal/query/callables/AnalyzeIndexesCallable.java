@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.query.callables;
+
+import org.hammock.sync.internal.query.QueryImpl;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.query.QueryException;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Gathers fresh statistics about the tables of JSON query indexes, with SQLite's
+ * {@code ANALYZE}, for choosing between indexes.
+ */
+public class AnalyzeIndexesCallable implements SQLCallable<Void> {
+    private final List<String> indexNames;
+
+    public AnalyzeIndexesCallable(List<String> indexNames) {
+        this.indexNames = indexNames;
+    }
+
+    @Override
+    public Void call(SQLDatabase database) throws QueryException {
+        for (String indexName : indexNames) {
+            String sql = String.format(Locale.ENGLISH, "ANALYZE \"%s\"",
+                    QueryImpl.tableNameForIndex(indexName));
+            try {
+                database.execSQL(sql);
+            } catch (SQLException e) {
+                String msg = String.format("Failed to analyze index %s", indexName);
+                throw new QueryException(msg, e);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.query.callables;
+
+import org.hammock.sync.internal.query.IndexStatistics;
+import org.hammock.sync.internal.query.QueryConstants;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Retrieves the statistics gathered by {@link AnalyzeIndexesCallable} for each JSON query index,
+ * keyed by index name. Indexes which haven't been analyzed are left out.
+ */
+public class ListIndexStatisticsCallable implements SQLCallable<Map<String, IndexStatistics>> {
+    private static final Logger logger = Logger.getLogger(ListIndexStatisticsCallable.class
+            .getName());
+
+    @Override
+    public Map<String, IndexStatistics> call(SQLDatabase database) {
+        Map<String, IndexStatistics> statistics = new HashMap<String, IndexStatistics>();
+        Cursor cursor = null;
+        try {
+            // sqlite_stat1 is only created by the first ANALYZE
+            cursor = database.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' " +
+                    "AND name = 'sqlite_stat1'", new String[]{});
+            boolean analyzed = cursor.moveToNext();
+            DatabaseUtils.closeCursorQuietly(cursor);
+            cursor = null;
+            if (!analyzed) {
+                return statistics;
+            }
+
+            // the statistics of the SQLite index each index table has
+            cursor = database.rawQuery("SELECT tbl, stat FROM sqlite_stat1 WHERE idx = tbl || " +
+                    "'_index'", new String[]{});
+            while (cursor.moveToNext()) {
+                String table = cursor.getString(0);
+                if (!table.startsWith(QueryConstants.INDEX_TABLE_PREFIX)) {
+                    continue;
+                }
+                IndexStatistics indexStatistics = IndexStatistics.fromSqliteStat(cursor
+                        .getString(1));
+                if (indexStatistics != null) {
+                    statistics.put(table.substring(QueryConstants.INDEX_TABLE_PREFIX.length()),
+                            indexStatistics);
+                }
+            }
+        } catch (SQLException e) {
+            // statistics only guide the choice of index, so carry on without them
+            logger.log(Level.WARNING, "Error getting index statistics. ", e);
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+        return statistics;
+    }
+}
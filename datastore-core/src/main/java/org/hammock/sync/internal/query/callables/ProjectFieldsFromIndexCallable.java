@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.query.callables;
+
+import org.hammock.sync.documentstore.Database;
+import org.hammock.sync.documentstore.DocumentBodyFactory;
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
+import org.hammock.sync.internal.query.QueryImpl;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.util.DatabaseUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Projects fields of documents from the rows of a JSON index which has a column for each of
+ * the fields, so the document bodies needn't be loaded.
+ * </p>
+ * <p>
+ * Only values which are read back from the index exactly as they appear in the document are
+ * projected, that is strings and integers other than 0 and 1, which could have been booleans.
+ * A document is left out of the result, so its body is loaded instead, if it has any other
+ * value for a field, is missing a field or has more than one row in the index because one of
+ * its fields is an array.
+ * </p>
+ */
+public class ProjectFieldsFromIndexCallable implements SQLCallable<Map<String, DocumentRevision>> {
+
+    private final List<String> docIds;
+    private final List<String> fields;
+    private final String indexName;
+    private final Database database;
+
+    /**
+     * @param docIds IDs of the documents to project
+     * @param fields fields to project, all of which must be columns of the index
+     * @param indexName name of the JSON index to read the values from
+     * @param database the database the documents are in, used to build the revisions
+     */
+    public ProjectFieldsFromIndexCallable(List<String> docIds, List<String> fields,
+                                          String indexName, Database database) {
+        this.docIds = docIds;
+        this.fields = fields;
+        this.indexName = indexName;
+        this.database = database;
+    }
+
+    @Override
+    public Map<String, DocumentRevision> call(SQLDatabase db) throws Exception {
+        if (docIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // _id and _rev are columns of every index but not part of the body
+        List<String> bodyFields = new ArrayList<String>();
+        for (String field : fields) {
+            if (!"_id".equals(field) && !"_rev".equals(field) && !bodyFields.contains(field)) {
+                bodyFields.add(field);
+            }
+        }
+        StringBuilder columns = new StringBuilder("\"_id\", \"_rev\"");
+        for (String field : bodyFields) {
+            columns.append(", \"").append(field).append("\"");
+        }
+        String sql = String.format("SELECT %s FROM %s WHERE _id IN (%s)",
+                columns,
+                QueryImpl.tableNameForIndex(indexName),
+                DatabaseUtils.makePlaceholders(docIds.size()));
+
+        Map<String, DocumentRevision> projected = new HashMap<String, DocumentRevision>();
+        Set<String> notProjected = new HashSet<String>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, docIds.toArray(new String[docIds.size()]));
+            while (cursor.moveToNext()) {
+                String docId = cursor.getString(0);
+                if (projected.remove(docId) != null || notProjected.contains(docId)) {
+                    // more than one row, so the values of an array field are spread over them
+                    notProjected.add(docId);
+                    continue;
+                }
+                Map<String, Object> body = new HashMap<String, Object>();
+                for (int i = 0; i < bodyFields.size(); i++) {
+                    Object value = exactValue(cursor, i + 2);
+                    if (value == null) {
+                        break;
+                    }
+                    body.put(bodyFields.get(i), value);
+                }
+                if (body.size() < bodyFields.size()) {
+                    notProjected.add(docId);
+                    continue;
+                }
+
+                DocumentRevisionBuilder revBuilder = new DocumentRevisionBuilder();
+                revBuilder.setDocId(docId);
+                revBuilder.setRevId(cursor.getString(1));
+                revBuilder.setBody(DocumentBodyFactory.create(body));
+                revBuilder.setDeleted(false);
+                revBuilder.setDatabase(database);
+                projected.put(docId, revBuilder.buildProjected());
+            }
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+        return projected;
+    }
+
+    // the value of the column as it would have been read from the document body, or null if
+    // the index doesn't record it exactly
+    private static Object exactValue(Cursor cursor, int column) {
+        switch (cursor.columnType(column)) {
+            case Cursor.FIELD_TYPE_STRING:
+                return cursor.getString(column);
+            case Cursor.FIELD_TYPE_INTEGER:
+                long value = cursor.getLong(column);
+                if (value == 0 || value == 1) {
+                    // booleans are indexed as integers
+                    return null;
+                } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    // as parsed from JSON
+                    return (int) value;
+                }
+                return value;
+            default:
+                // missing fields and objects are NULL, the cursor can't read REAL exactly
+                return null;
+        }
+    }
+}
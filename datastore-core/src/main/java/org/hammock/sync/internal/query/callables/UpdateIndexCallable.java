@@ -24,45 +24,54 @@ import org.hammock.sync.internal.sqlite.SQLCallable;
 import org.hammock.sync.internal.sqlite.SQLDatabase;
 import org.hammock.sync.internal.util.Misc;
 import org.hammock.sync.query.FieldSort;
+import org.hammock.sync.query.Index;
 import org.hammock.sync.query.QueryException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Updates a Query Index.
+ * Updates a set of Query Indexes from one page of changes, and records the last sequence of the
+ * page as the sequence each index is up to date with.
+ *
+ * Each document body is parsed once and its values extracted for every index, so this should
+ * be run in a transaction to update all of the indexes together.
  */
 public class UpdateIndexCallable implements SQLCallable<Void> {
 
     private static final Logger logger = Logger.getLogger(UpdateIndexCallable.class.getName());
 
     private final Changes changes;
-    private final String indexName;
-    private final List<FieldSort> fieldNames;
+    private final List<Index> indexes;
 
-    public UpdateIndexCallable(Changes changes, String indexName, List<FieldSort> fieldNames) {
+    public UpdateIndexCallable(Changes changes, List<Index> indexes) {
         this.changes = changes;
-        this.indexName = indexName;
-        this.fieldNames = fieldNames;
+        this.indexes = indexes;
     }
 
     @Override
     public Void call(SQLDatabase database) throws QueryException {
         for (DocumentRevision rev : changes.getResults()) {
-            // Delete existing values
-            String tableName = QueryImpl.tableNameForIndex(indexName);
-            database.delete(tableName, " _id = ? ", new String[]{rev.getId()});
-
-            // Insert new values if the rev isn't deleted
-            if (!rev.isDeleted()) {
+            Map<String, Object> body = rev.isDeleted() ? null : rev.getBody().asMap();
+            for (Index index : indexes) {
+                // Delete existing values
+                String tableName = QueryImpl.tableNameForIndex(index.indexName);
+                database.delete(tableName, " _id = ? ", new String[]{rev.getId()});
+
+                // Insert new values if the rev isn't deleted
+                if (body == null) {
+                    continue;
+                }
                 // If we are indexing a document where one field is an array, we
                 // have multiple rows to insert into the index.
                 List<DBParameter> parameters = parametersToIndexRevision(rev,
-                        indexName,
-                        fieldNames);
+                        body,
+                        index.indexName,
+                        index.fieldNames);
                 if (parameters == null) {
                     // non-fatal error found with this rev, but we can carry on indexing
                     continue;
@@ -71,13 +80,18 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
                     long rowId = database.insert(parameter.tableName,
                             parameter.contentValues);
                     if (rowId < 0) {
-                        String msg = String.format("Updating index %s failed.", indexName);
+                        String msg = String.format("Updating index %s failed.", index.indexName);
                         throw new QueryException(msg);
                     }
                 }
             }
         }
 
+        for (Index index : indexes) {
+            new UpdateMetadataForIndexCallable(changes.getLastSequence(), index.indexName)
+                    .call(database);
+        }
+
         return null;
     }
 
@@ -90,6 +104,7 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
      */
     @SuppressWarnings("unchecked")
     private List<DBParameter> parametersToIndexRevision(DocumentRevision rev,
+                                                                     Map<String, Object> body,
                                                                      String indexName,
                                                                      List<FieldSort> fieldNames) {
         Misc.checkNotNull(rev, "rev");
@@ -99,7 +114,7 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
         int arrayCount = 0;
         String arrayFieldName = null; // only record the last, as error if more than one
         for (FieldSort fieldName : fieldNames) {
-            Object value = ValueExtractor.extractValueForFieldName(fieldName.field, rev.getBody());
+            Object value = ValueExtractor.extractValueForFieldName(fieldName.field, body);
             if (value != null && value instanceof List) {
                 arrayCount = arrayCount + 1;
                 arrayFieldName = fieldName.field;
@@ -119,7 +134,7 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
         List<Object> arrayFieldValues = null;
         if (arrayCount == 1) {
             arrayFieldValues = (List) ValueExtractor.extractValueForFieldName(arrayFieldName,
-                    rev.getBody());
+                    body);
         }
 
         if (arrayFieldValues != null && arrayFieldValues.size() > 0) {
@@ -136,7 +151,8 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
                         initialIncludedFields,
                         initialArgs,
                         indexName,
-                        rev);
+                        rev,
+                        body);
                 parameters.add(parameter);
             }
         } else {
@@ -150,7 +166,8 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
                     initialIncludedFields,
                     initialArgs,
                     indexName,
-                    rev);
+                    rev,
+                    body);
             parameters.add(parameter);
         }
 
@@ -161,7 +178,8 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
                                                          List<FieldSort> initialIncludedFields,
                                                          List<Object> initialArgs,
                                                          String indexName,
-                                                         DocumentRevision rev) {
+                                                         DocumentRevision rev,
+                                                         Map<String, Object> body) {
         List<FieldSort> includeFieldNames = new ArrayList<FieldSort>();
         includeFieldNames.addAll(initialIncludedFields);
         List<Object> args = new ArrayList<Object>();
@@ -174,7 +192,7 @@ public class UpdateIndexCallable implements SQLCallable<Void> {
                 continue;
             }
 
-            Object value = ValueExtractor.extractValueForFieldName(fieldName.field, rev.getBody());
+            Object value = ValueExtractor.extractValueForFieldName(fieldName.field, body);
             if (value != null && !(value instanceof List && ((List) value).size() == 0)) {
                 // Only include a field with a value or a field with a populated list
                 includeFieldNames.add(new FieldSort(fieldName.field));
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.replication;
+
+import org.hammock.sync.internal.util.Misc;
+
+/**
+ * <p>A batch size which is adjusted between bounds from measurements of the batches processed
+ * with it. The size aims for each batch to take a target time and, when the size of a batch's
+ * payload is known, to stay under a target number of bytes, so small documents are processed
+ * in large batches and large ones, or ones with attachments, in small batches.</p>
+ *
+ * <p>After each batch the size moves towards the size which would have met the targets at the
+ * cost per item just measured, but at most doubles or halves at a time so that one unusual
+ * batch does not swing it too far. A batch during which the server responded with
+ * {@code 429 Too Many Requests} halves the size instead.</p>
+ *
+ * <p>Measurements may be recorded from several threads, for batches processed
+ * concurrently.</p>
+ */
+public class AdaptiveBatchSize {
+
+    private final int min;
+    private final int max;
+    private final long targetMillis;
+    private final long targetBytes;
+
+    private int size;
+
+    /**
+     * @param initial      size to start from, clamped to the bounds
+     * @param min          smallest size, at least 1
+     * @param max          largest size
+     * @param targetMillis time a batch should take to process
+     * @param targetBytes  payload size a batch should stay under, or 0 for no target
+     */
+    public AdaptiveBatchSize(int initial, int min, int max, long targetMillis,
+                             long targetBytes) {
+        Misc.checkArgument(min > 0, "min must be greater than 0");
+        Misc.checkArgument(max >= min, "max must not be less than min");
+        Misc.checkArgument(targetMillis > 0, "targetMillis must be greater than 0");
+        this.min = min;
+        this.max = max;
+        this.targetMillis = targetMillis;
+        this.targetBytes = targetBytes;
+        this.size = clamp(initial);
+    }
+
+    /**
+     * @return the size to use for the next batch
+     */
+    public synchronized int get() {
+        return size;
+    }
+
+    /**
+     * Records the measurements of a processed batch and adjusts the size.
+     *
+     * @param items     number of items in the batch
+     * @param millis    time taken to process the batch
+     * @param bytes     size of the batch's payload, or a negative number if unknown
+     * @param throttled whether the server throttled any request made for the batch
+     */
+    public synchronized void record(int items, long millis, long bytes, boolean throttled) {
+        if (throttled) {
+            size = clamp(size / 2);
+            return;
+        }
+        if (items <= 0) {
+            return;
+        }
+        double desired = (double) targetMillis * items / Math.max(millis, 1);
+        if (targetBytes > 0 && bytes > 0) {
+            desired = Math.min(desired, (double) targetBytes * items / bytes);
+        }
+        desired = Math.max(desired, size / 2.0);
+        desired = Math.min(desired, size * 2.0);
+        size = clamp((int) desired);
+    }
+
+    private int clamp(int size) {
+        return Math.max(min, Math.min(max, size));
+    }
+}
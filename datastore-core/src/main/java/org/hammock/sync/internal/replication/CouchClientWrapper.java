@@ -159,6 +159,19 @@ public class CouchClientWrapper implements CouchDB {
         }
     }
 
+    @Override
+    public ChangesResult changesLongpoll(PullFilter filter, String selector, List<String> docIds,
+                                         Object lastSequence, int limit, long heartbeat,
+                                         long timeout) {
+        return couchClient.changesLongpoll(filter, selector, docIds, lastSequence, limit,
+                heartbeat, timeout);
+    }
+
+    @Override
+    public void abortChangesLongpoll() {
+        couchClient.abortChangesLongpoll();
+    }
+
     @Override
     public Iterable<DocumentRevsList> bulkGetRevisions(List<BulkGetRequest> requests,
                                                        boolean pullAttachmentsInline) {
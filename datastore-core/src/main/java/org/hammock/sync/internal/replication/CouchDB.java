@@ -51,6 +51,20 @@ interface CouchDB {
     ChangesResult changes(PullFilter filter, Object lastSequence, int limit);
     ChangesResult changes(String selector, Object lastSequence, int limit);
     ChangesResult changes(List<String> docIds, Object lastSequence, int limit);
+
+    /**
+     * Waits for changes with a longpoll request, see
+     * {@link CouchClient#changesLongpoll(PullFilter, String, List, Object, Integer, long, long)}.
+     *
+     * @return the changes, or {@code null} if the request was aborted
+     */
+    ChangesResult changesLongpoll(PullFilter filter, String selector, List<String> docIds,
+                                  Object lastSequence, int limit, long heartbeat, long timeout);
+
+    /**
+     * Ends the longpoll request in flight, or the next one if there isn't one.
+     */
+    void abortChangesLongpoll();
     List<DocumentRevs> getRevisions(String documentId,
                                            Collection<String> revisionIds,
                                            Collection<String> attsSince,
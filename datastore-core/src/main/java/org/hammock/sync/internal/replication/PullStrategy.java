@@ -29,7 +29,6 @@ import org.hammock.sync.internal.documentstore.PreparedAttachment;
 import org.hammock.sync.internal.mazha.ChangesResult;
 import org.hammock.sync.internal.mazha.CouchClient;
 import org.hammock.sync.internal.mazha.DocumentRevs;
-import org.hammock.sync.internal.util.CollectionUtils;
 import org.hammock.sync.internal.util.JSONUtils;
 import org.hammock.sync.internal.util.Misc;
 import org.hammock.sync.replication.DatabaseNotFoundException;
@@ -38,17 +37,26 @@ import org.hammock.sync.replication.PullFilter;
 import org.apache.commons.codec.binary.Hex;
 
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -78,6 +86,14 @@ public class PullStrategy implements ReplicationStrategy {
 
     private static final String LOG_TAG = "PullStrategy";
 
+    // the time adaptive sizing aims for to download and insert one batch, and to process one
+    // page of changes, which is also the most work lost if the replication is interrupted
+    static final long INSERT_BATCH_TARGET_MILLIS = 2000;
+    static final long CHANGES_PAGE_TARGET_MILLIS = 20000;
+
+    // how often a continuous replication checkpoints while changes keep arriving
+    static final long CONTINUOUS_CHECKPOINT_INTERVAL_MILLIS = 10000;
+
     CouchDB sourceDb;
 
     PullFilter filter;
@@ -86,6 +102,10 @@ public class PullStrategy implements ReplicationStrategy {
 
     DatastoreWrapper targetDb;
 
+    private final CouchClient couchClient;
+
+    private final ThrottledResponseCounter throttledResponses = new ThrottledResponseCounter();
+
     private final String name;
 
     private final EventBus eventBus = new EventBus();
@@ -99,6 +119,58 @@ public class PullStrategy implements ReplicationStrategy {
 
     public boolean pullAttachmentsInline = false;
 
+    /**
+     * Number of {@link #insertBatchSize} batches which may be downloaded ahead of the batch
+     * being inserted. With a value of 0 each batch is downloaded and then inserted before the
+     * next one is requested; higher values download batches while earlier ones are inserted,
+     * and the next page of changes is read while the current one is processed.
+     */
+    public int prefetchBatches = 0;
+
+    /**
+     * When set, the replication does not complete once it has caught up with the source
+     * database. Instead it waits for further changes with longpoll {@code _changes} requests,
+     * replicating them as they arrive, until it is cancelled. Checkpoints are written at most
+     * every {@link #CONTINUOUS_CHECKPOINT_INTERVAL_MILLIS} milliseconds and when the
+     * replication stops.
+     */
+    public boolean continuous = false;
+
+    /**
+     * Interval in milliseconds at which the source database sends a heartbeat while a
+     * continuous replication waits for changes, which keeps the idle connection from being
+     * closed by proxies or read timeouts.
+     */
+    public long heartbeat = 30000;
+
+    // when set, these replace changeLimitPerBatch and insertBatchSize
+    AdaptiveBatchSize changeLimitSizer = null;
+    AdaptiveBatchSize insertBatchSizer = null;
+
+    /**
+     * Sets whether request bodies sent to the remote database are gzip compressed and whether
+     * its JSON responses may be gzip compressed.
+     *
+     * @param gzipRequests whether to gzip compress {@code _bulk_docs}, {@code _bulk_get} and
+     *                     {@code _revs_diff} request bodies
+     * @param acceptGzip   whether to accept gzip compressed JSON responses
+     */
+    public void setCompression(boolean gzipRequests, boolean acceptGzip) {
+        couchClient.setGzipRequests(gzipRequests);
+        couchClient.setAcceptGzip(acceptGzip);
+    }
+
+    /**
+     * Sets the permits, shared with other replications, which limit the number of requests
+     * to remote databases waiting for a response at once.
+     *
+     * @param requestPermits the permits to acquire for each request, or {@code null} for no
+     *                       limit
+     */
+    public void setRequestPermits(Semaphore requestPermits) {
+        couchClient.setRequestPermits(requestPermits);
+    }
+
     public PullStrategy(URI source,
                         Database target,
                         PullFilter filter,
@@ -112,8 +184,14 @@ public class PullStrategy implements ReplicationStrategy {
         if (docIds != null && !docIds.isEmpty()) {
             Collections.sort(docIds);
         }
-        this.sourceDb = new CouchClientWrapper(new CouchClient(source, requestInterceptors,
-                responseInterceptors));
+        List<HttpConnectionResponseInterceptor> interceptors = new
+                ArrayList<HttpConnectionResponseInterceptor>();
+        if (responseInterceptors != null) {
+            interceptors.addAll(responseInterceptors);
+        }
+        interceptors.add(throttledResponses);
+        this.couchClient = new CouchClient(source, requestInterceptors, interceptors);
+        this.sourceDb = new CouchClientWrapper(couchClient);
         this.targetDb = new DatastoreWrapper((DatabaseImpl) target);
         String replicatorName;
         if (filter != null) {
@@ -131,6 +209,39 @@ public class PullStrategy implements ReplicationStrategy {
         this.name = String.format("%s [%s]", LOG_TAG, replicatorName);
     }
 
+    /**
+     * Adapts the number of changes fetched per page, starting from {@link #changeLimitPerBatch},
+     * to the time taken to process each page.
+     *
+     * @param min smallest number of changes per page
+     * @param max largest number of changes per page
+     */
+    public void adaptChangeLimit(int min, int max) {
+        this.changeLimitSizer = new AdaptiveBatchSize(changeLimitPerBatch, min, max,
+                CHANGES_PAGE_TARGET_MILLIS, 0);
+    }
+
+    /**
+     * Adapts the number of documents downloaded and inserted per batch, starting from
+     * {@link #insertBatchSize}, to the time taken to download and insert each batch and to any
+     * throttling by the server.
+     *
+     * @param min smallest number of documents per batch
+     * @param max largest number of documents per batch
+     */
+    public void adaptInsertBatchSize(int min, int max) {
+        this.insertBatchSizer = new AdaptiveBatchSize(insertBatchSize, min, max,
+                INSERT_BATCH_TARGET_MILLIS, 0);
+    }
+
+    private int changeLimit() {
+        return (changeLimitSizer != null) ? changeLimitSizer.get() : changeLimitPerBatch;
+    }
+
+    private int insertBatchSize() {
+        return (insertBatchSizer != null) ? insertBatchSizer.get() : insertBatchSize;
+    }
+
     @Override
     public boolean isReplicationTerminated() {
         if (this.state != null) {
@@ -147,6 +258,10 @@ public class PullStrategy implements ReplicationStrategy {
             this.state = new State();
         }
         this.state.cancel = true;
+        if (this.continuous) {
+            // don't wait for the next change to notice we've been cancelled
+            this.sourceDb.abortChangesLongpoll();
+        }
     }
 
     @Override
@@ -237,77 +352,192 @@ public class PullStrategy implements ReplicationStrategy {
 
         this.state.documentCounter = 0;
 
-        while (!this.state.cancel) {
-            this.state.batchCounter++;
-            final Object lastKnownCheckpoint = this.targetDb.getCheckpoint(this.getReplicationId());
-            String msg = String.format(
-                    "Batch %s started (completed %s changes so far)",
-                    this.state.batchCounter,
+        ExecutorService changesExecutor = null;
+        ExecutorService downloadExecutor = null;
+        if (this.prefetchBatches > 0) {
+            // a single download thread keeps batches in feed order; the bulk get tasks
+            // already parallelise the requests within a batch
+            changesExecutor = Executors.newSingleThreadExecutor();
+            downloadExecutor = Executors.newSingleThreadExecutor();
+        }
+        try {
+            replicateBatches(changesExecutor, downloadExecutor);
+        } finally {
+            if (changesExecutor != null) {
+                changesExecutor.shutdownNow();
+                downloadExecutor.shutdownNow();
+            }
+        }
+
+        long endTime = System.currentTimeMillis();
+        long deltaTime = endTime - startTime;
+        String msg;
+        if (this.state.cancel) {
+            msg = String.format(Locale.ENGLISH,
+                    "Pull canceled after %sms (%s changes processed)",
+                    deltaTime,
+                    this.state.documentCounter);
+        } else {
+            msg = String.format(Locale.ENGLISH,
+                    "Pull completed in %sms (%s total changes processed)",
+                    deltaTime,
                     this.state.documentCounter
             );
-            logger.info(msg);
-            long batchStartTime = System.currentTimeMillis();
+        }
+        logger.info(msg);
+
+    }
 
-            ChangesResultWrapper changeFeeds = this.nextBatch(lastKnownCheckpoint);
+    /**
+     * Pulls pages of changes until a short page is read or the replication is cancelled. A
+     * continuous replication carries on after a short page, waiting for further changes.
+     *
+     * @param changesExecutor executor to read the next page of changes ahead on, or {@code null}
+     *                        to read each page when it is needed
+     * @param downloadExecutor executor to download batches ahead on, or {@code null} to
+     *                         download each batch on the calling thread
+     */
+    private void replicateBatches(ExecutorService changesExecutor,
+                                  ExecutorService downloadExecutor)
+            throws ExecutionException, InterruptedException, DocumentException,
+            DocumentStoreException {
+        // the replication ID and checkpoint are read once, and progress is then tracked here
+        final String replicationId = this.getReplicationId();
+        Object since = this.targetDb.getCheckpoint(replicationId);
+        Object checkpointed = since;
+        long checkpointTime = System.currentTimeMillis();
+        boolean caughtUp = false;
+
+        Future<ChangesResultWrapper> nextChangeFeeds = null;
+        int nextChangeLimit = 0;
+        while (!this.state.cancel) {
+            String msg;
+            long batchStartTime = System.currentTimeMillis();
+            int throttledBefore = throttledResponses.get();
+
+            // the limit the page was read with, which tells us whether it was the last page
+            final int changeLimit;
+            final ChangesResultWrapper changeFeeds;
+            if (nextChangeFeeds != null) {
+                changeLimit = nextChangeLimit;
+                changeFeeds = nextChangeFeeds.get();
+            } else if (caughtUp) {
+                changeLimit = changeLimit();
+                // with a checkpoint pending, only wait until it is due
+                boolean checkpointPending = since != null && !since.equals(checkpointed);
+                long wait = Math.max(1, checkpointTime + CONTINUOUS_CHECKPOINT_INTERVAL_MILLIS
+                        - batchStartTime);
+                ChangesResult live = this.sourceDb.changesLongpoll(filter, selector, docIds,
+                        since, changeLimit, checkpointPending ? 0 : heartbeat, wait);
+                if (live == null) {
+                    // aborted, most likely because we were cancelled
+                    continue;
+                }
+                changeFeeds = new ChangesResultWrapper(live);
+            } else {
+                changeLimit = changeLimit();
+                changeFeeds = this.nextBatch(since, changeLimit);
+            }
             int batchChangesProcessed = 0;
 
-            // So we can check whether all changes were processed during
-            // a log analysis.
-            msg = String.format(
-                    "Batch %s contains %s changes",
-                    this.state.batchCounter,
-                    changeFeeds.size()
-            );
-            logger.info(msg);
+            if (changeFeeds.size() > 0 || !caughtUp) {
+                this.state.batchCounter++;
+                msg = String.format(
+                        "Batch %s started (completed %s changes so far)",
+                        this.state.batchCounter,
+                        this.state.documentCounter
+                );
+                logger.info(msg);
+            }
+
+            // Read the following page while this one is processed. It starts from this page's
+            // last sequence, which is what we checkpoint once this page has been inserted.
+            nextChangeFeeds = null;
+            if (changesExecutor != null && changeFeeds.size() >= changeLimit) {
+                nextChangeLimit = changeLimit();
+                final int limit = nextChangeLimit;
+                nextChangeFeeds = changesExecutor.submit(new Callable<ChangesResultWrapper>() {
+                    @Override
+                    public ChangesResultWrapper call() throws Exception {
+                        return nextBatch(changeFeeds.getLastSeq(), limit);
+                    }
+                });
+            }
 
             if (changeFeeds.size() > 0) {
-                batchChangesProcessed = processOneChangesBatch(changeFeeds);
+                // So we can check whether all changes were processed during
+                // a log analysis.
+                msg = String.format(
+                        "Batch %s contains %s changes",
+                        this.state.batchCounter,
+                        changeFeeds.size()
+                );
+                logger.info(msg);
+
+                batchChangesProcessed = processOneChangesBatch(changeFeeds, downloadExecutor);
                 state.documentCounter += batchChangesProcessed;
             }
 
-            if (!this.state.cancel && (lastKnownCheckpoint == null || !lastKnownCheckpoint.equals(changeFeeds.getLastSeq()))) {
-                try {
-                    this.targetDb.putCheckpoint(this.getReplicationId(), changeFeeds.getLastSeq());
-                } catch (DocumentStoreException e) {
-                    logger.log(Level.WARNING, "Failed to put checkpoint doc, next replication " +
-                            "will " +
-                            "start from previous checkpoint", e);
+            if (this.state.cancel) {
+                // the page may only have been partly inserted, so don't move past it
+                break;
+            }
+            since = changeFeeds.getLastSeq();
+
+            long now = System.currentTimeMillis();
+            if (since != null && !since.equals(checkpointed) && (!this.continuous ||
+                    now - checkpointTime >= CONTINUOUS_CHECKPOINT_INTERVAL_MILLIS)) {
+                if (putCheckpoint(replicationId, since)) {
+                    checkpointed = since;
+                    checkpointTime = now;
                 }
             }
 
-            long batchEndTime = System.currentTimeMillis();
-            msg = String.format(
-                    "Batch %s completed in %sms (batch was %s changes)",
-                    this.state.batchCounter,
-                    batchEndTime - batchStartTime,
-                    batchChangesProcessed
-            );
-            logger.info(msg);
+            if (changeFeeds.size() > 0 || !caughtUp) {
+                long batchEndTime = System.currentTimeMillis();
+                msg = String.format(
+                        "Batch %s completed in %sms (batch was %s changes)",
+                        this.state.batchCounter,
+                        batchEndTime - batchStartTime,
+                        batchChangesProcessed
+                );
+                logger.info(msg);
+
+                if (changeLimitSizer != null && !caughtUp) {
+                    changeLimitSizer.record(changeFeeds.size(), batchEndTime - batchStartTime,
+                            -1, throttledResponses.get() != throttledBefore);
+                }
+            }
 
             // This logic depends on the changes in the feed rather than the
             // changes we actually processed.
-            if (changeFeeds.size() < this.changeLimitPerBatch) {
+            caughtUp = changeFeeds.size() < changeLimit;
+            if (caughtUp && !this.continuous) {
                 break;
             }
         }
 
-        long endTime = System.currentTimeMillis();
-        long deltaTime = endTime - startTime;
-        String msg;
-        if (this.state.cancel) {
-            msg = String.format(Locale.ENGLISH,
-                    "Pull canceled after %sms (%s changes processed)",
-                    deltaTime,
-                    this.state.documentCounter);
-        } else {
-            msg = String.format(Locale.ENGLISH,
-                    "Pull completed in %sms (%s total changes processed)",
-                    deltaTime,
-                    this.state.documentCounter
-            );
+        // the pages up to since have been inserted, so a stopped continuous replication
+        // needn't repeat them
+        if (since != null && !since.equals(checkpointed)) {
+            putCheckpoint(replicationId, since);
         }
-        logger.info(msg);
+    }
 
+    /**
+     * Writes a checkpoint, logging rather than failing the replication if it can't be written.
+     *
+     * @return {@code true} if the checkpoint was written
+     */
+    private boolean putCheckpoint(String replicationId, Object since) {
+        try {
+            this.targetDb.putCheckpoint(replicationId, since);
+            return true;
+        } catch (DocumentException e) {
+            logger.log(Level.WARNING, "Failed to put checkpoint doc, next replication " +
+                    "will start from previous checkpoint", e);
+            return false;
+        }
     }
 
     public static class BatchItem {
@@ -322,7 +552,26 @@ public class PullStrategy implements ReplicationStrategy {
         public DocumentRevsList revsList;
     }
 
-    private int processOneChangesBatch(ChangesResultWrapper changeFeeds)
+    /**
+     * A downloaded batch, with the measurements needed to adapt the batch size.
+     */
+    private static class DownloadedBatch {
+
+        final int size;
+        final List<BatchItem> items;
+        final long millis;
+        final boolean throttled;
+
+        DownloadedBatch(int size, List<BatchItem> items, long millis, boolean throttled) {
+            this.size = size;
+            this.items = items;
+            this.millis = millis;
+            this.throttled = throttled;
+        }
+    }
+
+    private int processOneChangesBatch(ChangesResultWrapper changeFeeds,
+                                       ExecutorService downloadExecutor)
             throws ExecutionException, InterruptedException, DocumentException,
             DocumentStoreException {
         String feed = String.format(
@@ -333,120 +582,221 @@ public class PullStrategy implements ReplicationStrategy {
         logger.info(feed);
 
         Map<String, List<String>> openRevs = changeFeeds.openRevisions(0, changeFeeds.size());
-        Map<String, List<String>> missingRevisions = this.targetDb.getDbCore().revsDiff
+        final Map<String, List<String>> missingRevisions = this.targetDb.getDbCore().revsDiff
                 (openRevs);
 
         int changesProcessed = 0;
 
-        // Process the changes in batches
+        // Process the changes in batches, each one taking the batch size current when it
+        // starts
         List<String> ids = new ArrayList<String>(missingRevisions.keySet());
-        List<List<String>> batches = CollectionUtils.partition(ids, this.insertBatchSize);
 
+        if (downloadExecutor != null) {
+            return processBatchesPipelined(ids, missingRevisions, downloadExecutor);
+        }
 
-        for (List<String> batch : batches) {
-
-            List<BatchItem> batchesToInsert = new ArrayList<BatchItem>();
+        int next = 0;
+        while (next < ids.size()) {
 
             if (this.state.cancel) {
                 break;
             }
 
+            List<String> batch = ids.subList(next, Math.min(ids.size(), next +
+                    insertBatchSize()));
+            next += batch.size();
             try {
-                Iterable<DocumentRevsList> result = createTask(batch, missingRevisions);
+                DownloadedBatch downloaded = downloadBatchMeasured(batch, missingRevisions);
+                long insertStartTime = System.currentTimeMillis();
+                this.targetDb.bulkInsert(downloaded.items, this.pullAttachmentsInline);
+                changesProcessed += downloaded.items.size();
+                recordInsertBatch(downloaded, System.currentTimeMillis() - insertStartTime);
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
 
-                for (DocumentRevsList revsList : result) {
-                    // We promise not to insert documents after cancel is set
-                    if (this.state.cancel) {
-                        break;
-                    }
+        return changesProcessed;
+    }
 
-                    // attachments, keyed by docId and revId, so that
-                    // we can add the attachments to the correct leaf
-                    // nodes
-                    HashMap<String[], Map<String, PreparedAttachment>> atts = new HashMap<String[],
-                            Map<String, PreparedAttachment>>();
-
-                    // now put together a list of attachments we need to download
-                    if (!this.pullAttachmentsInline) {
-                        try {
-                            for (DocumentRevs documentRevs : revsList) {
-                                Map<String, Object> attachments = documentRevs.getAttachments();
-                                // keep track of attachments we are going to prepare
-                                Map<String, PreparedAttachment> preparedAtts = new
-                                        HashMap<String, PreparedAttachment>();
-                                atts.put(new String[]{documentRevs.getId(), documentRevs.getRev()
-                                }, preparedAtts);
-
-                                for (Map.Entry<String, Object> entry : attachments.entrySet()) {
-                                    String attachmentName = entry.getKey();
-                                    Map attachmentMetadata = (Map) entry.getValue();
-                                    int revpos = (Integer) attachmentMetadata.get("revpos");
-                                    String contentType = (String) attachmentMetadata.get
-                                            ("content_type");
-                                    String encoding = (String) attachmentMetadata.get("encoding");
-                                    long length = (Integer) attachmentMetadata.get("length");
-                                    long encodedLength = 0; // encodedLength can default to 0 if
-                                    // it's not encoded
-                                    if (Attachment.getEncodingFromString(encoding) != Attachment
-                                            .Encoding.Plain) {
-                                        encodedLength = (Integer) attachmentMetadata.get
-                                                ("encoded_length");
-                                    }
+    /**
+     * As the sequential part of {@link #processOneChangesBatch(ChangesResultWrapper,
+     * ExecutorService)}, but with up to {@link #prefetchBatches} batches downloaded ahead of the
+     * one being inserted. Batches are still inserted in order, so when a batch fails every batch
+     * before it has been inserted and none after it.
+     */
+    private int processBatchesPipelined(List<String> ids,
+                                        final Map<String, List<String>> missingRevisions,
+                                        ExecutorService downloadExecutor)
+            throws ExecutionException, InterruptedException {
+        int changesProcessed = 0;
+        int next = 0;
+        Deque<Future<DownloadedBatch>> downloads = new ArrayDeque<Future<DownloadedBatch>>();
+        try {
+            while (!this.state.cancel) {
+                // keep the download queue topped up; its bound is the backpressure on the
+                // network side when inserting is the slower stage
+                while (downloads.size() <= this.prefetchBatches && next < ids.size()) {
+                    final List<String> batch = ids.subList(next, Math.min(ids.size(), next +
+                            insertBatchSize()));
+                    next += batch.size();
+                    downloads.add(downloadExecutor.submit(new Callable<DownloadedBatch>() {
+                        @Override
+                        public DownloadedBatch call() throws Exception {
+                            return downloadBatchMeasured(batch, missingRevisions);
+                        }
+                    }));
+                }
+                Future<DownloadedBatch> download = downloads.poll();
+                if (download == null) {
+                    break;
+                }
+                DownloadedBatch downloaded = download.get();
+                long insertStartTime = System.currentTimeMillis();
+                try {
+                    this.targetDb.bulkInsert(downloaded.items, this.pullAttachmentsInline);
+                } catch (Exception e) {
+                    throw new ExecutionException(e);
+                }
+                changesProcessed += downloaded.items.size();
+                recordInsertBatch(downloaded, System.currentTimeMillis() - insertStartTime);
+            }
+        } finally {
+            for (Future<DownloadedBatch> download : downloads) {
+                download.cancel(true);
+            }
+        }
+        return changesProcessed;
+    }
+
+    /**
+     * As {@link #downloadBatch(List, Map)}, also measuring the download.
+     */
+    private DownloadedBatch downloadBatchMeasured(List<String> batch,
+                                                  Map<String, List<String>> missingRevisions)
+            throws DocumentStoreException {
+        long startTime = System.currentTimeMillis();
+        int throttledBefore = throttledResponses.get();
+        List<BatchItem> items = downloadBatch(batch, missingRevisions);
+        return new DownloadedBatch(batch.size(), items, System.currentTimeMillis() - startTime,
+                throttledResponses.get() != throttledBefore);
+    }
+
+    private void recordInsertBatch(DownloadedBatch downloaded, long insertMillis) {
+        if (insertBatchSizer != null) {
+            insertBatchSizer.record(downloaded.size, downloaded.millis + insertMillis, -1,
+                    downloaded.throttled);
+        }
+    }
+
+    /**
+     * Downloads the missing revisions of the documents in {@code batch}, along with any of their
+     * attachments which we don't already have, ready to be inserted.
+     */
+    private List<BatchItem> downloadBatch(List<String> batch,
+                                          Map<String, List<String>> missingRevisions)
+            throws DocumentStoreException {
+        List<BatchItem> batchesToInsert = new ArrayList<BatchItem>();
 
-                                    // do we already have the attachment @ this revpos?
-                                    // look back up the tree for this document and see:
-                                    // if we already have it, then we don't need to fetch it
-                                    DocumentRevs.Revisions revs = documentRevs.getRevisions();
-                                    int offset = revs.getStart() - revpos;
-                                    if (offset >= 0 && offset < revs.getIds().size()) {
-                                        String revId = String.valueOf(revpos) + "-" + revs.getIds
-                                                ().get(offset);
-
-                                        Attachment a = this.targetDb.getDbCore()
-                                                .getAttachment(documentRevs.getId(), revId,
-                                                        attachmentName);
-                                        if (a != null) {
-                                            // skip attachment, already got it
-                                            continue;
-                                        }
+        Iterator<DocumentRevsList> result = createTask(batch, missingRevisions).iterator();
+        try {
+            while (result.hasNext()) {
+                DocumentRevsList revsList = result.next();
+                // We promise not to insert documents after cancel is set
+                if (this.state.cancel) {
+                    break;
+                }
 
+                // attachments, keyed by docId and revId, so that
+                // we can add the attachments to the correct leaf
+                // nodes
+                HashMap<String[], Map<String, PreparedAttachment>> atts = new HashMap<String[],
+                        Map<String, PreparedAttachment>>();
+
+                // now put together a list of attachments we need to download
+                if (!this.pullAttachmentsInline) {
+                    try {
+                        for (DocumentRevs documentRevs : revsList) {
+                            Map<String, Object> attachments = documentRevs.getAttachments();
+                            // keep track of attachments we are going to prepare
+                            Map<String, PreparedAttachment> preparedAtts = new
+                                    HashMap<String, PreparedAttachment>();
+                            atts.put(new String[]{documentRevs.getId(), documentRevs.getRev()
+                            }, preparedAtts);
+
+                            for (Map.Entry<String, Object> entry : attachments.entrySet()) {
+                                String attachmentName = entry.getKey();
+                                Map attachmentMetadata = (Map) entry.getValue();
+                                int revpos = (Integer) attachmentMetadata.get("revpos");
+                                String contentType = (String) attachmentMetadata.get
+                                        ("content_type");
+                                String encoding = (String) attachmentMetadata.get("encoding");
+                                long length = (Integer) attachmentMetadata.get("length");
+                                long encodedLength = 0; // encodedLength can default to 0 if
+                                // it's not encoded
+                                if (Attachment.getEncodingFromString(encoding) != Attachment
+                                        .Encoding.Plain) {
+                                    encodedLength = (Integer) attachmentMetadata.get
+                                            ("encoded_length");
+                                }
+
+                                // do we already have the attachment @ this revpos?
+                                // look back up the tree for this document and see:
+                                // if we already have it, then we don't need to fetch it
+                                DocumentRevs.Revisions revs = documentRevs.getRevisions();
+                                int offset = revs.getStart() - revpos;
+                                if (offset >= 0 && offset < revs.getIds().size()) {
+                                    String revId = String.valueOf(revpos) + "-" + revs.getIds
+                                            ().get(offset);
+
+                                    Attachment a = this.targetDb.getDbCore()
+                                            .getAttachment(documentRevs.getId(), revId,
+                                                    attachmentName);
+                                    if (a != null) {
+                                        // skip attachment, already got it
+                                        continue;
                                     }
 
-                                    // by preparing the attachment here, it is downloaded outside
-                                    // of the database transaction
-                                    preparedAtts.put(attachmentName, this.sourceDb
-                                            .pullAttachmentWithRetry
-                                                    (documentRevs.getId(), documentRevs.getRev(),
-                                                            entry
-                                                            .getKey(), new
-                                                                    AttachmentPullProcessor(this
-                                                            .targetDb, entry.getKey(), contentType,
-                                                            encoding, length, encodedLength)));
                                 }
+
+                                // by preparing the attachment here, it is downloaded outside
+                                // of the database transaction
+                                preparedAtts.put(attachmentName, this.sourceDb
+                                        .pullAttachmentWithRetry
+                                                (documentRevs.getId(), documentRevs.getRev(),
+                                                        entry
+                                                        .getKey(), new
+                                                                AttachmentPullProcessor(this
+                                                        .targetDb, entry.getKey(), contentType,
+                                                        encoding, length, encodedLength)));
                             }
-                        } catch (Exception e) {
-                            logger.log(Level.SEVERE,
-                                    "There was a problem downloading an attachment to the" +
-                                            " datastore, terminating replication",
-                                    e);
-                            this.state.cancel = true;
                         }
+                    } catch (Exception e) {
+                        logger.log(Level.SEVERE,
+                                "There was a problem downloading an attachment to the" +
+                                        " datastore, terminating replication",
+                                e);
+                        this.state.cancel = true;
                     }
+                }
 
-                    if (this.state.cancel) {
-                        break;
-                    }
+                if (this.state.cancel) {
+                    break;
+                }
 
-                    batchesToInsert.add(new BatchItem(revsList, atts));
-                    changesProcessed++;
+                batchesToInsert.add(new BatchItem(revsList, atts));
+            }
+        } finally {
+            // a bulk get response which we stopped reading early must still be released
+            if (result instanceof Closeable) {
+                try {
+                    ((Closeable) result).close();
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Failed to close revisions response", e);
                 }
-                this.targetDb.bulkInsert(batchesToInsert, this.pullAttachmentsInline);
-            } catch (Exception e) {
-                throw new ExecutionException(e);
             }
         }
-
-        return changesProcessed;
+        return batchesToInsert;
     }
 
     public String getReplicationId() throws DocumentStoreException {
@@ -472,7 +822,7 @@ public class PullStrategy implements ReplicationStrategy {
         }
     }
 
-    private ChangesResultWrapper nextBatch(final Object lastCheckpoint) {
+    private ChangesResultWrapper nextBatch(final Object lastCheckpoint, int changeLimit) {
         logger.fine("last checkpoint " + lastCheckpoint);
 
         ChangesResult changeFeeds = null;
@@ -480,17 +830,17 @@ public class PullStrategy implements ReplicationStrategy {
             changeFeeds = this.sourceDb.changes(
                     this.selector,
                     lastCheckpoint,
-                    this.changeLimitPerBatch);
+                    changeLimit);
         } else if (this.docIds != null && !this.docIds.isEmpty()) {
             changeFeeds = this.sourceDb.changes(
                     this.docIds,
                     lastCheckpoint,
-                    this.changeLimitPerBatch);
+                    changeLimit);
         } else {
             changeFeeds = this.sourceDb.changes(
                     this.filter,
                     lastCheckpoint,
-                    this.changeLimitPerBatch);
+                    changeLimit);
         }
         logger.finer("changes feed: " + JSONUtils.toPrettyJson(changeFeeds));
         return new ChangesResultWrapper(changeFeeds);
@@ -48,8 +48,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -78,10 +87,21 @@ public class PushStrategy implements ReplicationStrategy {
 
     private static final Logger logger = Logger.getLogger(PushStrategy.class.getCanonicalName());
 
+    // the time and _bulk_docs payload size adaptive sizing aims for to push one batch, and the
+    // time to process one page of changes, which is also the most work lost if the replication
+    // is interrupted
+    static final long BULK_INSERT_TARGET_MILLIS = 2000;
+    static final long BULK_INSERT_TARGET_BYTES = 1024 * 1024;
+    static final long CHANGES_PAGE_TARGET_MILLIS = 20000;
+
     CouchDB targetDb;
 
     DatastoreWrapper sourceDb;
 
+    private final CouchClient couchClient;
+
+    private final ThrottledResponseCounter throttledResponses = new ThrottledResponseCounter();
+
     private final String name;
 
     public final EventBus eventBus = new EventBus();
@@ -90,20 +110,96 @@ public class PushStrategy implements ReplicationStrategy {
 
     public int bulkInsertSize = 10;
 
+    /**
+     * Number of {@link #bulkInsertSize} batches which may be in flight at once. With a value of
+     * 1 batches are pushed one after the other; higher values overlap reading, {@code _revs_diff}
+     * and {@code _bulk_docs} requests of different batches, and the next page of changes is read
+     * while the current one is being pushed.
+     */
+    public int concurrentBatches = 1;
+
     public PushFilter filter = null;
 
     public PushAttachmentsInline pushAttachmentsInline = PushAttachmentsInline.Small;
 
+    // when set, these replace changeLimitPerBatch and bulkInsertSize
+    AdaptiveBatchSize changeLimitSizer = null;
+    AdaptiveBatchSize bulkInsertSizer = null;
+
+    /**
+     * Sets whether request bodies sent to the remote database are gzip compressed and whether
+     * its JSON responses may be gzip compressed.
+     *
+     * @param gzipRequests whether to gzip compress {@code _bulk_docs}, {@code _bulk_get} and
+     *                     {@code _revs_diff} request bodies
+     * @param acceptGzip   whether to accept gzip compressed JSON responses
+     */
+    public void setCompression(boolean gzipRequests, boolean acceptGzip) {
+        couchClient.setGzipRequests(gzipRequests);
+        couchClient.setAcceptGzip(acceptGzip);
+    }
+
+    /**
+     * Sets the permits, shared with other replications, which limit the number of requests
+     * to remote databases waiting for a response at once.
+     *
+     * @param requestPermits the permits to acquire for each request, or {@code null} for no
+     *                       limit
+     */
+    public void setRequestPermits(Semaphore requestPermits) {
+        couchClient.setRequestPermits(requestPermits);
+    }
+
     public PushStrategy(Database source,
                         URI target,
                         List<HttpConnectionRequestInterceptor> requestInterceptors,
                         List<HttpConnectionResponseInterceptor> responseInterceptors) {
         this.sourceDb = new DatastoreWrapper((DatabaseImpl) source);
-        this.targetDb = new CouchClientWrapper(new CouchClient(target, requestInterceptors, responseInterceptors));
+        List<HttpConnectionResponseInterceptor> interceptors = new
+                ArrayList<HttpConnectionResponseInterceptor>();
+        if (responseInterceptors != null) {
+            interceptors.addAll(responseInterceptors);
+        }
+        interceptors.add(throttledResponses);
+        this.couchClient = new CouchClient(target, requestInterceptors, interceptors);
+        this.targetDb = new CouchClientWrapper(couchClient);
         String replicatorName = String.format("%s <-- %s ", target, source.getPath());
         this.name = String.format("%s [%s]", LOG_TAG, replicatorName);
     }
 
+    /**
+     * Adapts the number of local changes read per page, starting from
+     * {@link #changeLimitPerBatch}, to the time taken to push each page.
+     *
+     * @param min smallest number of changes per page
+     * @param max largest number of changes per page
+     */
+    public void adaptChangeLimit(int min, int max) {
+        this.changeLimitSizer = new AdaptiveBatchSize(changeLimitPerBatch, min, max,
+                CHANGES_PAGE_TARGET_MILLIS, 0);
+    }
+
+    /**
+     * Adapts the number of documents pushed per batch, starting from {@link #bulkInsertSize},
+     * to the time taken to push each batch, the size of its {@code _bulk_docs} and attachment
+     * payloads and to any throttling by the server.
+     *
+     * @param min smallest number of documents per batch
+     * @param max largest number of documents per batch
+     */
+    public void adaptBulkInsertSize(int min, int max) {
+        this.bulkInsertSizer = new AdaptiveBatchSize(bulkInsertSize, min, max,
+                BULK_INSERT_TARGET_MILLIS, BULK_INSERT_TARGET_BYTES);
+    }
+
+    private int changeLimit() {
+        return (changeLimitSizer != null) ? changeLimitSizer.get() : changeLimitPerBatch;
+    }
+
+    private int bulkInsertSize() {
+        return (bulkInsertSizer != null) ? bulkInsertSizer.get() : bulkInsertSize;
+    }
+
     @Override
     public boolean isReplicationTerminated() {
         if (state != null) {
@@ -204,6 +300,52 @@ public class PushStrategy implements ReplicationStrategy {
         }
 
         this.state.documentCounter = 0;
+
+        ThreadPoolExecutor executor = null;
+        if (this.concurrentBatches > 1) {
+            // one extra thread so reading the next page of changes is not queued behind batches
+            executor = new ThreadPoolExecutor(this.concurrentBatches + 1,
+                    this.concurrentBatches + 1, 1, TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<Runnable>());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        try {
+            replicateBatches(executor);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        long endTime = System.currentTimeMillis();
+        long deltaTime = endTime - startTime;
+        String msg;
+        if (this.state.cancel) {
+            msg = String.format(Locale.ENGLISH,
+                            "Push canceled after %sms (%s changes processed)",
+                            deltaTime,
+                            this.state.documentCounter
+                    );
+        } else {
+            msg = String.format(Locale.ENGLISH,
+                    "Push completed in %sms (%s total changes processed)",
+                    deltaTime,
+                    this.state.documentCounter
+            );
+        }
+        logger.info(msg);
+    }
+
+    /**
+     * Pushes pages of changes until an empty page is read or the replication is cancelled.
+     *
+     * @param executor executor for concurrent batches and reading ahead, or {@code null} to
+     *                 process everything on the calling thread
+     */
+    private void replicateBatches(ExecutorService executor)
+            throws InterruptedException, ExecutionException, AttachmentException,
+            DocumentStoreException {
+        Future<Changes> nextChanges = null;
         while (!this.state.cancel) {
             this.state.batchCounter++;
 
@@ -215,12 +357,25 @@ public class PushStrategy implements ReplicationStrategy {
             );
             logger.info(msg);
             long batchStartTime = System.currentTimeMillis();
+            int throttledBefore = throttledResponses.get();
 
             // Get the next batch of changes and record the size and last sequence
-            Changes changes = getNextBatch();
+            Changes changes = (nextChanges == null) ? getNextBatch() : nextChanges.get();
             final int unfilteredChangesSize = changes.getResults().size();
             final long lastSeq = changes.getLastSequence();
 
+            // Read the following page while this one is pushed; we'll checkpoint this page
+            // before using it so the sequence it starts from is the one we would have read back
+            if (executor != null && unfilteredChangesSize > 0) {
+                final int changeLimit = changeLimit();
+                nextChanges = executor.submit(new Callable<Changes>() {
+                    @Override
+                    public Changes call() throws Exception {
+                        return sourceDb.getDbCore().changes(lastSeq, changeLimit);
+                    }
+                });
+            }
+
             // Count the number of changes processed
             int changesProcessed = 0;
 
@@ -249,7 +404,11 @@ public class PushStrategy implements ReplicationStrategy {
             logger.info(msg);
 
             if (filteredChangesSize > 0) {
-                changesProcessed = processOneChangesBatch(changes);
+                if (executor != null) {
+                    changesProcessed = processOneChangesBatchConcurrently(changes, executor);
+                } else {
+                    changesProcessed = processOneChangesBatch(changes);
+                }
                 this.state.documentCounter += changesProcessed;
             }
 
@@ -273,36 +432,23 @@ public class PushStrategy implements ReplicationStrategy {
             );
             logger.info(msg);
 
+            if (changeLimitSizer != null) {
+                changeLimitSizer.record(unfilteredChangesSize, batchEndTime - batchStartTime, -1,
+                        throttledResponses.get() != throttledBefore);
+            }
+
             // This logic depends on the changes in the feed rather than the
             // changes we actually processed.
             if (unfilteredChangesSize == 0) {
                 break;
             }
         }
-
-        long endTime = System.currentTimeMillis();
-        long deltaTime = endTime - startTime;
-        String msg;
-        if (this.state.cancel) {
-            msg = String.format(Locale.ENGLISH,
-                            "Push canceled after %sms (%s changes processed)",
-                            deltaTime,
-                            this.state.documentCounter
-                    );
-        } else {
-            msg = String.format(Locale.ENGLISH,
-                    "Push completed in %sms (%s total changes processed)",
-                    deltaTime,
-                    this.state.documentCounter
-            );
-        }
-        logger.info(msg);
     }
 
     private Changes getNextBatch() throws ExecutionException, InterruptedException, DocumentStoreException {
         long lastPushSequence = getLastCheckpointSequence();
         logger.fine("Last push sequence from remote database: " + lastPushSequence);
-        return this.sourceDb.getDbCore().changes(lastPushSequence, this.changeLimitPerBatch);
+        return this.sourceDb.getDbCore().changes(lastPushSequence, changeLimit());
     }
 
     private static class FilteredChanges extends ChangesImpl {
@@ -331,33 +477,122 @@ public class PushStrategy implements ReplicationStrategy {
         int changesProcessed = 0;
 
         // Process the changes themselves in batches, where we post a batch
-        // at a time to the remote database's _bulk_docs endpoint.
-        List<? extends List<DocumentRevision>> batches = CollectionUtils.partition(
-                changes.getResults(),
-                this.bulkInsertSize
-        );
-        for (List<DocumentRevision> batch : batches) {
+        // at a time to the remote database's _bulk_docs endpoint. Each batch takes the batch
+        // size current when it starts.
+        List<DocumentRevision> results = changes.getResults();
+        int next = 0;
+        while (next < results.size()) {
 
             if (this.state.cancel) { break; }
 
-            Map<String, DocumentRevisionTree> allTrees = this.sourceDb.getDocumentTrees(batch);
-            Map<String, Set<String>> docOpenRevs = this.openRevisions(allTrees);
-            Map<String, CouchClient.MissingRevisions> docMissingRevs = this.targetDb.revsDiff(docOpenRevs);
+            List<DocumentRevision> batch = results.subList(next, Math.min(results.size(), next
+                    + bulkInsertSize()));
+            next += batch.size();
+            changesProcessed += pushBatch(batch);
+        }
+
+        return changesProcessed;
+    }
+
+    /**
+     * As {@link #processOneChangesBatch(Changes)}, but with up to {@link #concurrentBatches}
+     * batches in flight at once. Returns only when every batch has been pushed, so the caller
+     * can checkpoint the whole page. The page is split into batches of the batch size current
+     * when it starts.
+     */
+    private int processOneChangesBatchConcurrently(Changes changes, ExecutorService executor)
+            throws AttachmentException, DocumentStoreException, InterruptedException {
 
-            ItemsToPush itemsToPush = missingRevisionsToJsonDocs(allTrees, docMissingRevs);
-            List<String> serialisedMissingRevs = itemsToPush.serializedDocs;
-            List<MultipartAttachmentWriter> multiparts = itemsToPush.multiparts;
+        int changesProcessed = 0;
 
-            if (!this.state.cancel) {
-                this.targetDb.putMultiparts(multiparts);
-                this.targetDb.bulkCreateSerializedDocs(serialisedMissingRevs);
-                changesProcessed += docMissingRevs.size();
+        Queue<List<DocumentRevision>> batches = new ConcurrentLinkedQueue<List<DocumentRevision>>(
+                CollectionUtils.partition(changes.getResults(), bulkInsertSize()));
+        QueuingExecutorCompletionService<List<DocumentRevision>, Integer> completionService =
+                new QueuingExecutorCompletionService<List<DocumentRevision>, Integer>(executor,
+                        batches, this.concurrentBatches) {
+            @Override
+            public Integer executeRequest(List<DocumentRevision> batch) {
+                if (state.cancel) {
+                    return 0;
+                }
+                try {
+                    return pushBatch(batch);
+                } catch (AttachmentException e) {
+                    throw new BatchFailedException(e);
+                } catch (DocumentStoreException e) {
+                    throw new BatchFailedException(e);
+                }
+            }
+        };
+
+        while (completionService.hasRequestsOutstanding()) {
+            try {
+                changesProcessed += completionService.take().get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof BatchFailedException) {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof AttachmentException) {
+                    throw (AttachmentException) cause;
+                } else if (cause instanceof DocumentStoreException) {
+                    throw (DocumentStoreException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new DocumentStoreException(cause);
             }
         }
 
         return changesProcessed;
     }
 
+    /**
+     * Pushes the revisions of one batch of documents which the target is missing.
+     *
+     * @return the number of documents which had missing revisions
+     */
+    private int pushBatch(List<DocumentRevision> batch) throws AttachmentException,
+            DocumentStoreException {
+        long startTime = System.currentTimeMillis();
+        int throttledBefore = throttledResponses.get();
+        Map<String, DocumentRevisionTree> allTrees = this.sourceDb.getDocumentTrees(batch);
+        Map<String, Set<String>> docOpenRevs = this.openRevisions(allTrees);
+        Map<String, CouchClient.MissingRevisions> docMissingRevs = this.targetDb.revsDiff(docOpenRevs);
+
+        ItemsToPush itemsToPush = missingRevisionsToJsonDocs(allTrees, docMissingRevs);
+        List<String> serialisedMissingRevs = itemsToPush.serializedDocs;
+        List<MultipartAttachmentWriter> multiparts = itemsToPush.multiparts;
+
+        if (this.state.cancel) {
+            return 0;
+        }
+        this.targetDb.putMultiparts(multiparts);
+        this.targetDb.bulkCreateSerializedDocs(serialisedMissingRevs);
+
+        if (bulkInsertSizer != null) {
+            long bytes = 0;
+            for (String doc : serialisedMissingRevs) {
+                bytes += doc.length();
+            }
+            for (MultipartAttachmentWriter mpw : multiparts) {
+                bytes += mpw.getContentLength();
+            }
+            bulkInsertSizer.record(batch.size(), System.currentTimeMillis() - startTime, bytes,
+                    throttledResponses.get() != throttledBefore);
+        }
+        return docMissingRevs.size();
+    }
+
+    /**
+     * Carries a checked exception out of a concurrently pushed batch.
+     */
+    private static class BatchFailedException extends RuntimeException {
+        BatchFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+
     /**
      * Generate serialised JSON strings and/or MIME multipart/related writer objects for revisions
      * which are missing on the server
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.replication;
+
+import org.hammock.sync.internal.util.Misc;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Runs replications on a bounded pool of threads shared by every replicator built with
+ * the same {@link org.hammock.sync.replication.ReplicationScheduler}.</p>
+ *
+ * <p>When a thread becomes free the queued replication with the highest priority is started.
+ * Among replications of the same priority the remote databases take turns, so a database with
+ * many replications queued doesn't hold up the others.</p>
+ *
+ * <p>The executor also holds the permits which limit the number of HTTP requests its
+ * replications have in flight at once.</p>
+ *
+ * This class is not intended as API.
+ */
+public class ReplicationExecutor {
+
+    private static final Logger logger = Logger.getLogger(ReplicationExecutor.class
+            .getCanonicalName());
+
+    private static final AtomicInteger executorCount = new AtomicInteger();
+
+    private final int maxConcurrentReplications;
+    private final Semaphore requestPermits;
+    private final ThreadPoolExecutor threads;
+
+    // all guarded by this: the queued replications by descending priority, then by remote
+    // database in the order the databases take their turns
+    private final TreeMap<Integer, LinkedHashMap<String, ArrayDeque<ReplicationStrategy>>>
+            queued = new TreeMap<Integer, LinkedHashMap<String,
+            ArrayDeque<ReplicationStrategy>>>(Collections.<Integer>reverseOrder());
+    private int queuedCount = 0;
+    private int runningCount = 0;
+
+    /**
+     * @param maxConcurrentReplications maximum number of replications to run at once
+     * @param maxConcurrentRequests     maximum number of HTTP requests the replications may
+     *                                  have in flight at once
+     */
+    public ReplicationExecutor(int maxConcurrentReplications, int maxConcurrentRequests) {
+        Misc.checkArgument(maxConcurrentReplications > 0, "maxConcurrentReplications must be " +
+                "greater than 0");
+        Misc.checkArgument(maxConcurrentRequests > 0, "maxConcurrentRequests must be greater " +
+                "than 0");
+        this.maxConcurrentReplications = maxConcurrentReplications;
+        // fair, so a replication waiting for a permit isn't overtaken indefinitely
+        this.requestPermits = new Semaphore(maxConcurrentRequests, true);
+        final int executorId = executorCount.incrementAndGet();
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(maxConcurrentReplications,
+                maxConcurrentReplications, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, String.format(Locale.ENGLISH, "ReplicationScheduler-%d-%d",
+                        executorId, threadCount.incrementAndGet()));
+            }
+        });
+        // as with GetRevisionTaskThreaded, only keep threads while there are replications
+        tpe.allowCoreThreadTimeOut(true);
+        this.threads = tpe;
+    }
+
+    /**
+     * @return the permits to acquire for each HTTP request a replication makes
+     */
+    public Semaphore getRequestPermits() {
+        return requestPermits;
+    }
+
+    /**
+     * Queues {@code strategy} to run once a thread is free and it is its turn.
+     *
+     * @param strategy the replication to run
+     * @param priority the priority of the replication, higher priorities run first
+     */
+    synchronized void submit(ReplicationStrategy strategy, int priority) {
+        LinkedHashMap<String, ArrayDeque<ReplicationStrategy>> databases = queued.get(priority);
+        if (databases == null) {
+            databases = new LinkedHashMap<String, ArrayDeque<ReplicationStrategy>>();
+            queued.put(priority, databases);
+        }
+        ArrayDeque<ReplicationStrategy> strategies = databases.get(strategy.getRemote());
+        if (strategies == null) {
+            strategies = new ArrayDeque<ReplicationStrategy>();
+            databases.put(strategy.getRemote(), strategies);
+        }
+        strategies.add(strategy);
+        queuedCount++;
+        dispatch();
+    }
+
+    /**
+     * Removes {@code strategy} from the queue, if it hasn't been started yet.
+     *
+     * @param strategy the replication to remove
+     * @return true if the replication was queued, and now won't be run
+     */
+    synchronized boolean cancel(ReplicationStrategy strategy) {
+        Iterator<LinkedHashMap<String, ArrayDeque<ReplicationStrategy>>> priorities = queued
+                .values().iterator();
+        while (priorities.hasNext()) {
+            LinkedHashMap<String, ArrayDeque<ReplicationStrategy>> databases = priorities.next();
+            ArrayDeque<ReplicationStrategy> strategies = databases.get(strategy.getRemote());
+            if (strategies != null && strategies.remove(strategy)) {
+                if (strategies.isEmpty()) {
+                    databases.remove(strategy.getRemote());
+                    if (databases.isEmpty()) {
+                        priorities.remove();
+                    }
+                }
+                queuedCount--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of replications waiting for a thread
+     */
+    public synchronized int getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * @return the number of replications running
+     */
+    public synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    // must hold the lock
+    private void dispatch() {
+        while (runningCount < maxConcurrentReplications && queuedCount > 0) {
+            final ReplicationStrategy next = takeNext();
+            runningCount++;
+            threads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runReplication(next);
+                }
+            });
+        }
+    }
+
+    // must hold the lock
+    private ReplicationStrategy takeNext() {
+        Map.Entry<Integer, LinkedHashMap<String, ArrayDeque<ReplicationStrategy>>> highest =
+                queued.firstEntry();
+        LinkedHashMap<String, ArrayDeque<ReplicationStrategy>> databases = highest.getValue();
+        Map.Entry<String, ArrayDeque<ReplicationStrategy>> first = databases.entrySet()
+                .iterator().next();
+        ReplicationStrategy next = first.getValue().poll();
+        // the database has had its turn, so it goes to the back of the line
+        databases.remove(first.getKey());
+        if (!first.getValue().isEmpty()) {
+            databases.put(first.getKey(), first.getValue());
+        } else if (databases.isEmpty()) {
+            queued.remove(highest.getKey());
+        }
+        queuedCount--;
+        return next;
+    }
+
+    private void runReplication(ReplicationStrategy strategy) {
+        Thread thread = Thread.currentThread();
+        String threadName = thread.getName();
+        try {
+            thread.setName(String.format(Locale.ENGLISH, "Replicator: %s - %s",
+                    strategy.getClass().getSimpleName(), strategy.getRemote()));
+        } catch (SecurityException e) {
+            logger.log(Level.WARNING, "Could not rename replication scheduler thread", e);
+        }
+        try {
+            strategy.run();
+        } catch (RuntimeException e) {
+            // strategies report their own errors, don't let one take the thread down with it
+            logger.log(Level.SEVERE, "Replication ended with an unexpected exception", e);
+        } finally {
+            try {
+                thread.setName(threadName);
+            } catch (SecurityException e) {
+                logger.log(Level.WARNING, "Could not rename replication scheduler thread", e);
+            }
+            synchronized (this) {
+                runningCount--;
+                dispatch();
+            }
+        }
+    }
+}
@@ -36,6 +36,10 @@ public class ReplicatorImpl implements Replicator {
     protected ReplicationStrategy strategy;
     protected int id = NULL_ID;
 
+    // when set, the strategy is run by the executor rather than on a thread of its own
+    private final ReplicationExecutor executor;
+    private final int priority;
+
     // Writes need synchronising.
     private State state = null;
 
@@ -46,8 +50,15 @@ public class ReplicatorImpl implements Replicator {
     }
 
     public ReplicatorImpl(ReplicationStrategy strategy, int id) {
+        this(strategy, id, null, 0);
+    }
+
+    public ReplicatorImpl(ReplicationStrategy strategy, int id, ReplicationExecutor executor,
+                          int priority) {
         this.strategy = strategy;
         this.id = id;
+        this.executor = executor;
+        this.priority = priority;
         this.state = State.PENDING;
     }
 
@@ -67,6 +78,11 @@ public class ReplicatorImpl implements Replicator {
                 // complete/stopped/error -> started: (re)start replication for nth time
                 // we assume register() is idempotent
                 this.strategy.getEventBus().register(this);
+                if (this.executor != null) {
+                    this.executor.submit(this.strategy, this.priority);
+                    this.state = State.STARTED;
+                    break;
+                }
                 String replicatorThreadName = String.format(Locale.ENGLISH,
                         "Replicator: %s - %s",
                         this.strategy.getClass().getSimpleName(),
@@ -85,6 +101,12 @@ public class ReplicatorImpl implements Replicator {
                 this.state = State.STOPPED;
                 break;
             case STARTED:
+                if (this.executor != null && this.executor.cancel(this.strategy)) {
+                    // still queued, so the strategy won't run and post its completion
+                    this.state = State.STOPPED;
+                    eventBus.post(new ReplicationCompleted(this, 0, 0));
+                    break;
+                }
                 this.strategy.setCancel();
                 this.state = State.STOPPING;
                 break;
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.replication;
+
+import org.hammock.sync.http.HttpConnectionInterceptorContext;
+import org.hammock.sync.http.HttpConnectionResponseInterceptor;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the {@code 429 Too Many Requests} responses received, including those which a
+ * {@link org.hammock.sync.http.interceptors.Replay429Interceptor} goes on to replay, so that
+ * batch sizes can be reduced when the server is throttling requests.
+ */
+class ThrottledResponseCounter implements HttpConnectionResponseInterceptor {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public HttpConnectionInterceptorContext interceptResponse(HttpConnectionInterceptorContext
+                                                                      context) {
+        try {
+            if (context.connection.getConnection().getResponseCode() == 429) {
+                count.incrementAndGet();
+            }
+        } catch (IOException e) {
+            // there's no response code to count, the request's failure is handled elsewhere
+        }
+        return context;
+    }
+
+    /**
+     * @return the number of throttled responses received so far
+     */
+    int get() {
+        return count.get();
+    }
+}
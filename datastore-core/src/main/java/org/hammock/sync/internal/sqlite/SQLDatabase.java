@@ -109,6 +109,20 @@ public abstract class SQLDatabase {
      */
     public abstract void compactDatabase();
 
+    /**
+     * <p>Switches the database file to write-ahead logging, allowing read-only connections to
+     * the same file to run concurrently with a writer.</p>
+     *
+     * <p>For SQLite database, this is to call:</p>
+     *
+     * <pre>    PRAGMA journal_mode = WAL;</pre>
+     *
+     * @return true if the database is now in WAL mode
+     *
+     * @see <a target="_blank" href="https://www.sqlite.org/wal.html">SQLite Write-Ahead Logging</a>
+     */
+    public abstract boolean enableWriteAheadLogging();
+
     /**
      * <p>Gets the database version, and SQLDatabase's version is defined as:</p>
      *
@@ -175,6 +189,29 @@ public abstract class SQLDatabase {
      */
      public abstract void setTransactionSuccessful();
 
+    /**
+     * <p>Begins a transaction which only reads, so that every statement run before
+     * {@link #endReadTransaction()} sees the same snapshot of the database while another
+     * connection writes to it.</p>
+     *
+     * <p>For SQLite database, this is to call:</p>
+     *
+     * <pre>    BEGIN DEFERRED;</pre>
+     *
+     * <p>Unlike {@link #beginTransaction()} no write lock is taken, so this can be used on
+     * read-only connections. Read transactions can't be nested.</p>
+     *
+     * @throws SQLException if the transaction could not be begun
+     */
+    public abstract void beginReadTransaction() throws SQLException;
+
+    /**
+     * Ends a transaction begun by {@link #beginReadTransaction()}.
+     *
+     * @throws SQLException if the transaction could not be ended
+     */
+    public abstract void endReadTransaction() throws SQLException;
+
     /**
      * Convenience method for updating rows in the database.
      *
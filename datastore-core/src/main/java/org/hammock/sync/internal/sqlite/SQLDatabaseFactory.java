@@ -98,6 +98,62 @@ public class SQLDatabaseFactory {
         return internalOpenSQLDatabase(dbFile, provider);
     }
 
+    /**
+     * <p>
+     * Open a read-only connection to an existing, non-encrypted database file.
+     * </p>
+     * <p>
+     * Read-only connections are intended to be used alongside a single writer connection to a
+     * database in write-ahead logging mode, see {@link SQLDatabase#enableWriteAheadLogging()}.
+     * </p>
+     * @param dbFile full file path of the db file
+     * @return read-only {@code SQLDatabase} for the given filename
+     * @throws SQLException if the database cannot be opened.
+     */
+    public static SQLDatabase openReadOnlySQLDatabase(File dbFile) throws SQLException {
+        Misc.checkNotNull(dbFile, "dbFile");
+        String className = Misc.isRunningOnAndroid()
+                ? "org.hammock.sync.internal.sqlite.android.AndroidSQLite"
+                : "org.hammock.sync.internal.sqlite.sqlite4java.SQLiteWrapper";
+        try {
+            return (SQLDatabase) Class.forName(className)
+                    .getMethod("openReadOnly", File.class)
+                    .invoke(null, dbFile);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to open read-only database", e);
+            throw new SQLException("Failed to open read-only database", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Returns whether read-only connections on this platform can begin a transaction with
+     * {@link SQLDatabase#beginReadTransaction()}.
+     * </p>
+     * <p>
+     * Android only supports read transactions from API level 35, before which a transaction
+     * always takes a write lock, which a read-only connection can't.
+     * </p>
+     * @return true if read-only connections support read transactions
+     */
+    public static boolean supportsReadTransactions() {
+        if (!Misc.isRunningOnAndroid()) {
+            return true;
+        }
+        try {
+            // Get the API level reflectively so we don't need to import classes only available
+            // in Android
+            int androidApiLevel = Class.forName("android.os.Build$VERSION").getField
+                    ("SDK_INT").getInt(null);
+            return androidApiLevel >= 35;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to get the Android API level", e);
+            return false;
+        }
+    }
+
     /**
      * Internal method for creating a SQLDatabase that allows a null filename to create an in-memory
      * database which can be useful for performing checks, but creating in-memory databases is not
@@ -17,32 +17,61 @@ package org.hammock.sync.internal.sqlite;
 import org.hammock.sync.documentstore.encryption.KeyProvider;
 import org.hammock.sync.documentstore.encryption.NullKeyProvider;
 import org.hammock.sync.internal.documentstore.migrations.Migration;
+import org.hammock.sync.internal.util.Misc;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * <p>
  * SQLDatabaseQuue provides the ability to ensure that the
  * only a single thread accesses the SQLDatabase. Tasks submitted to this
  * queue are guaranteed to be executed in the order they are received
+ * </p>
+ * <p>
+ * Optionally the queue can also own a bounded pool of read-only connections to the same
+ * database file, which is then switched to write-ahead logging. Tasks submitted via
+ * {@link #submitRead(SQLCallable)} run on this pool concurrently with each other and with the
+ * writer, but are not ordered relative to tasks submitted via {@link #submit(SQLCallable)}.
+ * Each such task runs in a read transaction, so all of its statements see the same snapshot.
+ * Reader threads exit, closing their connections, once they have been idle for a minute.
+ * </p>
  */
 public class SQLDatabaseQueue {
 
+    /**
+     * How long an idle reader thread waits for another task before it exits, closing its
+     * connection.
+     */
+    private static final long READER_KEEP_ALIVE_SECONDS = 60;
+
+    private final File file;
     private final SQLDatabase db;
     private final ExecutorService queue;
+    private final ExecutorService readers;
+    private final ThreadLocal<SQLDatabase> readerDb = new ThreadLocal<SQLDatabase>();
     private final Logger logger = Logger.getLogger(SQLDatabase.class.getCanonicalName());
     private AtomicBoolean acceptTasks = new AtomicBoolean(true);
     private String sqliteVersion = null;
+    /**
+     * The most recent open or schema task on the writer. Reads are kept on the writer queue
+     * until it has completed, so they never see a database that has not been migrated.
+     */
+    private volatile Future<?> writerBarrier;
     /**
      * Creates an SQLQueue for the database specified.
      * @param file The file where the database is located
@@ -62,14 +91,48 @@ public class SQLDatabaseQueue {
      * @throws SQLException If the database cannot be opened.
      */
     public SQLDatabaseQueue(final File file, KeyProvider provider) throws IOException, SQLException {
+        this(file, provider, 0);
+    }
+
+    /**
+     * Creates an SQLQueue for the SQLCipher-based database specified, with a pool of
+     * read-only connections for {@link #submitRead(SQLCallable)}.
+     * @param file The file where the database is located
+     * @param provider The key provider object that contains the user-defined SQLCipher key.
+     *                 Supply a NullKeyProvider to use a non-encrypted database.
+     * @param readerConnections The maximum number of read-only connections to open. Zero, an
+     *                          encrypted database, or a platform without read transactions
+     *                          means all tasks run on the writer thread.
+     * @throws IOException If a problem occurs creating the database
+     * @throws SQLException If the database cannot be opened.
+     */
+    public SQLDatabaseQueue(final File file, KeyProvider provider, int readerConnections)
+            throws IOException, SQLException {
+        Misc.checkArgument(readerConnections >= 0, "readerConnections must be >= 0");
+        this.file = file;
         queue = Executors.newSingleThreadExecutor(new ThreadFactory(file));
         this.db = SQLDatabaseFactory.openSQLDatabase(file, provider);
-        queue.execute(new Runnable() {
+        final boolean useReaders = readerConnections > 0 && provider.getEncryptionKey() == null
+                && SQLDatabaseFactory.supportsReadTransactions();
+        writerBarrier = queue.submit(new Runnable() {
             @Override
             public void run() {
                 db.open();
+                if (useReaders && !db.enableWriteAheadLogging()) {
+                    logger.warning("Could not enable write-ahead logging for " + file);
+                }
             }
         });
+        if (useReaders) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(readerConnections,
+                    readerConnections, READER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ReaderThreadFactory(file));
+            // so an idle database doesn't hold reader threads and connections open
+            pool.allowCoreThreadTimeOut(true);
+            readers = pool;
+        } else {
+            readers = null;
+        }
     }
 
     /**
@@ -78,7 +141,7 @@ public class SQLDatabaseQueue {
      * @param version The version of the schema
      */
     public void updateSchema(final Migration migration, final int version){
-        queue.execute(new UpdateSchemaCallable(migration, version)); // Fire and forget
+        writerBarrier = queue.submit(new UpdateSchemaCallable(migration, version)); // Fire and forget
     }
 
     /**
@@ -109,6 +172,44 @@ public class SQLDatabaseQueue {
         return this.submitTaskToQueue(new SQLQueueCallable<T>(db, callable));
     }
 
+    /**
+     * <p>
+     * Submits a read-only database task for execution on one of the reader connections.
+     * </p>
+     * <p>
+     * The task sees all writes whose futures had completed before it was submitted, and runs in
+     * a read transaction so it sees none of the writes committed while it runs. It must not
+     * modify the database. If there is no reader pool, or the schema is still being updated, the
+     * task runs on the writer thread as if submitted via {@link #submit(SQLCallable)}.
+     * </p>
+     * @param callable The task to be performed
+     * @param <T> The type of object that is returned from the task
+     * @throws RejectedExecutionException Thrown when the queue has been shutdown
+     * @return Future representing the task to be executed.
+     */
+    public <T> Future<T> submitRead(final SQLCallable<T> callable){
+        Future<?> barrier = writerBarrier;
+        if (readers == null || (barrier != null && !barrier.isDone())) {
+            return this.submit(callable);
+        }
+        if (acceptTasks.get()) {
+            return readers.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    SQLDatabase reader = getReaderDatabase();
+                    reader.beginReadTransaction();
+                    try {
+                        return callable.call(reader);
+                    } finally {
+                        reader.endReadTransaction();
+                    }
+                }
+            });
+        } else {
+            throw new RejectedExecutionException("Database is closed");
+        }
+    }
+
     /**
      * Submits a database task for execution in a transaction
      * @param callable The task to be performed
@@ -130,6 +231,10 @@ public class SQLDatabaseQueue {
     public void shutdown() {
         // If shutdown has already been called then we don't need to shutdown again
         if (acceptTasks.getAndSet(false)) {
+            // Each reader thread closes its own connection as it exits
+            if (readers != null) {
+                readers.shutdown();
+            }
             //pass straight to queue, tasks passed via submitTaskToQueue will now be blocked.
             Future<?> close = queue.submit(new Runnable() {
                 @Override
@@ -139,6 +244,9 @@ public class SQLDatabaseQueue {
             });
             queue.shutdown();
             try {
+                if (readers != null) {
+                    readers.awaitTermination(5, TimeUnit.MINUTES);
+                }
                 close.get();
                 queue.awaitTermination(5, TimeUnit.MINUTES);
             } catch (InterruptedException e) {
@@ -198,6 +306,19 @@ public class SQLDatabaseQueue {
 
     }
 
+    /**
+     * Returns the read-only connection owned by the current reader thread, opening it on first
+     * use. sqlite4java connections are confined to the thread which opened them.
+     */
+    private SQLDatabase getReaderDatabase() throws SQLException {
+        SQLDatabase reader = readerDb.get();
+        if (reader == null) {
+            reader = SQLDatabaseFactory.openReadOnlySQLDatabase(file);
+            readerDb.set(reader);
+        }
+        return reader;
+    }
+
     private static class SQLiteVersionCallable implements SQLCallable<String> {
         @Override
         public String call(SQLDatabase db) throws Exception {
@@ -231,6 +352,33 @@ public class SQLDatabaseQueue {
         }
     }
 
+    private class ReaderThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final File file;
+        private final AtomicInteger count = new AtomicInteger();
+
+        public ReaderThreadFactory(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        r.run();
+                    } finally {
+                        SQLDatabase reader = readerDb.get();
+                        if (reader != null) {
+                            reader.close();
+                            readerDb.remove();
+                        }
+                    }
+                }
+            }, "SQLDatabaseQueue reader " + count.incrementAndGet() + " - " + file);
+        }
+    }
+
     private class UpdateSchemaCallable implements Runnable {
         private final Migration migration;
         private final int version;
@@ -22,7 +22,9 @@ import org.hammock.sync.internal.mazha.CouchClient;
 import org.hammock.sync.internal.mazha.Document;
 import org.hammock.sync.internal.mazha.OpenRevision;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
@@ -33,9 +35,12 @@ import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -122,11 +127,19 @@ public class JSONUtils {
     }
 
     public static boolean isValidJSON(final byte[] json) {
+        // walk the tokens rather than deserialising, so no objects are built for the values
+        JsonParser parser = null;
         try {
-            getsMapper().readValue(json, Map.class);
-            return true;
+            parser = getsMapper().getFactory().createParser(json);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            parser.skipChildren();
+            return parser.getCurrentToken() == JsonToken.END_OBJECT;
         } catch (Exception e) {
             return false;
+        } finally {
+            closeQuietly(parser);
         }
     }
 
@@ -174,6 +187,49 @@ public class JSONUtils {
         }
     }
 
+    /**
+     * As {@link #deserialize(byte[])}, but only deserialising the top-level fields named in
+     * {@code fieldNames}. The values of the other fields are skipped over without building
+     * objects for them.
+     */
+    public static Map<String, Object> deserializeFields(byte[] json,
+                                                        Collection<String> fieldNames) {
+        JsonParser parser = null;
+        try {
+            parser = getsMapper().getFactory().createParser(json);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("Expected a JSON object: " +
+                        bytesToString(json));
+            }
+            Map<String, Object> fields = new HashMap<String, Object>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (fieldNames.contains(field)) {
+                    fields.put(field, parser.readValueAs(Object.class));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return fields;
+        } catch (IOException e) {
+            throw new IllegalStateException("Error converting byte[] to map object: " +
+                    bytesToString(json));
+        } finally {
+            closeQuietly(parser);
+        }
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // nothing to do, the parser only reads from memory
+            }
+        }
+    }
+
     public static <T> T deserialize(byte[] json, Class<T> clazz) {
         try {
             return getsMapper().readValue(json, clazz);
@@ -233,6 +289,15 @@ public class JSONUtils {
         return fromJson(reader, typeReference);
     }
 
+    /**
+     * Creates a parser for reading JSON from {@code stream} a token at a time. Values read with
+     * {@link JsonParser#readValueAs(Class)} are deserialised the same way as by the
+     * {@code fromJson} methods.
+     */
+    public static JsonParser createParser(InputStream stream) throws IOException {
+        return sMapper.getFactory().createParser(stream);
+    }
+
     public static String toJson(Object object) {
         try {
             return getWriter(false).writeValueAsString(object);
@@ -135,6 +135,31 @@ public interface Query {
      */
     void refreshAllIndexes() throws QueryException;
 
+    /**
+     * <p>
+     * Sets whether index data is kept up to date in the background as documents are written.
+     * </p>
+     * <p>
+     * By default index data is only updated when {@link #find(Map)} or
+     * {@link #refreshAllIndexes()} is called, so the first query after a large write or
+     * replication has to index all of the changed documents. When background indexing is
+     * enabled, document writes, including those made by replication, are indexed shortly
+     * afterwards in small batches on a background thread.
+     * </p>
+     * @param enabled {@code true} to index in the background, {@code false} to only index when
+     *                queries are run
+     */
+    void setBackgroundIndexing(boolean enabled);
+
+    /**
+     * Returns how far behind the {@link DocumentStore} each index is, as the number of changes
+     * (sequence numbers) which have not yet been indexed. This is an upper bound on the number
+     * of documents which need to be indexed.
+     * @return a map of index name to the number of changes not yet indexed
+     * @throws QueryException if there was a problem reading the index metadata
+     */
+    Map<String, Long> getIndexLag() throws QueryException;
+
     /**
      * Execute a query to find data
      * @param query query in Cloudant Query syntax
@@ -149,7 +174,11 @@ public interface Query {
      * @param skip initial number of documents to omit from the result returned (used for
      *             pagination)
      * @param limit upper bound for number of documents to return (used for pagination)
-     * @param fields list of field names to choose ("project") from the matching documents
+     * @param fields list of field names to choose ("project") from the matching documents.
+     *               If the query is answered by indexes alone and a JSON index has all of
+     *               the fields, they are read from the index rather than the document bodies
+     *               where possible. Projected revisions still include the documents'
+     *               attachment metadata either way.
      * @param sortSpecification specification of fields to use to order the result
      * @return a {@link QueryResult} representing the set of matching documents
      * @throws QueryException if there was a problem executing the query
@@ -161,6 +190,22 @@ public interface Query {
                      List<FieldSort> sortSpecification)
             throws QueryException;
 
+    /**
+     * <p>
+     * Describes how {@link #find(Map)} would execute a query, without executing it: the indexes
+     * chosen, the SQL run against them and whether documents have to be loaded and matched
+     * against the selector.
+     * </p>
+     * <p>
+     * Index data isn't updated, so this doesn't take the time a query may. The plan doesn't
+     * include sorting.
+     * </p>
+     * @param query query in Cloudant Query syntax
+     * @return a {@link QueryPlan} describing how the query would be executed
+     * @throws QueryException if there was a problem planning the query
+     */
+    QueryPlan explain(Map<String, Object> query) throws QueryException;
+
     /**
      * Returns {@code true} if the underlying SQLite instance supports Full Text Search (FTS);
      * {@code false} otherwise
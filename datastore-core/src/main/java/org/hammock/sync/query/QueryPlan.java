@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Describes how a query's selector would be executed, as returned by
+ * {@link Query#explain(java.util.Map)}.
+ * </p>
+ * <p>
+ * The SQL is that run against the indexes database to find the IDs of candidate documents,
+ * with {@code ?} placeholders for the query's values. When the indexes can't answer the whole
+ * selector, each candidate document is then loaded and matched against the selector, which is
+ * much slower.
+ * </p>
+ *
+ * @see Query#explain(java.util.Map)
+ */
+public class QueryPlan {
+
+    private final List<String> indexNames;
+    private final List<String> sql;
+    private final boolean documentMatchingRequired;
+
+    public QueryPlan(List<String> indexNames, List<String> sql, boolean documentMatchingRequired) {
+        this.indexNames = Collections.unmodifiableList(indexNames);
+        this.sql = Collections.unmodifiableList(sql);
+        this.documentMatchingRequired = documentMatchingRequired;
+    }
+
+    /**
+     * @return the names of the indexes chosen to answer the selector, in the order they're
+     * first used
+     */
+    public List<String> getIndexNames() {
+        return indexNames;
+    }
+
+    /**
+     * @return the SQL statements selecting candidate document IDs from the indexes, empty if
+     * the IDs of all documents are read from the database instead
+     */
+    public List<String> getSql() {
+        return sql;
+    }
+
+    /**
+     * @return {@code true} if candidate documents have to be loaded and matched against the
+     * selector, because the indexes can't answer all of it
+     */
+    public boolean isDocumentMatchingRequired() {
+        return documentMatchingRequired;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlan{" +
+                "indexNames=" + indexNames +
+                ", sql=" + sql +
+                ", documentMatchingRequired=" + documentMatchingRequired +
+                '}';
+    }
+}
@@ -16,12 +16,16 @@
 
 package org.hammock.sync.query;
 
+import org.hammock.sync.documentstore.Attachment;
+import org.hammock.sync.documentstore.AttachmentException;
 import org.hammock.sync.documentstore.Database;
 import org.hammock.sync.documentstore.DocumentBodyFactory;
 import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.internal.documentstore.DocumentRevisionBuilder;
 import org.hammock.sync.internal.query.UnindexedMatcher;
+import org.hammock.sync.internal.query.callables.ProjectFieldsFromIndexCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabaseQueue;
 import org.hammock.sync.internal.util.CollectionUtils;
 
 import java.util.ArrayList;
@@ -30,6 +34,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  *  Iterable result of a query executed with {@link Query}.
@@ -41,12 +48,20 @@ public class QueryResult implements Iterable<DocumentRevision> {
 
     private final static int DEFAULT_BATCH_SIZE = 50;
 
+    // documents to load at most at once when they need matching, enough to give each thread
+    // of the common fork-join pool a batch to match
+    private final static int MAX_MATCHING_WINDOW_SIZE = DEFAULT_BATCH_SIZE *
+            Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+
     private final List<String> originalDocIds;
     private final Database database;
     private final List<String> fields;
     private final long skip;
     private final long limit;
     private final UnindexedMatcher matcher;
+    private final SQLDatabaseQueue indexQueue;
+    private final String coveringIndexName;
+    private final org.hammock.sync.documentstore.advanced.Database advancedDatabase;
 
     public QueryResult(List<String> originalDocIds,
                        Database database,
@@ -54,17 +69,44 @@ public class QueryResult implements Iterable<DocumentRevision> {
                        long skip,
                        long limit,
                        UnindexedMatcher matcher) {
+        this(originalDocIds, database, fields, skip, limit, matcher, null, null, null);
+    }
+
+    /**
+     *  As {@link #QueryResult(List, Database, List, long, long, UnindexedMatcher)}, but
+     *  projecting the fields from the rows of an index with a column for each of them
+     *  where possible, rather than from the document bodies.
+     *
+     *  @param indexQueue the queue for the indexes database
+     *  @param coveringIndexName the name of the JSON index covering the projected fields
+     *  @param advancedDatabase the advanced API of {@code database}, used to read the
+     *                          attachments of the projected revisions
+     */
+    public QueryResult(List<String> originalDocIds,
+                       Database database,
+                       List<String> fields,
+                       long skip,
+                       long limit,
+                       UnindexedMatcher matcher,
+                       SQLDatabaseQueue indexQueue,
+                       String coveringIndexName,
+                       org.hammock.sync.documentstore.advanced.Database advancedDatabase) {
         this.originalDocIds = originalDocIds;
         this.database = database;
         this.fields = fields;
         this.skip = skip;
         this.limit = limit;
         this.matcher = matcher;
+        this.indexQueue = indexQueue;
+        this.coveringIndexName = coveringIndexName;
+        this.advancedDatabase = advancedDatabase;
     }
 
     /**
      *  Returns the number of documents in this query result.
      *
+     *  When the query was answered by indexes alone this doesn't load any documents.
+     *
      *  @return the number of documents {@code DocumentRevision} in this query result.
      */
     public int size() {
@@ -74,12 +116,21 @@ public class QueryResult implements Iterable<DocumentRevision> {
     /**
      *  Returns a list of the document IDs in this query result.
      *
-     *  This method is implemented this way to ensure that the list of document IDs is
-     *  consistent with the iterator results.
+     *  When the query was answered by indexes alone, the IDs are returned without loading
+     *  the documents. Otherwise each candidate document has to be loaded and matched against
+     *  the query, so this method is implemented using the iterator to ensure that the list of
+     *  document IDs is consistent with the iterator results.
      *
      *  @return list of the document IDs
      */
     public List<String> documentIds() {
+        if (matcher == null) {
+            // every ID is a result, so we only need to apply skip and limit
+            int from = (int) Math.min(skip, originalDocIds.size());
+            int to = limit > 0 ? (int) Math.min(limit, originalDocIds.size() - from) + from :
+                    originalDocIds.size();
+            return new ArrayList<String>(originalDocIds.subList(from, to));
+        }
         List<String> documentIds = new ArrayList<String>();
         List<DocumentRevision> docs = CollectionUtils.newArrayList(iterator());
         for (DocumentRevision doc : docs) {
@@ -99,6 +150,8 @@ public class QueryResult implements Iterable<DocumentRevision> {
     private class QueryResultIterator implements Iterator<DocumentRevision> {
 
         private Range range;
+        // number of documents to load next, which grows while documents are being matched
+        private int windowSize;
         private int nSkipped;
         private int nReturned;
         private boolean limitReached;
@@ -106,6 +159,7 @@ public class QueryResult implements Iterable<DocumentRevision> {
 
         private QueryResultIterator() {
             range = new Range(0, DEFAULT_BATCH_SIZE);
+            windowSize = DEFAULT_BATCH_SIZE;
             nSkipped = 0;
             nReturned = 0;
             limitReached = false;
@@ -149,16 +203,30 @@ public class QueryResult implements Iterable<DocumentRevision> {
             try {
                 List<DocumentRevision> docList = new ArrayList<DocumentRevision>();
                 while (range.location < originalDocIds.size()) {
-                    range.length = Math.min(DEFAULT_BATCH_SIZE, originalDocIds.size() - range.location);
-                    List<String> batch = originalDocIds.subList(range.location,
+                    range.length = Math.min(windowSize, originalDocIds.size() - range.location);
+                    List<String> window = originalDocIds.subList(range.location,
                         range.location + range.length);
-                    List<? extends DocumentRevision> docs = database.read(batch);
-                    for (DocumentRevision rev : docs) {
+                    List<DocumentRevision> docs = new ArrayList<DocumentRevision>(window.size());
+                    for (int from = 0; from < window.size(); from += DEFAULT_BATCH_SIZE) {
+                        docs.addAll(readBatch(window.subList(from, Math.min(from +
+                                DEFAULT_BATCH_SIZE, window.size()))));
+                    }
+
+                    // Apply post-hoc matcher to the whole window, in parallel where it's
+                    // large enough. The window grows as more documents are needed, so small
+                    // limits don't load many more documents than they return.
+                    boolean[] matched = null;
+                    if (matcher != null) {
+                        matched = matchAll(docs);
+                        windowSize = Math.min(windowSize * 2, MAX_MATCHING_WINDOW_SIZE);
+                    }
+
+                    for (int i = 0; i < docs.size(); i++) {
+                        DocumentRevision rev = docs.get(i);
                         DocumentRevision innerRev;
                         innerRev = rev;  // Allows us to replace later if projecting
 
-                        // Apply post-hoc matcher
-                        if (matcher != null && !matcher.matches(innerRev)) {
+                        if (matched != null && !matched[i]) {
                             continue;
                         }
 
@@ -168,7 +236,8 @@ public class QueryResult implements Iterable<DocumentRevision> {
                             continue;
                         }
 
-                        if (fields != null && !fields.isEmpty()) {
+                        // revisions read from a covering index are already projected
+                        if (fields != null && !fields.isEmpty() && rev.isFullRevision()) {
                             innerRev = projectFields(fields, rev, database);
                         }
 
@@ -200,6 +269,126 @@ public class QueryResult implements Iterable<DocumentRevision> {
         }
     }
 
+    /**
+     * Matches the documents against the selector, forking a task for each batch of them.
+     *
+     * @return whether each of the documents matches
+     */
+    private boolean[] matchAll(List<DocumentRevision> docs) {
+        boolean[] matched = new boolean[docs.size()];
+        if (docs.size() <= DEFAULT_BATCH_SIZE) {
+            for (int i = 0; i < docs.size(); i++) {
+                matched[i] = matcher.matches(docs.get(i));
+            }
+        } else {
+            ForkJoinPool.commonPool().invoke(new MatchTask(docs, matched, 0, docs.size()));
+        }
+        return matched;
+    }
+
+    private class MatchTask extends RecursiveAction {
+
+        private final List<DocumentRevision> docs;
+        private final boolean[] matched;
+        private final int from;
+        private final int to;
+
+        private MatchTask(List<DocumentRevision> docs, boolean[] matched, int from, int to) {
+            this.docs = docs;
+            this.matched = matched;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= DEFAULT_BATCH_SIZE) {
+                for (int i = from; i < to; i++) {
+                    matched[i] = matcher.matches(docs.get(i));
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MatchTask(docs, matched, from, middle),
+                        new MatchTask(docs, matched, middle, to));
+            }
+        }
+    }
+
+    private List<? extends DocumentRevision> readBatch(List<String> batch)
+            throws DocumentStoreException {
+        // the attachments of projected revisions are read from the database's own tables
+        if (coveringIndexName == null || advancedDatabase == null) {
+            return database.read(batch);
+        }
+
+        Map<String, DocumentRevision> projected;
+        try {
+            projected = indexQueue.submitRead(new ProjectFieldsFromIndexCallable(batch, fields,
+                    coveringIndexName, database)).get();
+        } catch (ExecutionException e) {
+            throw new DocumentStoreException("Failed to project fields from index", e);
+        } catch (InterruptedException e) {
+            throw new DocumentStoreException("Failed to project fields from index", e);
+        }
+        addAttachments(projected);
+        if (projected.size() == batch.size()) {
+            List<DocumentRevision> docs = new ArrayList<DocumentRevision>(batch.size());
+            for (String docId : batch) {
+                docs.add(projected.get(docId));
+            }
+            return docs;
+        }
+
+        // load the bodies of the documents the index couldn't project, keeping the batch order
+        List<String> remaining = new ArrayList<String>();
+        for (String docId : batch) {
+            if (!projected.containsKey(docId)) {
+                remaining.add(docId);
+            }
+        }
+        Iterator<? extends DocumentRevision> loaded = database.read(remaining).iterator();
+        DocumentRevision next = loaded.hasNext() ? loaded.next() : null;
+        List<DocumentRevision> docs = new ArrayList<DocumentRevision>(batch.size());
+        for (String docId : batch) {
+            if (projected.containsKey(docId)) {
+                docs.add(projected.get(docId));
+            } else if (next != null && next.getId().equals(docId)) {
+                docs.add(next);
+                next = loaded.hasNext() ? loaded.next() : null;
+            }
+        }
+        return docs;
+    }
+
+    // the index has no attachment metadata, so it is read for the projected revisions together,
+    // giving them the attachments they would have had if projected from the loaded documents
+    private void addAttachments(Map<String, DocumentRevision> projected)
+            throws DocumentStoreException {
+        if (projected.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, ? extends Attachment>> attachments;
+        try {
+            attachments = advancedDatabase.attachmentsForDocuments(
+                    new ArrayList<String>(projected.keySet()));
+        } catch (AttachmentException e) {
+            throw new DocumentStoreException("Failed to read attachments of projected documents",
+                    e);
+        }
+        for (Map.Entry<String, Map<String, ? extends Attachment>> entry :
+                attachments.entrySet()) {
+            DocumentRevision rev = projected.get(entry.getKey());
+            DocumentRevisionBuilder revBuilder = new DocumentRevisionBuilder();
+            revBuilder.setDocId(rev.getId());
+            revBuilder.setRevId(rev.getRevision());
+            revBuilder.setBody(rev.getBody());
+            revBuilder.setDeleted(rev.isDeleted());
+            revBuilder.setAttachments(entry.getValue());
+            revBuilder.setDatabase(database);
+            projected.put(entry.getKey(), revBuilder.buildProjected());
+        }
+    }
+
     private DocumentRevision projectFields(List<String> fields,
                                            DocumentRevision rev,
                                                    Database database) {
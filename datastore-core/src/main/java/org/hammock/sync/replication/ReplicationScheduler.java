@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.replication;
+
+import org.hammock.sync.internal.replication.ReplicationExecutor;
+
+/**
+ * <p>
+ * Runs many replications on a bounded, shared pool of threads, rather than each replicator
+ * starting a thread of its own. Replicators use a scheduler when they are built with
+ * {@link ReplicatorBuilder#scheduler(ReplicationScheduler)}.
+ * </p>
+ * <p>
+ * A replicator started with {@link Replicator#start()} is queued until one of the scheduler's
+ * threads is free. Queued replications are started highest
+ * {@link ReplicatorBuilder#priority(int) priority} first. Among replications of the same
+ * priority the remote databases take turns, so a database with many replications queued
+ * doesn't hold up the others. Stopping a queued replicator removes it from the queue.
+ * </p>
+ * <p>
+ * The scheduler also limits the number of HTTP requests its replications have waiting for a
+ * response at once, however many replications are running.
+ * </p>
+ * <p>
+ * A replication keeps its thread until it completes, so a
+ * {@link ReplicatorBuilder.Pull#continuous(boolean) continuous} replication holds one for as
+ * long as it runs. Threads which have been idle for a minute are released.
+ * </p>
+ */
+public class ReplicationScheduler {
+
+    final ReplicationExecutor executor;
+
+    /**
+     * @param maxConcurrentReplications The maximum number of replications to run at once
+     * @param maxConcurrentRequests     The maximum number of HTTP requests the replications may
+     *                                  have waiting for a response at once
+     */
+    public ReplicationScheduler(int maxConcurrentReplications, int maxConcurrentRequests) {
+        this.executor = new ReplicationExecutor(maxConcurrentReplications,
+                maxConcurrentRequests);
+    }
+
+    /**
+     * @return The number of started replications waiting for a thread
+     */
+    public int getQueuedCount() {
+        return executor.getQueuedCount();
+    }
+
+    /**
+     * @return The number of replications running
+     */
+    public int getRunningCount() {
+        return executor.getRunningCount();
+    }
+}
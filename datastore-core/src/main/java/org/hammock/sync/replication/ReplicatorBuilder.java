@@ -57,6 +57,14 @@ public abstract class ReplicatorBuilder<S, T, E> {
 
     private String iamApiKey = null;
 
+    private boolean gzipRequests = false;
+
+    private boolean acceptGzip = false;
+
+    private ReplicationScheduler scheduler = null;
+
+    private int priority = 0;
+
     private int getDefaultPort(URI uri) {
 
         String uriProtocol = uri.getScheme();
@@ -175,10 +183,21 @@ public abstract class ReplicatorBuilder<S, T, E> {
 
         private int bulkInsertSize = 10;
 
+        private int concurrentBatches = 1;
+
         private PushAttachmentsInline pushAttachmentsInline = PushAttachmentsInline.Small;
 
         private PushFilter pushFilter = null;
 
+        // adaptive sizing bounds, where a max of 0 keeps the size fixed
+        private int minChangeLimitPerBatch = 0;
+
+        private int maxChangeLimitPerBatch = 0;
+
+        private int minBulkInsertSize = 0;
+
+        private int maxBulkInsertSize = 0;
+
         @Override
         public Replicator build() {
 
@@ -195,9 +214,22 @@ public abstract class ReplicatorBuilder<S, T, E> {
 
             pushStrategy.changeLimitPerBatch = changeLimitPerBatch;
             pushStrategy.bulkInsertSize = bulkInsertSize;
+            pushStrategy.concurrentBatches = concurrentBatches;
             pushStrategy.pushAttachmentsInline = pushAttachmentsInline;
             pushStrategy.filter = pushFilter;
+            pushStrategy.setCompression(super.gzipRequests, super.acceptGzip);
+            if (maxChangeLimitPerBatch > 0) {
+                pushStrategy.adaptChangeLimit(minChangeLimitPerBatch, maxChangeLimitPerBatch);
+            }
+            if (maxBulkInsertSize > 0) {
+                pushStrategy.adaptBulkInsertSize(minBulkInsertSize, maxBulkInsertSize);
+            }
 
+            if (super.scheduler != null) {
+                pushStrategy.setRequestPermits(super.scheduler.executor.getRequestPermits());
+                return new ReplicatorImpl(pushStrategy, super.id, super.scheduler.executor,
+                        super.priority);
+            }
             return new ReplicatorImpl(pushStrategy, super.id);
         }
 
@@ -224,6 +256,26 @@ public abstract class ReplicatorBuilder<S, T, E> {
             return this;
         }
 
+        /**
+         * <p>
+         * Adapts the number of changes fetched per batch as the replication runs, starting
+         * from {@link #changeLimitPerBatch(int)}, so that each batch of changes takes around
+         * the same time to push. A checkpoint is written after each batch, so this also bounds
+         * the work repeated after an interrupted replication.
+         * </p>
+         *
+         * @param min The smallest number of changes to fetch per batch, at least 1
+         * @param max The largest number of changes to fetch per batch
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Push adaptiveChangeLimitPerBatch(int min, int max) {
+            Misc.checkArgument(min > 0 && max >= min, "min must be greater than 0 and not " +
+                    "greater than max");
+            this.minChangeLimitPerBatch = min;
+            this.maxChangeLimitPerBatch = max;
+            return this;
+        }
+
         /**
          * Sets the number of documents to bulk insert into the CouchDB instance at a time
          *
@@ -236,6 +288,52 @@ public abstract class ReplicatorBuilder<S, T, E> {
             return this;
         }
 
+        /**
+         * <p>
+         * Adapts the number of documents bulk inserted at a time as the replication runs,
+         * starting from {@link #bulkInsertSize(int)}. The size grows while requests are quick
+         * and their payloads small, shrinks as they become slow or large, for example with
+         * documents that have attachments, and halves whenever the server responds with
+         * {@code 429 Too Many Requests}.
+         * </p>
+         * <p>
+         * When batches are pushed concurrently the size is adapted between batches of
+         * changes rather than within them.
+         * </p>
+         *
+         * @param min The smallest number of documents to insert at a time, at least 1
+         * @param max The largest number of documents to insert at a time
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Push adaptiveBulkInsertSize(int min, int max) {
+            Misc.checkArgument(min > 0 && max >= min, "min must be greater than 0 and not " +
+                    "greater than max");
+            this.minBulkInsertSize = min;
+            this.maxBulkInsertSize = max;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Sets the number of batches of {@link #bulkInsertSize(int)} documents which may be
+         * pushed at the same time.
+         * </p>
+         * <p>
+         * The default of 1 pushes one batch after another. Higher values keep several
+         * {@code _revs_diff} and {@code _bulk_docs} requests in flight and read the next page of
+         * local changes while the current page is being pushed, which helps most when the
+         * round trip time to the remote database is high.
+         * </p>
+         *
+         * @param concurrentBatches The maximum number of batches in flight, at least 1
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Push concurrentBatches(int concurrentBatches) {
+            Misc.checkArgument(concurrentBatches > 0, "concurrentBatches must be greater than 0");
+            this.concurrentBatches = concurrentBatches;
+            return this;
+        }
+
         /**
          * Sets the strategy to decide whether to push attachments inline or separately
          *
@@ -267,6 +365,21 @@ public abstract class ReplicatorBuilder<S, T, E> {
 
         private boolean pullAttachmentsInline = false;
 
+        private int prefetchBatches = 0;
+
+        private boolean continuous = false;
+
+        private long heartbeat = 30000;
+
+        // adaptive sizing bounds, where a max of 0 keeps the size fixed
+        private int minChangeLimitPerBatch = 0;
+
+        private int maxChangeLimitPerBatch = 0;
+
+        private int minInsertBatchSize = 0;
+
+        private int maxInsertBatchSize = 0;
+
         @Override
         public Replicator build() {
 
@@ -293,7 +406,22 @@ public abstract class ReplicatorBuilder<S, T, E> {
             pullStrategy.changeLimitPerBatch = changeLimitPerBatch;
             pullStrategy.insertBatchSize = insertBatchSize;
             pullStrategy.pullAttachmentsInline = pullAttachmentsInline;
+            pullStrategy.prefetchBatches = prefetchBatches;
+            pullStrategy.continuous = continuous;
+            pullStrategy.heartbeat = heartbeat;
+            pullStrategy.setCompression(super.gzipRequests, super.acceptGzip);
+            if (maxChangeLimitPerBatch > 0) {
+                pullStrategy.adaptChangeLimit(minChangeLimitPerBatch, maxChangeLimitPerBatch);
+            }
+            if (maxInsertBatchSize > 0) {
+                pullStrategy.adaptInsertBatchSize(minInsertBatchSize, maxInsertBatchSize);
+            }
 
+            if (super.scheduler != null) {
+                pullStrategy.setRequestPermits(super.scheduler.executor.getRequestPermits());
+                return new ReplicatorImpl(pullStrategy, super.id, super.scheduler.executor,
+                        super.priority);
+            }
             return new ReplicatorImpl(pullStrategy, super.id);
         }
 
@@ -356,6 +484,47 @@ public abstract class ReplicatorBuilder<S, T, E> {
             return this;
         }
 
+        /**
+         * <p>
+         * Adapts the number of changes fetched from the _changes feed per batch as the
+         * replication runs, starting from {@link #changeLimitPerBatch(int)}, so that each batch
+         * of changes takes around the same time to pull. A checkpoint is written after each
+         * batch, so this also bounds the work repeated after an interrupted replication.
+         * </p>
+         *
+         * @param min The smallest number of changes to fetch per batch, at least 1
+         * @param max The largest number of changes to fetch per batch
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull adaptiveChangeLimitPerBatch(int min, int max) {
+            Misc.checkArgument(min > 0 && max >= min, "min must be greater than 0 and not " +
+                    "greater than max");
+            this.minChangeLimitPerBatch = min;
+            this.maxChangeLimitPerBatch = max;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Adapts the number of documents downloaded and inserted in one transaction as the
+         * replication runs, starting from {@link #insertBatchSize(int)}. The size grows while
+         * downloading and inserting batches is quick, shrinks as it becomes slow, for example
+         * with documents that have attachments, and halves whenever the server responds with
+         * {@code 429 Too Many Requests}.
+         * </p>
+         *
+         * @param min The smallest number of documents to insert in one transaction, at least 1
+         * @param max The largest number of documents to insert in one transaction
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull adaptiveInsertBatchSize(int min, int max) {
+            Misc.checkArgument(min > 0 && max >= min, "min must be greater than 0 and not " +
+                    "greater than max");
+            this.minInsertBatchSize = min;
+            this.maxInsertBatchSize = max;
+            return this;
+        }
+
         /**
          * Sets the number of documents to insert into the SQLite database in one transaction
          *
@@ -378,6 +547,63 @@ public abstract class ReplicatorBuilder<S, T, E> {
             this.pullAttachmentsInline = pullAttachmentsInline;
             return this;
         }
+
+        /**
+         * <p>
+         * Sets the number of batches of {@link #insertBatchSize(int)} documents which may be
+         * downloaded ahead of the batch being inserted into the local database.
+         * </p>
+         * <p>
+         * The default of 0 downloads and inserts one batch after another. Higher values keep
+         * downloading while earlier batches are inserted, and read the next page of the
+         * {@code _changes} feed while the current page is processed, so the local database is
+         * not left idle during network waits. A checkpoint is only written once every batch of
+         * a page has been inserted.
+         * </p>
+         *
+         * @param prefetchBatches The maximum number of batches downloaded ahead, at least 0
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull prefetchBatches(int prefetchBatches) {
+            Misc.checkArgument(prefetchBatches >= 0, "prefetchBatches must not be negative");
+            this.prefetchBatches = prefetchBatches;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Sets whether the replication keeps running once it has caught up with the source
+         * database. A continuous replication waits for further changes on a longpoll
+         * {@code _changes} request and pulls them as they arrive, until the replicator is
+         * stopped, instead of completing.
+         * </p>
+         * <p>
+         * While changes keep arriving checkpoints are written at most every ten seconds, and
+         * any outstanding checkpoint is written when the replicator is stopped.
+         * </p>
+         *
+         * @param continuous Whether to keep replicating changes as they arrive
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull continuous(boolean continuous) {
+            this.continuous = continuous;
+            return this;
+        }
+
+        /**
+         * Sets the interval at which the source database sends a heartbeat while a
+         * {@link #continuous(boolean)} replication waits for changes. Heartbeats keep the idle
+         * connection from being closed, so this should be shorter than the read timeout and
+         * than the idle timeout of any proxy between the replicator and the database.
+         *
+         * @param heartbeat The heartbeat interval in milliseconds, greater than 0
+         * @return This instance of {@link ReplicatorBuilder}
+         */
+        public Pull heartbeat(long heartbeat) {
+            Misc.checkArgument(heartbeat > 0, "heartbeat must be greater than 0");
+            this.heartbeat = heartbeat;
+            return this;
+        }
     }
 
 
@@ -435,6 +661,76 @@ public abstract class ReplicatorBuilder<S, T, E> {
         return (E) this;
     }
 
+    /**
+     * <p>
+     * Sets whether the bodies of {@code _bulk_docs}, {@code _bulk_get} and {@code _revs_diff}
+     * requests are gzip compressed, with a {@code Content-Encoding: gzip} header.
+     * </p>
+     * <p>
+     * JSON documents typically compress several times over, which helps on slow or metered
+     * connections at the cost of some CPU. The remote server must accept compressed request
+     * bodies, so this is off by default.
+     * </p>
+     *
+     * @param gzipRequests Whether to gzip compress request bodies
+     * @return This instance of {@link ReplicatorBuilder}
+     */
+    public E gzipRequests(boolean gzipRequests) {
+        this.gzipRequests = gzipRequests;
+        //noinspection unchecked
+        return (E) this;
+    }
+
+    /**
+     * <p>
+     * Sets whether to send an {@code Accept-Encoding: gzip} header with requests for JSON, so
+     * the remote server, or a proxy in front of it, may compress its responses. Compressed
+     * responses are decompressed as they are read.
+     * </p>
+     * <p>
+     * This is off by default. Attachment downloads always accept gzip and are not affected
+     * by this setting.
+     * </p>
+     *
+     * @param acceptGzip Whether to accept gzip compressed responses
+     * @return This instance of {@link ReplicatorBuilder}
+     */
+    public E acceptGzip(boolean acceptGzip) {
+        this.acceptGzip = acceptGzip;
+        //noinspection unchecked
+        return (E) this;
+    }
+
+    /**
+     * <p>
+     * Sets the scheduler to run the replication on. By default each replicator runs its
+     * replication on a thread of its own, which is simplest for a few replications; a shared
+     * scheduler bounds the threads and HTTP requests used by many.
+     * </p>
+     *
+     * @param scheduler The scheduler to run the replication on
+     * @return This instance of {@link ReplicatorBuilder}
+     */
+    public E scheduler(ReplicationScheduler scheduler) {
+        Misc.checkNotNull(scheduler, "scheduler");
+        this.scheduler = scheduler;
+        //noinspection unchecked
+        return (E) this;
+    }
+
+    /**
+     * Sets the priority of the replication on its {@link #scheduler(ReplicationScheduler)}.
+     * Queued replications with higher priorities are started first. The default is 0.
+     *
+     * @param priority The priority of the replication
+     * @return This instance of {@link ReplicatorBuilder}
+     */
+    public E priority(int priority) {
+        this.priority = priority;
+        //noinspection unchecked
+        return (E) this;
+    }
+
     /**
      * Variable argument version of {@link #addRequestInterceptors(List)}
      *
@@ -116,6 +116,30 @@ public class HttpTest extends CouchTestBase {
         client.deleteDb();
     }
 
+    /*
+     * Test that a gzip compressed document body is accepted by the server, and that a response
+     * is readable when compressed responses are accepted
+     */
+    @Test
+    public void testWriteToServerGzipped() throws Exception {
+        CouchConfig config = getCouchConfig("httptest" + System.currentTimeMillis());
+        CouchClient client = new CouchClient(config.getRootUri(), config.getRequestInterceptors()
+                , config.getResponseInterceptors());
+        client.createDb();
+        HttpConnection conn = postAndAssertNothingReadBeforeSettingBodyGenerator(config);
+        conn.setGzipRequestBody(true);
+        conn.setAcceptGzip(true);
+        conn.execute();
+
+        // stream was read to end, and the server could read the compressed body
+        Assert.assertEquals(bis.available(), 0);
+        Assert.assertEquals(201, conn.getConnection().getResponseCode());
+        Map<String, Object> response = JSONUtils.fromJson(new InputStreamReader(conn
+                .responseAsInputStream(), "UTF-8"), JSONUtils.STRING_MAP_TYPE_DEF);
+        Assert.assertEquals(Boolean.TRUE, response.get("ok"));
+        client.deleteDb();
+    }
+
     /*
      * Basic test to check that an IOException is thrown when we attempt to get the response
      * without first calling execute()
@@ -43,6 +43,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -93,6 +94,50 @@ public class AttachmentTest extends BasicDatastoreTestBase {
         }
     }
 
+    // attachments of many documents are read together, check each gets only its own
+    @Test
+    public void readManyDocumentsWithAttachmentsTest() throws Exception {
+        String att1Name = "attachment_1.txt";
+        String att2Name = "attachment_2.txt";
+        File f1 = TestUtils.loadFixture("fixture/" + att1Name);
+        File f2 = TestUtils.loadFixture("fixture/" + att2Name);
+
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            DocumentRevision rev = new DocumentRevision("doc-" + i);
+            rev.setBody(bodyOne);
+            if (i != 1) {
+                rev.getAttachments().put(att1Name, new UnsavedFileAttachment(f1, "text/plain"));
+            }
+            if (i == 2) {
+                rev.getAttachments().put(att2Name, new UnsavedFileAttachment(f2, "text/plain"));
+            }
+            ids.add(datastore.create(rev).getId());
+        }
+
+        List<DocumentRevision> revs = datastore.read(ids);
+        Assert.assertEquals(3, revs.size());
+        Assert.assertEquals(Collections.singleton(att1Name), revs.get(0).getAttachments().keySet());
+        Assert.assertTrue(revs.get(1).getAttachments().isEmpty());
+        Assert.assertEquals(2, revs.get(2).getAttachments().size());
+
+        FileInputStream fis = null;
+        InputStream is = null;
+        try {
+            Assert.assertTrue(IOUtils.contentEquals(fis = new FileInputStream(f2),
+                    is = revs.get(2).getAttachments().get(att2Name).getInputStream()));
+        } finally {
+            IOUtils.closeQuietly(fis);
+            IOUtils.closeQuietly(is);
+        }
+        for (DocumentRevision rev : revs) {
+            for (Attachment att : rev.getAttachments().values()) {
+                Assert.assertEquals(((InternalDocumentRevision) rev).getSequence(),
+                        ((SavedAttachment) att).seq);
+            }
+        }
+    }
+
     // check that the transaction gets rolled back if one file is dodgy
     @Test
     public void setBadAttachmentsTest() throws Exception {
@@ -204,6 +249,34 @@ public class AttachmentTest extends BasicDatastoreTestBase {
     }
 
 
+    @Test
+    public void createDeleteAttachmentsCompactIncrementallyTest() throws Exception{
+
+        DocumentRevision rev_1Mut = new DocumentRevision();
+        rev_1Mut.setBody(bodyOne);
+        DocumentRevision rev_1 = datastore.create(rev_1Mut);
+        String att1Name = "attachment_1.txt";
+        String att2Name = "attachment_2.txt";
+        Attachment att1 = new UnsavedFileAttachment(TestUtils.loadFixture("fixture/"+att1Name), "text/plain");
+        Attachment att2 = new UnsavedFileAttachment(TestUtils.loadFixture("fixture/"+att2Name), "text/plain");
+
+        rev_1.getAttachments().put(att1Name, att1);
+        rev_1.getAttachments().put(att2Name, att2);
+        DocumentRevision rev2 = datastore.update(rev_1);
+        rev2.getAttachments().remove(att1Name);
+        DocumentRevision rev3 = datastore.update(rev2);
+        datastore.compactIncrementally();
+
+        Assert.assertNull("Att1 not null",
+                datastore.getAttachment(rev3.getId(), rev3.getRevision(), att1Name));
+        Attachment savedAtt2 = datastore.getAttachment(rev3.getId(), rev3.getRevision(), att2Name);
+        Assert.assertNotNull("Att2 null", savedAtt2);
+        Assert.assertTrue("Can't read from Att2", savedAtt2.getInputStream().read() >= 0);
+
+        File attachments = new File(datastore.datastoreDir + "/extensions/com.cloudant.attachments");
+        Assert.assertEquals("Did not find 1 file in blob store", 1, attachments.listFiles().length);
+    }
+
     @Test
     public void createDeleteAttachmentsFailTest() throws Exception {
         // check that an attachment 'going missing' from the blob store doesn't stop us deleting it
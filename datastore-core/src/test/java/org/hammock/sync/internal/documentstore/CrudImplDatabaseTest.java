@@ -28,6 +28,8 @@ import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.DocumentStoreException;
 import org.hammock.sync.documentstore.InvalidDocumentException;
 import org.hammock.sync.documentstore.LocalDocument;
+import org.hammock.sync.event.Subscribe;
+import org.hammock.sync.event.notifications.CompactionProgress;
 import org.hammock.sync.internal.common.CouchUtils;
 import org.hammock.sync.internal.documentstore.callables.GetDocumentsWithInternalIdsCallable;
 import org.hammock.sync.internal.sqlite.Cursor;
@@ -40,6 +42,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -606,6 +609,90 @@ public class CrudImplDatabaseTest extends BasicDatastoreTestBase {
 
     }
 
+    @Test
+    public void compactIncrementallyConflictedTree() throws Exception {
+        String docId = "document-one";
+
+        DocumentRevision root = new DocumentRevision(docId);
+        root.setBody(bodyOne);
+        root = datastore.create(root);
+        for (int i=0; i<10; i++) {
+            InternalDocumentRevision leaf = new InternalDocumentRevision(docId, "2-xyz"+i, bodyOne, null);
+            datastore.forceInsert(leaf, root.getRevision(), leaf.getRevision());
+        }
+
+        CompactionSubscriber subscriber = new CompactionSubscriber();
+        datastore.getEventBus().register(subscriber);
+        datastore.compactIncrementally();
+
+        // root should not have a body but leafs should
+        root = datastore.read(root.getId(), root.getRevision());
+        Assert.assertEquals("root body must be empty after compaction", 0, root.getBody().asMap().size());
+        for (DocumentRevision leaf : datastore.getAllRevisionsOfDocument(docId).leafRevisions()) {
+            Assert.assertTrue("leaf body must not be empty after compaction", leaf.getBody().asMap().size() > 0);
+        }
+
+        CompactionProgress last = subscriber.events.get(subscriber.events.size() - 1);
+        Assert.assertTrue(last.complete);
+        Assert.assertEquals(1, last.revisionsCompacted);
+        Assert.assertEquals(datastore.getLastSequence(), last.sequence);
+    }
+
+    @Test
+    public void updateWithRevsLimit() throws Exception {
+        datastore.setRevsLimit(5);
+        DocumentRevision rev = new DocumentRevision("document-one");
+        rev.setBody(bodyOne);
+        rev = datastore.create(rev);
+        for (int i = 0; i < 10; i++) {
+            rev.setBody(i % 2 == 0 ? bodyTwo : bodyOne);
+            rev = datastore.update(rev);
+        }
+
+        DocumentRevisionTree tree = datastore.getAllRevisionsOfDocument("document-one");
+        Assert.assertEquals(5, tree.getPathForNode(tree.getCurrentRevision().getSequence()).size());
+        Assert.assertEquals(rev.getRevision(), tree.getCurrentRevision().getRevision());
+        Assert.assertEquals(11, CouchUtils.generationFromRevId(rev.getRevision()));
+        Assert.assertEquals(bodyOne.asMap(), datastore.read("document-one").getBody().asMap());
+    }
+
+    @Test
+    public void compactWithRevsLimit() throws Exception {
+        List<String> docIds = Arrays.asList("document-one", "document-two");
+        for (String docId : docIds) {
+            DocumentRevision rev = new DocumentRevision(docId);
+            rev.setBody(bodyOne);
+            rev = datastore.create(rev);
+            for (int i = 0; i < 10; i++) {
+                rev.setBody(i % 2 == 0 ? bodyTwo : bodyOne);
+                rev = datastore.update(rev);
+            }
+        }
+
+        // the limit is applied to documents which weren't updated since it was set
+        datastore.setRevsLimit(3);
+        datastore.compact();
+        DocumentRevisionTree tree = datastore.getAllRevisionsOfDocument("document-one");
+        Assert.assertEquals(3, tree.getPathForNode(tree.getCurrentRevision().getSequence()).size());
+
+        datastore.setRevsLimit(2);
+        datastore.compactIncrementally();
+        for (String docId : docIds) {
+            tree = datastore.getAllRevisionsOfDocument(docId);
+            Assert.assertEquals(2, tree.getPathForNode(tree.getCurrentRevision().getSequence()).size());
+            Assert.assertEquals(11, tree.getCurrentRevision().getGeneration());
+        }
+    }
+
+    public static class CompactionSubscriber {
+        final List<CompactionProgress> events = new ArrayList<CompactionProgress>();
+
+        @Subscribe
+        public void onCompactionProgress(CompactionProgress progress) {
+            events.add(progress);
+        }
+    }
+
     @Test(expected = DocumentNotFoundException.class)
     public void updateNonExistentDocument() throws Exception {
         // Create a rev that doesn't exist
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.documentstore;
+
+import org.hammock.sync.documentstore.DocumentBodyFactory;
+import org.hammock.sync.documentstore.DocumentNotFoundException;
+import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.advanced.ReadCacheStats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DatabaseImplReadCacheTest extends BasicDatastoreTestBase {
+
+    @Test
+    public void cacheDisabledByDefault() throws Exception {
+        DocumentRevision revMut = new DocumentRevision();
+        revMut.setBody(bodyOne);
+        DocumentRevision rev = datastore.create(revMut);
+        datastore.read(rev.getId());
+        datastore.read(rev.getId());
+
+        ReadCacheStats stats = datastore.getReadCacheStats();
+        Assert.assertEquals(0, stats.hits);
+        Assert.assertEquals(0, stats.misses);
+        Assert.assertEquals(0, stats.revisions);
+    }
+
+    @Test
+    public void repeatedReadsHitCache() throws Exception {
+        datastore.setReadCacheSize(1024 * 1024);
+        DocumentRevision revMut = new DocumentRevision();
+        revMut.setBody(bodyOne);
+        DocumentRevision rev = datastore.create(revMut);
+
+        DocumentRevision first = datastore.read(rev.getId());
+        DocumentRevision second = datastore.read(rev.getId());
+        DocumentRevision third = datastore.read(rev.getId(), rev.getRevision());
+
+        ReadCacheStats stats = datastore.getReadCacheStats();
+        Assert.assertEquals(2, stats.hits);
+        Assert.assertEquals(1, stats.misses);
+        Assert.assertEquals(1, stats.revisions);
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(first, third);
+        Assert.assertEquals(first.getBody().asMap(), second.getBody().asMap());
+        // each read returns a separate revision the caller can modify
+        Assert.assertNotSame(first, second);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void nestedChangesToCachedBodyNotShared() throws Exception {
+        datastore.setReadCacheSize(1024 * 1024);
+        Map<String, Object> nested = new HashMap<String, Object>();
+        nested.put("name", "original");
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("nested", nested);
+        map.put("list", new ArrayList<Object>(Arrays.asList("original")));
+        DocumentRevision revMut = new DocumentRevision();
+        revMut.setBody(DocumentBodyFactory.create(map));
+        DocumentRevision rev = datastore.create(revMut);
+        datastore.read(rev.getId());
+
+        // change nested values in the body of a cache hit
+        Map<String, Object> hit = datastore.read(rev.getId()).getBody().asMap();
+        ((Map<String, Object>) hit.get("nested")).put("name", "changed");
+        ((List<Object>) hit.get("list")).set(0, "changed");
+
+        DocumentRevision reread = datastore.read(rev.getId());
+        Assert.assertEquals(2, datastore.getReadCacheStats().hits);
+        Map<String, Object> body = reread.getBody().asMap();
+        Assert.assertEquals("original", ((Map<String, Object>) body.get("nested")).get("name"));
+        Assert.assertEquals("original", ((List<Object>) body.get("list")).get(0));
+    }
+
+    @Test
+    public void updateInvalidatesCache() throws Exception {
+        datastore.setReadCacheSize(1024 * 1024);
+        DocumentRevision revMut = new DocumentRevision();
+        revMut.setBody(bodyOne);
+        DocumentRevision rev = datastore.create(revMut);
+
+        DocumentRevision read = datastore.read(rev.getId());
+        read.setBody(bodyTwo);
+        DocumentRevision updated = datastore.update(read);
+
+        DocumentRevision winner = datastore.read(rev.getId());
+        Assert.assertEquals(updated.getRevision(), winner.getRevision());
+        Assert.assertEquals(bodyTwo.asMap(), winner.getBody().asMap());
+    }
+
+    @Test
+    public void deleteInvalidatesCache() throws Exception {
+        datastore.setReadCacheSize(1024 * 1024);
+        DocumentRevision revMut = new DocumentRevision();
+        revMut.setBody(bodyOne);
+        DocumentRevision rev = datastore.create(revMut);
+
+        datastore.delete(datastore.read(rev.getId()));
+
+        try {
+            DocumentRevision deleted = datastore.read(rev.getId());
+            Assert.assertTrue(deleted.isDeleted());
+        } catch (DocumentNotFoundException e) {
+            // also acceptable for a deleted document
+        }
+        Assert.assertEquals(0, datastore.getReadCacheStats().hits);
+    }
+
+    @Test
+    public void leastRecentlyReadDocumentsEvicted() throws Exception {
+        InternalDocumentRevision[] revs = createThreeDocuments();
+        datastore.setReadCacheSize(1024 * 1024);
+        for (InternalDocumentRevision rev : revs) {
+            datastore.read(rev.getId());
+        }
+        Assert.assertEquals(3, datastore.getReadCacheStats().revisions);
+
+        // shrink the cache to about the size of two revisions
+        long size = datastore.getReadCacheStats().sizeBytes;
+        datastore.setReadCacheSize(size - 1);
+
+        ReadCacheStats stats = datastore.getReadCacheStats();
+        Assert.assertTrue(stats.revisions < 3);
+        Assert.assertTrue(stats.evictions > 0);
+        Assert.assertTrue(stats.sizeBytes <= size - 1);
+
+        // the most recently read document is still cached
+        long hits = stats.hits;
+        datastore.read(revs[2].getId());
+        Assert.assertEquals(hits + 1, datastore.getReadCacheStats().hits);
+    }
+
+    @Test
+    public void disablingCacheEmptiesIt() throws Exception {
+        datastore.setReadCacheSize(1024 * 1024);
+        DocumentRevision revMut = new DocumentRevision();
+        revMut.setBody(bodyOne);
+        DocumentRevision rev = datastore.create(revMut);
+        datastore.read(rev.getId());
+
+        datastore.setReadCacheSize(0);
+
+        datastore.read(rev.getId());
+        ReadCacheStats stats = datastore.getReadCacheStats();
+        Assert.assertEquals(0, stats.revisions);
+        Assert.assertEquals(0, stats.hits);
+    }
+}
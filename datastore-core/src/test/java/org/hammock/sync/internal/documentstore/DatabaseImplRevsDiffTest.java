@@ -144,4 +144,48 @@ public class DatabaseImplRevsDiffTest extends BasicDatastoreTestBase{
         Assert.assertFalse(missing.get(rev1.getId()).contains(rev1.getRevision()));
     }
 
+    @Test
+    public void revsDiff_revisionOfOtherDoc_returnedAsMissing() throws Exception {
+        DocumentRevision revMut1 = new DocumentRevision();
+        revMut1.setBody(bodyOne);
+        DocumentRevision rev1 = datastore.create(revMut1);
+        DocumentRevision revMut2 = new DocumentRevision();
+        revMut2.setBody(bodyTwo);
+        DocumentRevision rev2 = datastore.create(revMut2);
+
+        // rev2's revision is looked up alongside rev1's, but isn't a revision of rev1's doc
+        ValueListMap<String, String> revs = new ValueListMap<String, String>();
+        revs.addValueToKey(rev1.getId(), rev2.getRevision());
+        revs.addValueToKey(rev2.getId(), rev2.getRevision());
+
+        Map<String, List<String>> missingRevs = datastore.revsDiff(revs);
+        Assert.assertEquals(1, missingRevs.size());
+        Assert.assertEquals(1, missingRevs.get(rev1.getId()).size());
+        Assert.assertTrue(missingRevs.get(rev1.getId()).contains(rev2.getRevision()));
+    }
+
+    @Test
+    public void revsDiff_manyDocs_onlyNonExistingRevisionsReturned() throws Exception {
+        // enough documents that they're checked in several chunks
+        ValueListMap<String, String> revs = new ValueListMap<String, String>();
+        for (int i = 0; i < 1000; i++) {
+            DocumentRevision revMut = new DocumentRevision("doc-" + i);
+            revMut.setBody(bodyOne);
+            DocumentRevision rev = datastore.create(revMut);
+            revs.addValueToKey(rev.getId(), rev.getRevision());
+            if (i % 2 == 0) {
+                revs.addValueToKey(rev.getId(), "2-a");
+            }
+        }
+        revs.addValueToKey("missing-doc", "1-a");
+
+        Map<String, List<String>> missingRevs = datastore.revsDiff(revs);
+        Assert.assertEquals(501, missingRevs.size());
+        for (int i = 0; i < 1000; i += 2) {
+            Assert.assertEquals(1, missingRevs.get("doc-" + i).size());
+            Assert.assertTrue(missingRevs.get("doc-" + i).contains("2-a"));
+        }
+        Assert.assertTrue(missingRevs.get("missing-doc").contains("1-a"));
+    }
+
 }
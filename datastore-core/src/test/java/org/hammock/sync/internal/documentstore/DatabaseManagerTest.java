@@ -19,6 +19,7 @@ import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.DocumentStoreNotDeletedException;
 import org.hammock.sync.documentstore.DocumentStoreNotOpenedException;
 import org.hammock.sync.documentstore.DocumentStore;
+import org.hammock.sync.documentstore.encryption.NullKeyProvider;
 import org.hammock.sync.util.MultiThreadedTestHelper;
 
 import org.apache.commons.io.FileUtils;
@@ -97,6 +98,29 @@ public class DatabaseManagerTest {
         // TODO assert?
     }
 
+    @Test
+    public void openDatastore_withoutReaders_noWriteAheadLog() throws Exception {
+        DocumentStore ds = DocumentStore.getInstance(TEST_PATH);
+        try {
+            ds.database().create(new DocumentRevision("doc1"));
+            Assert.assertFalse(new File(TEST_PATH, "db.sync-wal").exists());
+        } finally {
+            ds.close();
+        }
+    }
+
+    @Test
+    public void openDatastore_withReaders_writeAheadLog() throws Exception {
+        DocumentStore ds = DocumentStore.getInstance(TEST_PATH, new NullKeyProvider(), 2);
+        try {
+            ds.database().create(new DocumentRevision("doc1"));
+            Assert.assertTrue(new File(TEST_PATH, "db.sync-wal").exists());
+            Assert.assertNotNull(ds.database().read("doc1"));
+        } finally {
+            ds.close();
+        }
+    }
+
     private DocumentStore createAndAssertDatastore() throws Exception {
         DocumentStore d = DocumentStore.getInstance(TEST_PATH);
         Database ds = d.database();
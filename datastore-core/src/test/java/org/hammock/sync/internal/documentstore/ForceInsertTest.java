@@ -32,8 +32,10 @@ import org.junit.Test;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
@@ -173,6 +175,82 @@ public class ForceInsertTest extends BasicDatastoreTestBase {
 
     }
 
+    @Test
+    public void forceInsertBatchWithSeveralRevisionsOfDocuments() throws Exception {
+        DocumentRevision docA = new DocumentRevision("a");
+        docA.setBody(bodyOne);
+        String a1 = datastore.create(docA).getRevision();
+
+        Map<String, Object> att1 = new HashMap<String, Object>();
+        att1.put("data", new String(new Base64().encode("this is some data".getBytes
+                (StandardCharsets.UTF_8))));
+        att1.put("content_type", "text/plain");
+        Map<String, Object> stub = new HashMap<String, Object>();
+        stub.put("stub", true);
+
+        // revisions of an existing document, one carrying its attachment forward from the
+        // revision before it in the same batch, then a new document with two revisions
+        List<ForceInsertItem> items = new ArrayList<ForceInsertItem>();
+        items.add(item("a", Arrays.asList(a1, "2-a"), Collections.<String, Object>singletonMap
+                ("att1", att1)));
+        items.add(item("a", Arrays.asList(a1, "2-a", "3-a"), Collections.<String, Object>
+                singletonMap("att1", stub)));
+        items.add(item("a", Arrays.asList(a1, "2-b"), null));
+        items.add(item("b", Arrays.asList("1-c"), null));
+        items.add(item("b", Arrays.asList("1-c", "2-c"), null));
+        datastore.forceInsert(items);
+
+        Assert.assertEquals("3-a", datastore.read("a").getRevision());
+        Assert.assertEquals("2-c", datastore.read("b").getRevision());
+        Assert.assertNotNull(datastore.getAttachment("a", "3-a", "att1"));
+        List<String> conflicted = new ArrayList<String>();
+        for (String id : datastore.getConflictedIds()) {
+            conflicted.add(id);
+        }
+        Assert.assertEquals(Collections.singletonList("a"), conflicted);
+        DocumentRevisionTree treeA = datastore.getAllRevisionsOfDocument("a");
+        Assert.assertEquals(2, treeA.leafRevisions().size());
+        Assert.assertEquals("3-a", treeA.getCurrentRevision().getRevision());
+        DocumentRevisionTree treeB = datastore.getAllRevisionsOfDocument("b");
+        Assert.assertEquals(1, treeB.leafRevisions().size());
+        Assert.assertEquals("2-c", treeB.getCurrentRevision().getRevision());
+    }
+
+    @Test
+    public void forceInsertWithRevsLimit() throws Exception {
+        datastore.setRevsLimit(3);
+
+        // only the most recent revisions of a new document's history are inserted
+        datastore.forceInsert(Collections.singletonList(item("a", history(6), null)));
+        DocumentRevisionTree tree = datastore.getAllRevisionsOfDocument("a");
+        Assert.assertEquals(Arrays.asList("6-x", "5-x", "4-x"),
+                tree.getPath(tree.getCurrentRevision().getSequence()));
+
+        // the full history of a later revision still finds the pruned tree, so the new
+        // revision extends it rather than being a conflict
+        datastore.forceInsert(Collections.singletonList(item("a", history(8), null)));
+        tree = datastore.getAllRevisionsOfDocument("a");
+        Assert.assertEquals(1, tree.leafRevisions().size());
+        Assert.assertEquals(Arrays.asList("8-x", "7-x", "6-x"),
+                tree.getPath(tree.getCurrentRevision().getSequence()));
+        Assert.assertFalse(datastore.getConflictedIds().iterator().hasNext());
+    }
+
+    private static List<String> history(int generations) {
+        List<String> history = new ArrayList<String>();
+        for (int i = 1; i <= generations; i++) {
+            history.add(i + "-x");
+        }
+        return history;
+    }
+
+    private ForceInsertItem item(String docId, List<String> history, Map<String, Object>
+            attachments) {
+        InternalDocumentRevision rev = new DocumentRevisionBuilder().setDocId(docId)
+                .setRevId(history.get(history.size() - 1)).setBody(bodyOne).build();
+        return new ForceInsertItem(rev, history, attachments, null, true);
+    }
+
     // some tests don't care about these events so we need to check for null
     @Subscribe
     public void onDocumentCreated(DocumentCreated dc) {
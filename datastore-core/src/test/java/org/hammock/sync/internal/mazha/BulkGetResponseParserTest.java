@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.mazha;
+
+import org.hammock.sync.internal.documentstore.DocumentRevsList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+public class BulkGetResponseParserTest {
+
+    private static final String RESPONSE = "{\"results\": [" +
+            "{\"id\": \"a\", \"docs\": [{\"ok\": {\"_id\": \"a\", \"_rev\": \"2-x\", " +
+            "\"_revisions\": {\"start\": 2, \"ids\": [\"x\", \"w\"]}, \"name\": \"one\"}}]}," +
+            "{\"id\": \"a\", \"docs\": [{\"ok\": {\"_id\": \"a\", \"_rev\": \"2-y\", " +
+            "\"_revisions\": {\"start\": 2, \"ids\": [\"y\", \"w\"]}}}]}," +
+            "{\"id\": \"b\", \"docs\": [{\"error\": {\"id\": \"b\", \"rev\": \"1-z\", " +
+            "\"error\": \"not_found\", \"reason\": \"missing\"}}]}," +
+            "{\"id\": \"c\", \"docs\": [{\"ok\": {\"_id\": \"c\", \"_rev\": \"1-v\", " +
+            "\"_revisions\": {\"start\": 1, \"ids\": [\"v\"]}}}]}" +
+            "]}";
+
+    @Test
+    public void consecutiveRevisionsAreGroupedById() throws IOException {
+        BulkGetResponseParser parser = parser(RESPONSE);
+        try {
+            DocumentRevsList a = parser.next();
+            Assert.assertEquals("a", a.get(0).getId());
+            Assert.assertEquals("a", a.get(1).getId());
+            Assert.assertEquals("one", a.get(0).getRev().equals("2-x") ?
+                    a.get(0).getOthers().get("name") : a.get(1).getOthers().get("name"));
+
+            DocumentRevsList c = parser.next();
+            Assert.assertEquals("c", c.get(0).getId());
+            Assert.assertEquals("1-v", c.get(0).getRev());
+
+            Assert.assertNull(parser.next());
+            Assert.assertNull(parser.next());
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void emptyResultsReturnNothing() throws IOException {
+        BulkGetResponseParser parser = parser("{\"results\": []}");
+        try {
+            Assert.assertNull(parser.next());
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void truncatedResponseDoesNotReturnPartialGroup() throws IOException {
+        // cut the response off after the first revision of "a"
+        String truncated = RESPONSE.substring(0, RESPONSE.indexOf("{\"id\": \"a\", \"docs\"", 20));
+        BulkGetResponseParser parser = parser(truncated);
+        try {
+            parser.next();
+            Assert.fail("Expected IOException for truncated response");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static BulkGetResponseParser parser(String json) throws IOException {
+        return new BulkGetResponseParser(new ByteArrayInputStream(json.getBytes(Charset
+                .forName("UTF-8"))));
+    }
+}
@@ -17,6 +17,7 @@ package org.hammock.sync.internal.query;
 import org.hammock.sync.query.Index;
 import org.hammock.sync.query.Query;
 import org.hammock.sync.query.QueryException;
+import org.hammock.sync.query.QueryPlan;
 import org.hammock.sync.query.QueryResult;
 import org.hammock.sync.query.FieldSort;
 import org.hammock.sync.query.Tokenizer;
@@ -57,6 +58,16 @@ public abstract class DelegatingMockQuery implements Query {
         delegate.refreshAllIndexes();
     }
 
+    @Override
+    public void setBackgroundIndexing(boolean enabled) {
+        delegate.setBackgroundIndexing(enabled);
+    }
+
+    @Override
+    public Map<String, Long> getIndexLag() throws QueryException {
+        return delegate.getIndexLag();
+    }
+
     @Override
     public QueryResult find(Map<String, Object> query) throws QueryException {
         return delegate.find(query);
@@ -67,6 +78,11 @@ public abstract class DelegatingMockQuery implements Query {
         return delegate.find(query, skip, limit, fields, sortSpecification);
     }
 
+    @Override
+    public QueryPlan explain(Map<String, Object> query) throws QueryException {
+        return delegate.explain(query);
+    }
+
     @Override
     public boolean isTextSearchEnabled() {
         return delegate.isTextSearchEnabled();
@@ -1053,6 +1053,97 @@ public class IndexUpdaterTest extends AbstractIndexTestBase {
 
     }
 
+    @Test
+    public void updateAllIndexesFromDifferentSequences() throws Exception {
+        createIndex("basicName", Arrays.<FieldSort>asList(new FieldSort("name")));
+        createDoc("mike12", "mike", 12);
+        createIndex("basicAge", Arrays.<FieldSort>asList(new FieldSort("age")), IndexType.JSON);
+        createDoc("fred34", "fred", 34);
+        IndexUpdater.updateIndex("basicName", IndexMatcherHelpers.getIndexNamed("basicName",
+                im.listIndexes()).fieldNames, ds, indexManagerDatabaseQueue);
+        createDoc("john72", "john", 72);
+
+        // basicName has seen both docs so far, basicAge only the first
+        assertThat(getIndexSequenceNumber("basicName"), is(2l));
+        assertThat(getIndexSequenceNumber("basicAge"), is(1l));
+
+        im.refreshAllIndexes();
+
+        assertThat(getIndexSequenceNumber("basicName"), is(3l));
+        assertThat(getIndexSequenceNumber("basicAge"), is(3l));
+
+        final String sqlBasicName = String.format("SELECT _id FROM %s",
+                QueryImpl.tableNameForIndex("basicName"));
+        final String sqlBasicAge = String.format("SELECT _id FROM %s",
+                QueryImpl.tableNameForIndex("basicAge"));
+        indexManagerDatabaseQueue.submit(new SQLCallable<Void>() {
+            @Override
+            public Void call(SQLDatabase db) throws Exception {
+                assertThat(idsIn(db, sqlBasicName), containsInAnyOrder("mike12", "fred34",
+                        "john72"));
+                assertThat(idsIn(db, sqlBasicAge), containsInAnyOrder("mike12", "fred34",
+                        "john72"));
+                return null;
+            }
+        }).get();
+    }
+
+    @Test
+    public void indexLagCountsUnindexedChanges() throws Exception {
+        createIndex("basic", Arrays.<FieldSort>asList(new FieldSort("name")));
+        assertThat(im.getIndexLag().get("basic"), is(0l));
+
+        createDoc("mike12", "mike", 12);
+        createDoc("fred34", "fred", 34);
+        assertThat(im.getIndexLag().get("basic"), is(2l));
+
+        im.refreshAllIndexes();
+        assertThat(im.getIndexLag().get("basic"), is(0l));
+    }
+
+    @Test
+    public void backgroundIndexingIndexesWritesWithoutQuery() throws Exception {
+        createIndex("basic", Arrays.<FieldSort>asList(new FieldSort("name")));
+        im.setBackgroundIndexing(true);
+        try {
+            createDoc("mike12", "mike", 12);
+            createDoc("fred34", "fred", 34);
+
+            // wait for the background update rather than calling refreshAllIndexes
+            long deadline = System.currentTimeMillis() + 10000;
+            while (getIndexSequenceNumber("basic") < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(BackgroundIndexer.BATCH_DELAY_MS);
+            }
+            assertThat(getIndexSequenceNumber("basic"), is(2l));
+            assertThat(im.getIndexLag().get("basic"), is(0l));
+        } finally {
+            im.setBackgroundIndexing(false);
+        }
+    }
+
+    private void createDoc(String id, String name, int age) throws Exception {
+        DocumentRevision rev = new DocumentRevision(id);
+        Map<String, Object> bodyMap = new HashMap<String, Object>();
+        bodyMap.put("name", name);
+        bodyMap.put("age", age);
+        rev.setBody(DocumentBodyFactory.create(bodyMap));
+        ds.create(rev);
+    }
+
+    private static List<String> idsIn(SQLDatabase db, String sql) throws Exception {
+        List<String> ids = new ArrayList<String>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, new String[]{});
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        } finally {
+            DatabaseUtils.closeCursorQuietly(cursor);
+        }
+        return ids;
+    }
+
     @Test
     public void indexUpdatesPersistFromCreation() throws Exception {
         long exepctedSequence = 0l;
@@ -28,7 +28,10 @@ import static org.hamcrest.Matchers.nullValue;
 import org.hammock.sync.documentstore.ConflictException;
 import org.hammock.sync.documentstore.DocumentBodyFactory;
 import org.hammock.sync.documentstore.DocumentRevision;
+import org.hammock.sync.documentstore.UnsavedStreamAttachment;
 import org.hammock.sync.internal.documentstore.ProjectedDocumentRevision;
+import org.hammock.sync.query.FieldSort;
+import org.hammock.sync.query.Index;
 import org.hammock.sync.query.QueryException;
 import org.hammock.sync.query.QueryResult;
 import org.hammock.sync.util.SQLDatabaseTestUtils;
@@ -37,9 +40,11 @@ import org.hammock.sync.util.TestUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class QueryFilterFieldsTest extends AbstractQueryTestBase {
@@ -222,4 +227,96 @@ public class QueryFilterFieldsTest extends AbstractQueryTestBase {
         }
     }
 
+    @Test
+    public void projectsFieldsCoveredByIndex() throws QueryException {
+        // query - { "name" : "mike" }
+        Map<String, Object> query = new HashMap<String, Object>();
+        query.put("name", "mike");
+        QueryResult queryResult = im.find(query, 0, Long.MAX_VALUE, Arrays.asList("name", "age"),
+                null);
+        assertThat(queryResult.size(), is(3));
+        for (DocumentRevision rev : queryResult) {
+            assertThat(rev, is(instanceOf(ProjectedDocumentRevision.class)));
+            Map<String, Object> revBody = rev.getBody().asMap();
+            assertThat(revBody.keySet(), containsInAnyOrder("name", "age"));
+            assertThat((String) revBody.get("name"), is("mike"));
+            assertThat(revBody.get("age"), is(instanceOf(Integer.class)));
+            assertThat(rev.getRevision(), is(ds.read(rev.getId()).getRevision()));
+        }
+    }
+
+    @Test
+    public void projectsFieldsFromBodyWhenIndexValueInexact() throws Exception {
+        // booleans are indexed as integers and missing fields as NULL
+        DocumentRevision rev = new DocumentRevision("bob");
+        Map<String, Object> bodyMap = new HashMap<String, Object>();
+        bodyMap.put("name", "bob");
+        bodyMap.put("age", true);
+        rev.setBody(DocumentBodyFactory.create(bodyMap));
+        ds.create(rev);
+        rev = new DocumentRevision("bob2");
+        bodyMap.clear();
+        bodyMap.put("name", "bob");
+        rev.setBody(DocumentBodyFactory.create(bodyMap));
+        ds.create(rev);
+
+        // query - { "name" : "bob" }
+        Map<String, Object> query = new HashMap<String, Object>();
+        query.put("name", "bob");
+        QueryResult queryResult = im.find(query, 0, Long.MAX_VALUE, Arrays.asList("name", "age"),
+                null);
+        assertThat(queryResult.size(), is(2));
+        for (DocumentRevision result : queryResult) {
+            Map<String, Object> revBody = result.getBody().asMap();
+            if (result.getId().equals("bob")) {
+                assertThat(revBody.keySet(), containsInAnyOrder("name", "age"));
+                assertThat((Boolean) revBody.get("age"), is(true));
+            } else {
+                assertThat(revBody.keySet(), contains("name"));
+            }
+        }
+    }
+
+    @Test
+    public void projectsAttachmentsWithAndWithoutCoveringIndex() throws Exception {
+        DocumentRevision rev = ds.read("mike12");
+        rev.getAttachments().put("att1", new UnsavedStreamAttachment(
+                new ByteArrayInputStream("hello universe".getBytes()), "text/plain"));
+        ds.update(rev);
+
+        // query - { "name" : "mike" }
+        Map<String, Object> query = new HashMap<String, Object>();
+        query.put("name", "mike");
+        // "basic" covers name and age, no index covers pet as well
+        for (List<String> fields : Arrays.asList(Arrays.asList("name", "age"),
+                Arrays.asList("name", "age", "pet"))) {
+            QueryResult queryResult = im.find(query, 0, Long.MAX_VALUE, fields, null);
+            assertThat(queryResult.size(), is(3));
+            for (DocumentRevision result : queryResult) {
+                assertThat(result, is(instanceOf(ProjectedDocumentRevision.class)));
+                if (result.getId().equals("mike12")) {
+                    assertThat(result.getAttachments().keySet(), contains("att1"));
+                    assertThat(result.getAttachments().get("att1").type, is("text/plain"));
+                } else {
+                    assertThat(result.getAttachments().isEmpty(), is(true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void coveringIndexHasAllFields() {
+        List<Index> indexes = Arrays.asList(
+                new Index(Arrays.asList(new FieldSort("name"), new FieldSort("age"),
+                        new FieldSort("pet")), "wide"),
+                new Index(Arrays.asList(new FieldSort("name"), new FieldSort("age")), "narrow"));
+        assertThat(QueryExecutor.coveringIndexForFields(Arrays.asList("name", "age"), indexes),
+                is("narrow"));
+        assertThat(QueryExecutor.coveringIndexForFields(Arrays.asList("_id", "pet"), indexes),
+                is("wide"));
+        assertThat(QueryExecutor.coveringIndexForFields(Arrays.asList("name", "town"),
+                indexes), is(nullValue()));
+        assertThat(QueryExecutor.coveringIndexForFields(null, indexes), is(nullValue()));
+    }
+
 }
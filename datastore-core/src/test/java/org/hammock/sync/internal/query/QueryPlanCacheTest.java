@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.query;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.hammock.sync.query.FieldSort;
+import org.hammock.sync.query.Index;
+import org.hammock.sync.query.QueryException;
+import org.hammock.sync.query.QueryPlan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class QueryPlanCacheTest extends AbstractIndexTestBase {
+
+    List<Index> indexes;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        im.createJsonIndex(Arrays.<FieldSort>asList(new FieldSort("name"), new FieldSort("age"),
+                new FieldSort("pet")), "basic");
+        indexes = im.listIndexes();
+    }
+
+    @Test
+    public void boundPlanMatchesTranslatedQuery() throws QueryException {
+        // query - { "name" : "mike", "age" : { "$gt" : 12 }, "pet" : { "$nin" : [ "cat", "dog" ] } }
+        Map<String, Object> query = new HashMap<String, Object>();
+        query.put("name", "mike");
+        query.put("age", Collections.<String, Object>singletonMap("$gt", 12));
+        query.put("pet", Collections.<String, Object>singletonMap("$nin",
+                Arrays.<Object>asList("cat", "dog")));
+        query = QueryValidator.normaliseAndValidateQuery(query);
+
+        List<Object> operands = new ArrayList<Object>();
+        Map<String, Object> template = QueryPlanCache.template(query, operands);
+        assertThat(template, is(notNullValue()));
+        assertThat(operands.size(), is(4));
+
+        Boolean[] templateCoverQuery = new Boolean[]{ false };
+        QueryPlanCache.Plan plan = new QueryPlanCache.Plan((ChildrenQueryNode) QuerySqlTranslator
+                .translateQuery(template, indexes, templateCoverQuery), templateCoverQuery[0]);
+        SqlQueryNode bound = (SqlQueryNode) plan.bind(operands).children.get(0);
+
+        Boolean[] indexesCoverQuery = new Boolean[]{ false };
+        AndQueryNode translated = (AndQueryNode) QuerySqlTranslator.translateQuery(query,
+                indexes, indexesCoverQuery);
+        SqlQueryNode expected = (SqlQueryNode) translated.children.get(0);
+
+        assertThat(plan.indexesCoverQuery, is(indexesCoverQuery[0]));
+        assertThat(bound.indexName, is("basic"));
+        assertThat(bound.sql.sqlWithPlaceHolders, is(expected.sql.sqlWithPlaceHolders));
+        assertThat(bound.sql.placeHolderValues, is(expected.sql.placeHolderValues));
+    }
+
+    @Test
+    public void queriesOfTheSameShapeShareAKey() throws QueryException {
+        Map<String, Object> mike = QueryValidator.normaliseAndValidateQuery(
+                Collections.<String, Object>singletonMap("name", "mike"));
+        Map<String, Object> fred = QueryValidator.normaliseAndValidateQuery(
+                Collections.<String, Object>singletonMap("name", "fred"));
+        Map<String, Object> bool = QueryValidator.normaliseAndValidateQuery(
+                Collections.<String, Object>singletonMap("name", true));
+
+        List<Object> operands = new ArrayList<Object>();
+        List<Object> mikeKey = QueryPlanCache.keyFor(QueryPlanCache.template(mike, operands),
+                indexes);
+        List<Object> fredKey = QueryPlanCache.keyFor(QueryPlanCache.template(fred, operands),
+                indexes);
+        List<Object> boolKey = QueryPlanCache.keyFor(QueryPlanCache.template(bool, operands),
+                indexes);
+
+        assertThat(mikeKey, is(fredKey));
+        // booleans are converted by the translator, so are part of the shape
+        assertThat(boolKey, is(not(mikeKey)));
+        assertThat(QueryPlanCache.keyFor(QueryPlanCache.template(mike, operands),
+                indexes.subList(0, 0)), is(not(mikeKey)));
+    }
+
+    @Test
+    public void textSearchLikeAMarkerIsNotCached() throws QueryException {
+        // query - { "$text" : { "$search" : "?0" } }
+        Map<String, Object> query = QueryValidator.normaliseAndValidateQuery(
+                Collections.<String, Object>singletonMap("$text",
+                        Collections.<String, Object>singletonMap("$search", "?0")));
+        assertThat(QueryPlanCache.template(query, new ArrayList<Object>()), is(nullValue()));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedPlan() {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        List<Object> a = Collections.<Object>singletonList("a");
+        List<Object> b = Collections.<Object>singletonList("b");
+        List<Object> c = Collections.<Object>singletonList("c");
+        cache.put(a, new QueryPlanCache.Plan(new AndQueryNode(), true));
+        cache.put(b, new QueryPlanCache.Plan(new AndQueryNode(), true));
+        assertThat(cache.get(a), is(notNullValue()));
+        cache.put(c, new QueryPlanCache.Plan(new AndQueryNode(), true));
+
+        assertThat(cache.get(b), is(nullValue()));
+        assertThat(cache.get(a), is(notNullValue()));
+        assertThat(cache.size(), is(2));
+
+        cache.clear();
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void findReusesPlanForQueriesOfTheSameShape() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(QueryPlanCache.DEFAULT_CAPACITY);
+        QueryExecutor executor = new QueryExecutor(ds, indexManagerDatabaseQueue, cache);
+        executor.find(Collections.<String, Object>singletonMap("name", "mike"), indexes, 0, 0,
+                null, null);
+        executor.find(Collections.<String, Object>singletonMap("name", "fred"), indexes, 0, 0,
+                null, null);
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+    }
+
+    @Test
+    public void explainsIndexedQuery() throws QueryException {
+        // query - { "name" : "mike", "age" : 12 }
+        Map<String, Object> query = new HashMap<String, Object>();
+        query.put("name", "mike");
+        query.put("age", 12);
+        QueryPlan plan = im.explain(query);
+
+        assertThat(plan.getIndexNames(), contains("basic"));
+        assertThat(plan.getSql().size(), is(1));
+        assertThat(plan.isDocumentMatchingRequired(), is(false));
+    }
+
+    @Test
+    public void explainsUnindexedQuery() throws QueryException {
+        // query - { "town" : "bristol" }
+        QueryPlan plan = im.explain(Collections.<String, Object>singletonMap("town", "bristol"));
+
+        assertThat(plan.getSql(), is(not(empty())));
+        assertThat(plan.isDocumentMatchingRequired(), is(true));
+    }
+}
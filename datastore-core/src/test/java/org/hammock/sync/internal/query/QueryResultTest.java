@@ -18,6 +18,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 
+import org.hammock.sync.documentstore.DocumentBodyFactory;
+import org.hammock.sync.documentstore.DocumentRevision;
 import org.hammock.sync.documentstore.encryption.NullKeyProvider;
 import org.hammock.sync.query.FieldSort;
 import org.hammock.sync.query.QueryException;
@@ -35,9 +37,11 @@ import org.junit.Test;
 import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 public class QueryResultTest extends AbstractQueryTestBase {
@@ -66,7 +70,7 @@ public class QueryResultTest extends AbstractQueryTestBase {
 
     /*
      * Perform a simple query then drop the revs table from the database before attempting
-     * to get the document IDs from the QueryResult.
+     * to get the documents from the QueryResult.
      */
     @Test(expected = NoSuchElementException.class)
     public void testQueryGetDocumentsWithIdsFails() throws InterruptedException,
@@ -89,8 +93,67 @@ public class QueryResultTest extends AbstractQueryTestBase {
             }
         }).get();
 
-        // Attempt to retrieve the document IDs. This should fail with an
+        // Attempt to retrieve the documents. This should fail with an
         // NoSuchElementException because the revs table has been dropped.
-        queryResult.documentIds();
+        queryResult.iterator().next();
+    }
+
+    /*
+     * As above, but the document IDs of a query answered by indexes alone are still available
+     * because they are returned without loading the documents.
+     */
+    @Test
+    public void testQueryGetDocumentIdsWithoutDocuments() throws InterruptedException,
+        ExecutionException, QueryException {
+        List<FieldSort> fields = Collections.<FieldSort>singletonList(new FieldSort("pet"));
+        assertThat(im.createTextIndex(fields, "basic_text", null).indexName, is("basic_text"));
+
+        // query - { "$text" : { "$search" : "cat" } }
+        Map<String, Object> search = new HashMap<String, Object>();
+        search.put("$search", "cat");
+        Map<String, Object> query = new HashMap<String, Object>();
+        query.put("$text", search);
+        QueryResult queryResult = im.find(query);
+        int size = queryResult.size();
+
+        queue.submit(new SQLCallable<Void>() {
+            @Override
+            public Void call(SQLDatabase db) throws Exception {
+                db.execSQL("DROP TABLE IF EXISTS revs");
+                return null;
+            }
+        }).get();
+
+        assertThat(queryResult.documentIds().size(), is(size));
+    }
+
+    /*
+     * Documents which need matching are loaded in growing windows and matched in parallel, so
+     * check the results, skip and limit are unaffected across many windows.
+     */
+    @Test
+    public void testMatchesManyDocumentsInParallel() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            DocumentRevision rev = new DocumentRevision(String.format("number%04d", i));
+            Map<String, Object> bodyMap = new HashMap<String, Object>();
+            bodyMap.put("number", i);
+            bodyMap.put("padding", Collections.singletonMap("text", "some text to skip over"));
+            rev.setBody(DocumentBodyFactory.create(bodyMap));
+            ds.create(rev);
+        }
+
+        // query - { "number" : { "$gte" : 100 } }, which isn't indexed
+        Map<String, Object> query = new HashMap<String, Object>();
+        query.put("number", Collections.<String, Object>singletonMap("$gte", 100));
+
+        Set<String> ids = new HashSet<String>(im.find(query).documentIds());
+        assertThat(ids.size(), is(900));
+        for (int i = 100; i < 1000; i++) {
+            assertThat(ids.contains(String.format("number%04d", i)), is(true));
+        }
+
+        List<String> all = im.find(query).documentIds();
+        List<String> page = im.find(query, 250, 500, null, null).documentIds();
+        assertThat(page, is(all.subList(250, 750)));
     }
 }
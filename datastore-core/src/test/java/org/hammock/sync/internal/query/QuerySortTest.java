@@ -35,6 +35,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -100,6 +101,41 @@ public class QuerySortTest extends AbstractQueryTestBase {
         assertThat(queryResult.documentIds(), contains("mike12", "fred11", "fred34"));
     }
 
+    @Test
+    public void returnsEmptyResultWhenNothingMatches() throws Exception {
+        setUpSortingQueryData();
+        // a single statement, which SQLite sorts the candidates of
+        Map<String, Object> compoundQuery = new HashMap<String, Object>();
+        compoundQuery.put("same", "none");
+        // too many SELECTs to combine, so the candidate IDs are loaded and then sorted
+        List<Object> clauses = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            clauses.add(Collections.singletonMap("name", String.format("nobody-%d", i)));
+        }
+        Map<String, Object> loadedQuery = new HashMap<String, Object>();
+        loadedQuery.put("$or", clauses);
+
+        List<FieldSort> order = Arrays.<FieldSort>asList(new FieldSort("name", FieldSort.Direction.ASCENDING));
+        for (Map<String, Object> query : Arrays.asList(compoundQuery, loadedQuery)) {
+            for (List<FieldSort> sort : Arrays.asList(order, null)) {
+                QueryResult queryResult = im.find(query, 0, Long.MAX_VALUE, null, sort);
+                assertThat(queryResult, is(notNullValue()));
+                assertThat(queryResult.documentIds().isEmpty(), is(true));
+            }
+        }
+
+        // skipping past every result of queries which do match
+        compoundQuery.put("same", "all");
+        clauses.add(Collections.singletonMap("name", "mike"));
+        clauses.add(Collections.singletonMap("name", "fred"));
+        for (Map<String, Object> query : Arrays.asList(compoundQuery, loadedQuery)) {
+            assertThat(im.find(query, 0, Long.MAX_VALUE, null, order).size(), is(3));
+            QueryResult queryResult = im.find(query, 5, Long.MAX_VALUE, null, order);
+            assertThat(queryResult, is(notNullValue()));
+            assertThat(queryResult.size(), is(0));
+        }
+    }
+
     // TODO check test can be deleted - i think it relates to the way the sort document is built up which is no longer relevant
     //@Test
     public void returnsNullWhenTooManyClauses() throws Exception{
@@ -173,6 +209,19 @@ public class QuerySortTest extends AbstractQueryTestBase {
                 is(smallDocIdSet.toArray(new String[smallDocIdSet.size()])));
     }
 
+    @Test
+    public void candidatesSqlForSingleFieldUsingAsc() throws QueryException {
+        List<FieldSort> order = Arrays.<FieldSort>asList(new FieldSort("name", FieldSort.Direction.ASCENDING));
+        SqlParts candidates = SqlParts.partsForSql("SELECT _id FROM \"t\" WHERE \"x\" = ?",
+                new String[]{ "1" });
+        SqlParts parts = sqlToSortIds(candidates, order, indexes,
+                Collections.<String, IndexStatistics>emptyMap(), 10, 5);
+        String sql = "SELECT DISTINCT _id FROM _t_cloudant_sync_query_index_a WHERE _id IN " +
+                "(SELECT _id FROM \"t\" WHERE \"x\" = ?) ORDER BY \"name\" ASC LIMIT 5 OFFSET 10";
+        assertThat(parts.sqlWithPlaceHolders, is(sql));
+        assertThat(parts.placeHolderValues, is(new String[]{ "1" }));
+    }
+
     @Test
     public void largeDocSetForSingleFieldUsingAsc() throws QueryException {
         List<FieldSort> order = Arrays.<FieldSort>asList(new FieldSort("name", FieldSort.Direction.ASCENDING));
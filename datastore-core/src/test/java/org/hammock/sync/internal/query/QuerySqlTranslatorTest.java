@@ -613,6 +613,65 @@ public class QuerySqlTranslatorTest extends AbstractIndexTestBase {
         assertThat(idx, is(nullValue()));
     }
 
+    @Test
+    public void selectsIndexWithFewestColumnsWithoutStatistics() throws QueryException {
+        Index wide = new Index(Arrays.<FieldSort>asList(new FieldSort("name"),
+                new FieldSort("age"),
+                new FieldSort("pet")),
+                "wide",
+                IndexType.JSON);
+
+        Index narrow = new Index(Arrays.<FieldSort>asList(new FieldSort("pet"),
+                new FieldSort("name")),
+                "narrow",
+                IndexType.JSON);
+
+        Map<String, Object> name = new HashMap<String, Object>();
+        name.put("name", "mike");
+        Map<String, Object> pet = new HashMap<String, Object>();
+        pet.put("pet", "cat");
+
+        String idx = QuerySqlTranslator.chooseIndexForAndClause(Arrays.<Object>asList(name, pet),
+                                                                Arrays.<Index>asList(wide, narrow));
+        assertThat(idx, is("narrow"));
+    }
+
+    @Test
+    public void selectsCheapestIndexFromStatistics() throws QueryException {
+        Index wide = new Index(Arrays.<FieldSort>asList(new FieldSort("name"),
+                new FieldSort("age"),
+                new FieldSort("pet")),
+                "wide",
+                IndexType.JSON);
+
+        // narrower, but with an array field indexed so it has many rows for each document
+        Index arrays = new Index(Arrays.<FieldSort>asList(new FieldSort("pet"),
+                new FieldSort("name")),
+                "arrays",
+                IndexType.JSON);
+
+        Map<String, IndexStatistics> statistics = new HashMap<String, IndexStatistics>();
+        statistics.put("wide", IndexStatistics.fromSqliteStat("1000 1 1 1"));
+        statistics.put("arrays", IndexStatistics.fromSqliteStat("20000 20 20"));
+
+        Map<String, Object> name = new HashMap<String, Object>();
+        name.put("name", "mike");
+        Map<String, Object> pet = new HashMap<String, Object>();
+        pet.put("pet", "cat");
+
+        String idx = QuerySqlTranslator.chooseIndexForAndClause(Arrays.<Object>asList(name, pet),
+                Arrays.<Index>asList(arrays, wide), statistics);
+        assertThat(idx, is("wide"));
+        assertThat(statistics.get("arrays").getDocumentCount(), is(1000L));
+    }
+
+    @Test
+    public void ignoresUnparseableStatistics() throws QueryException {
+        assertThat(IndexStatistics.fromSqliteStat(null), is(nullValue()));
+        assertThat(IndexStatistics.fromSqliteStat("unordered"), is(nullValue()));
+        assertThat(IndexStatistics.fromSqliteStat("42").rowsPerDocument, is(1L));
+    }
+
     // When generating query WHERE clauses
 
     @Test(expected = IllegalArgumentException.class)
@@ -1265,6 +1324,76 @@ public class QuerySqlTranslatorTest extends AbstractIndexTestBase {
                                                            indexesCoverQuery);
     }
 
+    // When combining a tree into a compound SELECT
+
+    @Test
+    public void combinesORIntoUnion() throws QueryException {
+        // query - { "$or" : [ { "name" : "mike" }, { "pet" : "cat" } ] }
+        Map<String, Object> nameMap = new HashMap<String, Object>();
+        nameMap.put("name", "mike");
+        Map<String, Object> petMap = new HashMap<String, Object>();
+        petMap.put("pet", "cat");
+        Map<String, Object> query = new LinkedHashMap<String, Object>();
+        query.put("$or", Arrays.<Object>asList(nameMap, petMap));
+        query = QueryValidator.normaliseAndValidateQuery(query);
+
+        QueryNode node = QuerySqlTranslator.translateQuery(query, indexes, indexesCoverQuery);
+        SqlParts compound = QuerySqlTranslator.compoundSelectForTree(node);
+
+        String select = "SELECT _id FROM \"_t_cloudant_sync_query_index_basic\"";
+        String sql = String.format("%s WHERE \"name\" = ? UNION %s WHERE \"pet\" = ?", select,
+                select);
+        assertThat(compound.sqlWithPlaceHolders, is(sql));
+        assertThat(compound.placeHolderValues, is(arrayContaining("mike", "cat")));
+    }
+
+    @Test
+    public void combinesORInANDAsSubSelect() throws QueryException {
+        // query - { "$and" : [ { "name" : "mike" },
+        //                      { "$or" : [ { "name" : "mike" }, { "pet" : "cat" } ] } ] }
+        Map<String, Object> nameMap = new HashMap<String, Object>();
+        nameMap.put("name", "mike");
+        Map<String, Object> petMap = new HashMap<String, Object>();
+        petMap.put("pet", "cat");
+        Map<String, Object> lvl2 = new HashMap<String, Object>();
+        lvl2.put("$or", Arrays.<Object>asList(nameMap, petMap));
+        Map<String, Object> query = new LinkedHashMap<String, Object>();
+        query.put("$and", Arrays.<Object>asList(nameMap, lvl2));
+        query = QueryValidator.normaliseAndValidateQuery(query);
+
+        QueryNode node = QuerySqlTranslator.translateQuery(query, indexes, indexesCoverQuery);
+        SqlParts compound = QuerySqlTranslator.compoundSelectForTree(node);
+
+        String select = "SELECT _id FROM \"_t_cloudant_sync_query_index_basic\"";
+        String sql = String.format("%s WHERE \"name\" = ? INTERSECT SELECT _id FROM " +
+                "(%s WHERE \"name\" = ? UNION %s WHERE \"pet\" = ?)", select, select, select);
+        assertThat(compound.sqlWithPlaceHolders, is(sql));
+        assertThat(compound.placeHolderValues, is(arrayContaining("mike", "mike", "cat")));
+    }
+
+    @Test
+    public void doesNotCombineTreeReadingAllDocumentIds() throws QueryException {
+        SqlQueryNode indexed = new SqlQueryNode();
+        indexed.sql = SqlParts.partsForSql("SELECT _id FROM \"_t_cloudant_sync_query_index_basic\"",
+                new String[]{});
+        // a node without SQL has its IDs read from the database
+        SqlQueryNode allDocs = new SqlQueryNode();
+        AndQueryNode andNode = new AndQueryNode();
+        andNode.children.add(indexed);
+        andNode.children.add(allDocs);
+        assertThat(QuerySqlTranslator.compoundSelectForTree(andNode), is(nullValue()));
+    }
+
+    @Test
+    public void combinesTreeWithoutSqlToNoSql() throws QueryException {
+        AndQueryNode andNode = new AndQueryNode();
+        andNode.children.add(new OrQueryNode());
+        SqlParts compound = QuerySqlTranslator.compoundSelectForTree(andNode);
+        assertThat(compound, is(notNullValue()));
+        assertThat(compound.sqlWithPlaceHolders, is(nullValue()));
+        assertThat(compound.placeHolderValues, is(emptyArray()));
+    }
+
     // When checking for a specific operator in a clause
 
     @Test
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.query;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SortedDocIdSetTest {
+
+    @Test
+    public void sortsAndRemovesDuplicates() {
+        SortedDocIdSet set = SortedDocIdSet.of(Arrays.asList("c", "a", "b", "a", "c"));
+        assertThat(set, contains("a", "b", "c"));
+        assertThat(set.size(), is(3));
+        assertThat(set.contains("b"), is(true));
+        assertThat(set.contains("d"), is(false));
+        assertThat(SortedDocIdSet.of(set), is(sameInstance(set)));
+    }
+
+    @Test
+    public void intersectsSets() {
+        SortedDocIdSet a = SortedDocIdSet.of(Arrays.asList("a", "b", "c", "e"));
+        SortedDocIdSet b = SortedDocIdSet.of(Arrays.asList("b", "d", "e", "f"));
+        assertThat(a.intersect(b), contains("b", "e"));
+        assertThat(a.intersect(SortedDocIdSet.of(Collections.<String>emptyList())),
+                is(empty()));
+    }
+
+    @Test
+    public void unitesSets() {
+        SortedDocIdSet a = SortedDocIdSet.of(Arrays.asList("a", "c", "e"));
+        SortedDocIdSet b = SortedDocIdSet.of(Arrays.asList("b", "c", "f"));
+        assertThat(a.union(b), contains("a", "b", "c", "e", "f"));
+        assertThat(a.union(SortedDocIdSet.of(Collections.<String>emptyList())),
+                contains("a", "c", "e"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void isReadOnly() {
+        SortedDocIdSet.of(Arrays.asList("a", "b")).remove("a");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.replication;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+
+    @Test
+    public void initialSizeClampedToBounds() {
+        Assert.assertEquals(10, new AdaptiveBatchSize(1, 10, 100, 1000, 0).get());
+        Assert.assertEquals(100, new AdaptiveBatchSize(1000, 10, 100, 1000, 0).get());
+        Assert.assertEquals(50, new AdaptiveBatchSize(50, 10, 100, 1000, 0).get());
+    }
+
+    @Test
+    public void quickBatchesGrowAtMostDoubleUpToMax() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(10, 1, 100, 1000, 0);
+        size.record(10, 10, -1, false);
+        Assert.assertEquals(20, size.get());
+        size.record(20, 10, -1, false);
+        Assert.assertEquals(40, size.get());
+        size.record(40, 10, -1, false);
+        size.record(80, 10, -1, false);
+        Assert.assertEquals(100, size.get());
+    }
+
+    @Test
+    public void slowBatchesShrinkAtMostHalfDownToMin() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 5, 1000, 1000, 0);
+        size.record(100, 100000, -1, false);
+        Assert.assertEquals(50, size.get());
+        size.record(50, 100000, -1, false);
+        size.record(25, 100000, -1, false);
+        size.record(12, 100000, -1, false);
+        size.record(6, 100000, -1, false);
+        Assert.assertEquals(5, size.get());
+    }
+
+    @Test
+    public void sizeMovesTowardsTargetTime() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 1, 1000, 1000, 0);
+        // 100 items in 800ms, so 125 items would take the target time
+        size.record(100, 800, -1, false);
+        Assert.assertEquals(125, size.get());
+    }
+
+    @Test
+    public void largePayloadsLimitSize() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 1, 1000, 1000, 10000);
+        // quick, but each item is 200 bytes so only 50 fit in the target
+        size.record(100, 10, 20000, false);
+        Assert.assertEquals(50, size.get());
+    }
+
+    @Test
+    public void unknownPayloadSizeIgnored() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 1, 1000, 1000, 10000);
+        size.record(100, 1000, -1, false);
+        Assert.assertEquals(100, size.get());
+    }
+
+    @Test
+    public void throttledBatchHalvesSize() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 30, 1000, 1000, 0);
+        size.record(100, 10, -1, true);
+        Assert.assertEquals(50, size.get());
+        size.record(50, 10, -1, true);
+        Assert.assertEquals(30, size.get());
+    }
+
+    @Test
+    public void emptyBatchIgnored() {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(100, 1, 1000, 1000, 0);
+        size.record(0, 0, -1, false);
+        Assert.assertEquals(100, size.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxLessThanMinRejected() {
+        new AdaptiveBatchSize(10, 10, 5, 1000, 0);
+    }
+}
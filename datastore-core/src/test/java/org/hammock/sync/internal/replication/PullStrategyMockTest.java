@@ -19,7 +19,9 @@ package org.hammock.sync.internal.replication;
 import static org.junit.Assume.assumeNoException;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -42,14 +44,17 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentMatchers;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.Closeable;
 import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 
 @Category(RequireRunningCouchDB.class)
@@ -333,6 +338,132 @@ public class PullStrategyMockTest extends ReplicationTestBase {
         }
     }
 
+    @Test
+    public void testContinuousWaitsForChangesAndCheckpointsWhenStopped() throws Exception {
+        try {
+            final CouchDB mockRemoteDb = mock(CouchDB.class);
+            when(mockRemoteDb.changes((PullFilter) null, "9-d9e5b0147af143e5b6d1979378ad957b",
+                    1000)).then(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) throws Throwable {
+                    FileReader fr = new FileReader(TestUtils.loadFixture
+                            ("fixture/empty_changes.json"));
+                    return JSONUtils.fromJson(fr, ChangesResult.class);
+                }
+            });
+            when(mockRemoteDb.exists()).thenReturn(true);
+
+            DatastoreWrapper mockLocalDb = mock(DatastoreWrapper.class);
+            when(mockLocalDb.getCheckpoint(any(String.class))).thenReturn("9" +
+                    "-d9e5b0147af143e5b6d1979378ad957b");
+
+            StrategyListener mockListener = mock(StrategyListener.class);
+            final PullStrategy pullStrategy = super.getPullStrategy();
+            pullStrategy.continuous = true;
+            pullStrategy.sourceDb = mockRemoteDb;
+            pullStrategy.targetDb = mockLocalDb;
+            pullStrategy.getEventBus().register(mockListener);
+
+            // stop the replication while it waits for the next change, as the replicator would
+            when(mockRemoteDb.changesLongpoll((PullFilter) any(), (String) any(),
+                    ArgumentMatchers.<List<String>>any(), any(), anyInt(), anyLong(), anyLong()))
+                    .then(new Answer<Object>() {
+                @Override
+                public Object answer(InvocationOnMock invocation) throws Throwable {
+                    pullStrategy.setCancel();
+                    return null;
+                }
+            });
+            pullStrategy.run();
+
+            //make sure the correct events were fired
+            verify(mockListener).complete(any(ReplicationStrategyCompleted.class));
+            verify(mockListener, never()).error(any(ReplicationStrategyErrored.class));
+            // the checkpoint was pending, so the wait was bounded rather than with heartbeats
+            verify(mockRemoteDb).changesLongpoll((PullFilter) any(), (String) any(),
+                    ArgumentMatchers.<List<String>>any(), eq("10" +
+                            "-d9e5b0147af143e5b6d1979378ad957b"), eq(1000), eq(0L), anyLong());
+            verify(mockRemoteDb).abortChangesLongpoll();
+            verify(mockLocalDb).putCheckpoint(anyString(), eq("10" +
+                    "-d9e5b0147af143e5b6d1979378ad957b"));
+        } catch (UnsupportedOperationException uoe) {
+            assumeNoException("Cannot proxy DatastoreWrapper on Dalvik", uoe);
+        }
+    }
+
+
+    @Test
+    public void testCancelMidBatchClosesBulkGetResponse() throws Exception {
+        CouchDB mockRemoteDb = mock(CouchDB.class);
+        when(mockRemoteDb.changes((PullFilter) null, null, 1000)).then(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                FileReader fr = new FileReader(TestUtils.loadFixture
+                        ("fixture/testReplicationDocWithEmptyId_changes.json"));
+                return JSONUtils.fromJson(fr, ChangesResult.class);
+            }
+        });
+        when(mockRemoteDb.exists()).thenReturn(true);
+        when(mockRemoteDb.isBulkSupported()).thenReturn(true);
+
+        PullStrategy pullStrategy = super.getPullStrategy();
+        DocumentRevsList revsList = loadBulkRevsResponseFromFixture
+                ("fixture/testReplicationDocWithEmptyId_open_revs_2.json").iterator().next();
+        // a response with more to read, which is cancelled as its first document is read
+        final CancellingResponse response = new CancellingResponse(revsList, pullStrategy);
+        when(mockRemoteDb.bulkGetRevisions(ArgumentMatchers.<BulkGetRequest>anyList(),
+                anyBoolean())).thenReturn(new Iterable<DocumentRevsList>() {
+            @Override
+            public Iterator<DocumentRevsList> iterator() {
+                return response;
+            }
+        });
+
+        StrategyListener mockListener = mock(StrategyListener.class);
+        pullStrategy.sourceDb = mockRemoteDb;
+        pullStrategy.getEventBus().register(mockListener);
+        pullStrategy.run();
+
+        // nothing was inserted after the cancel, and the unread response was released
+        Assert.assertEquals(0, this.datastore.getDocumentCount());
+        Assert.assertTrue(response.closed);
+        verify(mockListener).complete(any(ReplicationStrategyCompleted.class));
+        verify(mockListener, never()).error(any(ReplicationStrategyErrored.class));
+    }
+
+    private static class CancellingResponse implements Iterator<DocumentRevsList>, Closeable {
+
+        private final DocumentRevsList revsList;
+        private final PullStrategy pullStrategy;
+        private boolean closed = false;
+
+        CancellingResponse(DocumentRevsList revsList, PullStrategy pullStrategy) {
+            this.revsList = revsList;
+            this.pullStrategy = pullStrategy;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !closed;
+        }
+
+        @Override
+        public DocumentRevsList next() {
+            pullStrategy.setCancel();
+            return revsList;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
 
     public class StrategyListener {
 
@@ -153,6 +153,24 @@ public class PullStrategyTest extends ReplicationTestBase {
         Assert.assertEquals(3, replicator.getBatchCounter());
     }
 
+    @Test
+    public void pull_prefetchBatches_allDocsShouldBePulled() throws Exception {
+        PullStrategy replicator = (PullStrategy) ((ReplicatorImpl) super.getPullBuilder()
+                .changeLimitPerBatch(10).insertBatchSize(2).prefetchBatches(3).build()).strategy;
+
+        List<Bar> bars = new ArrayList<Bar>();
+        for (int i = 0; i < 25; i++) {
+            bars.add(BarUtils.createBar(remoteDb, "docNumber" + i, i));
+        }
+        this.pull(replicator, 25);
+        for (Bar bar : bars) {
+            Assert.assertEquals(bar, this.getDocument(bar.getId()));
+        }
+
+        Assert.assertEquals(25, replicator.getDocumentCounter());
+        Assert.assertEquals(3, replicator.getBatchCounter());
+    }
+
     @Test
     public void pull_oneDocUpdatedAfterPull_newRevisionShouldBePulled() throws Exception {
         PullStrategy replicator = super.getPullStrategy();
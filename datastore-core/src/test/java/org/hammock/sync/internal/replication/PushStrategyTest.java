@@ -28,7 +28,9 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -309,6 +311,26 @@ public class PushStrategyTest extends ReplicationTestBase {
         Assert.assertEquals("Tom", m.get("name"));
     }
 
+    @Test
+    public void push_concurrentBatches_allDocsShouldBePushed() throws Exception {
+        PushStrategy replicator = (PushStrategy) ((ReplicatorImpl) super
+                .getPushBuilder().changeLimitPerBatch(10).bulkInsertSize(2)
+                .concurrentBatches(4).build()).strategy;
+
+        List<Bar> bars = new ArrayList<Bar>();
+        for (int i = 0; i < 25; i++) {
+            bars.add(BarUtils.createBar(datastore, "Tom" + i, i));
+        }
+
+        this.push(replicator, 25);
+        // two full pages, one short page and one empty page
+        assertPushReplicationStatus(replicator, 25, 4, "25");
+
+        for (Bar bar : bars) {
+            Assert.assertEquals(bar, couchClient.getDocument(bar.getId(), Bar.class));
+        }
+    }
+
     @Test
     public void push_documentWithIdInChinese_docBePushed() throws Exception {
         PushStrategy replicator = super.getPushStrategy();
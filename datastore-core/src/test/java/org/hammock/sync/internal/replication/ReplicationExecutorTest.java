@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+
+package org.hammock.sync.internal.replication;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hammock.sync.event.EventBus;
+import org.hammock.sync.replication.Replicator;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ReplicationExecutorTest {
+
+    private ReplicationExecutor executor;
+    private List<String> runOrder;
+    private CountDownLatch blockerStarted;
+    private CountDownLatch releaseBlocker;
+
+    @Before
+    public void setUp() throws Exception {
+        // one thread, so replications queue up behind the blocker
+        executor = new ReplicationExecutor(1, 1);
+        runOrder = Collections.synchronizedList(new ArrayList<String>());
+        blockerStarted = new CountDownLatch(1);
+        releaseBlocker = new CountDownLatch(1);
+        ReplicationStrategy blocker = mock(ReplicationStrategy.class);
+        when(blocker.getRemote()).thenReturn("http://127.0.0.1:5984/blocker");
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                blockerStarted.countDown();
+                releaseBlocker.await();
+                return null;
+            }
+        }).when(blocker).run();
+        executor.submit(blocker, 0);
+        Assert.assertTrue(blockerStarted.await(10, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        releaseBlocker.countDown();
+    }
+
+    @Test
+    public void queuedReplicationsRunByPriorityThenTakingTurns() throws Exception {
+        CountDownLatch done = new CountDownLatch(5);
+        executor.submit(strategy("a1", "a", done), 0);
+        executor.submit(strategy("a2", "a", done), 0);
+        executor.submit(strategy("a3", "a", done), 0);
+        executor.submit(strategy("b1", "b", done), 0);
+        executor.submit(strategy("c1", "c", done), 1);
+        Assert.assertEquals(1, executor.getRunningCount());
+        Assert.assertEquals(5, executor.getQueuedCount());
+
+        releaseBlocker.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("c1", "a1", "b1", "a2", "a3"), runOrder);
+    }
+
+    @Test
+    public void cancelledReplicationIsNotRun() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        ReplicationStrategy cancelled = strategy("a1", "a", done);
+        executor.submit(cancelled, 0);
+        executor.submit(strategy("a2", "a", done), 0);
+        Assert.assertTrue(executor.cancel(cancelled));
+        Assert.assertEquals(1, executor.getQueuedCount());
+
+        releaseBlocker.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList("a2"), runOrder);
+        Assert.assertFalse(executor.cancel(cancelled));
+        verify(cancelled, never()).run();
+    }
+
+    @Test
+    public void stoppingQueuedReplicatorStopsWithoutRunning() throws Exception {
+        ReplicationStrategy queued = strategy("a1", "a", new CountDownLatch(1));
+        when(queued.getEventBus()).thenReturn(new EventBus());
+        ReplicatorImpl replicator = new ReplicatorImpl(queued, ReplicatorImpl.NULL_ID,
+                executor, 0);
+        replicator.start();
+        Assert.assertEquals(Replicator.State.STARTED, replicator.getState());
+        Assert.assertEquals(1, executor.getQueuedCount());
+
+        replicator.stop();
+        Assert.assertEquals(Replicator.State.STOPPED, replicator.getState());
+        Assert.assertEquals(0, executor.getQueuedCount());
+        verify(queued, never()).setCancel();
+        verify(queued, never()).run();
+    }
+
+    private ReplicationStrategy strategy(final String name, String database,
+                                         final CountDownLatch done) {
+        ReplicationStrategy strategy = mock(ReplicationStrategy.class);
+        when(strategy.getRemote()).thenReturn("http://127.0.0.1:5984/" + database);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                runOrder.add(name);
+                done.countDown();
+                return null;
+            }
+        }).when(strategy).run();
+        return strategy;
+    }
+}
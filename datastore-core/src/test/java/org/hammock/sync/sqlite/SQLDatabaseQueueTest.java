@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.sqlite;
+
+import org.hammock.sync.documentstore.encryption.NullKeyProvider;
+import org.hammock.sync.internal.android.ContentValues;
+import org.hammock.sync.internal.sqlite.Cursor;
+import org.hammock.sync.internal.sqlite.SQLCallable;
+import org.hammock.sync.internal.sqlite.SQLDatabase;
+import org.hammock.sync.internal.sqlite.SQLDatabaseQueue;
+import org.hammock.sync.util.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+public class SQLDatabaseQueueTest {
+
+    private String databaseDir;
+    private SQLDatabaseQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        databaseDir = TestUtils.createTempTestingDir(SQLDatabaseQueueTest.class.getName());
+        queue = new SQLDatabaseQueue(new File(databaseDir, "db.sync"), new NullKeyProvider(), 2);
+        queue.submit(new SQLCallable<Void>() {
+            @Override
+            public Void call(SQLDatabase db) throws Exception {
+                db.execSQL("CREATE TABLE things (name TEXT NOT NULL)");
+                return null;
+            }
+        }).get();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.shutdown();
+        TestUtils.deleteTempTestingDir(databaseDir);
+    }
+
+    @Test
+    public void readSeesCompletedWrite() throws Exception {
+        insert("one");
+        Assert.assertEquals(1, queue.submitRead(new CountCallable()).get().intValue());
+        insert("two");
+        Assert.assertEquals(2, queue.submitRead(new CountCallable()).get().intValue());
+    }
+
+    @Test
+    public void readSeesOneSnapshot() throws Exception {
+        insert("one");
+        int[] counts = queue.submitRead(new SQLCallable<int[]>() {
+            @Override
+            public int[] call(SQLDatabase db) throws Exception {
+                int before = new CountCallable().call(db);
+                // committed by the writer while this read is running
+                insert("two");
+                return new int[]{before, new CountCallable().call(db)};
+            }
+        }).get();
+        Assert.assertEquals(1, counts[0]);
+        Assert.assertEquals(1, counts[1]);
+        // the next read sees the write
+        Assert.assertEquals(2, queue.submitRead(new CountCallable()).get().intValue());
+    }
+
+    @Test
+    public void readRunsOnReaderThread() throws Exception {
+        String threadName = queue.submitRead(new SQLCallable<String>() {
+            @Override
+            public String call(SQLDatabase db) throws Exception {
+                return Thread.currentThread().getName();
+            }
+        }).get();
+        Assert.assertTrue(threadName, threadName.startsWith("SQLDatabaseQueue reader"));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void readerConnectionIsReadOnly() throws Exception {
+        queue.submitRead(new SQLCallable<Void>() {
+            @Override
+            public Void call(SQLDatabase db) throws Exception {
+                db.execSQL("INSERT INTO things (name) VALUES ('nope')");
+                return null;
+            }
+        }).get();
+    }
+
+    @Test
+    public void readRunsOnWriterWithoutReaders() throws Exception {
+        SQLDatabaseQueue writerOnly = new SQLDatabaseQueue(new File(databaseDir, "other.sync"),
+                new NullKeyProvider());
+        try {
+            String threadName = writerOnly.submitRead(new SQLCallable<String>() {
+                @Override
+                public String call(SQLDatabase db) throws Exception {
+                    return Thread.currentThread().getName();
+                }
+            }).get();
+            Assert.assertFalse(threadName, threadName.startsWith("SQLDatabaseQueue reader"));
+        } finally {
+            writerOnly.shutdown();
+        }
+    }
+
+    private void insert(final String name) throws Exception {
+        queue.submit(new SQLCallable<Void>() {
+            @Override
+            public Void call(SQLDatabase db) throws Exception {
+                ContentValues values = new ContentValues();
+                values.put("name", name);
+                db.insert("things", values);
+                return null;
+            }
+        }).get();
+    }
+
+    private static class CountCallable implements SQLCallable<Integer> {
+        @Override
+        public Integer call(SQLDatabase db) throws Exception {
+            Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM things", null);
+            try {
+                Assert.assertTrue(cursor.moveToFirst());
+                return cursor.getInt(0);
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +62,27 @@ public class JSONUtilsTest {
         Assert.assertFalse(JSONUtils.isValidJSON("101"));
     }
 
+    @Test
+    public void isValidJSON_bytes() {
+        Assert.assertTrue(JSONUtils.isValidJSON("{\"a\":[1,{\"b\":null}]}".getBytes()));
+        Assert.assertFalse(JSONUtils.isValidJSON("[1,2]".getBytes()));
+        Assert.assertFalse(JSONUtils.isValidJSON("{\"a\":[1,2}".getBytes()));
+        Assert.assertFalse(JSONUtils.isValidJSON(new byte[0]));
+    }
+
+    @Test
+    public void deserializeFields() {
+        byte[] json = "{\"a\":{\"b\":[1,2]},\"c\":\"skipped\",\"d\":4,\"e\":null}".getBytes();
+        Map<String, Object> fields = JSONUtils.deserializeFields(json,
+                Arrays.asList("a", "d", "e", "missing"));
+        Assert.assertThat(fields.keySet().size(), is(3));
+        Assert.assertThat(fields.get("a"), is((Object) Collections.singletonMap("b",
+                Arrays.asList(1, 2))));
+        Assert.assertThat(fields.get("d"), is((Object) 4));
+        Assert.assertTrue(fields.containsKey("e"));
+        Assert.assertFalse(fields.containsKey("c"));
+    }
+
     @Test
     public void serializeAsBytes() {
         Map obj = new HashMap<String, String>();
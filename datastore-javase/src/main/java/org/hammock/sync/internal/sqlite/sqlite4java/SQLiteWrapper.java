@@ -40,10 +40,19 @@ public class SQLiteWrapper extends SQLDatabase {
     private static final String[] CONFLICT_VALUES = new String[]
             {"", " OR ROLLBACK ", " OR ABORT ", " OR FAIL ", " OR IGNORE ", " OR REPLACE "};
 
+    /**
+     * Maximum number of compiled statements kept for reuse by each connection.
+     */
+    static final int STATEMENT_CACHE_SIZE = 50;
+
     private final File databaseFile;
 
+    private final boolean readOnly;
+
     private SQLiteConnection localConnection;
 
+    private final StatementCache statementCache = new StatementCache(STATEMENT_CACHE_SIZE);
+
     /**
      * Tracks whether the current nested set of transactions has had any
      * failed transactions so far.
@@ -59,7 +68,12 @@ public class SQLiteWrapper extends SQLDatabase {
     private Stack<Boolean> transactionStack = new Stack<Boolean>();
 
     public SQLiteWrapper(File databaseFile) {
+        this(databaseFile, false);
+    }
+
+    public SQLiteWrapper(File databaseFile, boolean readOnly) {
         this.databaseFile = databaseFile;
+        this.readOnly = readOnly;
     }
 
     public static SQLiteWrapper open(File databaseFile) {
@@ -68,6 +82,20 @@ public class SQLiteWrapper extends SQLDatabase {
         return db;
     }
 
+    /**
+     * Opens a read-only connection to an existing database file. Like all sqlite4java
+     * connections it is confined to the thread which first uses it.
+     *
+     * @param databaseFile the database file, which must already exist
+     * @return a read-only {@code SQLiteWrapper}
+     */
+    public static SQLiteWrapper openReadOnly(File databaseFile) {
+        Misc.checkNotNull(databaseFile, "databaseFile");
+        SQLiteWrapper db = new SQLiteWrapper(databaseFile, true);
+        db.open();
+        return db;
+    }
+
     public SQLiteConnection getConnection() {
         if (localConnection == null) {
             localConnection = createNewConnection();
@@ -84,8 +112,12 @@ public class SQLiteWrapper extends SQLDatabase {
             } else {
                 conn = new SQLiteConnection();
             }
-            // open with "open or create" flag
-            conn.open(true);
+            if (readOnly) {
+                conn.openReadonly();
+            } else {
+                // open with "open or create" flag
+                conn.open(true);
+            }
             conn.setBusyTimeout(30*1000);
             return conn;
         } catch (SQLiteException ex) {
@@ -107,6 +139,18 @@ public class SQLiteWrapper extends SQLDatabase {
         }
     }
 
+    @Override
+    public boolean enableWriteAheadLogging() {
+        try {
+            String mode = SQLiteWrapperUtils.stringForQuery(getConnection(),
+                    "PRAGMA journal_mode = WAL;", null);
+            return "wal".equalsIgnoreCase(mode);
+        } catch (SQLiteException e) {
+            logger.log(Level.WARNING, "Failed to enable write-ahead logging", e);
+            return false;
+        }
+    }
+
     @Override
     public int getVersion() {
         try {
@@ -149,6 +193,19 @@ public class SQLiteWrapper extends SQLDatabase {
         transactionStack.push(false);
     }
 
+    @Override
+    public void beginReadTransaction() throws SQLException {
+        Misc.checkState(this.isOpen(), "db must be open");
+        Misc.checkState(this.transactionStack.isEmpty(),
+                "Read transactions can't be nested in other transactions");
+        this.execSQL("BEGIN DEFERRED;");
+    }
+
+    @Override
+    public void endReadTransaction() throws SQLException {
+        this.execSQL("COMMIT;");
+    }
+
     @Override
     public void endTransaction() {
         Misc.checkState(this.isOpen(), "db must be open");
@@ -202,10 +259,29 @@ public class SQLiteWrapper extends SQLDatabase {
         // for the same thread as us
         SQLiteConnection conn = localConnection;
         if (conn != null && !conn.isDisposed()) {
+            logger.fine(String.format("Closing connection, statement cache hits: %d, misses: %d",
+                    statementCache.getHits(), statementCache.getMisses()));
+            statementCache.clear();
             conn.dispose();
         }
     }
 
+    /**
+     * @return the number of statements executed using a statement from the cache of
+     * compiled statements
+     */
+    public long getStatementCacheHits() {
+        return statementCache.getHits();
+    }
+
+    /**
+     * @return the number of statements executed which had to be compiled as they weren't in
+     * the cache of compiled statements
+     */
+    public long getStatementCacheMisses() {
+        return statementCache.getMisses();
+    }
+
     @Override
     public void execSQL(String sql) throws SQLException {
         Misc.checkNotNullOrEmpty(sql.trim(), "Input SQL");
@@ -219,16 +295,10 @@ public class SQLiteWrapper extends SQLDatabase {
     @Override
     public void execSQL(String sql, Object[] bindArgs) throws SQLException {
         Misc.checkNotNullOrEmpty(sql.trim(), "Input SQL");
-        SQLiteStatement stmt = null;
         try {
-            stmt = this.getConnection().prepare(sql);
-            stmt = SQLiteWrapperUtils.bindArguments(stmt, bindArgs);
-            while (stmt.step()) {
-            }
+            this.executeSQLStatement(sql, bindArgs);
         } catch (SQLiteException e) {
             throw new SQLException(e);
-        } finally {
-            SQLiteWrapperUtils.disposeQuietly(stmt);
         }
     }
 
@@ -322,10 +392,14 @@ public class SQLiteWrapper extends SQLDatabase {
         return insertWithOnConflict(table, initialValues, CONFLICT_NONE);
     }
 
-    private void executeSQLStatement(String sql, Object[] values) throws SQLiteException{
-        SQLiteStatement stmt = getConnection().prepare(sql);
-        stmt = SQLiteWrapperUtils.bindArguments(stmt, values);
-        while (stmt.step()) {
+    private void executeSQLStatement(String sql, Object[] values) throws SQLiteException {
+        SQLiteStatement stmt = statementCache.acquire(getConnection(), sql);
+        try {
+            stmt = SQLiteWrapperUtils.bindArguments(stmt, values);
+            while (stmt.step()) {
+            }
+        } finally {
+            statementCache.release(sql, stmt);
         }
     }
 }
@@ -76,6 +76,25 @@ public class SQLiteWrapperUtils {
         }
     }
 
+    /**
+     * Utility method to run the query on the db and return the value in the
+     * first column of the first row.
+     */
+    public static String stringForQuery(SQLiteConnection conn, String query, Object[] bindArgs)
+            throws SQLiteException {
+        SQLiteStatement stmt = null;
+        try {
+            stmt = bindArguments(conn.prepare(query), bindArgs);
+            if (stmt.step()) {
+                return stmt.columnString(0);
+            } else {
+                throw new IllegalStateException("query failed to return any result: " + query);
+            }
+        } finally {
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+        }
+    }
+
     public static SQLiteStatement bindArguments(SQLiteStatement stmt, Object[] bindArgs)
             throws SQLiteException {
 
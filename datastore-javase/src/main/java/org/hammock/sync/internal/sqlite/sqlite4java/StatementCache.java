@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2026 Hammock Sync Team. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.hammock.sync.internal.sqlite.sqlite4java;
+
+import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+import org.hammock.sync.internal.util.Misc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Least recently used cache of compiled statements for a single connection, keyed by their
+ * SQL text.</p>
+ *
+ * <p>A statement is taken out with {@link #acquire(SQLiteConnection, String)} and handed
+ * back with {@link #release(String, SQLiteStatement)}, which resets it and clears its
+ * bindings so it is ready for the next use. Statements evicted from the cache, or which fail
+ * to reset, are disposed.</p>
+ *
+ * <p>Like the sqlite4java connection it belongs to, a cache is confined to a single
+ * thread.</p>
+ */
+final class StatementCache {
+
+    private static final Logger logger = Logger.getLogger(StatementCache.class.getCanonicalName());
+
+    private final Map<String, SQLiteStatement> statements;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param capacity maximum number of statements to keep compiled
+     */
+    StatementCache(final int capacity) {
+        Misc.checkArgument(capacity > 0, "capacity must be greater than 0.");
+        this.statements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                if (size() > capacity) {
+                    SQLiteWrapperUtils.disposeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * <p>Returns a compiled statement for {@code sql}, ready to have its arguments bound.</p>
+     *
+     * <p>The statement is removed from the cache until it is released, so it can't be handed
+     * out twice.</p>
+     */
+    SQLiteStatement acquire(SQLiteConnection conn, String sql) throws SQLiteException {
+        SQLiteStatement stmt = statements.remove(sql);
+        if (stmt != null && !stmt.isDisposed()) {
+            hits++;
+            return stmt;
+        }
+        misses++;
+        // the statement is cached here, so don't have sqlite4java cache it too
+        return conn.prepare(sql, false);
+    }
+
+    /**
+     * Resets {@code stmt} and returns it to the cache, or disposes of it if it can't be
+     * reused.
+     */
+    void release(String sql, SQLiteStatement stmt) {
+        if (stmt == null || stmt.isDisposed()) {
+            return;
+        }
+        try {
+            stmt.reset(true);
+        } catch (SQLiteException e) {
+            logger.log(Level.FINE, "Failed to reset statement, disposing it", e);
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+            return;
+        }
+        SQLiteStatement previous = statements.put(sql, stmt);
+        if (previous != null && previous != stmt) {
+            SQLiteWrapperUtils.disposeQuietly(previous);
+        }
+    }
+
+    /**
+     * Disposes of all the cached statements.
+     */
+    void clear() {
+        List<SQLiteStatement> cached = new ArrayList<SQLiteStatement>(statements.values());
+        statements.clear();
+        for (SQLiteStatement stmt : cached) {
+            SQLiteWrapperUtils.disposeQuietly(stmt);
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+}
@@ -564,6 +564,56 @@ public class SQLiteWrapperTest {
         }
     }
 
+    @Test
+    public void insert_repeatedInsertsReuseStatement() {
+        prepareDatabaseForTesting();
+        long misses = database.getStatementCacheMisses();
+        long hits = database.getStatementCacheHits();
+
+        for (int i = 0; i < 10; i++) {
+            ContentValues cv = new ContentValues();
+            cv.put("doc_id", 101 + i);
+            cv.put("doc_name", "kaka");
+            cv.put("balance", "-299.99");
+            Assert.assertEquals(101 + i, database.insert(doc_table_name, cv));
+        }
+
+        Assert.assertEquals(misses + 1, database.getStatementCacheMisses());
+        Assert.assertEquals(hits + 9, database.getStatementCacheHits());
+    }
+
+    @Test
+    public void insert_statementReusableAfterFailure() throws Exception {
+        prepareDatabaseForTesting();
+
+        ContentValues cv = new ContentValues();
+        cv.put("doc_id", 1);
+        cv.put("doc_name", "kaka");
+        cv.put("balance", "-299.99");
+        Assert.assertEquals(-1, database.insert(doc_table_name, cv));
+
+        cv.put("doc_id", 101);
+        Assert.assertEquals(101, database.insert(doc_table_name, cv));
+        Assert.assertEquals(5, SQLiteWrapperUtils.intForQuery(conn,
+                "SELECT count(*) FROM docs", new Object[]{}));
+    }
+
+    @Test
+    public void execSQL_statementReusedWithNewArguments() throws Exception {
+        prepareDatabaseForTesting();
+
+        String sql = "UPDATE docs SET doc_name = ? WHERE doc_id = ?";
+        database.execSQL(sql, new Object[]{"first", 1});
+        long hits = database.getStatementCacheHits();
+        database.execSQL(sql, new Object[]{"second", 2});
+        Assert.assertEquals(hits + 1, database.getStatementCacheHits());
+
+        Assert.assertEquals("first", SQLiteWrapperUtils.stringForQuery(conn,
+                "SELECT doc_name FROM docs WHERE doc_id = ?", new Object[]{1}));
+        Assert.assertEquals("second", SQLiteWrapperUtils.stringForQuery(conn,
+                "SELECT doc_name FROM docs WHERE doc_id = ?", new Object[]{2}));
+    }
+
     @Test(expected = SQLException.class)
     public void close_queryAfterClose() throws SQLException {
         this.database.close();